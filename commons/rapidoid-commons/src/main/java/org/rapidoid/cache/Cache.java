@@ -25,6 +25,8 @@ import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.cache.impl.CacheStats;
 
+import java.util.Map;
+
 @Authors("Nikolche Mihajlovski")
 @Since("5.3.0")
 public interface Cache<K, V> {
@@ -39,11 +41,23 @@ public interface Cache<K, V> {
 	 */
 	V getIfExists(K key);
 
+	/**
+	 * Returns the cached values for the given keys, loading the missing ones with a single call of the bulk loader
+	 * (if configured), or one by one with the loader. The keys without value are not included in the result.
+	 */
+	Map<K, V> getAll(Iterable<? extends K> keys);
+
 	/**
 	 * Invalidates the cached value for the given key.
 	 */
 	void invalidate(K key);
 
+	/**
+	 * Invalidates the cached value for the given key, only if it is the specified value (e.g. it wasn't replaced in the
+	 * meantime).
+	 */
+	void invalidate(K key, V value);
+
 	/**
 	 * Sets a new cached value for the given key.
 	 */
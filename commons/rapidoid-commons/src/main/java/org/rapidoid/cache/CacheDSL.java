@@ -27,6 +27,8 @@ import org.rapidoid.annotation.Since;
 import org.rapidoid.cache.impl.CacheFactory;
 import org.rapidoid.lambda.Mapper;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 @Authors("Nikolche Mihajlovski")
@@ -37,16 +39,22 @@ public class CacheDSL<K, V> extends RapidoidThing {
 
 	private volatile Mapper<K, V> loader;
 
+	private volatile Mapper<Collection<K>, Map<K, V>> bulkLoader;
+
 	private volatile int capacity;
 
 	private volatile long ttl = 0;
 
+	private volatile long refreshAfterWrite = 0;
+
 	private volatile ScheduledThreadPoolExecutor crawler;
 
 	private volatile boolean statistics;
 
 	private volatile boolean manageable;
 
+	private volatile CachePolicy policy = CachePolicy.FIFO;
+
 	/**
 	 * Please use loader(...) instead.
 	 */
@@ -73,6 +81,19 @@ public class CacheDSL<K, V> extends RapidoidThing {
 		return this;
 	}
 
+	public Mapper<Collection<K>, Map<K, V>> bulkLoader() {
+		return bulkLoader;
+	}
+
+	/**
+	 * Loads the values of multiple keys at once, e.g. with a single query. Used by {@link Cache#getAll(Iterable)},
+	 * and also for the single keys if no loader is specified.
+	 */
+	public CacheDSL<K, V> bulkLoader(Mapper<Collection<K>, Map<K, V>> bulkLoader) {
+		this.bulkLoader = bulkLoader;
+		return this;
+	}
+
 	public String name() {
 		return name;
 	}
@@ -100,6 +121,19 @@ public class CacheDSL<K, V> extends RapidoidThing {
 		return this.ttl;
 	}
 
+	public long refreshAfterWrite() {
+		return this.refreshAfterWrite;
+	}
+
+	/**
+	 * For how long (in ms) after loading the value should be reloaded on access. The value is reloaded asynchronously,
+	 * and the current value is returned in the meantime (until it expires).
+	 */
+	public CacheDSL<K, V> refreshAfterWrite(long refreshAfterWrite) {
+		this.refreshAfterWrite = refreshAfterWrite;
+		return this;
+	}
+
 	public ScheduledThreadPoolExecutor crawler() {
 		return crawler;
 	}
@@ -127,6 +161,15 @@ public class CacheDSL<K, V> extends RapidoidThing {
 		return this;
 	}
 
+	public CachePolicy policy() {
+		return policy;
+	}
+
+	public CacheDSL<K, V> policy(CachePolicy policy) {
+		this.policy = policy;
+		return this;
+	}
+
 	public Cache<K, V> build() {
 		return CacheFactory.create(this);
 	}
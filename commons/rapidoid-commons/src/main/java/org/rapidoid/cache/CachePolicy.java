@@ -0,0 +1,44 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.cache;
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+/**
+ * The policy that decides which cached entries are evicted when the cache is full.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public enum CachePolicy {
+
+	/**
+	 * The entries are evicted in FIFO order within each hash bucket (the default).
+	 */
+	FIFO,
+
+	/**
+	 * Window TinyLFU: a small LRU window for the new entries, and a segmented LRU main space which only admits the
+	 * entries that are accessed more frequently than the ones they would replace, so the scans don't flush the cache.
+	 */
+	W_TINY_LFU
+
+}
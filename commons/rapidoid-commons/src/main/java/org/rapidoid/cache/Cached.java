@@ -40,4 +40,19 @@ public @interface Cached {
 
 	long ttl();
 
+	/**
+	 * For how long (in ms) after the expiration the stale value can be served, while it's being refreshed.
+	 */
+	long staleTtl() default 0;
+
+	/**
+	 * Whether the concurrent cache misses for the same key should wait for a single computation of the value.
+	 */
+	boolean coalescing() default false;
+
+	/**
+	 * The names of the request headers the cached response varies by (e.g. Accept-Encoding).
+	 */
+	String[] vary() default {};
+
 }
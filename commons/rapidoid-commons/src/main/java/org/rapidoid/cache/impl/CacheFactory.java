@@ -31,8 +31,8 @@ import org.rapidoid.cache.CacheDSL;
 public class CacheFactory extends RapidoidThing {
 
 	public static <K, V> ConcurrentCache<K, V> create(CacheDSL<K, V> params) {
-		return ConcurrentCache.create(params.name(), params.capacity(), params.loader(), params.ttl(),
-			params.crawler(), params.statistics(), params.manageable());
+		return ConcurrentCache.create(params.name(), params.capacity(), params.loader(), params.bulkLoader(), params.ttl(),
+			params.refreshAfterWrite(), params.crawler(), params.statistics(), params.manageable(), params.policy());
 	}
 
 }
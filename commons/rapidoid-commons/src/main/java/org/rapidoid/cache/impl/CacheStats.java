@@ -45,6 +45,12 @@ public class CacheStats extends RapidoidThing {
 
 	public final AtomicLong l1Misses = new AtomicLong();
 
+	public final AtomicLong evictions = new AtomicLong();
+
+	public final AtomicLong rejections = new AtomicLong();
+
+	public final AtomicLong refreshes = new AtomicLong();
+
 	public void reset() {
 		// basic
 		hits.set(0);
@@ -56,6 +62,9 @@ public class CacheStats extends RapidoidThing {
 		crawls.set(0);
 		l1Hits.set(0);
 		l1Misses.set(0);
+		evictions.set(0);
+		rejections.set(0);
+		refreshes.set(0);
 	}
 
 	public long total() {
@@ -63,6 +72,16 @@ public class CacheStats extends RapidoidThing {
 		return hits.get() + misses.get() + errors.get() + bypassed.get();
 	}
 
+	/**
+	 * The ratio of the hits among the hits and misses, or 0 if there were none.
+	 */
+	public double hitRatio() {
+		long hits = this.hits.get();
+		long lookups = hits + misses.get();
+
+		return lookups != 0 ? hits * 1.0 / lookups : 0;
+	}
+
 	@Override
 	public String toString() {
 		return "CacheStats{" +
@@ -73,6 +92,9 @@ public class CacheStats extends RapidoidThing {
 			", crawls=" + crawls +
 			", l1Hits=" + l1Hits +
 			", l1Misses=" + l1Misses +
+			", evictions=" + evictions +
+			", rejections=" + rejections +
+			", refreshes=" + refreshes +
 			'}';
 	}
 }
@@ -33,8 +33,11 @@ public class CachedValue<V> extends RapidoidThing {
 
 	final long expiresAt;
 
-	CachedValue(V value, long expiresAt) {
+	final long refreshAt;
+
+	CachedValue(V value, long expiresAt, long refreshAt) {
 		this.value = value;
 		this.expiresAt = expiresAt;
+		this.refreshAt = refreshAt;
 	}
 }
@@ -23,15 +23,22 @@ package org.rapidoid.cache.impl;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.cache.Cache;
+import org.rapidoid.cache.CachePolicy;
 import org.rapidoid.cache.Caching;
 import org.rapidoid.commons.Rnd;
+import org.rapidoid.expire.TimerWheel;
 import org.rapidoid.lambda.Mapper;
 import org.rapidoid.log.Log;
+import org.rapidoid.u.U;
 import org.rapidoid.util.AbstractMapImpl;
 import org.rapidoid.util.MapEntry;
 import org.rapidoid.util.Msc;
 import org.rapidoid.util.SimpleBucket;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -42,18 +49,36 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 
 	private static final int DESIRED_BUCKET_SIZE = 8;
 
+	private static final long EXPIRATION_TICK_MS = 1000;
+
 	private final String name;
 
 	private final int capacity;
 
 	private final Mapper<K, V> loader;
 
+	private final Mapper<Collection<K>, Map<K, V>> bulkLoader;
+
 	private final long ttlInMs;
 
+	private final long refreshAfterMs;
+
+	/**
+	 * Expires the cached values with TTL, advanced only by the crawler task.
+	 */
+	private final TimerWheel expirations;
+
 	private final CacheStats stats = new CacheStats();
 
 	private final boolean statistics;
 
+	private final CachePolicy policy;
+
+	/**
+	 * Decides which entries are evicted, if the W-TinyLFU policy is used, otherwise the buckets evict in FIFO order.
+	 */
+	private final TinyLFUPolicy<K> tinyLFU;
+
 	private final int l1Xor = Rnd.rnd();
 
 	private static final int L1_SEGMENTS = 32;
@@ -68,25 +93,52 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 	public static <K, V> ConcurrentCache<K, V> create(String name, int capacity, Mapper<K, V> loader, long ttlInMs,
 	                                                  ScheduledThreadPoolExecutor scheduler, boolean statistics, boolean manageable) {
 
+		return create(name, capacity, loader, ttlInMs, scheduler, statistics, manageable, CachePolicy.FIFO);
+	}
+
+	public static <K, V> ConcurrentCache<K, V> create(String name, int capacity, Mapper<K, V> loader, long ttlInMs,
+	                                                  ScheduledThreadPoolExecutor scheduler, boolean statistics, boolean manageable,
+	                                                  CachePolicy policy) {
+
+		return create(name, capacity, loader, null, ttlInMs, 0, scheduler, statistics, manageable, policy);
+	}
+
+	public static <K, V> ConcurrentCache<K, V> create(String name, int capacity, Mapper<K, V> loader,
+	                                                  Mapper<Collection<K>, Map<K, V>> bulkLoader, long ttlInMs,
+	                                                  long refreshAfterMs, ScheduledThreadPoolExecutor scheduler,
+	                                                  boolean statistics, boolean manageable, CachePolicy policy) {
+
 		boolean unbounded = capacity == 0;
 		if (unbounded) capacity = 65536; // initial capacity
 
-		return new ConcurrentCache<>(name, capacity, loader, ttlInMs, scheduler, statistics, manageable, unbounded);
+		// nothing is evicted from an unbounded cache
+		if (unbounded) policy = CachePolicy.FIFO;
+
+		return new ConcurrentCache<>(name, capacity, loader, bulkLoader, ttlInMs, refreshAfterMs, scheduler, statistics,
+			manageable, unbounded, U.or(policy, CachePolicy.FIFO));
 	}
 
-	private ConcurrentCache(String name, int capacity, Mapper<K, V> loader, long ttlInMs,
-	                        ScheduledThreadPoolExecutor scheduler, boolean statistics, boolean manageable, boolean unbounded) {
+	private ConcurrentCache(String name, int capacity, Mapper<K, V> loader, Mapper<Collection<K>, Map<K, V>> bulkLoader,
+	                        long ttlInMs, long refreshAfterMs, ScheduledThreadPoolExecutor scheduler, boolean statistics,
+	                        boolean manageable, boolean unbounded, CachePolicy policy) {
+
+		// with W-TinyLFU, the buckets don't evict anything on their own
+		super(new SimpleCacheTable<K, V>(capacity, DESIRED_BUCKET_SIZE, unbounded || policy == CachePolicy.W_TINY_LFU));
 
-		super(new SimpleCacheTable<K, V>(capacity, DESIRED_BUCKET_SIZE, unbounded));
+		this.policy = policy;
+		this.tinyLFU = policy == CachePolicy.W_TINY_LFU ? new TinyLFUPolicy<K>(capacity, statistics ? stats : null) : null;
 
 		for (int i = 0; i < l1Cache.length; i++) {
 			l1Cache[i] = new L1CacheSegment<>(L1_SEGMENT_SIZE);
 		}
 
 		this.name = name;
-		this.loader = loader;
+		this.loader = loader != null || bulkLoader == null ? loader : singleLoader(bulkLoader);
+		this.bulkLoader = bulkLoader;
 		this.ttlInMs = ttlInMs;
+		this.refreshAfterMs = refreshAfterMs;
 		this.statistics = statistics;
+		this.expirations = ttlInMs > 0 ? new TimerWheel(EXPIRATION_TICK_MS) : null;
 
 		scheduleCrawl(ttlInMs, scheduler);
 
@@ -97,6 +149,16 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 		}
 	}
 
+	private static <K, V> Mapper<K, V> singleLoader(final Mapper<Collection<K>, Map<K, V>> bulkLoader) {
+		return new Mapper<K, V>() {
+			@Override
+			public V map(K key) throws Exception {
+				Map<K, V> values = bulkLoader.map(Collections.singletonList(key));
+				return values != null ? values.get(key) : null;
+			}
+		};
+	}
+
 	private void scheduleCrawl(long ttlInMs, ScheduledThreadPoolExecutor scheduler) {
 		if (ttlInMs > 0) {
 
@@ -113,27 +175,15 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 						Log.error("Error occurred while crawling the cache!", e);
 					}
 				}
-			}, 1, 1, TimeUnit.SECONDS);
+			}, EXPIRATION_TICK_MS, EXPIRATION_TICK_MS, TimeUnit.MILLISECONDS);
 		}
 	}
 
+	/**
+	 * Releases the expired values, visiting only the atoms which are due, instead of all the buckets.
+	 */
 	private void crawl() {
-		SimpleBucket<MapEntry<K, ConcurrentCacheAtom<K, V>>>[] buckets = entries.buckets;
-
-		for (SimpleBucket<MapEntry<K, ConcurrentCacheAtom<K, V>>> bucket : buckets) {
-			if (bucket != null) {
-				for (int i = 0; i < bucket.size(); i++) {
-					MapEntry<K, ConcurrentCacheAtom<K, V>> entry = bucket.get(i);
-
-					if (entry != null) {
-						ConcurrentCacheAtom<K, V> cachedCalc = entry.value;
-						if (cachedCalc != null) {
-							cachedCalc.checkTTL();
-						}
-					}
-				}
-			}
-		}
+		expirations.advance(U.time());
 
 		if (statistics) stats.crawls.incrementAndGet();
 	}
@@ -150,6 +200,7 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 
 		if (l1atom != null) {
 			if (statistics) stats.l1Hits.incrementAndGet();
+			if (tinyLFU != null) tinyLFU.recordAccess(key);
 			return l1atom.get();
 		} else {
 			if (statistics) stats.l1Misses.incrementAndGet();
@@ -160,6 +211,7 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 
 		if (entry != null) {
 			l1.add(hash, entry.value);
+			if (tinyLFU != null) tinyLFU.recordAccess(key);
 
 			ConcurrentCacheAtom<K, V> atom = entry.value;
 			return atom.get();
@@ -172,6 +224,10 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 
 			l1.add(hash, entry.value);
 
+			if (entry.value == atom) {
+				admit(key);
+			}
+
 			return atom.get();
 		}
 	}
@@ -188,6 +244,7 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 
 		if (l1atom != null) {
 			if (statistics) stats.l1Hits.incrementAndGet();
+			if (tinyLFU != null) tinyLFU.recordAccess(key);
 			return l1atom.getIfExists();
 		} else {
 			if (statistics) stats.l1Misses.incrementAndGet();
@@ -196,6 +253,7 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 		MapEntry<K, ConcurrentCacheAtom<K, V>> entry = findEntry(key);
 		if (entry != null) {
 			l1.add(hash, entry.value);
+			if (tinyLFU != null) tinyLFU.recordAccess(key);
 			return entry.value.getIfExists();
 
 		} else {
@@ -204,9 +262,14 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 	}
 
 	private ConcurrentCacheAtom<K, V> createAtom(K key) {
-		return statistics
-			? new ConcurrentCacheAtomWithStats<>(key, loader, ttlInMs, stats)
-			: new ConcurrentCacheAtom<>(key, loader, ttlInMs);
+		ConcurrentCacheAtom<K, V> atom = statistics
+			? new ConcurrentCacheAtomWithStats<>(key, loader, ttlInMs, refreshAfterMs, expirations, stats)
+			: new ConcurrentCacheAtom<>(key, loader, ttlInMs, refreshAfterMs, expirations);
+
+		// only the W-TinyLFU policy has to be notified about the expired values
+		if (tinyLFU != null) atom.cache = this;
+
+		return atom;
 	}
 
 	/**
@@ -246,6 +309,26 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 
 			if (entry != null) {
 				entry.value.invalidate();
+				discard(key, entry.value);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void invalidate(K key, V value) {
+		int hash = key.hashCode();
+
+		SimpleBucket<MapEntry<K, ConcurrentCacheAtom<K, V>>> bucket = l2segment(hash);
+
+		synchronized (bucket) {
+			MapEntry<K, ConcurrentCacheAtom<K, V>> entry = findEntry(key, bucket);
+
+			// the L1 cache refers to the same atom
+			if (entry != null && entry.value.invalidate(value)) {
+				discard(key, entry.value);
 			}
 		}
 	}
@@ -266,10 +349,132 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 
 			if (entry != null) {
 				entry.value.set(value);
+				return;
+			}
+
+			ConcurrentCacheAtom<K, V> atom = createAtom(key);
+			atom.set(value);
+			putAtom(key, bucket, atom);
+		}
+
+		admit(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<K, V> getAll(Iterable<? extends K> keys) {
+		Map<K, V> values = U.map();
+		List<K> missing = U.list();
+
+		for (K key : keys) {
+			V value = getIfExists(key);
+
+			if (value != null) {
+				values.put(key, value);
 			} else {
-				ConcurrentCacheAtom<K, V> atom = createAtom(key);
-				atom.set(value);
-				putAtom(key, bucket, atom);
+				missing.add(key);
+			}
+		}
+
+		if (missing.isEmpty()) return values;
+
+		if (bulkLoader != null) {
+			Map<K, V> loaded;
+
+			try {
+				loaded = bulkLoader.map(missing);
+			} catch (Throwable e) {
+				if (statistics) stats.errors.incrementAndGet();
+				throw U.rte("Couldn't load the cache values!", e);
+			}
+
+			if (loaded != null) {
+				for (K key : missing) {
+					V value = loaded.get(key);
+
+					if (value != null) {
+						set(key, value);
+						values.put(key, value);
+					}
+				}
+			}
+
+		} else if (loader != null) {
+			for (K key : missing) {
+				V value = get(key);
+				if (value != null) values.put(key, value);
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * Lets the W-TinyLFU policy track the new key, and evicts the key it chooses (maybe the new key itself).
+	 */
+	private void admit(K key) {
+		if (tinyLFU == null) return;
+
+		K evicted = tinyLFU.add(key);
+
+		if (evicted != null) {
+			remove(evicted);
+		}
+	}
+
+	/**
+	 * Called when the value of the atom expired.
+	 */
+	void onExpired(ConcurrentCacheAtom<K, V> atom) {
+		SimpleBucket<MapEntry<K, ConcurrentCacheAtom<K, V>>> bucket = l2segment(atom.key.hashCode());
+
+		synchronized (bucket) {
+			// it might have been loaded again in the meantime
+			if (atom.cachedValue == null) discard(atom.key, atom);
+		}
+	}
+
+	/**
+	 * Removes the entry of the atom without value, if the W-TinyLFU policy is used, as it tracks only the cached
+	 * values, and the buckets don't evict anything on their own. Executes inside the bucket lock.
+	 */
+	private void discard(K key, ConcurrentCacheAtom<K, V> atom) {
+		if (tinyLFU == null) return;
+
+		SimpleBucket<MapEntry<K, ConcurrentCacheAtom<K, V>>> bucket = l2segment(key.hashCode());
+
+		for (int i = 0; i < bucket.size(); i++) {
+			MapEntry<K, ConcurrentCacheAtom<K, V>> entry = bucket.get(i);
+
+			if (entry != null && entry.value == atom) {
+				bucket.delete(i);
+				atom.removed = true;
+				l1Segment(key.hashCode()).remove(key);
+				tinyLFU.remove(key);
+				return;
+			}
+		}
+	}
+
+	private void remove(K key) {
+		int hash = key.hashCode();
+
+		SimpleBucket<MapEntry<K, ConcurrentCacheAtom<K, V>>> bucket = l2segment(hash);
+
+		synchronized (bucket) {
+			for (int i = 0; i < bucket.size(); i++) {
+				MapEntry<K, ConcurrentCacheAtom<K, V>> entry = bucket.get(i);
+
+				if (entry != null && U.eq(entry.key, key)) {
+					bucket.delete(i);
+
+					// a concurrent get() might still add the atom to L1, but it won't be used any more
+					entry.value.removed = true;
+					l1Segment(hash).remove(key);
+					return;
+				}
 			}
 		}
 	}
@@ -278,6 +483,10 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 		return ttlInMs;
 	}
 
+	public long refreshAfterMs() {
+		return refreshAfterMs;
+	}
+
 	@Override
 	public CacheStats stats() {
 		return stats;
@@ -287,6 +496,10 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 		return name;
 	}
 
+	public CachePolicy policy() {
+		return policy;
+	}
+
 	@Override
 	public int size() {
 		int size = 0;
@@ -326,6 +539,8 @@ public class ConcurrentCache<K, V> extends AbstractMapImpl<K, ConcurrentCacheAto
 		for (L1CacheSegment<K, V> l1 : l1Cache) {
 			l1.clear();
 		}
+
+		if (tinyLFU != null) tinyLFU.clear();
 	}
 
 }
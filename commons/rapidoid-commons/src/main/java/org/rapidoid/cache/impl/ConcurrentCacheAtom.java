@@ -25,18 +25,25 @@ import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.cache.CacheAtom;
+import org.rapidoid.expire.ExpirationTimer;
+import org.rapidoid.expire.Expiring;
+import org.rapidoid.expire.TimerWheel;
+import org.rapidoid.job.Jobs;
 import org.rapidoid.lambda.Mapper;
+import org.rapidoid.log.Log;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Resetable;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.3.0")
-public class ConcurrentCacheAtom<K, V> extends RapidoidThing implements CacheAtom<V>, Callable<V> {
+public class ConcurrentCacheAtom<K, V> extends RapidoidThing implements CacheAtom<V>, Callable<V>, Expiring {
 
 	protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -46,14 +53,52 @@ public class ConcurrentCacheAtom<K, V> extends RapidoidThing implements CacheAto
 
 	protected final long ttlInMs;
 
+	protected final long refreshAfterMs;
+
 	protected volatile CachedValue<V> cachedValue;
 
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+
+	/**
+	 * Changed by every explicit write (set or invalidation), so a background refresh that started before it doesn't
+	 * overwrite it. Changed only inside the write lock.
+	 */
+	private volatile long generation;
+
+	private final TimerWheel expirations;
+
+	private final ExpirationTimer expirationTimer;
+
 	long approxAccessCounter;
 
+	/**
+	 * The cache that should be notified when the value expires, or <code>null</code>.
+	 */
+	volatile ConcurrentCache<K, V> cache;
+
+	/**
+	 * Set when the atom is removed from the cache (inside the bucket lock), so the L1 cache won't use it any more.
+	 */
+	volatile boolean removed;
+
 	public ConcurrentCacheAtom(K key, Mapper<K, V> loader, long ttlInMs) {
+		this(key, loader, ttlInMs, 0);
+	}
+
+	public ConcurrentCacheAtom(K key, Mapper<K, V> loader, long ttlInMs, long refreshAfterMs) {
+		this(key, loader, ttlInMs, refreshAfterMs, null);
+	}
+
+	/**
+	 * @param expirations the timer wheel that will expire the cached values, or <code>null</code>
+	 */
+	public ConcurrentCacheAtom(K key, Mapper<K, V> loader, long ttlInMs, long refreshAfterMs, TimerWheel expirations) {
 		this.key = key;
 		this.loader = loader;
 		this.ttlInMs = ttlInMs;
+		this.refreshAfterMs = refreshAfterMs;
+		this.expirations = ttlInMs > 0 ? expirations : null;
+		this.expirationTimer = this.expirations != null ? new ExpirationTimer(this) : null;
 	}
 
 	/**
@@ -94,13 +139,16 @@ public class ConcurrentCacheAtom<K, V> extends RapidoidThing implements CacheAto
 		if (cached != null) {
 
 			long expiresAt = cached.expiresAt;
-			if (expiresAt == Long.MAX_VALUE) {
+			if (expiresAt == Long.MAX_VALUE && cached.refreshAt == Long.MAX_VALUE) {
 				updateStats(false, false);
 				return cached.value;
 			}
 
 			now = U.time();
 			if (now <= expiresAt) {
+				// the current value is still served while it's being reloaded
+				if (updateStats && now > cached.refreshAt) refreshAsync();
+
 				updateStats(false, false);
 				return cached.value;
 			}
@@ -166,6 +214,57 @@ public class ConcurrentCacheAtom<K, V> extends RapidoidThing implements CacheAto
 		return result;
 	}
 
+	/**
+	 * Reloads the value in background, unless it's already being reloaded.
+	 */
+	private void refreshAsync() {
+		if (loader == null || !refreshing.compareAndSet(false, true)) return;
+
+		try {
+			Jobs.executor().execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						refresh();
+					} finally {
+						refreshing.set(false);
+					}
+				}
+			});
+
+		} catch (RejectedExecutionException e) {
+			refreshing.set(false);
+			Log.warn("Couldn't schedule the cache value refresh!", "key", key);
+		}
+	}
+
+	private void refresh() {
+		long startGeneration = generation;
+		V newValue;
+
+		try {
+			newValue = loader.map(key);
+
+		} catch (Throwable e) {
+			// keep serving the current value until it expires
+			Log.error("Couldn't refresh the cache value!", e);
+			updateRefreshStats(true);
+			return;
+		}
+
+		writeLock();
+
+		// the value was set or invalidated in the meantime, so the refreshed value is outdated
+		boolean current = generation == startGeneration;
+		V oldValue = current ? setValueInsideWriteLock(newValue) : null;
+
+		writeUnlock();
+
+		releaseOldValue(oldValue); // release the old value - outside of lock
+
+		updateRefreshStats(false);
+	}
+
 	private void readLock() {
 		try {
 			if (!lock.readLock().tryLock(10, TimeUnit.SECONDS)) {
@@ -198,12 +297,17 @@ public class ConcurrentCacheAtom<K, V> extends RapidoidThing implements CacheAto
 		// do nothing
 	}
 
+	protected void updateRefreshStats(boolean hasError) {
+		// do nothing
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void set(V value) {
 		writeLock();
+		generation++;
 		V oldValue = setValueInsideWriteLock(value);
 		writeUnlock();
 
@@ -218,8 +322,12 @@ public class ConcurrentCacheAtom<K, V> extends RapidoidThing implements CacheAto
 		V oldValue = cached != null ? cached.value : null;
 
 		if (newValue != null) {
-			long expiresAt = ttlInMs > 0 ? U.time() + ttlInMs : Long.MAX_VALUE;
-			cachedValue = new CachedValue<>(newValue, expiresAt);
+			long now = U.time();
+			long expiresAt = ttlInMs > 0 ? now + ttlInMs : Long.MAX_VALUE;
+			long refreshAt = refreshAfterMs > 0 ? now + refreshAfterMs : Long.MAX_VALUE;
+			cachedValue = new CachedValue<>(newValue, expiresAt, refreshAt);
+
+			if (expirations != null) expirations.schedule(expirationTimer);
 
 		} else {
 			cachedValue = null;
@@ -234,12 +342,36 @@ public class ConcurrentCacheAtom<K, V> extends RapidoidThing implements CacheAto
 	@Override
 	public void invalidate() {
 		writeLock();
+		generation++;
 		V oldValue = setValueInsideWriteLock(null);
 		writeUnlock();
 
 		releaseOldValue(oldValue); // release the old value - outside of lock
 	}
 
+	/**
+	 * Invalidates the cached value, only if it is the specified value.
+	 *
+	 * @return whether the value was invalidated
+	 */
+	boolean invalidate(V value) {
+		writeLock();
+
+		CachedValue<V> cached = cachedValue;
+		boolean matches = cached != null && cached.value == value;
+
+		if (matches) {
+			generation++;
+			setValueInsideWriteLock(null);
+		}
+
+		writeUnlock();
+
+		if (matches) releaseOldValue(value); // release the old value - outside of lock
+
+		return matches;
+	}
+
 	/**
 	 * Clean-up of an old, previously cached value.
 	 *
@@ -255,6 +387,25 @@ public class ConcurrentCacheAtom<K, V> extends RapidoidThing implements CacheAto
 		retrieveCachedValue(false, false);
 	}
 
+	@Override
+	public long getExpiresAt() {
+		CachedValue<V> cached = cachedValue;
+		return cached != null ? cached.expiresAt : 0;
+	}
+
+	@Override
+	public void setExpiresAt(long expiresAt) {
+		// the expiration time is determined by the TTL
+	}
+
+	@Override
+	public void expire() {
+		checkTTL();
+
+		ConcurrentCache<K, V> cache = this.cache;
+		if (cache != null && cachedValue == null) cache.onExpired(this);
+	}
+
 	@Override
 	public V call() throws Exception {
 		return get();
@@ -266,6 +417,7 @@ public class ConcurrentCacheAtom<K, V> extends RapidoidThing implements CacheAto
 			"lock=" + lock +
 			", loader=" + loader +
 			", ttlInMs=" + ttlInMs +
+			", refreshAfterMs=" + refreshAfterMs +
 			", cachedValue=" + cachedValue +
 			'}';
 	}
@@ -23,6 +23,7 @@ package org.rapidoid.cache.impl;
 
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.expire.TimerWheel;
 import org.rapidoid.lambda.Mapper;
 
 import java.util.concurrent.atomic.AtomicLong;
@@ -40,10 +41,18 @@ public class ConcurrentCacheAtomWithStats<K, V> extends ConcurrentCacheAtom<K, V
 	private final CacheStats stats;
 
 	public ConcurrentCacheAtomWithStats(K key, Mapper<K, V> loader, long ttlInMs, CacheStats stats) {
-		super(key, loader, ttlInMs);
-		this.stats = stats;
+		this(key, loader, ttlInMs, 0, stats);
 	}
 
+	public ConcurrentCacheAtomWithStats(K key, Mapper<K, V> loader, long ttlInMs, long refreshAfterMs, CacheStats stats) {
+		this(key, loader, ttlInMs, refreshAfterMs, null, stats);
+	}
+
+	public ConcurrentCacheAtomWithStats(K key, Mapper<K, V> loader, long ttlInMs, long refreshAfterMs,
+	                                    TimerWheel expirations, CacheStats stats) {
+		super(key, loader, ttlInMs, refreshAfterMs, expirations);
+		this.stats = stats;
+	}
 
 	protected void updateStats(boolean missed, boolean hasError) {
 		if (hasError) {
@@ -60,6 +69,16 @@ public class ConcurrentCacheAtomWithStats<K, V> extends ConcurrentCacheAtom<K, V
 		}
 	}
 
+	@Override
+	protected void updateRefreshStats(boolean hasError) {
+		if (hasError) {
+			errors.incrementAndGet();
+			stats.errors.incrementAndGet();
+		} else {
+			stats.refreshes.incrementAndGet();
+		}
+	}
+
 	public AtomicLong getHits() {
 		return hits;
 	}
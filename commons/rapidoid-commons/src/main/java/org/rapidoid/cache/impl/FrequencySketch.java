@@ -0,0 +1,127 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.cache.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.util.Msc;
+
+/**
+ * Approximates the access frequency of the keys with a count-min sketch of 4-bit counters (16 counters per long).
+ * The counters are halved periodically, so the old popularity fades away. Not thread-safe.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class FrequencySketch extends RapidoidThing {
+
+	private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private static final int MAX_COUNT = 15;
+
+	private final long[] table;
+
+	private final int tableMask;
+
+	private final int sampleSize;
+
+	private int size;
+
+	public FrequencySketch(int capacity) {
+		int width = 1 << Msc.log2(Math.max(capacity, 16));
+
+		this.table = new long[width];
+		this.tableMask = width - 1;
+		this.sampleSize = 10 * width;
+	}
+
+	public int frequency(int hash) {
+		int start = (spread(hash) & 3) << 2;
+		int frequency = MAX_COUNT;
+
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+
+		return frequency;
+	}
+
+	public void increment(int hash) {
+		int start = (spread(hash) & 3) << 2;
+		boolean added = false;
+
+		for (int i = 0; i < 4; i++) {
+			added |= incrementAt(indexOf(hash, i), start + i);
+		}
+
+		if (added && ++size >= sampleSize) {
+			reset();
+		}
+	}
+
+	private boolean incrementAt(int index, int counter) {
+		int offset = counter << 2;
+		long mask = 0xfL << offset;
+
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Halves all the counters, to age the frequencies.
+	 */
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+
+		size /= 2;
+	}
+
+	public void clear() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = 0;
+		}
+
+		size = 0;
+	}
+
+	private int indexOf(int hash, int row) {
+		long h = (spread(hash) + SEEDS[row]) * SEEDS[row];
+		h += h >>> 32;
+		return ((int) h) & tableMask;
+	}
+
+	private static int spread(int hash) {
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		return (hash >>> 16) ^ hash;
+	}
+
+}
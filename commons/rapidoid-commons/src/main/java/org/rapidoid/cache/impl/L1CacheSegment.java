@@ -53,14 +53,15 @@ public class L1CacheSegment<K, V> extends RapidoidThing {
 	public ConcurrentCacheAtom<K, V> find(K key) {
 
 		ConcurrentCacheAtom<K, V> latestAtom = latest;
-		if (latestAtom != null && U.eq(latestAtom.key, key)) {
+		if (latestAtom != null && !latestAtom.removed && U.eq(latestAtom.key, key)) {
 			return latestAtom;
 		}
 
 		for (int i = 0; i < keys.length; i++) {
 			if (U.eq(keys[i], key)) {
 				ConcurrentCacheAtom<K, V> atom = atoms[i];
-				if (atom != null && U.eq(atom.key, key)) {
+				// the removed atom might have been added concurrently, after it was removed
+				if (atom != null && !atom.removed && U.eq(atom.key, key)) {
 					return atom;
 				}
 			}
@@ -85,7 +86,7 @@ public class L1CacheSegment<K, V> extends RapidoidThing {
 		for (int i = 0; i < keys.length; i++) {
 			if (U.eq(keys[i], key)) {
 				ConcurrentCacheAtom<K, V> atom = atoms[i];
-				if (U.eq(atom.key, key)) {
+				if (atom != null && U.eq(atom.key, key)) {
 					atom.invalidate();
 					this.latest = atom;
 				}
@@ -97,7 +98,7 @@ public class L1CacheSegment<K, V> extends RapidoidThing {
 		for (int i = 0; i < keys.length; i++) {
 			if (U.eq(keys[i], key)) {
 				ConcurrentCacheAtom<K, V> atom = atoms[i];
-				if (U.eq(atom.key, key)) {
+				if (atom != null && U.eq(atom.key, key)) {
 					atom.set(value);
 					this.latest = atom;
 				}
@@ -105,6 +106,20 @@ public class L1CacheSegment<K, V> extends RapidoidThing {
 		}
 	}
 
+	public void remove(K key) {
+		for (int i = 0; i < keys.length; i++) {
+			if (U.eq(keys[i], key)) {
+				keys[i] = null;
+				atoms[i] = null;
+			}
+		}
+
+		ConcurrentCacheAtom<K, V> latestAtom = latest;
+		if (latestAtom != null && U.eq(latestAtom.key, key)) {
+			this.latest = null;
+		}
+	}
+
 	public void clear() {
 		for (int i = 0; i < keys.length; i++) {
 			keys[i] = null;
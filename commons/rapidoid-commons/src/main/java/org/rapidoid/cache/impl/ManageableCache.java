@@ -22,6 +22,7 @@ package org.rapidoid.cache.impl;
 
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.cache.CachePolicy;
 import org.rapidoid.group.Action;
 import org.rapidoid.group.AutoManageable;
 import org.rapidoid.group.ManageableBean;
@@ -44,7 +45,8 @@ public class ManageableCache extends AutoManageable<ManageableCache> {
 
 	@Override
 	public List<String> getManageableProperties() {
-		return U.list("id", "size", "capacity", "hitRate", "hits", "misses", "bypassed", "errors", "ttl");
+		return U.list("id", "policy", "size", "capacity", "hitRate", "hits", "misses", "bypassed", "errors",
+			"evictions", "rejections", "refreshes", "ttl", "refreshAfter");
 	}
 
 	@Action(name = "!purge")
@@ -56,6 +58,14 @@ public class ManageableCache extends AutoManageable<ManageableCache> {
 		return cache.ttlInMs();
 	}
 
+	public long refreshAfter() {
+		return cache.refreshAfterMs();
+	}
+
+	public long refreshes() {
+		return cache.stats().refreshes.get();
+	}
+
 	public long misses() {
 		return cache.stats().misses.get();
 	}
@@ -72,6 +82,18 @@ public class ManageableCache extends AutoManageable<ManageableCache> {
 		return cache.stats().bypassed.get();
 	}
 
+	public long evictions() {
+		return cache.stats().evictions.get();
+	}
+
+	public long rejections() {
+		return cache.stats().rejections.get();
+	}
+
+	public CachePolicy policy() {
+		return cache.policy();
+	}
+
 	public String hitRate() {
 		long total = cache.stats().total();
 		return total != 0 ? Math.round(hits() * 10000.0 / total) / 100.0 + " %" : "";
@@ -0,0 +1,314 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.cache.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.u.U;
+
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks the keys of a bounded cache according to the W-TinyLFU policy, and decides which keys should be evicted.
+ * <p>
+ * The new keys enter a small LRU window (1% of the capacity). The keys leaving the window are candidates for the main
+ * space, a segmented LRU (probation + protected), and each candidate is admitted only if its estimated frequency is
+ * higher than the frequency of the probation victim it would replace.
+ * <p>
+ * The accesses are recorded only if the policy lock is free, so the cache hits never wait for each other.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class TinyLFUPolicy<K> extends RapidoidThing {
+
+	private static final int WINDOW = 0;
+
+	private static final int PROBATION = 1;
+
+	private static final int PROTECTED = 2;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Map<K, Node<K>> nodes = U.map();
+
+	private final FrequencySketch sketch;
+
+	private final CacheStats stats;
+
+	private final Node<K> window = Node.head();
+
+	private final Node<K> probation = Node.head();
+
+	private final Node<K> protectedHead = Node.head();
+
+	private final int maxWindow;
+
+	private final int maxMain;
+
+	private final int maxProtected;
+
+	private int windowSize;
+
+	private int probationSize;
+
+	private int protectedSize;
+
+	/**
+	 * @param stats the statistics to update with the evictions and the rejections, or <code>null</code>
+	 */
+	public TinyLFUPolicy(int capacity, CacheStats stats) {
+		U.must(capacity > 0, "The capacity must be a positive number!");
+
+		this.maxWindow = Math.max(1, capacity / 100);
+		this.maxMain = capacity - maxWindow;
+
+		// at least one entry must stay on probation, to compete with the candidates
+		this.maxProtected = Math.min(maxMain - 1, maxMain * 80 / 100);
+
+		this.sketch = new FrequencySketch(capacity);
+		this.stats = stats;
+	}
+
+	/**
+	 * Records an access to a cached key, if it doesn't have to wait for the lock.
+	 */
+	public void recordAccess(K key) {
+		if (!lock.tryLock()) return;
+
+		try {
+			sketch.increment(key.hashCode());
+
+			Node<K> node = nodes.get(key);
+			if (node != null) onHit(node);
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds a new key into the window.
+	 *
+	 * @return the key that should be evicted from the cache (maybe a rejected candidate), or <code>null</code>
+	 */
+	public K add(K key) {
+		lock.lock();
+
+		try {
+			sketch.increment(key.hashCode());
+
+			Node<K> existing = nodes.get(key);
+
+			if (existing != null) {
+				onHit(existing);
+				return null;
+			}
+
+			Node<K> node = new Node<>(key);
+			nodes.put(key, node);
+
+			node.queue = WINDOW;
+			node.linkAfter(window);
+			windowSize++;
+
+			return windowSize > maxWindow ? evict() : null;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private K evict() {
+		// the least recently used key from the window becomes a candidate for the main space
+		Node<K> candidate = window.prev;
+
+		if (maxMain == 0) {
+			return remove(candidate, false);
+		}
+
+		candidate.unlink();
+		windowSize--;
+
+		candidate.queue = PROBATION;
+		candidate.linkAfter(probation);
+		probationSize++;
+
+		if (probationSize + protectedSize <= maxMain) return null;
+
+		Node<K> victim = probation.prev;
+
+		if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+			return remove(victim, false);
+		} else {
+			return remove(candidate, true);
+		}
+	}
+
+	/**
+	 * Stops tracking the key, e.g. when it was invalidated or it expired.
+	 */
+	public void remove(K key) {
+		lock.lock();
+
+		try {
+			Node<K> node = nodes.remove(key);
+			if (node != null) unlink(node);
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private K remove(Node<K> node, boolean rejected) {
+		unlink(node);
+		nodes.remove(node.key);
+
+		if (stats != null) {
+			if (rejected) {
+				stats.rejections.incrementAndGet();
+			} else {
+				stats.evictions.incrementAndGet();
+			}
+		}
+
+		return node.key;
+	}
+
+	private void unlink(Node<K> node) {
+		switch (node.queue) {
+			case WINDOW:
+				windowSize--;
+				break;
+
+			case PROBATION:
+				probationSize--;
+				break;
+
+			case PROTECTED:
+				protectedSize--;
+				break;
+		}
+
+		node.unlink();
+	}
+
+	private void onHit(Node<K> node) {
+		switch (node.queue) {
+			case WINDOW:
+				node.unlink();
+				node.linkAfter(window);
+				break;
+
+			case PROBATION:
+				node.unlink();
+				probationSize--;
+
+				node.queue = PROTECTED;
+				node.linkAfter(protectedHead);
+				protectedSize++;
+
+				if (protectedSize > maxProtected) {
+					// the least recently used protected key goes back on probation
+					Node<K> demoted = protectedHead.prev;
+					demoted.unlink();
+					protectedSize--;
+
+					demoted.queue = PROBATION;
+					demoted.linkAfter(probation);
+					probationSize++;
+				}
+				break;
+
+			case PROTECTED:
+				node.unlink();
+				node.linkAfter(protectedHead);
+				break;
+		}
+	}
+
+	public int size() {
+		lock.lock();
+
+		try {
+			return nodes.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void clear() {
+		lock.lock();
+
+		try {
+			nodes.clear();
+			sketch.clear();
+
+			window.prev = window.next = window;
+			probation.prev = probation.next = probation;
+			protectedHead.prev = protectedHead.next = protectedHead;
+
+			windowSize = probationSize = protectedSize = 0;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * A node of a circular doubly-linked list, where the head's next is the most recently used node.
+	 */
+	private static class Node<K> {
+
+		final K key;
+
+		int queue;
+
+		Node<K> prev;
+
+		Node<K> next;
+
+		Node(K key) {
+			this.key = key;
+		}
+
+		static <K> Node<K> head() {
+			Node<K> head = new Node<>(null);
+			head.prev = head.next = head;
+			return head;
+		}
+
+		void linkAfter(Node<K> head) {
+			prev = head;
+			next = head.next;
+			head.next.prev = this;
+			head.next = this;
+		}
+
+		void unlink() {
+			prev.next = next;
+			next.prev = prev;
+			prev = next = null;
+		}
+	}
+
+}
@@ -26,6 +26,7 @@ import org.rapidoid.annotation.Since;
 import org.rapidoid.u.U;
 
 import java.text.DateFormat;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
@@ -47,26 +48,47 @@ public class Dates extends RapidoidThing {
 
 	private static volatile byte[] CURR_DATE_BYTES;
 
+	private static final ThreadLocal<DateFormat> RFC_1123_FORMAT = new ThreadLocal<DateFormat>() {
+		@Override
+		protected DateFormat initialValue() {
+			DateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.ROOT);
+			dateFormat.setTimeZone(GMT);
+			return dateFormat;
+		}
+	};
+
 	public static byte[] getDateTimeBytes() {
 		long time = System.currentTimeMillis();
 
 		// avoid synchronization for better performance
 		if (time > updateCurrDateAfter) {
-
-			// RFC 1123 date-time format, e.g. Sun, 07 Sep 2014 00:17:29 GMT
-			DateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.ROOT);
-			dateFormat.setTimeZone(GMT);
-
-			Date date = new Date();
-			date.setTime(time);
-
-			CURR_DATE_BYTES = dateFormat.format(date).getBytes();
+			CURR_DATE_BYTES = rfc1123(time).getBytes();
 			updateCurrDateAfter = time + 1000;
 		}
 
 		return CURR_DATE_BYTES;
 	}
 
+	/**
+	 * Formats the time in the RFC 1123 date-time format (used by HTTP), e.g. Sun, 07 Sep 2014 00:17:29 GMT
+	 */
+	public static String rfc1123(long time) {
+		return RFC_1123_FORMAT.get().format(new Date(time));
+	}
+
+	/**
+	 * Parses a date-time in the RFC 1123 format (used by HTTP), returns -1 if the value is not valid.
+	 */
+	public static long parseRfc1123(String value) {
+		if (U.isEmpty(value)) return -1;
+
+		try {
+			return RFC_1123_FORMAT.get().parse(value).getTime();
+		} catch (ParseException e) {
+			return -1;
+		}
+	}
+
 	public static Date date(String value) {
 		if (U.isEmpty(value)) {
 			return null;
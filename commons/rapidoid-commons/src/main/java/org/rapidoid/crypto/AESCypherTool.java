@@ -24,14 +24,17 @@ package org.rapidoid.crypto;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
-import org.rapidoid.commons.Arr;
 import org.rapidoid.log.Log;
 import org.rapidoid.u.U;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.3.0")
@@ -39,8 +42,25 @@ public class AESCypherTool extends RapidoidThing {
 
 	private static final String AES_MODE = "AES/CBC/PKCS5Padding";
 
+	private static final String AES_GCM_MODE = "AES/GCM/NoPadding";
+
+	private static final int IV_LENGTH = 16;
+
+	private static final int HMAC_SALT_LENGTH = 20;
+
+	private static final int HMAC_LENGTH = 32;
+
+	private static final int GCM_IV_LENGTH = 12;
+
+	private static final int GCM_TAG_LENGTH = 16;
+
 	static final int AES_KEY_LENGTH = calcAESKeyLength(); // bits
 
+	// the cipher instances are expensive to look up, so they are reused per thread
+	private static final ThreadLocal<Cipher> CBC = cipherPerThread(AES_MODE);
+
+	private static final ThreadLocal<Cipher> GCM = cipherPerThread(AES_GCM_MODE);
+
 	private static int calcAESKeyLength() {
 		int maxKeyLen;
 
@@ -53,31 +73,54 @@ public class AESCypherTool extends RapidoidThing {
 		return maxKeyLen > 256 ? 256 : 128;
 	}
 
+	private static ThreadLocal<Cipher> cipherPerThread(final String transformation) {
+		return new ThreadLocal<Cipher>() {
+			@Override
+			protected Cipher initialValue() {
+				return Crypto.cipher(transformation);
+			}
+		};
+	}
+
+	/**
+	 * Output format: IV (16 bytes) + AES/CBC encrypted data + HMAC salt (20 bytes) + HMAC (32 bytes).
+	 */
 	public byte[] encrypt(byte[] input, CryptoKey key) throws Exception {
 
-		byte[] aesIV = Crypto.randomBytes(16);
-		byte[] encrypted = aes(input, key.encryptionKey, aesIV, Cipher.ENCRYPT_MODE);
+		byte[] aesIV = Crypto.randomBytes(IV_LENGTH);
+
+		Cipher cipher = CBC.get();
+		cipher.init(Cipher.ENCRYPT_MODE, key.encryptionKeySpec, new IvParameterSpec(aesIV));
+
+		int encryptedLength = cipher.getOutputSize(input.length);
+		byte[] output = new byte[IV_LENGTH + encryptedLength + HMAC_SALT_LENGTH + HMAC_LENGTH];
+
+		System.arraycopy(aesIV, 0, output, 0, IV_LENGTH);
+		int encrypted = cipher.doFinal(input, 0, input.length, output, IV_LENGTH);
+		U.must(encrypted == encryptedLength, "Unexpected size of the encrypted data!");
 
-		byte[] hmacSalt = Crypto.randomBytes(20);
-		byte[] hmac = Crypto.hmac(Arr.merge(encrypted, aesIV), key.hmacKey, hmacSalt);
+		byte[] hmacSalt = Crypto.randomBytes(HMAC_SALT_LENGTH);
+		System.arraycopy(hmacSalt, 0, output, IV_LENGTH + encryptedLength, HMAC_SALT_LENGTH);
 
-		return Arr.merge(aesIV, encrypted, hmacSalt, hmac);
+		Mac mac = hmacOf(output, encryptedLength, key);
+		mac.doFinal(output, output.length - HMAC_LENGTH);
+
+		return output;
 	}
 
 	public byte[] decrypt(byte[] input, CryptoKey key) throws Exception {
 
-		U.must(input.length >= 68, "Not enough data to decrypt!");
-
-		byte[] aesIV = new byte[16];
-		byte[] encrypted = new byte[input.length - 16 - 20 - 32];
+		U.must(input.length >= IV_LENGTH + HMAC_SALT_LENGTH + HMAC_LENGTH, "Not enough data to decrypt!");
 
-		byte[] hmacSalt = new byte[20];
-		byte[] hmac = new byte[32];
+		int encryptedLength = input.length - IV_LENGTH - HMAC_SALT_LENGTH - HMAC_LENGTH;
 
-		Arr.split(input, aesIV, encrypted, hmacSalt, hmac);
+		byte[] hmac = hmacOf(input, encryptedLength, key).doFinal();
+		byte[] expectedHmac = Arrays.copyOfRange(input, input.length - HMAC_LENGTH, input.length);
 
-		if (Crypto.hmacMatches(hmac, Arr.merge(encrypted, aesIV), key.hmacKey, hmacSalt)) {
-			return aes(encrypted, key.encryptionKey, aesIV, Cipher.DECRYPT_MODE);
+		if (MessageDigest.isEqual(hmac, expectedHmac)) {
+			Cipher cipher = CBC.get();
+			cipher.init(Cipher.DECRYPT_MODE, key.encryptionKeySpec, new IvParameterSpec(input, 0, IV_LENGTH));
+			return cipher.doFinal(input, IV_LENGTH, encryptedLength);
 
 		} else {
 			Log.debug("Cannot decrypt invalid data. Has the secret changed?");
@@ -85,10 +128,50 @@ public class AESCypherTool extends RapidoidThing {
 		}
 	}
 
-	private byte[] aes(byte[] data, byte[] key, byte[] iv, int mode) throws Exception {
-		Cipher cipher = Cipher.getInstance(AES_MODE);
-		cipher.init(mode, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
-		return cipher.doFinal(data);
+	/**
+	 * Calculates the HMAC of the encrypted data followed by the IV, without merging them into a new array.
+	 */
+	private Mac hmacOf(byte[] data, int encryptedLength, CryptoKey key) throws Exception {
+		Mac mac = Crypto.hmac(key.hmacKeySpec);
+
+		mac.update(data, IV_LENGTH, encryptedLength);
+		mac.update(data, 0, IV_LENGTH);
+
+		return mac;
+	}
+
+	/**
+	 * Output format: IV (12 bytes) + AES/GCM encrypted data, followed by the authentication tag (16 bytes).
+	 */
+	public byte[] encryptGCM(byte[] input, CryptoKey key) throws Exception {
+
+		byte[] iv = Crypto.randomBytes(GCM_IV_LENGTH);
+
+		Cipher cipher = GCM.get();
+		cipher.init(Cipher.ENCRYPT_MODE, key.encryptionKeySpec, new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
+
+		byte[] output = new byte[GCM_IV_LENGTH + cipher.getOutputSize(input.length)];
+
+		System.arraycopy(iv, 0, output, 0, GCM_IV_LENGTH);
+		int encrypted = cipher.doFinal(input, 0, input.length, output, GCM_IV_LENGTH);
+
+		return encrypted == output.length - GCM_IV_LENGTH ? output : Arrays.copyOf(output, GCM_IV_LENGTH + encrypted);
+	}
+
+	public byte[] decryptGCM(byte[] input, CryptoKey key) throws Exception {
+
+		U.must(input.length >= GCM_IV_LENGTH + GCM_TAG_LENGTH, "Not enough data to decrypt!");
+
+		Cipher cipher = GCM.get();
+		cipher.init(Cipher.DECRYPT_MODE, key.encryptionKeySpec, new GCMParameterSpec(GCM_TAG_LENGTH * 8, input, 0, GCM_IV_LENGTH));
+
+		try {
+			return cipher.doFinal(input, GCM_IV_LENGTH, input.length - GCM_IV_LENGTH);
+
+		} catch (AEADBadTagException e) {
+			Log.debug("Cannot decrypt invalid data. Has the secret changed?");
+			return null;
+		}
 	}
 
 }
@@ -49,7 +49,18 @@ public class Crypto extends RapidoidThing {
 
 	private static final AESCypherTool AES = new AESCypherTool();
 
-	private static final String HMAC_SHA_256 = "HmacSHA256";
+	static final String HMAC_SHA_256 = "HmacSHA256";
+
+	private static final ThreadLocal<Mac> HMAC = new ThreadLocal<Mac>() {
+		@Override
+		protected Mac initialValue() {
+			try {
+				return Mac.getInstance(HMAC_SHA_256);
+			} catch (NoSuchAlgorithmException e) {
+				throw U.rte("Cannot find crypto algorithm: " + HMAC_SHA_256);
+			}
+		}
+	};
 
 	static final int HMAC_KEY_LENGTH = 256; // bits
 
@@ -133,7 +144,12 @@ public class Crypto extends RapidoidThing {
 		return sha512(data.getBytes());
 	}
 
-	public static synchronized CryptoKey getSecretKey() {
+	public static CryptoKey getSecretKey() {
+		CryptoKey key = secretKey;
+		return key != null ? key : initSecretKey();
+	}
+
+	private static synchronized CryptoKey initSecretKey() {
 		if (secretKey == null) {
 			initSecret();
 		}
@@ -186,6 +202,33 @@ public class Crypto extends RapidoidThing {
 		return decrypt(data, getSecretKey());
 	}
 
+	/**
+	 * Authenticated encryption with AES-GCM, which doesn't require a separate HMAC pass.
+	 */
+	public static byte[] encryptGCM(byte[] data, CryptoKey key) {
+		try {
+			return AES.encryptGCM(data, key);
+		} catch (Exception e) {
+			throw U.rte(e);
+		}
+	}
+
+	public static byte[] decryptGCM(byte[] data, CryptoKey key) {
+		try {
+			return AES.decryptGCM(data, key);
+		} catch (Exception e) {
+			throw U.rte(e);
+		}
+	}
+
+	public static byte[] encryptGCM(byte[] data) {
+		return encryptGCM(data, getSecretKey());
+	}
+
+	public static byte[] decryptGCM(byte[] data) {
+		return decryptGCM(data, getSecretKey());
+	}
+
 	public static byte[] pbkdf2(char[] password, byte[] salt, int iterations, int length) {
 		try {
 			PBEKeySpec keySpec = new PBEKeySpec(password, salt, iterations, length);
@@ -242,11 +285,19 @@ public class Crypto extends RapidoidThing {
 	}
 
 	public static byte[] hmac(byte[] data, byte[] secret, byte[] salt) throws Exception {
-		Mac m = Mac.getInstance(HMAC_SHA_256);
-		m.init(new SecretKeySpec(secret, HMAC_SHA_256));
+		Mac m = hmac(new SecretKeySpec(secret, HMAC_SHA_256));
 		return m.doFinal(data);
 	}
 
+	/**
+	 * Returns the thread-local HMAC-SHA256 instance, initialized with the specified key.
+	 */
+	static Mac hmac(SecretKeySpec key) throws Exception {
+		Mac m = HMAC.get();
+		m.init(key);
+		return m;
+	}
+
 	public static boolean hmacMatches(byte[] hmac, byte[] data, byte[] secret, byte[] salt) throws Exception {
 		return MessageDigest.isEqual(hmac, Crypto.hmac(data, secret, salt));
 	}
@@ -26,6 +26,8 @@ import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.commons.Arr;
 
+import javax.crypto.spec.SecretKeySpec;
+
 @Authors("Nikolche Mihajlovski")
 @Since("5.3.0")
 public class CryptoKey extends RapidoidThing {
@@ -34,9 +36,15 @@ public class CryptoKey extends RapidoidThing {
 
 	final byte[] hmacKey;
 
+	final SecretKeySpec encryptionKeySpec;
+
+	final SecretKeySpec hmacKeySpec;
+
 	public CryptoKey(byte[] encryptionKey, byte[] hmacKey) {
 		this.encryptionKey = encryptionKey;
 		this.hmacKey = hmacKey;
+		this.encryptionKeySpec = new SecretKeySpec(encryptionKey, "AES");
+		this.hmacKeySpec = new SecretKeySpec(hmacKey, Crypto.HMAC_SHA_256);
 	}
 
 	public static CryptoKey from(char[] password) {
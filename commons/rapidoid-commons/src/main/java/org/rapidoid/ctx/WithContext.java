@@ -27,6 +27,7 @@ import org.rapidoid.job.Jobs;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 
 @Authors("Nikolche Mihajlovski")
@@ -114,4 +115,8 @@ public class WithContext extends RapidoidThing {
 		Jobs.executeInContext(this, action);
 	}
 
+	public void run(Runnable action, Executor executor) {
+		Jobs.executeInContext(this, action, executor);
+	}
+
 }
@@ -46,4 +46,10 @@ public interface Results<T> extends Iterable<T> {
 
 	boolean isLoaded();
 
+	/**
+	 * Traverses the results in a single pass (e.g. streaming the rows from the database), instead of loading them page
+	 * by page like {@link #iterator()}. The returned iterator must be closed, so use it with try-with-resources.
+	 */
+	CloseableIterator<T> stream();
+
 }
@@ -24,8 +24,10 @@ package org.rapidoid.datamodel.impl;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.datamodel.CloseableIterator;
 import org.rapidoid.datamodel.PageableData;
 import org.rapidoid.datamodel.Results;
+import org.rapidoid.datamodel.StreamableData;
 import org.rapidoid.u.U;
 
 import java.util.Iterator;
@@ -50,6 +52,37 @@ public class ResultsImpl<T> extends RapidoidThing implements Results<T> {
 		return new PagingIterator<>(data);
 	}
 
+	@Override
+	public final CloseableIterator<T> stream() {
+		if (data instanceof StreamableData) {
+			return ((StreamableData<T>) data).iterate();
+		}
+
+		final Iterator<T> it = iterator();
+
+		return new CloseableIterator<T>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public T next() {
+				return it.next();
+			}
+
+			@Override
+			public void remove() {
+				it.remove();
+			}
+
+			@Override
+			public void close() {
+				// nothing to release
+			}
+		};
+	}
+
 	@Override
 	public final List<T> all() {
 		return retrievePage(0, -1);
@@ -92,8 +125,11 @@ public class ResultsImpl<T> extends RapidoidThing implements Results<T> {
 			// it is unknown, so count manually
 			count = 0;
 
-			for (T item : this) {
-				count++;
+			try (CloseableIterator<T> it = stream()) {
+				while (it.hasNext()) {
+					it.next();
+					count++;
+				}
 			}
 		}
 
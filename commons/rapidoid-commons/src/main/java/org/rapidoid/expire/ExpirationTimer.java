@@ -0,0 +1,60 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.expire;
+
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The node of an {@link Expiring} target in a {@link TimerWheel}. Each target keeps its own timer, and reuses it
+ * across reschedulings, so the scheduling doesn't allocate.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public final class ExpirationTimer extends RapidoidThing {
+
+	final Expiring target;
+
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	ExpirationTimer next;
+
+	public ExpirationTimer(Expiring target) {
+		this.target = target;
+	}
+
+	public boolean isScheduled() {
+		return scheduled.get();
+	}
+
+	boolean claim() {
+		return !scheduled.get() && scheduled.compareAndSet(false, true);
+	}
+
+	void release() {
+		scheduled.set(false);
+	}
+
+}
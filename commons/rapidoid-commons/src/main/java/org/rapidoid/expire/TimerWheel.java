@@ -0,0 +1,203 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.expire;
+
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.log.Log;
+import org.rapidoid.u.U;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A hierarchical timing wheel (4 levels of 64 slots), which expires the scheduled targets without traversing all of
+ * them. It's owned by a single thread, which advances it periodically, while the targets can be scheduled from any
+ * thread in O(1).
+ * <p>
+ * The rescheduling is lazy: a target which was touched after it was scheduled (so its expiration time was extended)
+ * just stays in its slot, and when the slot is reached, it gets scheduled again according to its new expiration time.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class TimerWheel extends RapidoidThing {
+
+	private static final int LEVELS = 4;
+
+	private static final int SLOT_BITS = 6;
+
+	private static final int SLOTS = 1 << SLOT_BITS;
+
+	private static final int SLOT_MASK = SLOTS - 1;
+
+	private static final long MAX_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+	private final long tickMs;
+
+	private final ExpirationTimer[][] wheels = new ExpirationTimer[LEVELS][SLOTS];
+
+	private final Queue<ExpirationTimer> scheduled = new ConcurrentLinkedQueue<>();
+
+	private long currentTick;
+
+	private int size;
+
+	public TimerWheel(long tickMs) {
+		U.must(tickMs > 0, "The tick duration must be positive!");
+
+		this.tickMs = tickMs;
+		this.currentTick = U.time() / tickMs;
+	}
+
+	/**
+	 * Schedules the timer's target to expire at its expiration time, unless it's already scheduled. Thread-safe.
+	 */
+	public void schedule(ExpirationTimer timer) {
+		if (timer.claim()) {
+			scheduled.add(timer);
+		}
+	}
+
+	/**
+	 * Moves the wheel forward to the specified time, expiring the due targets. Must be called by the owner thread.
+	 *
+	 * @return the number of expired targets
+	 */
+	public int advance(long now) {
+		ExpirationTimer timer;
+
+		while ((timer = scheduled.poll()) != null) {
+			place(timer, currentTick + 1);
+		}
+
+		int expired = 0;
+		long targetTick = now / tickMs;
+
+		while (currentTick < targetTick) {
+			currentTick++;
+
+			// the timers from the higher levels are moved closer, as their time approaches
+			for (int level = 1; level < LEVELS; level++) {
+				if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) break;
+
+				cascade(level, slotOf(currentTick, level));
+			}
+
+			expired += fire(slotOf(currentTick, 0));
+		}
+
+		return expired;
+	}
+
+	/**
+	 * @return the number of timers in the wheel (not counting the ones that are waiting to be placed)
+	 */
+	public int size() {
+		return size;
+	}
+
+	private void place(ExpirationTimer timer, long minTick) {
+		long expiresAt = timer.target.getExpiresAt();
+
+		if (expiresAt <= 0) {
+			timer.release(); // not expiring anymore
+			return;
+		}
+
+		// the first tick that starts after the expiration time
+		long tick = Math.max(expiresAt / tickMs + 1, minTick);
+		long delta = Math.min(tick - currentTick, MAX_TICKS);
+		tick = currentTick + delta;
+
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+			level++;
+		}
+
+		int slot = slotOf(tick, level);
+
+		timer.next = wheels[level][slot];
+		wheels[level][slot] = timer;
+		size++;
+	}
+
+	private void cascade(int level, int slot) {
+		ExpirationTimer timer = wheels[level][slot];
+		wheels[level][slot] = null;
+
+		while (timer != null) {
+			ExpirationTimer next = timer.next;
+			timer.next = null;
+			size--;
+
+			place(timer, currentTick);
+			timer = next;
+		}
+	}
+
+	private int fire(int slot) {
+		ExpirationTimer timer = wheels[0][slot];
+		wheels[0][slot] = null;
+
+		long now = currentTick * tickMs;
+		int expired = 0;
+
+		while (timer != null) {
+			ExpirationTimer next = timer.next;
+			timer.next = null;
+			size--;
+
+			// released before checking, so a concurrent touch can schedule it again
+			timer.release();
+
+			Expiring target = timer.target;
+			long expiresAt = target.getExpiresAt();
+
+			if (expiresAt > 0) {
+				if (expiresAt >= now) {
+					// it was touched in the meantime
+					if (timer.claim()) place(timer, currentTick + 1);
+
+				} else {
+					try {
+						target.expire();
+						target.setExpiresAt(0);
+						expired++;
+
+					} catch (Exception e) {
+						Log.error("Error on expiration!", e);
+					}
+				}
+			}
+
+			timer = next;
+		}
+
+		return expired;
+	}
+
+	private static int slotOf(long tick, int level) {
+		return (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+	}
+
+}
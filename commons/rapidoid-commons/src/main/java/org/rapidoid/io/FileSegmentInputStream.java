@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.io;
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * Reads a segment of a file, e.g. a part of a bigger (temporary) file.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class FileSegmentInputStream extends InputStream {
+
+	private final RandomAccessFile file;
+
+	private long remaining;
+
+	public FileSegmentInputStream(File file, long offset, long length) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		this.remaining = length;
+
+		this.file.seek(offset);
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (remaining <= 0) return -1;
+
+		int b = file.read();
+		if (b >= 0) remaining--;
+
+		return b;
+	}
+
+	@Override
+	public int read(byte[] dest, int offset, int length) throws IOException {
+		if (remaining <= 0) return -1;
+
+		int n = file.read(dest, offset, (int) Math.min(length, remaining));
+		if (n > 0) remaining -= n;
+
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = Math.max(Math.min(n, remaining), 0);
+
+		file.seek(file.getFilePointer() + skipped);
+		remaining -= skipped;
+
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return (int) Math.min(remaining, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+}
@@ -40,6 +40,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 
 
 @Authors("Nikolche Mihajlovski")
@@ -66,6 +67,8 @@ public class Res extends RapidoidThing {
 
 	private volatile String content;
 
+	private volatile Snapshot snapshot;
+
 	private volatile boolean trackingChanges;
 
 	private volatile String cachedFileName;
@@ -206,6 +209,13 @@ public class Res extends RapidoidThing {
 				hasChanged = !U.eq(old, bytes) && (old == null || bytes == null || !Arrays.equals(old, bytes));
 				lastUpdatedOn = U.time();
 
+				Snapshot snap = snapshot;
+				if (bytes == null) {
+					snapshot = null;
+				} else if (snap == null || snap.bytes != bytes || snap.lastModified != lastModified) {
+					snapshot = new Snapshot(bytes, lastModified);
+				}
+
 				if (hasChanged) {
 					content = null;
 					attachment = null;
@@ -254,7 +264,13 @@ public class Res extends RapidoidThing {
 			// it might not exist or it might be on the classpath or compressed in a JAR
 			Log.trace("Trying to load classpath resource", "name", name, "file", file);
 			this.hidden = false;
-			return IO.loadBytes(filename);
+
+			byte[] res = IO.loadBytes(filename);
+			if (res != null) {
+				this.lastModified = 0;
+			}
+
+			return res;
 		}
 	}
 
@@ -269,6 +285,32 @@ public class Res extends RapidoidThing {
 		return content;
 	}
 
+	/**
+	 * A strong entity tag (validator) of the resource content, computed once per version of the content.
+	 */
+	public String getETag() {
+		Snapshot snap = snapshot();
+		U.must(snap != null, "The file '%s' doesn't exist! Path: %s", name, possibleLocations);
+		return snap.etag();
+	}
+
+	/**
+	 * The current version of the resource content, with its validators, or <code>null</code> if it doesn't exist.
+	 * The snapshot is immutable, so its content, ETag and modification time always match.
+	 */
+	public Snapshot snapshot() {
+		loadResource();
+		return snapshot;
+	}
+
+	/**
+	 * The last modification time of the resource file (in milliseconds), or 0 if unknown (e.g. classpath resources).
+	 */
+	public long getLastModified() {
+		loadResource();
+		return lastModified;
+	}
+
 	public boolean exists() {
 		loadResource();
 		return bytes != null;
@@ -356,6 +398,45 @@ public class Res extends RapidoidThing {
 		lastUpdatedOn = 0;
 	}
 
+	public static final class Snapshot extends RapidoidThing {
+
+		private final byte[] bytes;
+
+		private final long lastModified;
+
+		private volatile String etag;
+
+		private Snapshot(byte[] bytes, long lastModified) {
+			this.bytes = bytes;
+			this.lastModified = lastModified;
+		}
+
+		public byte[] bytes() {
+			return bytes;
+		}
+
+		/**
+		 * The last modification time of the resource file (in milliseconds), or 0 if unknown.
+		 */
+		public long lastModified() {
+			return lastModified;
+		}
+
+		public String etag() {
+			String tag = etag;
+
+			if (tag == null) {
+				// calculated lazily, the race is harmless because the result is always the same
+				CRC32 crc = new CRC32();
+				crc.update(bytes);
+				tag = "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(bytes.length) + "\"";
+				etag = tag;
+			}
+
+			return tag;
+		}
+	}
+
 	public boolean isHidden() {
 		return hidden;
 	}
@@ -23,6 +23,12 @@ package org.rapidoid.io;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.u.U;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 
 
 @Authors("Nikolche Mihajlovski")
@@ -33,17 +39,66 @@ public class Upload extends RapidoidThing {
 
 	private final byte[] content;
 
+	private final File file;
+
+	private final long offset;
+
+	private final long size;
+
 	public Upload(String filename, byte[] content) {
 		this.filename = filename;
 		this.content = content;
+		this.file = null;
+		this.offset = 0;
+		this.size = content != null ? content.length : 0;
+	}
+
+	/**
+	 * The content of the big uploads isn't kept in memory, it is a segment of a (temporary) file instead.
+	 */
+	public Upload(String filename, File file, long offset, long size) {
+		this.filename = filename;
+		this.content = null;
+		this.file = file;
+		this.offset = offset;
+		this.size = size;
 	}
 
 	public String filename() {
 		return filename;
 	}
 
+	/**
+	 * Loads the content into memory, if it was stored in a file. For the big uploads, {@link #stream()} is preferable.
+	 */
 	public byte[] content() {
-		return content;
+		if (file == null) return content;
+
+		InputStream in = stream();
+
+		try {
+			return IO.loadBytes(in);
+		} finally {
+			IO.close(in, true);
+		}
+	}
+
+	public InputStream stream() {
+		if (file == null) return new ByteArrayInputStream(U.or(content, new byte[0]));
+
+		try {
+			return new FileSegmentInputStream(file, offset, size);
+		} catch (IOException e) {
+			throw U.rte("Couldn't read the uploaded file!", e);
+		}
+	}
+
+	public long size() {
+		return size;
+	}
+
+	public boolean isInMemory() {
+		return file == null;
 	}
 
 	public static Upload from(String filename) {
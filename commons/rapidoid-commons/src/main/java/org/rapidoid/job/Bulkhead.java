@@ -0,0 +1,121 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.job;
+
+import org.rapidoid.activity.RapidoidThreadFactory;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.group.AutoManageable;
+import org.rapidoid.group.ManageableBean;
+import org.rapidoid.u.U;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named, bounded executor that isolates the jobs of some routes from the rest of the application, so a slow
+ * endpoint can only exhaust its own threads and queue.
+ * <p>
+ * When both the threads and the queue are full, the submitted jobs are rejected with
+ * {@link RejectedExecutionException} instead of being queued indefinitely.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+@ManageableBean(kind = "bulkheads")
+public class Bulkhead extends AutoManageable<Bulkhead> implements Executor, Closeable {
+
+	private final ThreadPoolExecutor executor;
+
+	private final int maxQueueSize;
+
+	private final AtomicLong rejections = new AtomicLong();
+
+	public Bulkhead(String id, int threads, int maxQueueSize) {
+		super(id);
+
+		U.must(threads > 0, "The number of bulkhead threads must be positive!");
+
+		this.maxQueueSize = maxQueueSize;
+
+		BlockingQueue<Runnable> queue = maxQueueSize > 0
+			? new ArrayBlockingQueue<Runnable>(maxQueueSize)
+			: new SynchronousQueue<Runnable>();
+
+		RapidoidThreadFactory threadFactory = new RapidoidThreadFactory("bulkhead-" + id, true);
+
+		this.executor = new ThreadPoolExecutor(threads, threads, 300, TimeUnit.SECONDS, queue, threadFactory);
+	}
+
+	@Override
+	public void execute(Runnable job) {
+		try {
+			executor.execute(job);
+
+		} catch (RejectedExecutionException e) {
+			rejections.incrementAndGet();
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdown();
+		Jobs.awaitTermination(executor);
+		group().remove(this);
+	}
+
+	public void closeNow() {
+		executor.shutdownNow();
+		Jobs.awaitTermination(executor);
+		group().remove(this);
+	}
+
+	@Override
+	public List<String> getManageableProperties() {
+		return U.list("id", "threads", "maxQueueSize", "queueSize", "activeCount", "completedTaskCount", "rejections");
+	}
+
+	public int threads() {
+		return executor.getMaximumPoolSize();
+	}
+
+	public int maxQueueSize() {
+		return maxQueueSize;
+	}
+
+	public int queueSize() {
+		return executor.getQueue().size();
+	}
+
+	public int activeCount() {
+		return executor.getActiveCount();
+	}
+
+	public long completedTaskCount() {
+		return executor.getCompletedTaskCount();
+	}
+
+	public long rejections() {
+		return rejections.get();
+	}
+
+}
@@ -0,0 +1,48 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.job;
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Config;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the executor of the jobs (including the managed HTTP handlers), selected by name with the
+ * <code>jobs.executor.provider</code> config entry.
+ * <p>
+ * Custom providers can be registered through {@link java.util.ServiceLoader}, by listing them in
+ * <code>META-INF/services/org.rapidoid.job.ExecutorProvider</code>.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public interface ExecutorProvider {
+
+	String name();
+
+	/**
+	 * @return <code>false</code> if the provider isn't supported by the current JVM
+	 */
+	boolean isAvailable();
+
+	ExecutorService newExecutor(Config config);
+
+}
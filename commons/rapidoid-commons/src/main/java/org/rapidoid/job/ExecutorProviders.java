@@ -0,0 +1,61 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.job;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.u.U;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceLoader;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class ExecutorProviders extends RapidoidThing {
+
+	public static List<ExecutorProvider> all() {
+		List<ExecutorProvider> providers = U.list();
+
+		Iterator<ExecutorProvider> it = ServiceLoader.load(ExecutorProvider.class).iterator();
+
+		while (it.hasNext()) {
+			providers.add(it.next());
+		}
+
+		providers.add(new ThreadPoolExecutorProvider());
+		providers.add(new ForkJoinExecutorProvider());
+		providers.add(new VirtualThreadExecutorProvider());
+
+		return providers;
+	}
+
+	public static ExecutorProvider get(String name) {
+		for (ExecutorProvider provider : all()) {
+			if (provider.name().equals(name)) {
+				return provider;
+			}
+		}
+
+		throw U.rte("Cannot find executor provider: '%s'", name);
+	}
+
+}
@@ -0,0 +1,76 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.job;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A work-stealing executor, with a separate (LIFO) queue for each thread, instead of a single contended queue.
+ * <p>
+ * The number of threads (<code>jobs.executor.threads</code>) is fixed, so it should be sized for the blocking
+ * jobs, too.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class ForkJoinExecutorProvider extends RapidoidThing implements ExecutorProvider {
+
+	public static final String NAME = "forkjoin";
+
+	@Override
+	public String name() {
+		return NAME;
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return true;
+	}
+
+	@Override
+	public ExecutorService newExecutor(Config config) {
+		int threads = config.entry("threads").or(64);
+
+		return new ForkJoinPool(threads, new ThreadFactory(), null, false);
+	}
+
+	private static class ThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+
+			thread.setName("executor-fj" + counter.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
+		}
+	}
+
+}
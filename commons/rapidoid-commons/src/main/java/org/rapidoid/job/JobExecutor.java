@@ -21,17 +21,15 @@
 package org.rapidoid.job;
 
 import org.rapidoid.RapidoidThing;
-import org.rapidoid.activity.RapidoidThreadFactory;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.config.Conf;
 import org.rapidoid.config.Config;
+import org.rapidoid.log.Log;
 
 import java.io.Closeable;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.5.1")
@@ -39,22 +37,29 @@ public class JobExecutor extends RapidoidThing implements Closeable {
 
 	private static final Config CONFIG = Conf.JOBS.sub("executor");
 
-	private final ThreadPoolExecutor executor;
+	private final ExecutorService executor;
 
 	public JobExecutor() {
 		this.executor = newExecutor();
-		new ManageableExecutor("executor", executor);
+
+		// only the default executor of the jobs is managed, not the other executors of the providers
+		if (executor instanceof ThreadPoolExecutor) {
+			new ManageableExecutor("executor", (ThreadPoolExecutor) executor);
+		}
+
 		Jobs.init();
 	}
 
-	private static ThreadPoolExecutor newExecutor() {
-		int threads = CONFIG.entry("threads").or(64);
-		int maxThreads = CONFIG.entry("maxThreads").or(1024);
-		int maxQueueSize = CONFIG.entry("maxQueueSize").or(1000000);
+	private static ExecutorService newExecutor() {
+		String name = CONFIG.entry("provider").or(ThreadPoolExecutorProvider.NAME);
+		ExecutorProvider provider = ExecutorProviders.get(name);
 
-		BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(maxQueueSize);
+		if (!provider.isAvailable()) {
+			Log.warn("The configured executor provider isn't available, falling back to the default one!", "provider", name);
+			provider = ExecutorProviders.get(ThreadPoolExecutorProvider.NAME);
+		}
 
-		return new ThreadPoolExecutor(threads, maxThreads, 300, TimeUnit.SECONDS, queue, new RapidoidThreadFactory("executor", true));
+		return provider.newExecutor(CONFIG);
 	}
 
 	@Override
@@ -63,7 +68,7 @@ public class JobExecutor extends RapidoidThing implements Closeable {
 		Jobs.awaitTermination(executor);
 	}
 
-	public ThreadPoolExecutor executor() {
+	public ExecutorService executor() {
 		return executor;
 	}
 }
@@ -52,7 +52,11 @@ public class Jobs extends RapidoidInitializer {
 		jobs.init();
 	}
 
-	public static ThreadPoolExecutor executor() {
+	/**
+	 * Returns the executor of the jobs, created by the configured provider (<code>jobs.executor.provider</code>).
+	 * It's a {@link ThreadPoolExecutor} only with the default provider (<code>pool</code>).
+	 */
+	public static ExecutorService executor() {
 		return jobs.executor().get();
 	}
 
@@ -87,7 +91,7 @@ public class Jobs extends RapidoidInitializer {
 	}
 
 	public static void execute(Runnable job) {
-		Opt<ThreadPoolExecutor> executor = jobs.executor();
+		Opt<ExecutorService> executor = jobs.executor();
 
 		if (executor.exists()) {
 			ContextPreservingJobWrapper jobWrapper = wrap(job);
@@ -101,7 +105,7 @@ public class Jobs extends RapidoidInitializer {
 	}
 
 	public static void executeAndWait(Runnable job) {
-		Opt<ThreadPoolExecutor> executor = jobs.executor();
+		Opt<ExecutorService> executor = jobs.executor();
 
 		if (executor.exists()) {
 			ContextPreservingJobWrapper jobWrapper = wrap(job);
@@ -156,7 +160,7 @@ public class Jobs extends RapidoidInitializer {
 	}
 
 	public static void executeInContext(WithContext context, Runnable action) {
-		Opt<ThreadPoolExecutor> executor = jobs.executor();
+		Opt<ExecutorService> executor = jobs.executor();
 
 		if (executor.exists()) {
 			try {
@@ -167,6 +171,15 @@ public class Jobs extends RapidoidInitializer {
 		}
 	}
 
+	public static void executeInContext(WithContext context, Runnable action, Executor executor) {
+		// unlike the shared executor, the rejection is propagated, so it can be handled as overload
+		executor.execute(new PredefinedContextJobWrapper(context, action));
+	}
+
+	public static Bulkhead bulkhead(String name) {
+		return jobs.bulkhead(name);
+	}
+
 	public static JobsDelayDSL after(long delay) {
 		return new JobsDelayDSL(delay);
 	}
@@ -195,9 +208,9 @@ public class Jobs extends RapidoidInitializer {
 		return jobs.scheduler().orFail("The scheduler is not active!");
 	}
 
-	static void awaitTermination(ThreadPoolExecutor threadPoolExecutor) {
+	static void awaitTermination(ExecutorService executor) {
 		try {
-			threadPoolExecutor.awaitTermination(10, TimeUnit.SECONDS);
+			executor.awaitTermination(10, TimeUnit.SECONDS);
 		} catch (InterruptedException e) {
 			// do nothing
 		}
@@ -22,13 +22,17 @@ package org.rapidoid.job;
 
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
 import org.rapidoid.config.RapidoidInitializer;
 import org.rapidoid.optional.Opt;
 import org.rapidoid.util.LazyInit;
 import org.rapidoid.util.Once;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -44,12 +48,15 @@ public class JobsService extends RapidoidInitializer {
 
 	private final LazyInit<JobExecutor> executor = new LazyInit<>(JobExecutor.class);
 
+	private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
 	private final AtomicBoolean active = new AtomicBoolean(true);
 
 	public synchronized void reset() {
 		errorCounter.set(0);
 		executor.resetAndClose();
 		scheduler.resetAndClose();
+		closeBulkheads(false);
 		active.set(true);
 	}
 
@@ -69,7 +76,7 @@ public class JobsService extends RapidoidInitializer {
 		return active.get();
 	}
 
-	public Opt<ThreadPoolExecutor> executor() {
+	public Opt<ExecutorService> executor() {
 		return Opt.maybe(isActive() ? executor.get().executor() : null);
 	}
 
@@ -77,6 +84,46 @@ public class JobsService extends RapidoidInitializer {
 		return Opt.maybe(isActive() ? scheduler.get().scheduler() : null);
 	}
 
+	public Bulkhead bulkhead(String name) {
+		Bulkhead bulkhead = bulkheads.get(name);
+
+		if (bulkhead == null) {
+			synchronized (this) {
+				bulkhead = bulkheads.get(name);
+
+				if (bulkhead == null) {
+					bulkhead = newBulkhead(name);
+					bulkheads.put(name, bulkhead);
+					init();
+				}
+			}
+		}
+
+		return bulkhead;
+	}
+
+	private static Bulkhead newBulkhead(String name) {
+		Config defaults = Conf.JOBS.sub("bulkhead");
+		Config cfg = Conf.JOBS.sub("bulkheads", name);
+
+		int threads = cfg.entry("threads").or(defaults.entry("threads").or(16));
+		int maxQueueSize = cfg.entry("maxQueueSize").or(defaults.entry("maxQueueSize").or(1000));
+
+		return new Bulkhead(name, threads, maxQueueSize);
+	}
+
+	private void closeBulkheads(boolean now) {
+		for (Bulkhead bulkhead : bulkheads.values()) {
+			if (now) {
+				bulkhead.closeNow();
+			} else {
+				bulkhead.close();
+			}
+		}
+
+		bulkheads.clear();
+	}
+
 	public AtomicLong errorCounter() {
 		return errorCounter;
 	}
@@ -85,7 +132,7 @@ public class JobsService extends RapidoidInitializer {
 		active.set(false);
 
 		if (executor.isInitialized()) {
-			Opt<ThreadPoolExecutor> exe = executor();
+			Opt<ExecutorService> exe = executor();
 			if (exe.exists()) {
 				exe.get().shutdown();
 				Jobs.awaitTermination(exe.get());
@@ -99,13 +146,15 @@ public class JobsService extends RapidoidInitializer {
 				Jobs.awaitTermination(sch.get());
 			}
 		}
+
+		closeBulkheads(false);
 	}
 
 	public synchronized void shutdownNow() {
 		active.set(false);
 
 		if (executor.isInitialized()) {
-			Opt<ThreadPoolExecutor> exe = executor();
+			Opt<ExecutorService> exe = executor();
 			if (exe.exists()) {
 				exe.get().shutdownNow();
 				Jobs.awaitTermination(exe.get());
@@ -119,6 +168,8 @@ public class JobsService extends RapidoidInitializer {
 				Jobs.awaitTermination(sch.get());
 			}
 		}
+
+		closeBulkheads(true);
 	}
 
 }
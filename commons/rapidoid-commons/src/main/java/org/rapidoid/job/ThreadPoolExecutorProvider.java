@@ -0,0 +1,65 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.job;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.activity.RapidoidThreadFactory;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default executor: a thread pool with a bounded queue of jobs.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class ThreadPoolExecutorProvider extends RapidoidThing implements ExecutorProvider {
+
+	public static final String NAME = "pool";
+
+	@Override
+	public String name() {
+		return NAME;
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return true;
+	}
+
+	@Override
+	public ExecutorService newExecutor(Config config) {
+		int threads = config.entry("threads").or(64);
+		int maxThreads = config.entry("maxThreads").or(1024);
+		int maxQueueSize = config.entry("maxQueueSize").or(1000000);
+
+		BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(maxQueueSize);
+
+		return new ThreadPoolExecutor(threads, maxThreads, 300, TimeUnit.SECONDS, queue,
+			new RapidoidThreadFactory("executor", true));
+	}
+
+}
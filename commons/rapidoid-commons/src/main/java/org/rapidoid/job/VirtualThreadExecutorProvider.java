@@ -0,0 +1,81 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.job;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Config;
+import org.rapidoid.u.U;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executes each job in a new virtual thread, so the blocking jobs don't occupy platform threads.
+ * <p>
+ * It is available only on the JVMs that support virtual threads (Java 21+), and the executor isn't bounded.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class VirtualThreadExecutorProvider extends RapidoidThing implements ExecutorProvider {
+
+	public static final String NAME = "virtual";
+
+	// looked up at runtime, so the framework can still be built and run on older JVMs
+	private static final Method FACTORY = factory();
+
+	private static Method factory() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+			// the virtual threads might be a disabled preview feature
+			((ExecutorService) factory.invoke(null)).shutdown();
+
+			return factory;
+
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	@Override
+	public String name() {
+		return NAME;
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return FACTORY != null;
+	}
+
+	@Override
+	public ExecutorService newExecutor(Config config) {
+		U.must(isAvailable(), "The virtual threads aren't supported by the JVM!");
+
+		try {
+			return (ExecutorService) FACTORY.invoke(null);
+		} catch (Exception e) {
+			throw U.rte("Couldn't create virtual thread executor!", e);
+		}
+	}
+
+}
@@ -21,6 +21,8 @@
 package org.rapidoid.pool;
 
 import org.rapidoid.RapidoidThing;
+import org.rapidoid.commons.Err;
+import org.rapidoid.config.Conf;
 
 import java.util.concurrent.Callable;
 
@@ -32,7 +34,29 @@ import java.util.concurrent.Callable;
 public class Pools extends RapidoidThing {
 
 	public static <T> Pool<T> create(String name, Callable<T> factory, int capacity) {
-		return new SynchronizedArrayPool<T>(name, factory, capacity);
+		return create(name, factory, capacity, PoolType.SYNCHRONIZED);
+	}
+
+	/**
+	 * Creates a pool used mostly by the I/O worker threads, of the type configured by the <code>net.pool</code> option
+	 * (thread-affine by default).
+	 */
+	public static <T> Pool<T> createForIO(String name, Callable<T> factory, int capacity) {
+		PoolType type = Conf.NET.entry("pool").to(PoolType.class).or(PoolType.THREAD_AFFINE);
+		return create(name, factory, capacity, type);
+	}
+
+	public static <T> Pool<T> create(String name, Callable<T> factory, int capacity, PoolType type) {
+		switch (type) {
+			case SYNCHRONIZED:
+				return new SynchronizedArrayPool<T>(name, factory, capacity);
+
+			case THREAD_AFFINE:
+				return new ThreadAffinePool<T>(name, factory, capacity);
+
+			default:
+				throw Err.notExpected();
+		}
 	}
 
 }
@@ -0,0 +1,370 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.pool;
+
+import org.rapidoid.insight.AbstractInsightful;
+import org.rapidoid.u.U;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A pool with a lock-free stage per thread, and a shared lock-free overflow stage.
+ * <p>
+ * Each thread that takes objects from the pool gets its own local stage, so the common case (the same I/O thread
+ * acquires and releases the object) doesn't require any synchronization. The objects released by threads that never
+ * take objects from the pool, and the objects that don't fit in the local stage, go to the shared stage. The shared
+ * stage is a lossy ring of slots updated with CAS, so it never blocks: if it is full, the released object is dropped.
+ * <p>
+ * The local stages of the threads that have died are pruned (together with their objects) when new stages are
+ * created, so the pool doesn't grow with the number of threads that have used it. It's still meant for a small set of
+ * long-lived threads (e.g. the I/O workers), see {@link Pools#createForIO(String, Callable, int)}.
+ *
+ * @author Nikolche Mihajlovski
+ * @since 5.5.4
+ */
+public class ThreadAffinePool<T> extends AbstractInsightful implements Pool<T> {
+
+	private static final int MAX_SHARED_SIZE = 4096;
+
+	private static final int MAX_PROBES = 16;
+
+	private static final int MIN_PRUNE_THRESHOLD = 16;
+
+	private final Callable<T> factory;
+
+	private final int capacity;
+
+	private final ThreadLocal<LocalStage<T>> localStage = new ThreadLocal<LocalStage<T>>();
+
+	private final Queue<LocalStage<T>> localStages = new ConcurrentLinkedQueue<LocalStage<T>>();
+
+	private final AtomicInteger localStagesN = new AtomicInteger();
+
+	private volatile int pruneThreshold = MIN_PRUNE_THRESHOLD;
+
+	// the statistics of the pruned local stages
+	private final AtomicLong retiredHits = new AtomicLong();
+
+	private final AtomicLong retiredMisses = new AtomicLong();
+
+	private final AtomicLong retiredOverflows = new AtomicLong();
+
+	private final AtomicReferenceArray<T> shared;
+
+	private final int sharedMask;
+
+	private final AtomicInteger sharedPut = new AtomicInteger();
+
+	private final AtomicInteger sharedTake = new AtomicInteger();
+
+	private final AtomicInteger sharedN = new AtomicInteger();
+
+	private final AtomicLong sharedHits = new AtomicLong();
+
+	private final AtomicLong sharedMisses = new AtomicLong();
+
+	private final AtomicLong crossThreadReleases = new AtomicLong();
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	public ThreadAffinePool(String name, Callable<T> factory, int capacity) {
+		super("pool", name);
+
+		U.must(capacity > 0, "The capacity must be > 0!");
+
+		this.factory = factory;
+		this.capacity = capacity;
+
+		int sharedSize = Integer.highestOneBit(Math.min(Math.max(capacity, 16), MAX_SHARED_SIZE) * 2 - 1);
+		this.shared = new AtomicReferenceArray<T>(sharedSize);
+		this.sharedMask = sharedSize - 1;
+	}
+
+	@Override
+	public T get() {
+		LocalStage<T> stage = stage();
+
+		if (stage.freeN > 0) {
+			stage.hits++;
+			T obj = stage.free[--stage.freeN];
+			stage.free[stage.freeN] = null;
+			assert obj != null;
+			return obj;
+		}
+
+		T obj = takeShared();
+
+		if (obj != null) {
+			sharedHits.incrementAndGet();
+			return obj;
+		}
+
+		stage.misses++;
+
+		try {
+			return factory.call();
+		} catch (Exception e) {
+			throw U.rte(e);
+		}
+	}
+
+	@Override
+	public void release(T obj) {
+		assert obj != null;
+
+		LocalStage<T> stage = localStage.get();
+
+		if (stage == null) {
+			// released by a thread that doesn't take objects from this pool
+			crossThreadReleases.incrementAndGet();
+			putShared(obj);
+			return;
+		}
+
+		if (stage.freeN < stage.free.length) {
+			stage.free[stage.freeN++] = obj;
+
+		} else if (stage.free.length < capacity) {
+			stage.free = Arrays.copyOf(stage.free, Math.min(stage.free.length * 2, capacity));
+			stage.free[stage.freeN++] = obj;
+
+		} else {
+			stage.overflows++;
+			putShared(obj);
+		}
+	}
+
+	private LocalStage<T> stage() {
+		LocalStage<T> stage = localStage.get();
+
+		if (stage == null) {
+			stage = new LocalStage<T>(Thread.currentThread(), Math.min(capacity, 64));
+			localStage.set(stage);
+			localStages.add(stage);
+
+			if (localStagesN.incrementAndGet() > pruneThreshold) {
+				pruneDeadStages();
+			}
+		}
+
+		return stage;
+	}
+
+	private synchronized void pruneDeadStages() {
+		int live = 0;
+
+		for (Iterator<LocalStage<T>> it = localStages.iterator(); it.hasNext(); ) {
+			LocalStage<T> stage = it.next();
+
+			if (stage.isOwnerAlive()) {
+				live++;
+
+			} else {
+				it.remove();
+				localStagesN.decrementAndGet();
+
+				retiredHits.addAndGet(stage.hits);
+				retiredMisses.addAndGet(stage.misses);
+				retiredOverflows.addAndGet(stage.overflows);
+
+				stage.clear(); // the pooled objects of the dead thread are left to the GC
+			}
+		}
+
+		pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, live * 2);
+	}
+
+	int localStages() {
+		return localStagesN.get();
+	}
+
+	private void putShared(T obj) {
+		if (sharedN.get() <= sharedMask) {
+			int start = sharedPut.getAndIncrement();
+
+			for (int i = 0; i < MAX_PROBES; i++) {
+				if (shared.compareAndSet((start + i) & sharedMask, null, obj)) {
+					sharedN.incrementAndGet();
+					return;
+				}
+			}
+		}
+
+		// the shared stage is full, so the object will be garbage-collected
+		dropped.incrementAndGet();
+	}
+
+	private T takeShared() {
+		if (sharedN.get() <= 0) {
+			return null;
+		}
+
+		int start = sharedTake.getAndIncrement();
+
+		for (int i = 0; i < MAX_PROBES; i++) {
+			int index = (start + i) & sharedMask;
+			T obj = shared.get(index);
+
+			if (obj != null && shared.compareAndSet(index, obj, null)) {
+				sharedN.decrementAndGet();
+				return obj;
+			}
+		}
+
+		sharedMisses.incrementAndGet();
+		return null;
+	}
+
+	@Override
+	public int objectsCreated() {
+		long total = retiredMisses.get();
+
+		for (LocalStage<T> stage : localStages) {
+			total += stage.misses;
+		}
+
+		return (int) total;
+	}
+
+	@Override
+	public int size() {
+		int total = sharedN.get();
+
+		for (LocalStage<T> stage : localStages) {
+			total += stage.freeN;
+		}
+
+		return total;
+	}
+
+	public long hits() {
+		long total = sharedHits.get() + retiredHits.get();
+
+		for (LocalStage<T> stage : localStages) {
+			total += stage.hits;
+		}
+
+		return total;
+	}
+
+	public long misses() {
+		return objectsCreated();
+	}
+
+	public long overflows() {
+		long total = retiredOverflows.get();
+
+		for (LocalStage<T> stage : localStages) {
+			total += stage.overflows;
+		}
+
+		return total;
+	}
+
+	public long sharedHits() {
+		return sharedHits.get();
+	}
+
+	public long sharedMisses() {
+		return sharedMisses.get();
+	}
+
+	public long crossThreadReleases() {
+		return crossThreadReleases.get();
+	}
+
+	public long dropped() {
+		return dropped.get();
+	}
+
+	@Override
+	public String toString() {
+		return U.frmt("%s#%s[hits=%s, misses=%s, overflows=%s, sharedHits=%s, crossThreadReleases=%s, dropped=%s]",
+			getName(), size(), hits(), misses(), overflows(), sharedHits(), crossThreadReleases(), dropped());
+	}
+
+	@Override
+	public void clear() {
+		for (LocalStage<T> stage : localStages) {
+			stage.clear();
+		}
+
+		for (int i = 0; i < shared.length(); i++) {
+			shared.set(i, null);
+		}
+
+		sharedN.set(0);
+		sharedHits.set(0);
+		retiredHits.set(0);
+		retiredMisses.set(0);
+		retiredOverflows.set(0);
+		sharedMisses.set(0);
+		crossThreadReleases.set(0);
+		dropped.set(0);
+	}
+
+	/**
+	 * Updated only by the owner thread, the other threads only read the statistics.
+	 */
+	private static class LocalStage<T> {
+
+		private final WeakReference<Thread> owner;
+
+		private T[] free;
+
+		private volatile int freeN;
+
+		private volatile long hits;
+
+		private volatile long misses;
+
+		private volatile long overflows;
+
+		@SuppressWarnings("unchecked")
+		LocalStage(Thread owner, int initialCapacity) {
+			this.owner = new WeakReference<Thread>(owner);
+			this.free = (T[]) new Object[initialCapacity];
+		}
+
+		boolean isOwnerAlive() {
+			Thread thread = owner.get();
+			return thread != null && thread.isAlive();
+		}
+
+		@SuppressWarnings("unchecked")
+		void clear() {
+			free = (T[]) new Object[free.length];
+			freeN = 0;
+			hits = 0;
+			misses = 0;
+			overflows = 0;
+		}
+	}
+
+}
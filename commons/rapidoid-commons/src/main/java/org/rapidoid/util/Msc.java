@@ -70,6 +70,7 @@ import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -953,6 +954,7 @@ public class Msc extends RapidoidThing {
 		Events.reset();
 		Log.reset();
 		Crypto.reset();
+		Tokens.reset();
 		Res.reset();
 		AppInfo.reset();
 		Conf.reset();
@@ -1199,6 +1201,11 @@ public class Msc extends RapidoidThing {
 				msg = sb.toString();
 			}
 
+		} else if (cause instanceof RejectedExecutionException) {
+			code = 503;
+			defaultMsg = "Service Unavailable!";
+			msg = null; // the executor details shouldn't be exposed
+
 		} else {
 			code = 500;
 			defaultMsg = "Internal Server Error!";
@@ -23,8 +23,12 @@ package org.rapidoid.util;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.cache.Cache;
+import org.rapidoid.cache.Caching;
 import org.rapidoid.commons.Str;
+import org.rapidoid.config.Conf;
 import org.rapidoid.crypto.Crypto;
+import org.rapidoid.crypto.CryptoKey;
 import org.rapidoid.serialize.Serialize;
 import org.rapidoid.u.U;
 
@@ -43,9 +47,28 @@ public class Tokens extends RapidoidThing {
 	public static final String _SCOPE = "_scope";
 	public static final String _EXPIRES = "_expires";
 
+	/**
+	 * The AES-GCM tokens are prefixed, so both formats can be deserialized (the web-safe Base64 doesn't contain '.').
+	 */
+	private static final String GCM_PREFIX = "g.";
+
+	private static volatile Cache<String, VerifiedToken> verified;
+
+	public static void reset() {
+		Cache<String, VerifiedToken> cache = verified;
+		verified = null;
+
+		if (cache != null) cache.clear();
+	}
+
 	public static String serialize(Map<String, ? extends Serializable> token) {
 		if (U.notEmpty(token)) {
 			byte[] tokenBytes = serializeToken(token);
+
+			if ("gcm".equalsIgnoreCase(Conf.TOKEN.entry("format").or("cbc"))) {
+				return GCM_PREFIX + Str.toWebSafeBase64(Crypto.encryptGCM(tokenBytes));
+			}
+
 			byte[] tokenEncrypted = Crypto.encrypt(tokenBytes);
 			return Str.toWebSafeBase64(tokenEncrypted);
 
@@ -68,12 +91,15 @@ public class Tokens extends RapidoidThing {
 		return dest;
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Returns a (modifiable) copy of the token data. The token is decrypted only once and then served from the cache
+	 * of verified tokens, until it expires or gets evicted. The copy is deserialized for each call, so the nested
+	 * values aren't shared either.
+	 */
 	public static Map<String, Serializable> deserialize(String token) {
 		if (!U.isEmpty(token)) {
-			byte[] decoded = Str.fromWebSafeBase64(token);
-			byte[] tokenDecrypted = Crypto.decrypt(decoded);
-			return tokenDecrypted != null ? (Map<String, Serializable>) Serialize.deserialize(tokenDecrypted) : null;
+			VerifiedToken verifiedToken = verify(token);
+			return verifiedToken != null ? deserializeToken(verifiedToken.data) : null;
 		} else {
 			return null;
 		}
@@ -93,6 +119,75 @@ public class Tokens extends RapidoidThing {
 		}
 	}
 
+	private static VerifiedToken verify(String token) {
+		Cache<String, VerifiedToken> cache = verifiedTokens();
+		CryptoKey key = Crypto.getSecretKey();
+
+		if (cache != null) {
+			VerifiedToken verifiedToken = cache.getIfExists(token);
+
+			if (verifiedToken != null) {
+				if (verifiedToken.key == key && !verifiedToken.isExpired()) {
+					return verifiedToken;
+				} else {
+					cache.invalidate(token); // the token has expired or the secret has changed
+				}
+			}
+		}
+
+		byte[] data = decrypt(token, key);
+		if (data == null) return null;
+
+		VerifiedToken verifiedToken = new VerifiedToken(key, data, getAuth(deserializeToken(data)));
+
+		// the expired tokens are not cached, so the cache doesn't fill up with them
+		if (cache != null && verifiedToken.auth != null) {
+			cache.set(token, verifiedToken);
+		}
+
+		return verifiedToken;
+	}
+
+	private static byte[] decrypt(String token, CryptoKey key) {
+		byte[] tokenDecrypted;
+
+		if (token.startsWith(GCM_PREFIX)) {
+			byte[] decoded = Str.fromWebSafeBase64(token.substring(GCM_PREFIX.length()));
+			tokenDecrypted = Crypto.decryptGCM(decoded, key);
+
+		} else {
+			byte[] decoded = Str.fromWebSafeBase64(token);
+			tokenDecrypted = Crypto.decrypt(decoded, key);
+		}
+
+		return tokenDecrypted;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Serializable> deserializeToken(byte[] tokenBytes) {
+		return (Map<String, Serializable>) Serialize.deserialize(tokenBytes);
+	}
+
+	private static Cache<String, VerifiedToken> verifiedTokens() {
+		Cache<String, VerifiedToken> cache = verified;
+
+		if (cache == null) {
+			synchronized (Tokens.class) {
+				cache = verified;
+
+				if (cache == null) {
+					int capacity = Conf.TOKEN.sub("cache").entry("capacity").or(10000);
+					if (capacity <= 0) return null; // the cache is disabled
+
+					cache = Caching.of(String.class, VerifiedToken.class).capacity(capacity).build();
+					verified = cache;
+				}
+			}
+		}
+
+		return cache;
+	}
+
 	private static Set<String> scope(String scope) {
 		if (U.isEmpty(scope)) return null;
 
@@ -114,4 +209,26 @@ public class Tokens extends RapidoidThing {
 		return scopes;
 	}
 
+	private static class VerifiedToken extends RapidoidThing {
+
+		final CryptoKey key;
+
+		/**
+		 * The decrypted (serialized) token data.
+		 */
+		final byte[] data;
+
+		final TokenAuthData auth;
+
+		VerifiedToken(CryptoKey key, byte[] data, TokenAuthData auth) {
+			this.key = key;
+			this.data = data;
+			this.auth = auth;
+		}
+
+		boolean isExpired() {
+			return auth == null || (auth.expires != null && auth.expires <= U.time());
+		}
+	}
+
 }
@@ -0,0 +1,189 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.cache;
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.job.Jobs;
+import org.rapidoid.lambda.Mapper;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class CacheLoadingTest extends TestCommons {
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testRefreshAfterWrite() throws Exception {
+		final AtomicInteger version = new AtomicInteger();
+		final CountDownLatch refreshStarted = new CountDownLatch(1);
+		final CountDownLatch refreshAllowed = new CountDownLatch(1);
+
+		// initialize the executor in advance, as it's lazy
+		Jobs.executor();
+
+		Cache<String, Integer> cache = Caching.of(new Mapper<String, Integer>() {
+			@Override
+			public Integer map(String key) throws Exception {
+				int v = version.incrementAndGet();
+
+				// the refresh is blocked until allowed
+				if (v == 2) {
+					refreshStarted.countDown();
+					refreshAllowed.await();
+				}
+
+				return v;
+			}
+		}).refreshAfterWrite(100).statistics(true).build();
+
+		eq(cache.get("x").intValue(), 1);
+
+		U.sleep(150);
+
+		// triggers the refresh
+		eq(cache.get("x").intValue(), 1);
+		isTrue(refreshStarted.await(10, TimeUnit.SECONDS));
+
+		// the current value is returned without waiting for the reload, and there is only one reload at a time
+		eq(cache.get("x").intValue(), 1);
+		eq(cache.get("x").intValue(), 1);
+		eq(version.get(), 2);
+
+		refreshAllowed.countDown();
+		waitForRefreshes(cache, 1);
+
+		eq(version.get(), 2);
+		eq(cache.get("x").intValue(), 2);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testRefreshAfterInvalidation() throws Exception {
+		final AtomicInteger version = new AtomicInteger();
+		final CountDownLatch refreshStarted = new CountDownLatch(1);
+		final CountDownLatch refreshAllowed = new CountDownLatch(1);
+
+		// initialize the executor in advance, as it's lazy
+		Jobs.executor();
+
+		Cache<String, Integer> cache = Caching.of(new Mapper<String, Integer>() {
+			@Override
+			public Integer map(String key) throws Exception {
+				int v = version.incrementAndGet();
+
+				if (v == 2) {
+					refreshStarted.countDown();
+					refreshAllowed.await();
+				}
+
+				return v;
+			}
+		}).refreshAfterWrite(100).statistics(true).build();
+
+		eq(cache.get("x").intValue(), 1);
+
+		U.sleep(150);
+
+		eq(cache.get("x").intValue(), 1);
+		isTrue(refreshStarted.await(10, TimeUnit.SECONDS));
+
+		// the value is invalidated while it's being refreshed
+		cache.invalidate("x");
+
+		refreshAllowed.countDown();
+		waitForRefreshes(cache, 1);
+
+		// the outdated refreshed value wasn't stored
+		isNull(cache.getIfExists("x"));
+
+		eq(cache.get("x").intValue(), 3);
+		eq(version.get(), 3);
+	}
+
+	private void waitForRefreshes(Cache<?, ?> cache, int refreshes) {
+		waiting();
+
+		while (cache.stats().refreshes.get() < refreshes) {
+			timeout(10000);
+			U.sleep(1);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testBulkLoading() {
+		final List<Integer> batchSizes = U.list();
+
+		Cache<Integer, String> cache = Caching.of(Integer.class, String.class)
+			.bulkLoader(new Mapper<Collection<Integer>, Map<Integer, String>>() {
+				@Override
+				public Map<Integer, String> map(Collection<Integer> keys) throws Exception {
+					batchSizes.add(keys.size());
+
+					Map<Integer, String> values = U.map();
+
+					for (Integer key : keys) {
+						// the negative keys have no value
+						if (key >= 0) values.put(key, "v" + key);
+					}
+
+					return values;
+				}
+			}).capacity(1000).statistics(true).build();
+
+		List<Integer> keys = U.list();
+		for (int i = 0; i < 200; i++) {
+			keys.add(i);
+		}
+
+		Map<Integer, String> values = cache.getAll(keys);
+
+		eq(values.size(), 200);
+		eq(values.get(123), "v123");
+		eq(batchSizes, U.list(200));
+
+		// all cached now
+		eq(cache.getAll(keys), values);
+		eq(batchSizes, U.list(200));
+
+		// only the missing keys are loaded
+		values = cache.getAll(U.list(1, 2, 500, 501, -1));
+
+		eq(values, U.map(1, "v1", 2, "v2", 500, "v500", 501, "v501"));
+		eq(batchSizes, U.list(200, 3));
+
+		// the bulk loader is also used for the single keys
+		eq(cache.get(700), "v700");
+		eq(batchSizes, U.list(200, 3, 1));
+	}
+
+}
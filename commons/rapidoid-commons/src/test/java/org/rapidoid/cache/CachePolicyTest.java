@@ -0,0 +1,240 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.cache;
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.cache.impl.CacheStats;
+import org.rapidoid.lambda.Mapper;
+import org.rapidoid.log.Log;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class CachePolicyTest extends TestCommons {
+
+	private static final int CAPACITY = 1024;
+
+	private static final Mapper<Integer, Integer> N_TO_N = new Mapper<Integer, Integer>() {
+		@Override
+		public Integer map(Integer key) throws Exception {
+			return key;
+		}
+	};
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testTinyLFUStaysBounded() {
+		Cache<Integer, Integer> cache = Caching.of(N_TO_N).capacity(CAPACITY).policy(CachePolicy.W_TINY_LFU)
+			.statistics(true).build();
+
+		for (int i = 0; i < 100_000; i++) {
+			eq(cache.get(i).intValue(), i);
+		}
+
+		eq(cache.size(), CAPACITY);
+
+		CacheStats stats = cache.stats();
+		eq(stats.evictions.get() + stats.rejections.get(), 100_000 - CAPACITY);
+
+		cache.set(-1, 123);
+		isTrue(cache.size() <= CAPACITY);
+
+		cache.clear();
+		eq(cache.size(), 0);
+	}
+
+	@Test
+	public void testTinyLFUForgetsTheInvalidatedKeys() {
+		Cache<Integer, Integer> cache = Caching.of(Integer.class, Integer.class).capacity(CAPACITY)
+			.policy(CachePolicy.W_TINY_LFU).statistics(true).build();
+
+		Integer[] values = new Integer[CAPACITY];
+
+		for (int i = 0; i < CAPACITY; i++) {
+			values[i] = i;
+			cache.set(i, values[i]);
+		}
+
+		// invalidate half of the keys, some of them through the conditional invalidation
+		for (int i = 0; i < CAPACITY; i += 2) {
+			if (i % 4 == 0) {
+				cache.invalidate(i);
+			} else {
+				cache.invalidate(i, values[i]);
+			}
+		}
+
+		eq(cache.size(), CAPACITY / 2);
+
+		// fill the cache to capacity again, without evicting the remaining keys
+		for (int i = 0; i < CAPACITY / 2; i++) {
+			cache.set(CAPACITY + i, i);
+		}
+
+		eq(cache.size(), CAPACITY);
+
+		CacheStats stats = cache.stats();
+		eq(stats.evictions.get() + stats.rejections.get(), 0);
+
+		for (int i = 1; i < CAPACITY; i += 2) {
+			eq(cache.getIfExists(i).intValue(), i);
+		}
+
+		for (int i = 0; i < CAPACITY / 2; i++) {
+			eq(cache.getIfExists(CAPACITY + i).intValue(), i);
+		}
+	}
+
+	@Test
+	public void testTinyLFUForgetsTheExpiredKeys() {
+		Cache<Integer, Integer> cache = Caching.of(Integer.class, Integer.class).capacity(CAPACITY).ttl(100)
+			.policy(CachePolicy.W_TINY_LFU).statistics(true).build();
+
+		for (int i = 0; i < CAPACITY; i++) {
+			cache.set(i, i);
+		}
+
+		// wait for the expiration crawler to expire all the values
+		waiting();
+		while (cache.size() > 0) {
+			timeout(10000);
+			U.sleep(10);
+		}
+
+		for (int i = 0; i < CAPACITY; i++) {
+			cache.set(CAPACITY + i, i);
+		}
+
+		eq(cache.size(), CAPACITY);
+
+		CacheStats stats = cache.stats();
+		eq(stats.evictions.get() + stats.rejections.get(), 0);
+	}
+
+	@Test
+	public void testTinyLFUKeepsTheHotKeysDuringScans() {
+		// more than the L1 segments can hold
+		int hotKeys = CAPACITY * 3 / 4;
+
+		int keptByFIFO = hotKeysAfterScans(CachePolicy.FIFO, hotKeys);
+		int keptByTinyLFU = hotKeysAfterScans(CachePolicy.W_TINY_LFU, hotKeys);
+
+		Log.info("Hot keys kept after the scans", "FIFO", keptByFIFO, "W-TinyLFU", keptByTinyLFU);
+
+		isTrue(keptByTinyLFU > hotKeys * 0.9);
+		isTrue(keptByTinyLFU > keptByFIFO);
+	}
+
+	@SuppressWarnings("unchecked")
+	private int hotKeysAfterScans(CachePolicy policy, int hotKeys) {
+		Cache<Integer, Integer> cache = Caching.of(N_TO_N).capacity(CAPACITY).policy(policy).statistics(true).build();
+
+		int scanKey = 1_000_000;
+
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < hotKeys; i++) {
+				cache.get(i);
+			}
+
+			// a scan of keys that are used only once
+			for (int i = 0; i < 5 * CAPACITY; i++) {
+				cache.get(scanKey++);
+			}
+		}
+
+		int kept = 0;
+
+		for (int i = 0; i < hotKeys; i++) {
+			if (cache.getIfExists(i) != null) kept++;
+		}
+
+		return kept;
+	}
+
+	/**
+	 * Replays the same trace (Zipf-distributed lookups, interrupted by scans) against both policies.
+	 */
+	@Test
+	public void testTraceDrivenHitRatio() {
+		int[] trace = trace(2_000_000, 100_000, 0.8, new Random(12345));
+
+		double fifo = replay(trace, CachePolicy.FIFO);
+		double tinyLFU = replay(trace, CachePolicy.W_TINY_LFU);
+
+		Log.info("Cache hit ratio", "FIFO", fifo, "W-TinyLFU", tinyLFU);
+
+		isTrue(tinyLFU > fifo);
+	}
+
+	@SuppressWarnings("unchecked")
+	private double replay(int[] trace, CachePolicy policy) {
+		Cache<Integer, Integer> cache = Caching.of(N_TO_N).capacity(CAPACITY).policy(policy).statistics(true).build();
+
+		long start = System.currentTimeMillis();
+
+		for (int key : trace) {
+			cache.get(key);
+		}
+
+		CacheStats stats = cache.stats();
+
+		Log.info("Replayed the cache trace", "policy", policy, "hitRatio", stats.hitRatio(),
+			"time", (System.currentTimeMillis() - start) + " ms", "stats", stats);
+
+		return stats.hitRatio();
+	}
+
+	/**
+	 * A trace of Zipf-distributed keys, with a scan of unique keys every 100K lookups.
+	 */
+	private static int[] trace(int length, int keys, double skew, Random rnd) {
+		double[] cumulative = new double[keys];
+		double sum = 0;
+
+		for (int i = 0; i < keys; i++) {
+			sum += 1 / Math.pow(i + 1, skew);
+			cumulative[i] = sum;
+		}
+
+		int[] trace = new int[length];
+		int scanKey = keys;
+
+		for (int i = 0; i < length; i++) {
+			if (i % 100_000 < 10_000) {
+				trace[i] = scanKey++;
+
+			} else {
+				int pos = Arrays.binarySearch(cumulative, rnd.nextDouble() * sum);
+				trace[i] = pos >= 0 ? pos : Math.min(-pos - 1, keys - 1);
+			}
+		}
+
+		return trace;
+	}
+
+}
@@ -219,6 +219,24 @@ public class SimpleCachingTest extends TestCommons {
 		}
 	}
 
+	@Test
+	public void testConditionalInvalidation() {
+		Cache<String, String> cache = Caching.of(String.class, String.class).capacity(64).build();
+
+		String v1 = new String("v");
+		String v2 = new String("v");
+
+		cache.set("x", v1);
+		cache.set("x", v2);
+
+		// the replaced value doesn't invalidate the current one
+		cache.invalidate("x", v1);
+		isTrue(cache.getIfExists("x") == v2);
+
+		cache.invalidate("x", v2);
+		isNull(cache.getIfExists("x"));
+	}
+
 	private void iteration(AtomicInteger value, final Cache<Integer, Integer> cache) {
 
 		final int max = 2000;
@@ -117,6 +117,26 @@ public class CryptoTest extends AbstractCommonsTest {
 		}
 	}
 
+	@Test
+	public void testEncryptWithGCM() {
+		CryptoKey key = CryptoKey.from("pass".toCharArray());
+
+		for (int i = 0; i < 10000; i++) {
+			String msg1 = "" + i;
+
+			byte[] enc = Crypto.encryptGCM(msg1.getBytes(), key);
+			byte[] dec = Crypto.decryptGCM(enc, key);
+
+			String msg2 = new String(dec);
+			eq(msg2, msg1);
+		}
+
+		byte[] enc = Crypto.encryptGCM("abc".getBytes(), key);
+		enc[enc.length / 2]++;
+
+		isNull(Crypto.decryptGCM(enc, key));
+	}
+
 	@Test
 	public void testPasswordHash() {
 		for (int i = 0; i < 10; i++) {
@@ -0,0 +1,163 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.expire;
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class TimerWheelTest extends TestCommons {
+
+	private final long t0 = U.time();
+
+	@Test
+	public void testExpirationAfterDeadline() {
+		TimerWheel wheel = new TimerWheel(10);
+		wheel.advance(t0);
+
+		Target target = new Target(t0 + 55);
+		wheel.schedule(target.timer);
+
+		eq(wheel.advance(t0 + 50), 0);
+		eq(target.expired.get(), 0);
+
+		eq(wheel.advance(t0 + 70), 1);
+		eq(target.expired.get(), 1);
+		eq(target.getExpiresAt(), 0L);
+		eq(wheel.size(), 0);
+		isFalse(target.timer.isScheduled());
+	}
+
+	@Test
+	public void testLazyReschedulingOfTouchedTargets() {
+		TimerWheel wheel = new TimerWheel(10);
+		wheel.advance(t0);
+
+		Target target = new Target(t0 + 100);
+		wheel.schedule(target.timer);
+		wheel.advance(t0 + 10);
+
+		// touching just extends the expiration time, the timer stays in its slot
+		target.setExpiresAt(t0 + 300);
+		wheel.schedule(target.timer);
+		eq(wheel.size(), 1);
+
+		eq(wheel.advance(t0 + 200), 0);
+		eq(wheel.size(), 1);
+
+		eq(wheel.advance(t0 + 400), 1);
+		eq(target.expired.get(), 1);
+	}
+
+	@Test
+	public void testFarDeadlinesCascade() {
+		TimerWheel wheel = new TimerWheel(1);
+		wheel.advance(t0);
+
+		long[] delays = {5, 100, 5000, 300000, 20000000};
+		Target[] targets = new Target[delays.length];
+
+		for (int i = 0; i < delays.length; i++) {
+			targets[i] = new Target(t0 + delays[i]);
+			wheel.schedule(targets[i].timer);
+		}
+
+		for (int i = 0; i < delays.length; i++) {
+			eq(wheel.advance(t0 + delays[i] - 1), 0);
+			eq(targets[i].expired.get(), 0);
+
+			eq(wheel.advance(t0 + delays[i] + 1), 1);
+			eq(targets[i].expired.get(), 1);
+		}
+
+		eq(wheel.size(), 0);
+	}
+
+	@Test
+	public void testSchedulingFromOtherThreads() throws Exception {
+		final TimerWheel wheel = new TimerWheel(10);
+		wheel.advance(t0);
+
+		final Target[] targets = new Target[1000];
+		for (int i = 0; i < targets.length; i++) {
+			targets[i] = new Target(t0 + 20 + i);
+		}
+
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (Target target : targets) {
+						wheel.schedule(target.timer);
+					}
+				}
+			};
+			threads[t].start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		eq(wheel.advance(t0 + 2000), targets.length);
+
+		for (Target target : targets) {
+			eq(target.expired.get(), 1);
+		}
+	}
+
+	static class Target implements Expiring {
+
+		final ExpirationTimer timer = new ExpirationTimer(this);
+
+		final AtomicInteger expired = new AtomicInteger();
+
+		volatile long expiresAt;
+
+		Target(long expiresAt) {
+			this.expiresAt = expiresAt;
+		}
+
+		@Override
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+
+		@Override
+		public void setExpiresAt(long expiresAt) {
+			this.expiresAt = expiresAt;
+		}
+
+		@Override
+		public void expire() {
+			expired.incrementAndGet();
+		}
+	}
+
+}
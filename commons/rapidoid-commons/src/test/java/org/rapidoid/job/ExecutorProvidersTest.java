@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.job;
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.cls.Cls;
+import org.rapidoid.config.Config;
+import org.rapidoid.config.ConfigImpl;
+import org.rapidoid.log.Log;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class ExecutorProvidersTest extends TestCommons {
+
+	private static final int THREADS = 100;
+
+	private static final int JOBS = 5000;
+
+	@Test
+	public void testBuiltInProviders() {
+		isTrue(ExecutorProviders.get("pool").isAvailable());
+		isTrue(ExecutorProviders.get("forkjoin").isAvailable());
+
+		// the virtual threads are available only on Java 21+
+		boolean hasVirtualThreads = U.notEmpty(Cls.getMethodsNamed(Executors.class, "newVirtualThreadPerTaskExecutor"));
+		isTrue(hasVirtualThreads || !ExecutorProviders.get("virtual").isAvailable());
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testUnknownProvider() {
+		ExecutorProviders.get("no-such-executor");
+	}
+
+	@Test
+	public void benchmarkBlockingJobs() throws Exception {
+		Config config = new ConfigImpl(U.<String, Object>map("threads", THREADS));
+
+		for (ExecutorProvider provider : ExecutorProviders.all()) {
+			if (!provider.isAvailable()) {
+				Log.info("Skipping the unavailable executor provider", "provider", provider.name());
+				continue;
+			}
+
+			ExecutorService executor = provider.newExecutor(config);
+
+			try {
+				runBlockingJobs(provider.name(), executor);
+			} finally {
+				executor.shutdown();
+				Jobs.awaitTermination(executor);
+			}
+		}
+	}
+
+	private void runBlockingJobs(String name, ExecutorService executor) throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(JOBS);
+		final AtomicInteger done = new AtomicInteger();
+
+		long start = U.time();
+
+		for (int i = 0; i < JOBS; i++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					U.sleep(1); // emulates a blocking call, e.g. a JDBC query
+					done.incrementAndGet();
+					latch.countDown();
+				}
+			});
+		}
+
+		latch.await();
+		Msc.benchmarkComplete("blocking jobs on " + name, JOBS, start);
+
+		eq(done.get(), JOBS);
+	}
+
+}
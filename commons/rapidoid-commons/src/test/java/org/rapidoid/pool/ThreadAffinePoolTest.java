@@ -0,0 +1,158 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.pool;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.test.AbstractCommonsTest;
+import org.rapidoid.util.Msc;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class ThreadAffinePoolTest extends AbstractCommonsTest {
+
+	@Test
+	public void testLocalReuse() {
+		ThreadAffinePool<Object> pool = new ThreadAffinePool<Object>("test", newObjects(new AtomicInteger()), 10);
+
+		Object a = pool.get();
+		Object b = pool.get();
+
+		pool.release(a);
+		pool.release(b);
+
+		eq(pool.size(), 2);
+
+		isTrue(pool.get() == b);
+		isTrue(pool.get() == a);
+
+		eq(pool.hits(), 2);
+		eq(pool.misses(), 2);
+		eq(pool.objectsCreated(), 2);
+	}
+
+	@Test
+	public void testOverflowToSharedStage() {
+		ThreadAffinePool<Object> pool = new ThreadAffinePool<Object>("test", newObjects(new AtomicInteger()), 2);
+
+		Object a = pool.get();
+		Object b = pool.get();
+		Object c = pool.get();
+
+		pool.release(a);
+		pool.release(b);
+		pool.release(c);
+
+		eq(pool.overflows(), 1);
+		eq(pool.size(), 3);
+
+		pool.get();
+		pool.get();
+		isTrue(pool.get() == c);
+
+		eq(pool.sharedHits(), 1);
+		eq(pool.size(), 0);
+	}
+
+	@Test
+	public void testCrossThreadRelease() throws Exception {
+		final ThreadAffinePool<Object> pool = new ThreadAffinePool<Object>("test", newObjects(new AtomicInteger()), 10);
+
+		final Object obj = pool.get();
+
+		Thread releaser = new Thread() {
+			@Override
+			public void run() {
+				pool.release(obj);
+			}
+		};
+
+		releaser.start();
+		releaser.join();
+
+		eq(pool.crossThreadReleases(), 1);
+		isTrue(pool.get() == obj);
+	}
+
+	@Test
+	public void testDeadThreadStagesArePruned() throws Exception {
+		final AtomicInteger created = new AtomicInteger();
+		final ThreadAffinePool<Object> pool = new ThreadAffinePool<Object>("test", newObjects(created), 10);
+
+		for (int i = 0; i < 100; i++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					pool.release(pool.get());
+				}
+			};
+
+			thread.start();
+			thread.join();
+		}
+
+		isTrue(pool.localStages() <= 17);
+
+		// the statistics of the pruned stages are preserved
+		eq(pool.objectsCreated(), created.get());
+		eq(created.get(), 100);
+	}
+
+	@Test
+	public void testSynchronizedPoolByDefault() {
+		isTrue(Pools.create("test", newObjects(new AtomicInteger()), 10) instanceof SynchronizedArrayPool);
+		isTrue(Pools.createForIO("test", newObjects(new AtomicInteger()), 10) instanceof ThreadAffinePool);
+	}
+
+	@Test(timeout = 60000)
+	public void testConcurrentAccess() {
+		final AtomicInteger created = new AtomicInteger();
+		final ThreadAffinePool<Object> pool = new ThreadAffinePool<Object>("test", newObjects(created), 100);
+
+		Msc.benchmarkMT(8, "get+release", 1000000, new Runnable() {
+			@Override
+			public void run() {
+				Object obj = pool.get();
+				notNull(obj);
+				pool.release(obj);
+			}
+		});
+
+		eq(pool.objectsCreated(), created.get());
+		isTrue(created.get() <= 8);
+	}
+
+	private static Callable<Object> newObjects(final AtomicInteger counter) {
+		return new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				counter.incrementAndGet();
+				return new Object();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,123 @@
+/*-
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.util;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
+import org.rapidoid.test.AbstractCommonsTest;
+import org.rapidoid.u.U;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class TokensTest extends AbstractCommonsTest {
+
+	@Test
+	public void testTokenSerialization() {
+		Map<String, Serializable> data = U.<String, Serializable>map(Tokens._USER, "bob", Tokens._SCOPE, "GET:/a", "x", 123);
+		data.put("list", (Serializable) U.list(1, 2));
+
+		String token = Tokens.serialize(data);
+
+		isFalse(token.startsWith("g."));
+
+		// the first time it's decrypted, then it's served from the cache
+		for (int i = 0; i < 3; i++) {
+			Map<String, Serializable> decoded = Tokens.deserialize(token);
+			eq(decoded, data);
+
+			// the deserialized data is a copy, so it can be modified (including the nested values)
+			decoded.put("x", 456);
+			U.<List<Object>>cast(decoded.get("list")).add(3);
+		}
+
+		TokenAuthData auth = auth(token);
+		eq(auth.user, "bob");
+		eq(auth.scope, U.set("GET /a"));
+		isNull(auth.expires);
+	}
+
+	@Test
+	public void testGCMTokens() {
+		Map<String, Serializable> data = U.<String, Serializable>map(Tokens._USER, "alice", "n", 1L);
+		String cbcToken = Tokens.serialize(data);
+
+		Conf.TOKEN.set("format", "gcm");
+
+		String token = Tokens.serialize(data);
+		isTrue(token.startsWith("g."));
+
+		eq(Tokens.deserialize(token), data);
+		eq(auth(token).user, "alice");
+
+		// the tokens in the previous format are still accepted
+		eq(Tokens.deserialize(cbcToken), data);
+	}
+
+	@Test
+	public void testTamperedTokens() {
+		Map<String, Serializable> data = U.<String, Serializable>map(Tokens._USER, "bob");
+
+		String cbcToken = Tokens.serialize(data);
+		isNull(Tokens.deserialize(tamper(cbcToken)));
+
+		Conf.TOKEN.set("format", "gcm");
+
+		String gcmToken = Tokens.serialize(data);
+		isNull(Tokens.deserialize(tamper(gcmToken)));
+
+		eq(Tokens.deserialize(gcmToken), data);
+	}
+
+	@Test
+	public void testExpiredTokens() {
+		String expired = Tokens.serialize(U.<String, Serializable>map(Tokens._USER, "bob", Tokens._EXPIRES, U.time() - 1000));
+
+		notNull(Tokens.deserialize(expired));
+		isNull(auth(expired));
+
+		String expiring = Tokens.serialize(U.<String, Serializable>map(Tokens._USER, "bob", Tokens._EXPIRES, U.time() + 300));
+
+		eq(auth(expiring).user, "bob");
+
+		U.sleep(500);
+
+		// the cached token must expire, too
+		isNull(auth(expiring));
+	}
+
+	private static TokenAuthData auth(String token) {
+		return Tokens.getAuth(Tokens.deserialize(token));
+	}
+
+	private static String tamper(String token) {
+		int pos = token.length() / 4; // inside the encrypted data
+		char c = token.charAt(pos) == 'A' ? 'B' : 'A';
+		return token.substring(0, pos) + c + token.substring(pos + 1);
+	}
+
+}
@@ -52,7 +52,10 @@ public class MultiBuf extends OutputStream implements Buf, Constants {
 
 	private final byte[] HELPER = new byte[20];
 
-	private final ThreadLocal<ByteBuffer> tmpBufs = new ThreadLocal<ByteBuffer>() {
+	/**
+	 * Shared by all buffers of the thread, so the (idle) TLS connections don't hold their own direct buffers.
+	 */
+	private static final ThreadLocal<ByteBuffer> TMP_BUFS = new ThreadLocal<ByteBuffer>() {
 		@Override
 		protected ByteBuffer initialValue() {
 			return ByteBuffer.allocateDirect(20 * 1024);
@@ -557,7 +560,7 @@ public class MultiBuf extends OutputStream implements Buf, Constants {
 			case TO_SSL_DEST:
 
 				count = 0;
-				ByteBuffer tmpBuf = tmpBufs.get();
+				ByteBuffer tmpBuf = TMP_BUFS.get();
 
 				while (src.hasRemaining()) {
 
@@ -24,6 +24,7 @@ import org.rapidoid.RapidoidThing;
 import org.rapidoid.config.BasicConfig;
 import org.rapidoid.net.impl.DefaultExchange;
 import org.rapidoid.net.impl.RapidoidHelper;
+import org.rapidoid.net.tls.TLSHandshakes;
 
 public class NetworkingParams extends RapidoidThing {
 
@@ -43,12 +44,16 @@ public class NetworkingParams extends RapidoidThing {
 
 	private volatile boolean blockingAccept;
 
+	private volatile boolean reusePort;
+
 	private volatile Protocol protocol = null;
 
 	private volatile Class<? extends DefaultExchange<?>> exchangeClass = null;
 
 	private volatile Class<? extends RapidoidHelper> helperClass = RapidoidHelper.class;
 
+	private volatile TLSHandshakes tlsHandshakes = null;
+
 	public NetworkingParams(BasicConfig cfg) {
 		address = cfg.entry("address").or("0.0.0.0");
 		port = cfg.entry("port").or(8080);
@@ -58,6 +63,7 @@ public class NetworkingParams extends RapidoidThing {
 		maxPipeline = cfg.entry("maxPipeline").or(0);
 		syncBufs = cfg.entry("syncBufs").or(true);
 		blockingAccept = cfg.entry("blockingAccept").or(false);
+		reusePort = cfg.entry("reusePort").or(false);
 	}
 
 	public String address() {
@@ -132,6 +138,15 @@ public class NetworkingParams extends RapidoidThing {
 		return this;
 	}
 
+	public boolean reusePort() {
+		return reusePort;
+	}
+
+	public NetworkingParams reusePort(boolean reusePort) {
+		this.reusePort = reusePort;
+		return this;
+	}
+
 	public Protocol protocol() {
 		return protocol;
 	}
@@ -158,4 +173,16 @@ public class NetworkingParams extends RapidoidThing {
 		this.helperClass = helperClass;
 		return this;
 	}
+
+	/**
+	 * The executor of the TLS handshake tasks, or <code>null</code> for the default one ({@link TLSHandshakes#INSTANCE}).
+	 */
+	public TLSHandshakes tlsHandshakes() {
+		return tlsHandshakes;
+	}
+
+	public NetworkingParams tlsHandshakes(TLSHandshakes tlsHandshakes) {
+		this.tlsHandshakes = tlsHandshakes;
+		return this;
+	}
 }
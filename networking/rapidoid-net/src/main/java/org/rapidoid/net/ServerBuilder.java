@@ -27,6 +27,7 @@ import org.rapidoid.config.BasicConfig;
 import org.rapidoid.net.impl.DefaultExchange;
 import org.rapidoid.net.impl.RapidoidHelper;
 import org.rapidoid.net.impl.RapidoidServerLoop;
+import org.rapidoid.net.tls.TLSHandshakes;
 import org.rapidoid.u.U;
 
 import javax.net.ssl.SSLContext;
@@ -85,6 +86,11 @@ public class ServerBuilder extends RapidoidThing {
 		return this;
 	}
 
+	public ServerBuilder reusePort(boolean reusePort) {
+		netParams.reusePort(reusePort);
+		return this;
+	}
+
 	public ServerBuilder protocol(Protocol protocol) {
 		netParams.protocol(protocol);
 		return this;
@@ -140,6 +146,11 @@ public class ServerBuilder extends RapidoidThing {
 		return this;
 	}
 
+	public ServerBuilder tlsHandshakes(TLSHandshakes tlsHandshakes) {
+		netParams.tlsHandshakes(tlsHandshakes);
+		return this;
+	}
+
 	public synchronized Server build() {
 		U.must(!built, "This builder was already used! Please instantiate a new one!");
 		built = true;
@@ -85,6 +85,11 @@ public interface ProtocolContext<T> {
 
 	T write(File file);
 
+	/**
+	 * Writes a segment of the file, using zero-copy transfer from the file to the socket (when possible).
+	 */
+	T write(File file, long position, long length);
+
 	T writeJSON(Object value);
 
 	T send();
@@ -23,8 +23,10 @@ package org.rapidoid.net.impl;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.io.IO;
 import org.rapidoid.util.Resetable;
 
+import java.io.Closeable;
 import java.util.List;
 
 
@@ -49,6 +51,11 @@ public class ConnState extends RapidoidThing implements Resetable {
 	// private final List<String> log = Collections.synchronizedList(U.<String> list());
 
 	public void reset() {
+		// e.g. a partially received request body
+		if (obj instanceof Closeable) {
+			IO.close((Closeable) obj, true);
+		}
+
 		n = 0;
 		obj = null;
 		log("<<< RESET >>>");
@@ -107,6 +107,13 @@ public abstract class DefaultExchange<T> extends RapidoidThing implements Protoc
 		return wrote((int) size);
 	}
 
+	@Override
+	public T write(File file, long position, long length) {
+		U.must(length < Integer.MAX_VALUE);
+		conn.write(file, position, length);
+		return wrote((int) length);
+	}
+
 	@Override
 	public T writeJSON(Object value) {
 		conn.writeJSON(value);
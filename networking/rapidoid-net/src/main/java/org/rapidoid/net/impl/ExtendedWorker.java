@@ -25,17 +25,17 @@ import org.rapidoid.annotation.Since;
 import org.rapidoid.buffer.BufGroup;
 import org.rapidoid.buffer.BufUtil;
 import org.rapidoid.buffer.IncompleteReadException;
-import org.rapidoid.collection.Coll;
 import org.rapidoid.config.Conf;
 import org.rapidoid.config.ConfigUtil;
 import org.rapidoid.ctx.Ctxs;
-import org.rapidoid.expire.ExpirationCrawlerThread;
-import org.rapidoid.expire.Expire;
+import org.rapidoid.expire.TimerWheel;
 import org.rapidoid.insight.Insights;
 import org.rapidoid.insight.StatsMeasure;
 import org.rapidoid.log.Log;
 import org.rapidoid.net.NetworkingParams;
 import org.rapidoid.net.Protocol;
+import org.rapidoid.net.tls.RapidoidTLS;
+import org.rapidoid.net.tls.TLSHandshakes;
 import org.rapidoid.pool.Pool;
 import org.rapidoid.pool.Pools;
 import org.rapidoid.u.U;
@@ -47,14 +47,15 @@ import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
 import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 
 @Authors("Nikolche Mihajlovski")
@@ -65,7 +66,7 @@ public class ExtendedWorker extends AbstractEventLoop<ExtendedWorker> implements
 
 	public static boolean EXTRA_SAFE = false;
 
-	private static final ExpirationCrawlerThread idleConnectionsCrawler;
+	private static final int timeoutResolution;
 
 	private static final int connTimeout;
 
@@ -79,9 +80,17 @@ public class ExtendedWorker extends AbstractEventLoop<ExtendedWorker> implements
 	// client-only
 	private final Queue<ConnectionTarget> connecting;
 
+	/**
+	 * The TLS connections whose delegated handshake tasks were executed, so the handshake can continue.
+	 */
+	private final Queue<RapidoidConnection> handshakesToResume = new ConcurrentLinkedQueue<>();
+
 	private final Pool<RapidoidConnection> connections;
 
-	private final Set<RapidoidConnection> allConnections = Coll.concurrentSet();
+	/**
+	 * Expires the idle connections of this worker, without traversing all of them.
+	 */
+	private final TimerWheel idleConnections;
 
 	private final long maxPipeline;
 
@@ -103,19 +112,17 @@ public class ExtendedWorker extends AbstractEventLoop<ExtendedWorker> implements
 
 	private final SSLContext sslContext;
 
+	private final Pool<ByteBuffer> tlsBuffers;
+
+	private final TLSHandshakes tlsHandshakes;
+
 	private final StatsMeasure dataIn;
 
 	private final StatsMeasure dataOut;
 
 	static {
-		int timeoutResolution = Conf.HTTP.entry("timeoutResolution").or(5000);
+		timeoutResolution = Conf.HTTP.entry("timeoutResolution").or(5000);
 		connTimeout = Conf.HTTP.entry("timeout").or(30000);
-
-		if (timeoutResolution > 0 && connTimeout > 0) {
-			idleConnectionsCrawler = Expire.crawler("idleConnections", timeoutResolution);
-		} else {
-			idleConnectionsCrawler = null;
-		}
 	}
 
 	public ExtendedWorker(String name, RapidoidHelper helper, NetworkingParams net, SSLContext sslContext) {
@@ -130,6 +137,8 @@ public class ExtendedWorker extends AbstractEventLoop<ExtendedWorker> implements
 		this.serverProtocol = net.protocol();
 		this.helper = helper;
 		this.sslContext = sslContext;
+		this.tlsBuffers = sslContext != null ? RapidoidTLS.bufferPool(sslContext) : null;
+		this.tlsHandshakes = sslContext != null ? U.or(net.tlsHandshakes(), TLSHandshakes.INSTANCE) : null;
 
 		this.maxPipeline = net.maxPipeline();
 
@@ -144,16 +153,14 @@ public class ExtendedWorker extends AbstractEventLoop<ExtendedWorker> implements
 		this.dataIn = Insights.stats(name + ":datain");
 		this.dataOut = Insights.stats(name + ":dataout");
 
-		connections = Pools.create("connections", new Callable<RapidoidConnection>() {
+		connections = Pools.createForIO("connections", new Callable<RapidoidConnection>() {
 			@Override
 			public RapidoidConnection call() throws Exception {
 				return newConnection(false);
 			}
 		}, 100000);
 
-		if (idleConnectionsCrawler != null) {
-			idleConnectionsCrawler.register(allConnections);
-		}
+		this.idleConnections = timeoutResolution > 0 && connTimeout > 0 ? new TimerWheel(timeoutResolution) : null;
 	}
 
 	@Override
@@ -246,12 +253,7 @@ public class ExtendedWorker extends AbstractEventLoop<ExtendedWorker> implements
 		try {
 
 			if (conn.hasTLS) {
-				if (conn.tls.netIn.hasRemaining()) {
-					read = socketChannel.read(conn.tls.netIn);
-
-				} else {
-					read = 0;
-				}
+				read = conn.tls.read(socketChannel);
 			} else {
 				if (conn.input.size() < bufSizeLimit) {
 					read = conn.input.append(socketChannel);
@@ -518,15 +520,9 @@ public class ExtendedWorker extends AbstractEventLoop<ExtendedWorker> implements
 	private void writeOp(SelectionKey key, RapidoidConnection conn, SocketChannel socketChannel) throws IOException {
 
 		synchronized (conn.outgoing) {
-			if (conn.outgoing.hasRemaining()) {
-				conn.log("WRITING");
-//					conn.log(conn.outgoing.asText());
-				BufUtil.startWriting(conn.outgoing);
-				int wrote = conn.outgoing.writeTo(socketChannel);
-				conn.outgoing.deleteBefore(wrote);
-				BufUtil.doneWriting(conn.outgoing);
-				conn.log("DONE WRITING");
-			}
+			conn.log("WRITING");
+			conn.writeOutgoing(socketChannel);
+			conn.log("DONE WRITING");
 		}
 
 		boolean finishedWriting, closeAfterWrite;
@@ -572,10 +568,35 @@ public class ExtendedWorker extends AbstractEventLoop<ExtendedWorker> implements
 		selector.wakeup();
 	}
 
+	@Override
+	public void handshakeTasksDone(RapidoidConnection conn) {
+		handshakesToResume.add(conn);
+		selector.wakeup();
+	}
+
+	private void resumeHandshake(RapidoidConnection conn) {
+		SelectionKey key = conn.key;
+
+		if (key != null && key.isValid()) {
+			conn.tls.resumeHandshake();
+
+			process(conn);
+
+			if (conn.closing) {
+				close(key);
+			} else {
+				key.interestOps(SelectionKey.OP_WRITE);
+			}
+		}
+	}
+
 	@Override
 	public void doProcessing() {
 
 		long now = U.time();
+
+		if (idleConnections != null) idleConnections.advance(now);
+
 		int connectingN = connecting.size();
 
 		for (int i = 0; i < connectingN; i++) {
@@ -635,6 +656,11 @@ public class ExtendedWorker extends AbstractEventLoop<ExtendedWorker> implements
 			processNext(restartedConn, true, false);
 		}
 
+		RapidoidConnection handshaking;
+		while ((handshaking = handshakesToResume.poll()) != null) {
+			resumeHandshake(handshaking);
+		}
+
 		synchronized (done) {
 			for (int i = 0; i < done.size(); i++) {
 				RapidoidConnection conn = done.get(i);
@@ -686,6 +712,9 @@ public class ExtendedWorker extends AbstractEventLoop<ExtendedWorker> implements
 
 	private void touch(RapidoidConnection conn) {
 		conn.setExpiresAt(approxTime + connTimeout);
+
+		// a connection that is already scheduled will be rescheduled lazily, when its old expiration time comes
+		if (idleConnections != null) idleConnections.schedule(conn.expirationTimer);
 	}
 
 	@Override
@@ -697,7 +726,6 @@ public class ExtendedWorker extends AbstractEventLoop<ExtendedWorker> implements
 	@Override
 	public RapidoidConnection newConnection(boolean client) {
 		RapidoidConnection conn = new RapidoidConnection(ExtendedWorker.this, bufs);
-		allConnections.add(conn);
 		return conn;
 	}
 
@@ -728,6 +756,16 @@ public class ExtendedWorker extends AbstractEventLoop<ExtendedWorker> implements
 		return sslContext;
 	}
 
+	@Override
+	public Pool<ByteBuffer> tlsBuffers() {
+		return tlsBuffers;
+	}
+
+	@Override
+	public TLSHandshakes tlsHandshakes() {
+		return tlsHandshakes;
+	}
+
 	public void restart(RapidoidConnection conn) {
 		restarting.add(conn);
 	}
@@ -0,0 +1,83 @@
+/*-
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.net.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.log.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A segment of a file, scheduled to be sent (with FileChannel#transferTo) after the output bytes that were written
+ * before it.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class FileRegion extends RapidoidThing {
+
+	private final FileChannel channel;
+
+	private final long end;
+
+	private long position;
+
+	/**
+	 * The position in the (total) output stream of the connection, where the file segment should be inserted.
+	 */
+	final long outputPos;
+
+	FileRegion(File file, long position, long length, long outputPos) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.position = position;
+		this.end = position + length;
+		this.outputPos = outputPos;
+	}
+
+	long transferTo(WritableByteChannel target) throws IOException {
+		long sent = channel.transferTo(position, end - position, target);
+
+		if (sent == 0 && channel.size() < end) {
+			throw new IOException("The file was truncated while sending it!");
+		}
+
+		position += sent;
+		return sent;
+	}
+
+	boolean isDone() {
+		return position >= end;
+	}
+
+	void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			Log.warn("Couldn't close the file channel!", e);
+		}
+	}
+
+}
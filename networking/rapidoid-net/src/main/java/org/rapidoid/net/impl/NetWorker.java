@@ -23,9 +23,12 @@ package org.rapidoid.net.impl;
 
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.net.tls.TLSHandshakes;
+import org.rapidoid.pool.Pool;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
 @Authors("Nikolche Mihajlovski")
@@ -40,12 +43,18 @@ public interface NetWorker {
 
 	void wantToWrite(RapidoidConnection conn);
 
+	void handshakeTasksDone(RapidoidConnection conn);
+
 	RapidoidConnection newConnection(boolean client);
 
 	long getMessagesProcessed();
 
 	SSLContext sslContext();
 
+	Pool<ByteBuffer> tlsBuffers();
+
+	TLSHandshakes tlsHandshakes();
+
 	boolean onSameThread();
 
 	RapidoidHelper helper();
@@ -0,0 +1,86 @@
+/*-
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.net.impl;
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.group.AutoManageable;
+import org.rapidoid.group.ManageableBean;
+import org.rapidoid.u.U;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the responses that were completed out of order on pipelined connections, so they had to be parked
+ * until the previous responses were written.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+@ManageableBean(kind = "pipelining")
+public class PipelinedResponses extends AutoManageable<PipelinedResponses> {
+
+	public static final PipelinedResponses INSTANCE = new PipelinedResponses("responses");
+
+	private final AtomicLong parked = new AtomicLong();
+
+	private final AtomicLong totalParked = new AtomicLong();
+
+	private final AtomicLong maxParkedPerConnection = new AtomicLong();
+
+	public PipelinedResponses(String id) {
+		super(id);
+	}
+
+	void parked(int parkedOnConnection) {
+		parked.incrementAndGet();
+		totalParked.incrementAndGet();
+
+		long max;
+		while ((max = maxParkedPerConnection.get()) < parkedOnConnection) {
+			if (maxParkedPerConnection.compareAndSet(max, parkedOnConnection)) break;
+		}
+	}
+
+	void unparked(int count) {
+		parked.addAndGet(-count);
+	}
+
+	@Override
+	public List<String> getManageableProperties() {
+		return U.list("id", "parked", "totalParked", "maxParkedPerConnection");
+	}
+
+	/**
+	 * @return the number of currently parked responses
+	 */
+	public long parked() {
+		return parked.get();
+	}
+
+	public long totalParked() {
+		return totalParked.get();
+	}
+
+	public long maxParkedPerConnection() {
+		return maxParkedPerConnection.get();
+	}
+
+}
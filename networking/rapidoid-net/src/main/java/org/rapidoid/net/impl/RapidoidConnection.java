@@ -27,6 +27,7 @@ import org.rapidoid.buffer.Buf;
 import org.rapidoid.buffer.BufGroup;
 import org.rapidoid.buffer.BufUtil;
 import org.rapidoid.data.JSON;
+import org.rapidoid.expire.ExpirationTimer;
 import org.rapidoid.expire.Expiring;
 import org.rapidoid.job.Jobs;
 import org.rapidoid.log.Log;
@@ -50,6 +51,11 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
 
 
@@ -75,6 +81,12 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 
 	public final Buf outgoing;
 
+	// the file segments that will be sent with zero-copy, in between the outgoing bytes
+	final Queue<FileRegion> fileRegions = new ArrayDeque<>();
+
+	// the total number of outgoing bytes written to the socket, used to position the file segments
+	long outgoingWritten;
+
 	private final ConnState state = new ConnState();
 
 	private volatile boolean waitingToWrite = false;
@@ -113,10 +125,19 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 
 	volatile boolean resumeInProgress = false;
 
+	// the async logic of the responses that were completed before the previous responses (by handle)
+	private final Map<Long, Queue<AsyncLogic>> parked = new HashMap<>();
+
+	private int parkedCount;
+
+	private boolean resumingParked;
+
 	volatile IRequest request;
 
 	private volatile long expiresAt;
 
+	final ExpirationTimer expirationTimer = new ExpirationTimer(this);
+
 	private volatile ChannelHolderImpl holder;
 
 	public volatile int nextOp = SelectionKey.OP_READ;
@@ -129,7 +150,7 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 		this.worker = worker;
 
 		this.hasTLS = worker.sslContext() != null;
-		this.tls = hasTLS ? new RapidoidTLS(worker.sslContext(), this) : null;
+		this.tls = hasTLS ? new RapidoidTLS(worker.sslContext(), worker.tlsBuffers(), worker.tlsHandshakes(), this) : null;
 
 		this.input = bufs.newBuf("input#" + serialN);
 		this.output = bufs.newBuf("output#" + serialN);
@@ -153,6 +174,8 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 		input.clear();
 		output.clear();
 		outgoing.clear();
+		outgoingWritten = 0;
+		clearFileRegions();
 		closeAfterWrite = false;
 		waitingToWrite = false;
 		completedInputPos = 0;
@@ -165,6 +188,7 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 		requestId = 0;
 		readSeq.set(0);
 		writeSeq.set(0);
+		clearParked();
 		expiresAt = 0;
 		state.reset();
 
@@ -240,6 +264,102 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 		return this;
 	}
 
+	@Override
+	public synchronized Channel write(File file, long position, long length) {
+		U.must(position >= 0 && length >= 0, "Invalid file segment!");
+
+		if (length == 0) return this;
+
+		try {
+			if (hasTLS) {
+				// the data must be encrypted, so it can't go directly from the file to the socket
+				appendFileSegment(file, position, length);
+
+			} else {
+				synchronized (outgoing) {
+					fileRegions.add(new FileRegion(file, position, length, outgoingWritten + outgoing.size()));
+				}
+			}
+
+		} catch (IOException e) {
+			throw U.rte(e);
+		}
+
+		return this;
+	}
+
+	private void appendFileSegment(File file, long position, long length) throws IOException {
+		try (FileChannel fileChannel = new FileInputStream(file).getChannel()) {
+			ByteBuffer buf = ByteBuffer.allocate((int) Math.min(length, 64 * 1024));
+			long remaining = length;
+
+			fileChannel.position(position);
+
+			while (remaining > 0) {
+				buf.clear();
+				buf.limit((int) Math.min(buf.capacity(), remaining));
+
+				int n = fileChannel.read(buf);
+				if (n < 0) throw new IOException("The file was truncated while sending it!");
+
+				buf.flip();
+				output.append(buf);
+				remaining -= n;
+			}
+		}
+	}
+
+	/**
+	 * Writes the outgoing data and the file segments, in their order, as much as the socket can accept now.
+	 * Must be called while holding the lock of the outgoing buffer.
+	 */
+	void writeOutgoing(SocketChannel socketChannel) throws IOException {
+		FileRegion region;
+
+		while ((region = fileRegions.peek()) != null) {
+
+			// first write the bytes that precede the file segment
+			int before = (int) (region.outputPos - outgoingWritten);
+
+			if (before > 0 && writeOutgoing(socketChannel, before) < before) {
+				return; // the socket can't accept more data now
+			}
+
+			log("TRANSFERRING FILE");
+			region.transferTo(socketChannel);
+
+			if (!region.isDone()) {
+				return; // the socket can't accept more data now
+			}
+
+			fileRegions.poll();
+			region.close();
+		}
+
+		// write the bytes after the last file segment
+		if (outgoing.size() > 0) {
+			writeOutgoing(socketChannel, outgoing.size());
+		}
+	}
+
+	private int writeOutgoing(SocketChannel socketChannel, int length) throws IOException {
+		BufUtil.startWriting(outgoing);
+		int wrote = outgoing.writeTo(socketChannel, 0, length);
+		outgoing.deleteBefore(wrote);
+		BufUtil.doneWriting(outgoing);
+
+		outgoingWritten += wrote;
+		return wrote;
+	}
+
+	private void clearFileRegions() {
+		FileRegion region;
+
+		while ((region = fileRegions.poll()) != null) {
+			region.close();
+		}
+	}
+
 	@Override
 	public Channel writeJSON(Object value) {
 		JSON.stringify(value, output.asOutputStream());
@@ -267,17 +387,100 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 
 		U.must(processedHandle > 0);
 
-		boolean increased = writeSeq.compareAndSet(processedHandle - 1, processedHandle);
+		synchronized (this) {
+			boolean increased = writeSeq.compareAndSet(processedHandle - 1, processedHandle);
+
+			if (!increased) {
+				// the current response might be already marked as processed (e.g. in non-async handlers)
+				long writeSeqN = writeSeq.get();
+				if (writeSeqN != processedHandle) {
+					throw U.rte("Error in the response order control! Expected handle: %s, real: %s", processedHandle - 1, writeSeqN);
+				}
+			}
 
-		if (!increased) {
-			// the current response might be already marked as processed (e.g. in non-async handlers)
-			long writeSeqN = writeSeq.get();
-			if (writeSeqN != processedHandle) {
-				throw U.rte("Error in the response order control! Expected handle: %s, real: %s", processedHandle - 1, writeSeqN);
+			if (parkedCount > 0 && !resumingParked) {
+				scheduleResumeParked();
 			}
 		}
 	}
 
+	private void park(long handle, AsyncLogic asyncLogic) {
+		Queue<AsyncLogic> logics = parked.get(handle);
+
+		if (logics == null) {
+			logics = new ArrayDeque<>();
+			parked.put(handle, logics);
+		}
+
+		logics.add(asyncLogic);
+		parkedCount++;
+
+		PipelinedResponses.INSTANCE.parked(parkedCount);
+	}
+
+	/**
+	 * The parked logic is resumed by a job, because this might be the I/O worker (after a synchronous response).
+	 * If the job is rejected, the parked logic is resumed here, so the connection doesn't stall.
+	 */
+	private void scheduleResumeParked() {
+		resumingParked = true;
+
+		final long connId = connId();
+
+		// Jobs.execute() would silently drop the rejected job
+		try {
+			Jobs.executor().execute(new Runnable() {
+				@Override
+				public void run() {
+					resumeParked(connId);
+				}
+			});
+
+		} catch (RejectedExecutionException e) {
+			Log.warn("Couldn't schedule the parked logic, resuming it on the current thread!", "connection", connId);
+			resumeParked(connId);
+		}
+	}
+
+	private synchronized void resumeParked(long expectedConnId) {
+		if (expectedConnId != connId()) return; // the connection was reset, and the parked logic was dropped
+
+		int resumed = 0;
+
+		try {
+			while (true) {
+				long seq = writeSeq.get();
+				long handle = seq + 1;
+
+				Queue<AsyncLogic> logics = parked.get(handle);
+				if (logics == null) break;
+
+				AsyncLogic asyncLogic = logics.poll();
+				if (logics.isEmpty()) parked.remove(handle);
+
+				parkedCount--;
+				resumed++;
+
+				doResume(handle, asyncLogic, seq);
+			}
+
+		} finally {
+			resumingParked = false;
+			PipelinedResponses.INSTANCE.unparked(resumed);
+		}
+
+		if (resumed > 0) {
+			askToSend();
+		}
+	}
+
+	private synchronized void clearParked() {
+		PipelinedResponses.INSTANCE.unparked(parkedCount);
+		parked.clear();
+		parkedCount = 0;
+		resumingParked = false;
+	}
+
 	@Override
 	public Channel send() {
 		askToSend();
@@ -296,13 +499,20 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 				}
 			}
 
-			if (!waitingToWrite && outgoing.size() > 0) {
+			if (!waitingToWrite && (outgoing.size() > 0 || !fileRegions.isEmpty())) {
 				waitingToWrite = true;
 				worker.wantToWrite(this);
 			}
 		}
 	}
 
+	/**
+	 * Called from the TLS handshake executor, to continue the handshake on the I/O worker.
+	 */
+	public void handshakeTasksDone() {
+		worker.handshakeTasksDone(this);
+	}
+
 	public synchronized void close(boolean waitToWrite) {
 		if (waitToWrite) {
 			done();
@@ -325,46 +535,28 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 	}
 
 	@Override
-	public void resume(final long expectedConnId, final long handle, final AsyncLogic asyncLogic) {
+	public synchronized void resume(long expectedConnId, long handle, AsyncLogic asyncLogic) {
 
 		if (expectedConnId != connId()) return;
 
 		long seq = writeSeq.get();
 
 		if (seq < handle - 1) {
-			// too early
-
-			Jobs.execute(new Runnable() {
-				@Override
-				public void run() {
-					resume(expectedConnId, handle, asyncLogic);
-				}
-
-				@Override
-				public String toString() {
-					return U.frmt("RapidoidConnection.ResumeJob(handle=%s, expectedConnId=%s, logic=%s)", handle, expectedConnId, asyncLogic);
-				}
-			});
+			// too early, so it will be resumed as soon as the previous responses are complete
+			park(handle, asyncLogic);
 
 		} else if (seq == handle - 1) {
 
-			synchronized (this) {
-
-				if (expectedConnId != connId()) {
-					return;
-				}
-
-//				TODO investigate options for stricter flow control:
-//				U.must(!resumeInProgress, "Resume is already in progress!");
+//			TODO investigate options for stricter flow control:
+//			U.must(!resumeInProgress, "Resume is already in progress!");
 
-				resumeInProgress = true;
+			resumeInProgress = true;
 
-				try {
-					doResume(handle, asyncLogic, seq);
+			try {
+				doResume(handle, asyncLogic, seq);
 
-				} finally {
-					resumeInProgress = false;
-				}
+			} finally {
+				resumeInProgress = false;
 			}
 
 		} else {
@@ -561,7 +753,7 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 	}
 
 	public boolean finishedWriting() {
-		return outgoing.size() == 0;
+		return outgoing.size() == 0 && fileRegions.isEmpty();
 	}
 
 	public ChannelHolderImpl holder() {
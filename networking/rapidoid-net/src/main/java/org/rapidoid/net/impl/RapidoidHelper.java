@@ -91,6 +91,11 @@ public class RapidoidHelper extends RapidoidThing {
 	public final BufRange protocol = new BufRange();
 	public final BufRange body = new BufRange();
 
+	/**
+	 * The request body that wasn't received in the input buffer (e.g. a big body, spooled to a temporary file).
+	 */
+	public Object spooledBody;
+
 	public RapidoidHelper() {
 		this(null);
 	}
@@ -128,7 +133,7 @@ public class RapidoidHelper extends RapidoidThing {
 
 		if (exchangeClass != null) {
 			exchange = Cls.newInstance(exchangeClass);
-			pool = Pools.create("exchanges", new Callable() {
+			pool = Pools.createForIO("exchanges", new Callable() {
 				@Override
 				public Object call() throws Exception {
 					return Cls.newInstance(exchangeClass);
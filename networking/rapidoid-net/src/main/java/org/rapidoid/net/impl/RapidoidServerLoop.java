@@ -33,8 +33,11 @@ import org.rapidoid.u.U;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
 import java.nio.channels.*;
 import java.util.Iterator;
 import java.util.Set;
@@ -46,6 +49,9 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 
 	private static final int MAX_PENDING_CONNECTIONS = 16 * 1024;
 
+	// StandardSocketOptions.SO_REUSEPORT is available since Java 9
+	private static final SocketOption<Boolean> SO_REUSEPORT = reusePortOption();
+
 	private final NetworkingParams net;
 	private final SSLContext sslContext;
 
@@ -54,6 +60,8 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 
 	private volatile RapidoidWorker[] ioWorkers;
 
+	private volatile ServerSocketChannel[] workerSocketChannels;
+
 	private RapidoidWorker currentWorker;
 
 	public RapidoidServerLoop(NetworkingParams net, SSLContext sslContext) {
@@ -90,6 +98,15 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 		U.notNull(net.protocol(), "protocol");
 		U.notNull(net.helperClass(), "helperClass");
 
+		if (net.reusePort()) {
+			if (openReusePortSockets()) {
+				initWorkers();
+				return;
+			}
+
+			Log.warn("The SO_REUSEPORT socket option is not available, falling back to a single acceptor!");
+		}
+
 		String blockingInfo = net.blockingAccept() ? "blocking" : "non-blocking";
 		Log.debug("Initializing server", "address", net.address(), "port", net.port(), "sync", net.syncBufs(), "accept", blockingInfo);
 
@@ -123,12 +140,79 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 		}
 	}
 
+	private boolean openReusePortSockets() throws IOException {
+		if (SO_REUSEPORT == null) {
+			return false;
+		}
+
+		Log.info("!Starting server", "!address", net.address(), "!port", net.port(), "I/O workers", net.workers(), "sync", net.syncBufs(), "accept", "reuse-port");
+
+		InetSocketAddress addr = new InetSocketAddress(net.address(), net.port());
+		ServerSocketChannel[] channels = new ServerSocketChannel[net.workers()];
+
+		try {
+			for (int i = 0; i < channels.length; i++) {
+				ServerSocketChannel channel = ServerSocketChannel.open();
+
+				if (!channel.supportedOptions().contains(SO_REUSEPORT)) {
+					U.must(i == 0, "The SO_REUSEPORT support must be consistent for all sockets!");
+					channel.close();
+					return false;
+				}
+
+				channels[i] = channel;
+
+				channel.configureBlocking(false);
+				channel.setOption(SO_REUSEPORT, true);
+
+				ServerSocket socket = channel.socket();
+				socket.setReceiveBufferSize(16 * 1024);
+				socket.setReuseAddress(true);
+				socket.bind(addr, MAX_PENDING_CONNECTIONS);
+			}
+
+		} catch (IOException | RuntimeException e) {
+			closeChannels(channels);
+			throw e;
+		}
+
+		Log.debug("Opened server sockets with SO_REUSEPORT", "address", addr, "count", channels.length);
+
+		workerSocketChannels = channels;
+		return true;
+	}
+
+	private static void closeChannels(ServerSocketChannel[] channels) {
+		for (ServerSocketChannel channel : channels) {
+			if (channel != null && channel.isOpen()) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					Log.warn("Cannot close socket!", e);
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static SocketOption<Boolean> reusePortOption() {
+		try {
+			Field field = StandardSocketOptions.class.getField("SO_REUSEPORT");
+			return (SocketOption<Boolean>) field.get(null);
+
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
 	private void initWorkers() {
 		ioWorkers = new RapidoidWorker[net.workers()];
 
 		for (int i = 0; i < ioWorkers.length; i++) {
 
-			RapidoidWorkerThread workerThread = new RapidoidWorkerThread(i, net, sslContext);
+			ServerSocketChannel listener = workerSocketChannels != null ? workerSocketChannels[i] : null;
+
+			RapidoidWorkerThread workerThread = new RapidoidWorkerThread(i, net, sslContext, listener);
 
 			workerThread.start();
 
@@ -171,15 +255,26 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 			}
 		}
 
-		if (serverSocketChannel != null && selector != null && serverSocketChannel.isOpen() && selector.isOpen()) {
+		if (selector != null && selector.isOpen()) {
 			try {
 				selector.close();
+			} catch (IOException e) {
+				Log.warn("Cannot close selector!", e);
+			}
+		}
+
+		if (serverSocketChannel != null && serverSocketChannel.isOpen()) {
+			try {
 				serverSocketChannel.close();
 			} catch (IOException e) {
-				Log.warn("Cannot close socket or selector!", e);
+				Log.warn("Cannot close socket!", e);
 			}
 		}
 
+		if (workerSocketChannels != null) {
+			closeChannels(workerSocketChannels);
+		}
+
 		super.shutdown();
 		Log.info("!The server is down.");
 		return this;
@@ -230,7 +325,11 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 
 	@Override
 	protected void insideLoop() {
-		if (net.blockingAccept()) {
+		if (workerSocketChannels != null) {
+			// the workers are accepting the connections, so nothing to do here
+			waitForShutdown();
+
+		} else if (net.blockingAccept()) {
 			processBlocking();
 		} else {
 			processNonBlocking();
@@ -262,6 +361,16 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 		}
 	}
 
+	private void waitForShutdown() {
+		try {
+			selector.select(50);
+		} catch (IOException e) {
+			Log.error("Select failed!", e);
+		} catch (ClosedSelectorException e) {
+			// do nothing
+		}
+	}
+
 	private void processBlocking() {
 		acceptChannel(serverSocketChannel);
 	}
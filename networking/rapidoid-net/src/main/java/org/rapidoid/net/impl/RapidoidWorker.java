@@ -25,15 +25,15 @@ import org.rapidoid.annotation.Since;
 import org.rapidoid.buffer.BufGroup;
 import org.rapidoid.buffer.BufUtil;
 import org.rapidoid.buffer.IncompleteReadException;
-import org.rapidoid.collection.Coll;
 import org.rapidoid.config.Conf;
 import org.rapidoid.config.ConfigUtil;
 import org.rapidoid.ctx.Ctxs;
-import org.rapidoid.expire.ExpirationCrawlerThread;
-import org.rapidoid.expire.Expire;
+import org.rapidoid.expire.TimerWheel;
 import org.rapidoid.log.Log;
 import org.rapidoid.net.NetworkingParams;
 import org.rapidoid.net.Protocol;
+import org.rapidoid.net.tls.RapidoidTLS;
+import org.rapidoid.net.tls.TLSHandshakes;
 import org.rapidoid.pool.Pool;
 import org.rapidoid.pool.Pools;
 import org.rapidoid.u.U;
@@ -42,14 +42,16 @@ import org.rapidoid.util.SimpleList;
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 
 @Authors("Nikolche Mihajlovski")
@@ -60,7 +62,7 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 
 	public static boolean EXTRA_SAFE = false;
 
-	private static final ExpirationCrawlerThread idleConnectionsCrawler;
+	private static final int timeoutResolution;
 
 	private static final int connTimeout;
 
@@ -68,9 +70,17 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 
 	private final SimpleList<RapidoidConnection> done;
 
+	/**
+	 * The TLS connections whose delegated handshake tasks were executed, so the handshake can continue.
+	 */
+	private final Queue<RapidoidConnection> handshakesToResume = new ConcurrentLinkedQueue<>();
+
 	private final Pool<RapidoidConnection> connections;
 
-	private final Set<RapidoidConnection> allConnections = Coll.concurrentSet();
+	/**
+	 * Expires the idle connections of this worker, without traversing all of them.
+	 */
+	private final TimerWheel idleConnections;
 
 	final Protocol serverProtocol;
 
@@ -88,20 +98,29 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 
 	private final SSLContext sslContext;
 
+	private final Pool<ByteBuffer> tlsBuffers;
+
+	private final TLSHandshakes tlsHandshakes;
+
+	private final ServerSocketChannel listener;
+
 	RapidoidWorker next;
 
 	static {
-		int timeoutResolution = Conf.HTTP.entry("timeoutResolution").or(5000);
+		timeoutResolution = Conf.HTTP.entry("timeoutResolution").or(5000);
 		connTimeout = Conf.HTTP.entry("timeout").or(30000);
-
-		if (timeoutResolution > 0 && connTimeout > 0) {
-			idleConnectionsCrawler = Expire.crawler("idleConnections", timeoutResolution);
-		} else {
-			idleConnectionsCrawler = null;
-		}
 	}
 
 	public RapidoidWorker(String name, final RapidoidHelper helper, NetworkingParams net, SSLContext sslContext) {
+		this(name, helper, net, sslContext, null);
+	}
+
+	/**
+	 * If a listener (a server socket channel bound with SO_REUSEPORT) is specified, this worker accepts the new
+	 * connections by itself, without the hand-off from the server's acceptor thread.
+	 */
+	public RapidoidWorker(String name, final RapidoidHelper helper, NetworkingParams net, SSLContext sslContext,
+	                      ServerSocketChannel listener) {
 
 		super(name);
 
@@ -112,6 +131,8 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 		this.serverProtocol = net.protocol();
 		this.helper = helper;
 		this.sslContext = sslContext;
+		this.tlsBuffers = sslContext != null ? RapidoidTLS.bufferPool(sslContext) : null;
+		this.tlsHandshakes = sslContext != null ? U.or(net.tlsHandshakes(), TLSHandshakes.INSTANCE) : null;
 
 		this.maxPipeline = net.maxPipeline();
 
@@ -121,15 +142,23 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 		this.connected = new ArrayBlockingQueue<SocketChannel>(queueSize);
 		this.done = new SimpleList<RapidoidConnection>(queueSize / 10, growFactor);
 
-		connections = Pools.create("connections", new Callable<RapidoidConnection>() {
+		connections = Pools.createForIO("connections", new Callable<RapidoidConnection>() {
 			@Override
 			public RapidoidConnection call() throws Exception {
 				return newConnection(false);
 			}
 		}, 100000);
 
-		if (idleConnectionsCrawler != null) {
-			idleConnectionsCrawler.register(allConnections);
+		this.idleConnections = timeoutResolution > 0 && connTimeout > 0 ? new TimerWheel(timeoutResolution) : null;
+
+		this.listener = listener;
+
+		if (listener != null) {
+			try {
+				listener.register(selector, SelectionKey.OP_ACCEPT);
+			} catch (ClosedChannelException e) {
+				throw U.rte("Cannot register the server socket channel!", e);
+			}
 		}
 	}
 
@@ -139,6 +168,21 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 		selector.wakeup();
 	}
 
+	@Override
+	protected void acceptOP(SelectionKey key) throws IOException {
+		ServerSocketChannel serverChannel = (ServerSocketChannel) key.channel();
+
+		SocketChannel socketChannel;
+
+		try {
+			while ((socketChannel = serverChannel.accept()) != null) {
+				register(socketChannel);
+			}
+		} catch (IOException e) {
+			Log.error("Acceptor error!", e);
+		}
+	}
+
 	private void configureSocket(SocketChannel socketChannel) throws IOException {
 		socketChannel.configureBlocking(false);
 
@@ -168,12 +212,7 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 		try {
 
 			if (conn.hasTLS) {
-				if (conn.tls.netIn.hasRemaining()) {
-					read = socketChannel.read(conn.tls.netIn);
-
-				} else {
-					read = 0;
-				}
+				read = conn.tls.read(socketChannel);
 			} else {
 				read = conn.input.append(socketChannel);
 			}
@@ -414,15 +453,9 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 	private void writeOp(SelectionKey key, RapidoidConnection conn, SocketChannel socketChannel) throws IOException {
 
 		synchronized (conn.outgoing) {
-			if (conn.outgoing.hasRemaining()) {
-				conn.log("WRITING");
-//					conn.log(conn.outgoing.asText());
-				BufUtil.startWriting(conn.outgoing);
-				int wrote = conn.outgoing.writeTo(socketChannel);
-				conn.outgoing.deleteBefore(wrote);
-				BufUtil.doneWriting(conn.outgoing);
-				conn.log("DONE WRITING");
-			}
+			conn.log("WRITING");
+			conn.writeOutgoing(socketChannel);
+			conn.log("DONE WRITING");
 		}
 
 		boolean finishedWriting, closeAfterWrite;
@@ -466,40 +499,41 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 	}
 
 	@Override
-	protected void doProcessing() {
+	public void handshakeTasksDone(RapidoidConnection conn) {
+		handshakesToResume.add(conn);
+		selector.wakeup();
+	}
 
-		SocketChannel schannel;
+	private void resumeHandshake(RapidoidConnection conn) {
+		SelectionKey key = conn.key;
 
-		while ((schannel = connected.poll()) != null) {
+		if (key != null && key.isValid()) {
+			conn.tls.resumeHandshake();
 
-			try {
-				configureSocket(schannel);
-			} catch (IOException e) {
-				Log.error("Cannot configure channel!", e);
-				continue;
-			}
+			process(conn);
 
-			RapidoidChannel channel = new RapidoidChannel(schannel, false, serverProtocol);
+			if (conn.closing) {
+				close(key);
+			} else {
+				key.interestOps(SelectionKey.OP_WRITE);
+			}
+		}
+	}
 
-			SocketChannel socketChannel = channel.socketChannel;
-			Log.debug("connected", "address", socketChannel.socket().getRemoteSocketAddress());
+	@Override
+	protected void doProcessing() {
 
-			try {
-				SelectionKey newKey = socketChannel.register(selector, SelectionKey.OP_READ);
-				U.notNull(channel.protocol, "protocol");
-				RapidoidConnection conn = attachConn(newKey, channel.protocol);
+		if (idleConnections != null) idleConnections.advance(approxTime);
 
-				conn.setClient(channel.isClient);
+		SocketChannel schannel;
 
-				try {
-					processNext(conn, true);
-				} finally {
-					conn.setInitial(false);
-				}
+		while ((schannel = connected.poll()) != null) {
+			register(schannel);
+		}
 
-			} catch (ClosedChannelException e) {
-				Log.warn("Closed channel", e);
-			}
+		RapidoidConnection handshaking;
+		while ((handshaking = handshakesToResume.poll()) != null) {
+			resumeHandshake(handshaking);
 		}
 
 		synchronized (done) {
@@ -513,6 +547,37 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 		}
 	}
 
+	private void register(SocketChannel schannel) {
+		try {
+			configureSocket(schannel);
+		} catch (IOException e) {
+			Log.error("Cannot configure channel!", e);
+			return;
+		}
+
+		RapidoidChannel channel = new RapidoidChannel(schannel, false, serverProtocol);
+
+		SocketChannel socketChannel = channel.socketChannel;
+		Log.debug("connected", "address", socketChannel.socket().getRemoteSocketAddress());
+
+		try {
+			SelectionKey newKey = socketChannel.register(selector, SelectionKey.OP_READ);
+			U.notNull(channel.protocol, "protocol");
+			RapidoidConnection conn = attachConn(newKey, channel.protocol);
+
+			conn.setClient(channel.isClient);
+
+			try {
+				processNext(conn, true);
+			} finally {
+				conn.setInitial(false);
+			}
+
+		} catch (ClosedChannelException e) {
+			Log.warn("Closed channel", e);
+		}
+	}
+
 	private RapidoidConnection attachConn(SelectionKey key, Protocol protocol) {
 		U.notNull(key, "protocol");
 		U.notNull(protocol, "protocol");
@@ -545,19 +610,24 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 
 	private void touch(RapidoidConnection conn) {
 		conn.setExpiresAt(approxTime + connTimeout);
+
+		// a connection that is already scheduled will be rescheduled lazily, when its old expiration time comes
+		if (idleConnections != null) idleConnections.schedule(conn.expirationTimer);
 	}
 
 	@Override
 	protected void failedOP(SelectionKey key, Throwable e) {
 		Log.error("Network error", e);
-		close(key);
+
+		if (key.channel() != listener) {
+			close(key);
+		}
 	}
 
 	@Override
 	public RapidoidConnection newConnection(boolean client) {
 		U.must(!client, "Client connections are not supported by this worker!");
 		RapidoidConnection conn = new RapidoidConnection(RapidoidWorker.this, bufs);
-		allConnections.add(conn);
 		return conn;
 	}
 
@@ -580,6 +650,22 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 	public synchronized RapidoidWorker shutdown() {
 		stopLoop();
 		waitToStop();
+
+		if (listener != null) {
+			// the port is released only after the listener is deregistered from the selector, so it's closed first
+			try {
+				selector.close();
+			} catch (IOException e) {
+				Log.warn("Cannot close selector!", e);
+			}
+
+			try {
+				listener.close();
+			} catch (IOException e) {
+				Log.warn("Cannot close the server socket channel!", e);
+			}
+		}
+
 		return this;
 	}
 
@@ -588,6 +674,16 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> implements
 		return sslContext;
 	}
 
+	@Override
+	public Pool<ByteBuffer> tlsBuffers() {
+		return tlsBuffers;
+	}
+
+	@Override
+	public TLSHandshakes tlsHandshakes() {
+		return tlsHandshakes;
+	}
+
 	@Override
 	public RapidoidHelper helper() {
 		return helper;
@@ -29,6 +29,7 @@ import org.rapidoid.net.NetworkingParams;
 import org.rapidoid.u.U;
 
 import javax.net.ssl.SSLContext;
+import java.nio.channels.ServerSocketChannel;
 
 @Authors("Nikolche Mihajlovski")
 @Since("4.1.0")
@@ -37,15 +38,17 @@ public class RapidoidWorkerThread extends RapidoidThread {
 	private final int workerIndex;
 	private final NetworkingParams net;
 	private final SSLContext sslContext;
+	private final ServerSocketChannel listener;
 
 	private volatile RapidoidWorker worker;
 
-	RapidoidWorkerThread(int workerIndex, NetworkingParams net, SSLContext sslContext) {
+	RapidoidWorkerThread(int workerIndex, NetworkingParams net, SSLContext sslContext, ServerSocketChannel listener) {
 		super("server" + (workerIndex + 1));
 
 		this.workerIndex = workerIndex;
 		this.net = net;
 		this.sslContext = sslContext;
+		this.listener = listener;
 	}
 
 	@Override
@@ -53,7 +56,7 @@ public class RapidoidWorkerThread extends RapidoidThread {
 		RapidoidHelper helper = Cls.newInstance(net.helperClass(), net.exchangeClass());
 		helper.requestIdGen = workerIndex; // to generate UNIQUE request ID (+= MAX_IO_WORKERS)
 
-		worker = new RapidoidWorker("server" + (workerIndex + 1), helper, net, sslContext);
+		worker = new RapidoidWorker("server" + (workerIndex + 1), helper, net, sslContext, listener);
 
 		worker.run();
 	}
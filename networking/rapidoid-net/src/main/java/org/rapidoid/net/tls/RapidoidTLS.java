@@ -28,11 +28,17 @@ import org.rapidoid.buffer.BufUtil;
 import org.rapidoid.commons.Err;
 import org.rapidoid.log.Log;
 import org.rapidoid.net.impl.RapidoidConnection;
+import org.rapidoid.pool.Pool;
+import org.rapidoid.pool.PoolType;
+import org.rapidoid.pool.Pools;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Msc;
 
 import javax.net.ssl.*;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Callable;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.4.0")
@@ -45,24 +51,77 @@ public class RapidoidTLS extends RapidoidThing {
 
 	private volatile SSLEngine engine;
 
-	private final ByteBuffer appIn;
-	public final ByteBuffer netIn;
-	final ByteBuffer netOut;
+	/**
+	 * The delegated tasks of the handshake are being executed outside the I/O worker.
+	 */
+	private volatile boolean runningTasks;
 
-	public RapidoidTLS(SSLContext sslContext, RapidoidConnection conn) {
+	private long handshakeStartedAt;
 
+	/**
+	 * The buffers are borrowed from the worker's pool only while data is in flight, so the idle connections don't
+	 * hold any buffers.
+	 */
+	private final Pool<ByteBuffer> buffers;
+
+	private final TLSHandshakes handshakes;
+
+	/**
+	 * Holds the received data that wasn't unwrapped yet (e.g. an incomplete TLS record).
+	 */
+	private ByteBuffer netIn;
+
+	public RapidoidTLS(SSLContext sslContext, Pool<ByteBuffer> buffers, TLSHandshakes handshakes, RapidoidConnection conn) {
 		this.sslContext = sslContext;
+		this.buffers = buffers;
+		this.handshakes = handshakes;
 		this.conn = conn;
 		this.engine = createServerEngine();
+	}
 
-		SSLSession session = engine.getSession();
+	/**
+	 * Creates a pool of buffers that are big enough for any TLS record or unwrapped data of the specified context.
+	 * The writes can come from the job threads too, so the pool must not be thread-affine.
+	 */
+	public static Pool<ByteBuffer> bufferPool(SSLContext sslContext) {
+		SSLSession session = sslContext.createSSLEngine().getSession();
+
+		final int bufSize = Math.max(session.getApplicationBufferSize() + 64, session.getPacketBufferSize());
+
+		return Pools.create("tls-buffers", new Callable<ByteBuffer>() {
+			@Override
+			public ByteBuffer call() throws Exception {
+				return ByteBuffer.allocateDirect(bufSize);
+			}
+		}, 100, PoolType.SYNCHRONIZED);
+	}
 
-		int appBufferMax = session.getApplicationBufferSize();
-		int netBufferMax = session.getPacketBufferSize();
+	private ByteBuffer borrow() {
+		ByteBuffer buf = buffers.get();
+		buf.clear();
+		return buf;
+	}
 
-		appIn = ByteBuffer.allocateDirect(appBufferMax + 64);
-		netIn = ByteBuffer.allocateDirect(netBufferMax);
-		netOut = ByteBuffer.allocateDirect(netBufferMax);
+	private void releaseNetInIfEmpty() {
+		if (netIn != null && netIn.position() == 0) {
+			buffers.release(netIn);
+			netIn = null;
+		}
+	}
+
+	/**
+	 * Reads the encrypted data from the channel, to be unwrapped.
+	 *
+	 * @return the number of bytes read, or -1 if the channel was closed
+	 */
+	public synchronized int read(SocketChannel channel) throws IOException {
+		if (netIn == null) netIn = borrow();
+
+		int read = netIn.hasRemaining() ? channel.read(netIn) : 0;
+
+		releaseNetInIfEmpty();
+
+		return read;
 	}
 
 	private SSLEngine createServerEngine() {
@@ -76,11 +135,14 @@ public class RapidoidTLS extends RapidoidThing {
 
 		switch (status) {
 			case FINISHED:
+				handshakeFinished();
 				break;
 
 			case NEED_TASK:
-				status = executeTasks();
-				reactToHandshakeStatus(status);
+				if (!handshakes.isOffloading() || !delegateTasks()) {
+					status = executeTasks();
+					reactToHandshakeStatus(status);
+				}
 				break;
 
 			case NEED_UNWRAP:
@@ -99,11 +161,64 @@ public class RapidoidTLS extends RapidoidThing {
 		}
 	}
 
-	private SSLEngineResult.HandshakeStatus executeTasks() {
+	private boolean delegateTasks() {
+		final SSLEngine engine = this.engine;
+		runningTasks = true;
+
+		boolean accepted = handshakes.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					runDelegatedTasks(engine);
+
+				} catch (Exception e) {
+					// the engine will report the failure on the next wrap/unwrap
+					Log.debug("Error in a TLS handshake task", e);
+
+				} finally {
+					runningTasks = false;
+				}
+
+				// the connection might have been closed or reused in the meantime
+				if (engine == RapidoidTLS.this.engine) {
+					conn.handshakeTasksDone();
+				}
+			}
+		});
+
+		if (!accepted) runningTasks = false;
+
+		return accepted;
+	}
+
+	/**
+	 * Continues the handshake on the I/O worker, after its delegated tasks were executed.
+	 */
+	public synchronized void resumeHandshake() {
+		if (!runningTasks && !isClosed()) {
+			SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+			debug("resuming handshake: " + status);
+
+			reactToHandshakeStatus(status);
+		}
+	}
+
+	private void handshakeFinished() {
+		if (handshakeStartedAt > 0) {
+			handshakes.finished(System.nanoTime() - handshakeStartedAt);
+			handshakeStartedAt = -1; // the renegotiations aren't measured
+		}
+	}
+
+	private static void runDelegatedTasks(SSLEngine engine) {
 		Runnable runnable;
 		while ((runnable = engine.getDelegatedTask()) != null) {
 			runnable.run();
 		}
+	}
+
+	private SSLEngineResult.HandshakeStatus executeTasks() {
+		runDelegatedTasks(engine);
 
 		SSLEngineResult.HandshakeStatus hsStatus = engine.getHandshakeStatus();
 		U.must(hsStatus != SSLEngineResult.HandshakeStatus.NEED_TASK, "handshake shouldn't need additional tasks!");
@@ -142,9 +257,29 @@ public class RapidoidTLS extends RapidoidThing {
 
 	public synchronized boolean unwrapInput() {
 		boolean success = false;
-		boolean shouldUnwrap = true;
+		boolean shouldUnwrap = !runningTasks;
+
+		if (netIn == null) return false;
+
+		if (handshakeStartedAt == 0) handshakeStartedAt = System.nanoTime();
+
+		ByteBuffer appIn = borrow();
+
+		try {
+			success = unwrapInput(appIn, shouldUnwrap);
+		} finally {
+			buffers.release(appIn);
+		}
 
-		while (!isClosed() && shouldUnwrap && netIn.position() > 0) {
+		releaseNetInIfEmpty();
+
+		return success;
+	}
+
+	private boolean unwrapInput(ByteBuffer appIn, boolean shouldUnwrap) {
+		boolean success = false;
+
+		while (!isClosed() && shouldUnwrap && netIn != null && netIn.position() > 0) {
 			debug("- UNWRAP");
 
 			netIn.flip(); // prepare for reading
@@ -182,7 +317,7 @@ public class RapidoidTLS extends RapidoidThing {
 	public synchronized boolean wrapToOutgoing() {
 		boolean success = false;
 
-		if (conn.output.hasRemaining()) {
+		if (!runningTasks && conn.output.hasRemaining()) {
 			debug("- WRAP TO OUTGOING " + conn);
 
 			BufUtil.startWriting(conn.output);
@@ -203,23 +338,28 @@ public class RapidoidTLS extends RapidoidThing {
 			debug("- WRAP");
 			SSLEngineResult result;
 
+			ByteBuffer netOut = borrow();
+
 			try {
-				result = engine.wrap(new ByteBuffer[]{}, 0, 0, netOut);
-			} catch (SSLException e) {
-				throw U.rte(e);
-			}
+				try {
+					result = engine.wrap(new ByteBuffer[]{}, 0, 0, netOut);
+				} catch (SSLException e) {
+					throw U.rte(e);
+				}
 
-			debug("wrap: ", result);
+				debug("wrap: ", result);
 
-			debug("OUT " + netOut);
+				debug("OUT " + netOut);
 
-			netOut.flip();
+				netOut.flip();
 
-			synchronized (conn.outgoing) {
-				conn.outgoing.append(netOut);
-			}
+				synchronized (conn.outgoing) {
+					conn.outgoing.append(netOut);
+				}
 
-			netOut.compact();
+			} finally {
+				buffers.release(netOut);
+			}
 
 			reactToResult(result);
 		}
@@ -286,11 +426,15 @@ public class RapidoidTLS extends RapidoidThing {
 		}
 	}
 
-	public void reset() {
-		this.appIn.clear();
-		this.netIn.clear();
-		this.netOut.clear();
+	public synchronized void reset() {
+		if (netIn != null) {
+			buffers.release(netIn);
+			netIn = null;
+		}
+
 		this.engine = createServerEngine();
+		this.runningTasks = false;
+		this.handshakeStartedAt = 0;
 	}
 
 }
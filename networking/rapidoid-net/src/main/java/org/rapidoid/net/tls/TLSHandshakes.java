@@ -0,0 +1,163 @@
+/*-
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.net.tls;
+
+import org.rapidoid.activity.RapidoidThreadFactory;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
+import org.rapidoid.group.AutoManageable;
+import org.rapidoid.group.ManageableBean;
+import org.rapidoid.u.U;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes the delegated tasks of the TLS handshakes (the expensive key exchange computations), so they don't block
+ * the I/O workers, and measures the handshakes.
+ * <p>
+ * If no handshake threads are configured (<code>tls.handshakeThreads: 0</code>), the tasks are executed on the I/O
+ * worker thread. When the bounded queue of tasks is full, the tasks are also executed on the I/O worker thread.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+@ManageableBean(kind = "tls-handshakes")
+public class TLSHandshakes extends AutoManageable<TLSHandshakes> {
+
+	public static final TLSHandshakes INSTANCE;
+
+	static {
+		Config cfg = Conf.TLS;
+
+		int threads = cfg.entry("handshakeThreads").or(0);
+		int maxQueueSize = cfg.entry("handshakeQueueSize").or(10000);
+
+		INSTANCE = new TLSHandshakes("tls", threads, maxQueueSize);
+	}
+
+	private final ThreadPoolExecutor executor;
+
+	private final AtomicLong handshakes = new AtomicLong();
+
+	private final AtomicLong totalHandshakeNanos = new AtomicLong();
+
+	private final AtomicLong maxHandshakeNanos = new AtomicLong();
+
+	private final AtomicLong offloaded = new AtomicLong();
+
+	private final AtomicLong rejections = new AtomicLong();
+
+	public TLSHandshakes(String id, int threads, int maxQueueSize) {
+		super(id);
+
+		if (threads > 0) {
+			ArrayBlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(maxQueueSize);
+			RapidoidThreadFactory threadFactory = new RapidoidThreadFactory("tls-handshake", true);
+
+			this.executor = new ThreadPoolExecutor(threads, threads, 300, TimeUnit.SECONDS, queue, threadFactory);
+
+		} else {
+			this.executor = null;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the delegated handshake tasks are executed outside the I/O workers
+	 */
+	public boolean isOffloading() {
+		return executor != null;
+	}
+
+	/**
+	 * Submits the delegated tasks of a handshake for execution on the handshake executor.
+	 *
+	 * @return <code>false</code> if the tasks were rejected, so they should be executed by the caller
+	 */
+	public boolean execute(Runnable tasks) {
+		U.must(executor != null, "The TLS handshake tasks aren't offloaded!");
+
+		try {
+			executor.execute(tasks);
+			offloaded.incrementAndGet();
+			return true;
+
+		} catch (RejectedExecutionException e) {
+			rejections.incrementAndGet();
+			return false;
+		}
+	}
+
+	void finished(long durationNanos) {
+		handshakes.incrementAndGet();
+		totalHandshakeNanos.addAndGet(durationNanos);
+
+		long max;
+		while ((max = maxHandshakeNanos.get()) < durationNanos) {
+			if (maxHandshakeNanos.compareAndSet(max, durationNanos)) break;
+		}
+	}
+
+	@Override
+	public List<String> getManageableProperties() {
+		return U.list("id", "threads", "queueSize", "activeCount", "handshakes", "avgHandshakeMs", "maxHandshakeMs",
+			"offloaded", "rejections");
+	}
+
+	public int threads() {
+		return executor != null ? executor.getMaximumPoolSize() : 0;
+	}
+
+	public int queueSize() {
+		return executor != null ? executor.getQueue().size() : 0;
+	}
+
+	public int activeCount() {
+		return executor != null ? executor.getActiveCount() : 0;
+	}
+
+	public long handshakes() {
+		return handshakes.get();
+	}
+
+	public double avgHandshakeMs() {
+		long n = handshakes.get();
+		return n != 0 ? Math.round(totalHandshakeNanos.get() / 1000.0 / n) / 1000.0 : 0;
+	}
+
+	public double maxHandshakeMs() {
+		return Math.round(maxHandshakeNanos.get() / 1000.0) / 1000.0;
+	}
+
+	public long offloaded() {
+		return offloaded.get();
+	}
+
+	public long rejections() {
+		return rejections.get();
+	}
+
+}
@@ -23,6 +23,7 @@ package org.rapidoid.net.tls;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
 import org.rapidoid.log.Log;
 import org.rapidoid.u.U;
 
@@ -101,6 +102,8 @@ public class TLSUtil extends RapidoidThing {
 			SSLContext context = SSLContext.getInstance("TLS");
 			context.init(keyManagers, trustManagers, null);
 
+			configureSessionCache(context.getServerSessionContext());
+
 			return context;
 
 		} catch (Exception e) {
@@ -108,6 +111,20 @@ public class TLSUtil extends RapidoidThing {
 		}
 	}
 
+	/**
+	 * The resumed sessions skip the expensive key exchange, so a big enough session cache is important for the TLS
+	 * reconnects.
+	 */
+	private static void configureSessionCache(SSLSessionContext sessions) {
+		int cacheSize = Conf.TLS.entry("sessionCacheSize").or(20480);
+		int timeout = Conf.TLS.entry("sessionTimeout").or(86400);
+
+		sessions.setSessionCacheSize(cacheSize);
+		sessions.setSessionTimeout(timeout);
+
+		Log.info("Configured the TLS session cache", "size", cacheSize, "timeout", timeout);
+	}
+
 	private static KeyManager[] initKeyManagers(String keystore, char[] keystorePassword, char[] keyManagerPassword) throws Exception {
 		KeyStore keyStore = KeyStore.getInstance("JKS");
 		keyStore.load(new FileInputStream(keystore), keystorePassword);
@@ -31,6 +31,7 @@ import org.rapidoid.io.IO;
 import org.rapidoid.lambda.F3;
 import org.rapidoid.net.AsyncLogic;
 import org.rapidoid.net.Protocol;
+import org.rapidoid.net.TCP;
 import org.rapidoid.net.abstracts.Channel;
 import org.rapidoid.net.util.NetUtil;
 import org.rapidoid.u.U;
@@ -40,6 +41,7 @@ import java.io.BufferedReader;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.ServerSocket;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -80,6 +82,30 @@ public class EchoProtocolTest extends NetTestCommons {
 		});
 	}
 
+	@Test
+	public void echoWithReusePort() {
+		server(TCP.server().protocol(new EchoProtocol()).reusePort(true), new Runnable() {
+			@Override
+			public void run() {
+				connectAndExercise();
+			}
+		});
+
+		// the port must be released on shutdown
+		echo();
+	}
+
+	@Test
+	public void shouldReleaseThePortAfterReusePortShutdown() throws IOException {
+		for (int i = 0; i < 3; i++) {
+			TCP.server().protocol(new EchoProtocol()).reusePort(true).build().start().shutdown();
+
+			// binds without SO_REUSEPORT, so it would fail if any of the listeners is still open
+			ServerSocket socket = new ServerSocket(8080);
+			socket.close();
+		}
+	}
+
 	private void connectAndExercise() {
 
 		NetUtil.connect("localhost", 8080, new F3<Void, InputStream, BufferedReader, DataOutputStream>() {
@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.BufUtil;
+import org.rapidoid.lambda.F3;
+import org.rapidoid.net.Protocol;
+import org.rapidoid.net.Server;
+import org.rapidoid.net.TCP;
+import org.rapidoid.net.TCPClient;
+import org.rapidoid.net.abstracts.Channel;
+import org.rapidoid.net.util.NetUtil;
+import org.rapidoid.u.U;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class FileRegionTest extends NetTestCommons {
+
+	private static final int FILE_SIZE = 3 * 1024 * 1024 + 17;
+
+	@Test
+	public void shouldSendFileSegmentsInOrder() throws Exception {
+		final File file = File.createTempFile("rapidoid-file-region", ".bin");
+		file.deleteOnExit();
+
+		final byte[] content = new byte[FILE_SIZE];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) ('a' + i % 26);
+		}
+
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(content);
+		}
+
+		server(new Protocol() {
+			@Override
+			public void process(Channel ctx) {
+				if (ctx.isInitial()) {
+					BufUtil.doneWriting(ctx.output());
+					return;
+				}
+
+				String line = ctx.readln();
+
+				ctx.write("<");
+				ctx.write(file, 0, FILE_SIZE);
+				ctx.write("|");
+				ctx.write(file, 10, 100);
+				ctx.write(">" + line + "\n");
+
+				ctx.closeIf(line.equals("bye"));
+			}
+
+		}, new Runnable() {
+			@Override
+			public void run() {
+				NetUtil.connect("localhost", 8080, new F3<Void, InputStream, BufferedReader, DataOutputStream>() {
+					@Override
+					public Void execute(InputStream inputStream, BufferedReader in, DataOutputStream out) throws IOException {
+						out.writeBytes("first\n");
+						out.writeBytes("bye\n");
+
+						checkResponse(in, content, "first");
+						checkResponse(in, content, "bye");
+
+						isNull(in.readLine());
+						return null;
+					}
+				});
+			}
+		});
+	}
+
+	@Test
+	public void shouldSendFileSegmentsFromClientConnections() throws Exception {
+		final File file = File.createTempFile("rapidoid-file-region", ".bin");
+		file.deleteOnExit();
+
+		final byte[] content = new byte[100 * 1024];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) ('a' + i % 26);
+		}
+
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(content);
+		}
+
+		final AtomicReference<String> received = new AtomicReference<>();
+
+		Server server = TCP.server().port(8888).protocol(new Protocol() {
+			@Override
+			public void process(Channel ctx) {
+				if (ctx.isInitial()) return;
+				received.set(ctx.readln());
+			}
+		}).build().start();
+
+		TCPClient client = TCP.client().host("localhost").port(8888).connections(1).protocol(new Protocol() {
+			@Override
+			public void process(Channel ctx) {
+				if (ctx.isInitial()) {
+					ctx.write("<");
+					ctx.write(file, 0, content.length);
+					ctx.write(">\n");
+				}
+			}
+		}).build().start();
+
+		try {
+			for (int i = 0; i < 100 && received.get() == null; i++) {
+				U.sleep(100);
+			}
+
+			eq(received.get(), "<" + new String(content) + ">");
+
+		} finally {
+			client.shutdown();
+			server.shutdown();
+		}
+	}
+
+	private void checkResponse(BufferedReader in, byte[] content, String line) throws IOException {
+		String expected = "<" + new String(content) + "|" + new String(Arrays.copyOfRange(content, 10, 110)) + ">" + line;
+		eq(in.readLine(), expected);
+	}
+
+}
@@ -0,0 +1,135 @@
+/*-
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.commons.Str;
+import org.rapidoid.docs.echoprotocol.EchoProtocol;
+import org.rapidoid.net.ServerBuilder;
+import org.rapidoid.net.TCP;
+import org.rapidoid.net.tls.TLSHandshakes;
+import org.rapidoid.net.tls.TLSUtil;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import javax.net.ssl.SSLSocket;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class TLSHandshakeTest extends NetTestCommons {
+
+	private static final int CLIENTS = 10;
+
+	@Test
+	public void testOffloadedHandshakeTasks() {
+		// a test-local executor of the handshake tasks, so the default one isn't affected
+		TLSHandshakes handshakes = new TLSHandshakes("test-tls", 2, 100);
+
+		final Queue<String> responses = new ConcurrentLinkedQueue<>();
+
+		File keystore = new File(System.getProperty("java.io.tmpdir"), "rapidoid-test-" + U.time() + ".jks");
+		keystore.deleteOnExit();
+
+		char[] password = "secret".toCharArray();
+
+		ServerBuilder builder = TCP.server()
+			.protocol(new EchoProtocol())
+			.tls(true)
+			.selfSignedTLS(true)
+			.keystore(keystore.getAbsolutePath())
+			.keystorePassword(password)
+			.keyManagerPassword(password)
+			.tlsHandshakes(handshakes);
+
+		server(builder, new Runnable() {
+			@Override
+			public void run() {
+				List<Thread> clients = U.list();
+
+				for (int i = 0; i < CLIENTS; i++) {
+					final int n = i;
+
+					Thread client = new Thread() {
+						@Override
+						public void run() {
+							responses.add(echo("hello" + n));
+						}
+					};
+
+					clients.add(client);
+					client.start();
+				}
+
+				for (Thread client : clients) {
+					Msc.joinThread(client);
+				}
+			}
+		});
+
+		eq(responses.size(), CLIENTS);
+
+		for (int i = 0; i < CLIENTS; i++) {
+			isTrue(responses.contains("HELLO" + i));
+		}
+
+		isTrue(handshakes.isOffloading());
+		isTrue(handshakes.offloaded() >= CLIENTS);
+		isTrue(handshakes.handshakes() >= CLIENTS);
+		isTrue(handshakes.maxHandshakeMs() > 0);
+	}
+
+	private String echo(String msg) {
+		try (SSLSocket socket = (SSLSocket) TLSUtil.createTrustingContext().getSocketFactory().createSocket("localhost", 8080)) {
+			// the post-handshake messages of TLS 1.3 aren't supported yet
+			socket.setEnabledProtocols(new String[]{"TLSv1.2"});
+
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+			out.writeBytes(msg + "\n");
+			String response = in.readLine();
+
+			// spans multiple TLS records
+			String big = Str.mul("abc", 10000);
+			out.writeBytes(big + "\n");
+			eq(in.readLine(), big.toUpperCase());
+
+			out.writeBytes("bye\n");
+			eq(in.readLine(), "BYE");
+
+			return response;
+
+		} catch (Exception e) {
+			throw U.rte(e);
+		}
+	}
+
+}
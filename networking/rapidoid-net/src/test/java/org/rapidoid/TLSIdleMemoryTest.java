@@ -0,0 +1,152 @@
+/*-
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.docs.echoprotocol.EchoProtocol;
+import org.rapidoid.io.IO;
+import org.rapidoid.log.Log;
+import org.rapidoid.net.ServerBuilder;
+import org.rapidoid.net.TCP;
+import org.rapidoid.net.tls.TLSUtil;
+import org.rapidoid.u.U;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.SSLSocket;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the direct memory that is held by the idle TLS connections, on top of the memory of the plain connections.
+ * The blocking test clients don't use direct buffers, so the measured memory belongs to the server.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class TLSIdleMemoryTest extends NetTestCommons {
+
+	private static final int CONNECTIONS = 500;
+
+	@Test
+	public void shouldNotHoldTLSBuffersForIdleConnections() {
+		long plain = directMemoryPerIdleConnection(false);
+		long tls = directMemoryPerIdleConnection(true);
+
+		long tlsOverhead = tls - plain;
+
+		Log.info("Direct memory of the idle connections", "connections", CONNECTIONS, "plain bytes/conn", plain,
+			"TLS bytes/conn", tls, "TLS MB per 100k connections", tls * 100000 / 1024 / 1024);
+
+		// less than a single TLS buffer (about 16KB) per connection
+		isTrue(tlsOverhead < 16 * 1024);
+	}
+
+	private long directMemoryPerIdleConnection(final boolean tls) {
+		ServerBuilder builder = TCP.server().protocol(new EchoProtocol());
+
+		if (tls) {
+			File keystore = new File(System.getProperty("java.io.tmpdir"), "rapidoid-test-" + U.time() + ".jks");
+			keystore.deleteOnExit();
+
+			char[] password = "secret".toCharArray();
+
+			builder.tls(true)
+				.selfSignedTLS(true)
+				.keystore(keystore.getAbsolutePath())
+				.keystorePassword(password)
+				.keyManagerPassword(password);
+		}
+
+		final AtomicLong perConnection = new AtomicLong();
+
+		server(builder, new Runnable() {
+			@Override
+			public void run() {
+				SocketFactory sockets = tls ? TLSUtil.createTrustingContext().getSocketFactory() : SocketFactory.getDefault();
+				List<Socket> clients = U.list();
+
+				// the first connection initializes the buffer pools
+				clients.add(connect(sockets));
+
+				System.gc();
+				long before = directMemoryUsed();
+
+				try {
+					for (int i = 1; i < CONNECTIONS; i++) {
+						clients.add(connect(sockets));
+					}
+
+					U.sleep(500);
+					System.gc();
+
+					perConnection.set((directMemoryUsed() - before) / (CONNECTIONS - 1));
+
+				} finally {
+					for (Socket client : clients) {
+						IO.close(client, true);
+					}
+				}
+			}
+		});
+
+		return perConnection.get();
+	}
+
+	private Socket connect(SocketFactory sockets) {
+		try {
+			Socket socket = sockets.createSocket("localhost", 8080);
+
+			if (socket instanceof SSLSocket) {
+				((SSLSocket) socket).setEnabledProtocols(new String[]{"TLSv1.2"});
+			}
+
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+			out.writeBytes("hello\n");
+			eq(in.readLine(), "HELLO");
+
+			return socket;
+
+		} catch (Exception e) {
+			throw U.rte(e);
+		}
+	}
+
+	private static long directMemoryUsed() {
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if (pool.getName().equals("direct")) {
+				return pool.getMemoryUsed();
+			}
+		}
+
+		throw U.rte("Cannot find the direct buffer pool!");
+	}
+
+}
@@ -37,6 +37,7 @@ import org.rapidoid.http.impl.*;
 import org.rapidoid.http.impl.lowlevel.HttpIO;
 import org.rapidoid.http.processor.AbstractHttpProcessor;
 import org.rapidoid.io.Upload;
+import org.rapidoid.job.Jobs;
 import org.rapidoid.log.Log;
 import org.rapidoid.log.LogLevel;
 import org.rapidoid.net.abstracts.Channel;
@@ -44,9 +45,11 @@ import org.rapidoid.net.impl.RapidoidHelper;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Msc;
 
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 
 @Authors("Nikolche Mihajlovski")
@@ -59,6 +62,10 @@ public class FastHttp extends AbstractHttpProcessor {
 
 	private static final byte[] BUILT_IN_RES_PATH = "/_rapidoid/".getBytes();
 
+	private static final byte[] HOST = "Host".getBytes();
+
+	private static final long MAX_CACHE_LOADING_WAIT_MS = 10000;
+
 	private final HttpRoutesImpl routes;
 
 	private final Map<String, Object> attributes = Coll.synchronizedMap();
@@ -126,9 +133,11 @@ public class FastHttp extends AbstractHttpProcessor {
 		ReqImpl req = null;
 
 		if (!noReq) {
+			if (isGet && serveFromCacheIndex(channel, isKeepAlive, data, buf, matchingRoute)) return;
+
 			req = createReq(channel, isGet, isKeepAlive, data, buf, matchingRoute, match, handler);
 
-			if (serveFromCache(req)) return;
+			if (serveFromCache(req, data, buf)) return;
 		}
 
 		try {
@@ -165,7 +174,47 @@ public class FastHttp extends AbstractHttpProcessor {
 		routes.waitToStabilize();
 	}
 
-	private boolean serveFromCache(ReqImpl req) {
+	/**
+	 * Serves the cache hits straight from the raw request bytes, without parsing the parameters, without constructing
+	 * the request and without creating a new cache key.
+	 */
+	private boolean serveFromCacheIndex(Channel channel, boolean isKeepAlive, RapidoidHelper data, Buf buf, Route route) {
+
+		if (route == null) return false;
+
+		Cache<HTTPCacheKey, CachedResp> cache = route.cache();
+		HTTPCacheIndex index = route.cacheIndex();
+
+		if (cache == null || index == null) return false;
+
+		KeyValueRanges headersKV = data.headersKV.reset();
+		KeyValueRanges cookiesKV = data.cookies.reset();
+
+		HTTP_PARSER.parseHeadersIntoKV(buf, data.headers, headersKV, cookiesKV, data);
+
+		// the requests with cookies are not cacheable
+		if (cookiesKV.count > 0) return false;
+
+		BufRange host = headersKV.get(buf, HOST, false);
+		if (host == null || host.isEmpty()) return false;
+
+		// the index only knows the (host, URI, vary) combinations of the cacheable requests
+		HTTPCacheKey cacheKey = index.find(buf, host, data.uri, headersKV);
+		if (cacheKey == null) return false;
+
+		CachedResp resp = cache.getIfExists(cacheKey);
+		ByteBuffer body = resp != null ? resp.body() : null;
+
+		// the stale and the evicted responses are handled after the request is constructed
+		if (body == null || !resp.isFresh(route.config().cacheTTL())) return false;
+
+		HttpIO.INSTANCE.writeCachedResponse(channel, isKeepAlive, resp, body);
+		channel.send().closeIf(!isKeepAlive);
+
+		return true;
+	}
+
+	private boolean serveFromCache(ReqImpl req, RapidoidHelper data, Buf buf) {
 
 		// if the HTTP request is not cacheable, the cache key will be null
 		HTTPCacheKey cacheKey = req.cacheKey();
@@ -177,13 +226,25 @@ public class FastHttp extends AbstractHttpProcessor {
 
 			if (cache != null) {
 				if (cacheKey != null) {
+					indexCacheKey(route, cacheKey, data, buf);
+
 					CachedResp resp = cache.getIfExists(cacheKey);
 
-					if (resp != null) {
-						serveCached(req, resp);
-						return true;
+					// the body might have been evicted from the cache memory
+					ByteBuffer body = resp != null ? resp.body() : null;
+
+					if (body != null) {
+						if (resp.isFresh(route.config().cacheTTL()) || !resp.claimRefresh(route.config().cacheTTL())) {
+							serveCached(req, resp, body);
+							return true;
+						}
+
+						// the response is stale, so this request will refresh it, while the others are served the stale one
+						return false;
 					}
 
+					return waitForCacheLoading(req, route, cacheKey);
+
 				} else {
 					cache.bypass(); // notify it's not cacheable
 				}
@@ -193,13 +254,106 @@ public class FastHttp extends AbstractHttpProcessor {
 		return false;
 	}
 
-	private void serveCached(ReqImpl req, CachedResp resp) {
+	private void indexCacheKey(Route route, HTTPCacheKey cacheKey, RapidoidHelper data, Buf buf) {
+		HTTPCacheIndex index = route.cacheIndex();
+		if (index == null) return;
+
+		// the headers were already parsed while constructing the request
+		BufRange host = data.headersKV.get(buf, HOST, false);
+
+		// e.g. multiple "Host" headers, the key might not correspond to the first one
+		if (host == null || !host.str(buf).equals(cacheKey.host())) return;
+		if (!U.eq(index.vary(buf, data.headersKV), cacheKey.vary())) return;
+
+		if (index.find(buf, host, data.uri, data.headersKV) == null) {
+			index.add(buf, host, data.uri, data.headersKV, cacheKey);
+		}
+	}
+
+	/**
+	 * Coalesces the concurrent cache misses for the same key, so only the first request is handled, and the others wait
+	 * for its response.
+	 */
+	private boolean waitForCacheLoading(ReqImpl req, final Route route, HTTPCacheKey cacheKey) {
+		HTTPCacheInFlight inFlight = route.cacheInFlight();
+		if (inFlight == null) return false;
+
+		final HTTPCacheInFlight.Flight flight = inFlight.join(cacheKey, req);
+
+		if (flight.leader() == req) {
+			req.cacheFlight(flight);
+			return false;
+		}
+
+		req.channel().async();
+
+		if (flight.claimTimer()) {
+			// the waiting requests will be handled on their own, if the first request doesn't complete in time
+			Jobs.schedule(new Runnable() {
+				@Override
+				public void run() {
+					onCacheLoaded(route, flight);
+				}
+			}, MAX_CACHE_LOADING_WAIT_MS, TimeUnit.MILLISECONDS);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Serves the requests that were waiting for the cacheable response, or handles them if it wasn't cached.
+	 */
+	public void onCacheLoaded(Route route, HTTPCacheInFlight.Flight flight) {
+		HTTPCacheInFlight inFlight = route.cacheInFlight();
+		if (inFlight == null) return;
+
+		final List<ReqImpl> waiters = inFlight.complete(flight);
+		if (waiters.isEmpty()) return;
+
+		final CachedResp resp = route.cache().getIfExists(flight.key());
+		final ByteBuffer body = resp != null ? resp.body() : null;
+		final HttpHandler handler = route.handler();
+
+		Jobs.execute(new Runnable() {
+			@Override
+			public void run() {
+				for (ReqImpl req : waiters) {
+					if (body != null) {
+						req.cached(true);
+
+						HttpIO.INSTANCE.respond(HttpUtils.req(req), req.channel(), -1, -1, resp.statusCode,
+							req.isKeepAlive(), resp.contentType, new RespBodyBuffer(body.duplicate()), resp.headers, null);
+
+					} else {
+						handleWaiting(req, handler);
+					}
+				}
+			}
+		});
+	}
+
+	private void handleWaiting(ReqImpl req, HttpHandler handler) {
+		Channel channel = req.channel();
+
+		try {
+			HttpStatus status = handleIfFound(channel, req.isKeepAlive(), handler, req);
+
+			if (status == HttpStatus.NOT_FOUND) {
+				handleNotFound(channel, req.isKeepAlive(), req);
+			}
+
+		} catch (Throwable e) {
+			handleError(channel, req.isKeepAlive(), req, e);
+		}
+	}
+
+	private void serveCached(ReqImpl req, CachedResp resp, ByteBuffer body) {
 		Channel channel = req.channel();
 
 		req.cached(true);
 
 		HttpIO.INSTANCE.respond(HttpUtils.req(req), channel, -1, -1, resp.statusCode,
-			req.isKeepAlive(), resp.contentType, new RespBodyBuffer(resp.body.duplicate()), resp.headers, null);
+			req.isKeepAlive(), resp.contentType, new RespBodyBuffer(body.duplicate()), resp.headers, null);
 
 		channel.send().closeIf(!req.isKeepAlive());
 	}
@@ -230,7 +384,21 @@ public class FastHttp extends AbstractHttpProcessor {
 		Map<String, List<Upload>> files;
 		boolean pendingBodyParsing = false;
 
-		if (!isGet && !helper.body.isEmpty()) {
+		SpooledBody spooledBody = (SpooledBody) helper.spooledBody;
+
+		if (!isGet && spooledBody != null) {
+			// the big body was received into a temporary file, so it's loaded on demand
+			body = null;
+
+			posted = U.map();
+			files = U.map();
+
+			pendingBodyParsing = !HTTP_PARSER.parseSpooledBody(buf, headersKV, spooledBody, posted, files, helper);
+
+			posted = Collections.synchronizedMap(posted);
+			files = Collections.synchronizedMap(files);
+
+		} else if (!isGet && !helper.body.isEmpty()) {
 			KeyValueRanges postedKV = helper.pairs3.reset();
 
 			body = helper.body.bytes(buf);
@@ -272,6 +440,12 @@ public class FastHttp extends AbstractHttpProcessor {
 		req = new ReqImpl(this, channel, isKeepAlive, verb, uri, path, query, body, params, headers, cookies,
 			posted, files, pendingBodyParsing, contentType, zone, matchingRoute);
 
+		if (spooledBody != null) {
+			// the request takes care of the body from now on
+			req.spooledBody(spooledBody);
+			helper.spooledBody = null;
+		}
+
 		if (!attributes.isEmpty()) {
 			req.attrs().putAll(attributes);
 		}
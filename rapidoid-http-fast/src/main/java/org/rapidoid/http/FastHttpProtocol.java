@@ -24,11 +24,20 @@ import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.buffer.Buf;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
+import org.rapidoid.data.BufRange;
 import org.rapidoid.http.impl.HttpParser;
+import org.rapidoid.http.impl.SpooledBody;
+import org.rapidoid.http.impl.lowlevel.HttpIO;
 import org.rapidoid.http.processor.HttpProcessor;
 import org.rapidoid.net.Protocol;
 import org.rapidoid.net.abstracts.Channel;
+import org.rapidoid.net.impl.ConnState;
 import org.rapidoid.net.impl.RapidoidHelper;
+import org.rapidoid.u.U;
+
+import java.io.File;
 
 
 @Authors("Nikolche Mihajlovski")
@@ -37,10 +46,31 @@ public class FastHttpProtocol extends RapidoidThing implements Protocol {
 
 	private static final HttpParser HTTP_PARSER = new HttpParser();
 
+	/**
+	 * Marks the connections whose request body was rejected, so the rest of their input is ignored until closed.
+	 */
+	private static final Object REJECTED_BODY = new Object();
+
 	private final HttpProcessor processor;
 
+	private final long spoolMinSize;
+
+	/**
+	 * The maximum size of the request bodies, 0 = unlimited.
+	 */
+	private final long spoolMaxSize;
+
+	private final File spoolDir;
+
 	public FastHttpProtocol(HttpProcessor processor) {
 		this.processor = processor;
+
+		Config spooling = Conf.HTTP.sub("spooling");
+		this.spoolMinSize = spooling.entry("minSize").or(1048576).longValue();
+		this.spoolMaxSize = spooling.entry("maxSize").or(0).longValue();
+
+		String dir = spooling.entry("dir").or("");
+		this.spoolDir = U.notEmpty(dir) ? new File(dir) : null;
 	}
 
 	@Override
@@ -53,10 +83,56 @@ public class FastHttpProtocol extends RapidoidThing implements Protocol {
 
 		Buf buf = channel.input();
 		RapidoidHelper helper = channel.helper();
+		ConnState state = channel.state();
+
+		if (state.obj == REJECTED_BODY) {
+			buf.position(buf.limit());
+			return;
+		}
+
+		if (!(state.obj instanceof SpooledBody)) {
+			int start = buf.position();
+			long bodySize = HTTP_PARSER.parse(buf, helper, spoolMinSize);
 
-		HTTP_PARSER.parse(buf, helper);
+			if (bodySize == 0) {
+				processor.onRequest(channel, helper);
+				return;
+			}
 
-		processor.onRequest(channel, helper);
+			if (spoolMaxSize > 0 && bodySize > spoolMaxSize) {
+				state.obj = REJECTED_BODY;
+				buf.position(buf.limit());
+				HttpIO.INSTANCE.writePayloadTooLarge(channel);
+				return;
+			}
+
+			// the big body is received in parts, into a temporary file (written by the I/O worker)
+			byte[] head = BufRange.fromTo(start, buf.position()).bytes(buf);
+			byte[] boundary = HTTP_PARSER.getMultipartBoundary(buf, helper);
+
+			state.obj = new SpooledBody(head, bodySize, boundary, spoolDir);
+		}
+
+		SpooledBody body = (SpooledBody) state.obj;
+
+		if (!body.receive(buf)) return; // waiting for the rest of the body
+
+		state.obj = null;
+
+		// the head was put back in the input buffer, so it can be parsed again
+		HTTP_PARSER.parse(buf, helper, 0);
+		helper.spooledBody = body;
+
+		try {
+			processor.onRequest(channel, helper);
+
+		} finally {
+			// the body is deleted with the request that took it, if any
+			if (helper.spooledBody != null) {
+				helper.spooledBody = null;
+				body.close();
+			}
+		}
 	}
 
 }
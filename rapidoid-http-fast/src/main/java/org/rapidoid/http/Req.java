@@ -25,6 +25,7 @@ import org.rapidoid.annotation.Since;
 import org.rapidoid.http.customize.Customization;
 import org.rapidoid.io.Upload;
 
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.List;
@@ -65,6 +66,12 @@ public interface Req {
 	 */
 	byte[] body();
 
+	/**
+	 * Gets the <b>raw body data</b> of the HTTP request as a stream. The big bodies are received into temporary files,
+	 * so they can be streamed without loading them into memory.
+	 */
+	InputStream bodyStream();
+
 	/**
 	 * Gets the value of the <b>Host header</b> of the HTTP request.
 	 */
@@ -26,6 +26,8 @@ import org.rapidoid.annotation.Since;
 import org.rapidoid.cache.Cache;
 import org.rapidoid.http.handler.HttpHandler;
 import org.rapidoid.http.impl.CachedResp;
+import org.rapidoid.http.impl.HTTPCacheInFlight;
+import org.rapidoid.http.impl.HTTPCacheIndex;
 import org.rapidoid.http.impl.HTTPCacheKey;
 
 import java.util.Date;
@@ -44,6 +46,10 @@ public interface Route {
 
 	Cache<HTTPCacheKey, CachedResp> cache();
 
+	HTTPCacheIndex cacheIndex();
+
+	HTTPCacheInFlight cacheInFlight();
+
 	Date lastChangedAt();
 
 }
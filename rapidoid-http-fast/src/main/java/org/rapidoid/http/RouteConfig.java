@@ -71,4 +71,20 @@ public interface RouteConfig {
 	int cacheCapacity();
 
 	RouteOptions cacheCapacity(int cacheCapacity);
+
+	long cacheStaleTTL();
+
+	RouteOptions cacheStaleTTL(long cacheStaleTTL);
+
+	boolean cacheCoalescing();
+
+	RouteOptions cacheCoalescing(boolean cacheCoalescing);
+
+	String[] cacheVary();
+
+	RouteOptions cacheVary(String... cacheVary);
+
+	String executor();
+
+	RouteOptions executor(String executor);
 }
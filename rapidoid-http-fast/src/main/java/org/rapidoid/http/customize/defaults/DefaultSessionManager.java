@@ -25,34 +25,188 @@ import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.collection.Coll;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
 import org.rapidoid.event.Events;
 import org.rapidoid.event.Fire;
+import org.rapidoid.expire.ExpirationTimer;
+import org.rapidoid.expire.Expiring;
+import org.rapidoid.expire.TimerWheel;
 import org.rapidoid.http.Req;
 import org.rapidoid.http.customize.SessionManager;
+import org.rapidoid.http.impl.SessionMemory;
+import org.rapidoid.job.Jobs;
+import org.rapidoid.log.Log;
+import org.rapidoid.serialize.Serialize;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Msc;
+import org.rapidoid.util.TUUID;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.Map;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Keeps the sessions in memory, serialized between the requests. The number of sessions is bounded (the least recently
+ * used sessions are evicted), and the idle sessions expire.
+ */
 @Authors("Nikolche Mihajlovski")
 @Since("5.2.0")
 public class DefaultSessionManager extends RapidoidThing implements SessionManager {
 
-	public static class SessionHolder {
-		volatile byte[] serialized;
+	private static final long EXPIRATION_TICK_MS = 1000;
+
+	private static final byte COMPACT = 'R';
+
+	private static final byte JAVA = 'J';
+
+	/**
+	 * The types that are restored as the same type by the compact serialization (e.g. a TreeMap would be restored as a
+	 * LinkedHashMap, and a java.sql.Timestamp as a java.util.Date).
+	 */
+	private static final Set<Class<?>> COMPACT_TYPES = U.<Class<?>>set(String.class, Boolean.class, Byte.class,
+		Short.class, Character.class, Integer.class, Long.class, Float.class, Double.class, Date.class, UUID.class,
+		TUUID.class, boolean[].class, byte[].class, short[].class, char[].class, int[].class, long[].class,
+		float[].class, double[].class);
+
+	public static class SessionHolder implements Expiring {
+		final DefaultSessionManager manager;
+		final String id;
+		volatile ByteBuffer serialized;
 		volatile Map<String, Serializable> session;
 		final AtomicLong refCounter = new AtomicLong();
+		final ExpirationTimer expirationTimer = new ExpirationTimer(this);
+		volatile long expiresAt;
+		volatile boolean removed;
+
+		SessionHolder(DefaultSessionManager manager, String id) {
+			this.manager = manager;
+			this.id = id;
+		}
+
+		@Override
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+
+		@Override
+		public void setExpiresAt(long expiresAt) {
+			this.expiresAt = expiresAt;
+		}
+
+		@Override
+		public void expire() {
+			manager.expire(this);
+		}
+	}
+
+	private final int maxSessions;
+
+	private final long idleTimeoutMs;
+
+	private final SessionMemory memory;
+
+	private final Map<String, SessionHolder> sessions;
+
+	private final TimerWheel expirations = new TimerWheel(EXPIRATION_TICK_MS);
+
+	private volatile boolean expiring;
+
+	public DefaultSessionManager() {
+		this(Conf.HTTP.sub("session"));
 	}
 
-	private final Map<String, SessionHolder> sessions = Coll.autoExpandingMap(String.class, SessionHolder.class);
+	private DefaultSessionManager(Config cfg) {
+		this(cfg.entry("maxSessions").or(100000),
+			cfg.entry("idleTimeout").or(1800000).longValue(),
+			memory(cfg));
+	}
+
+	public DefaultSessionManager(int maxSessions, long idleTimeoutMs, SessionMemory memory) {
+		this.maxSessions = maxSessions;
+		this.idleTimeoutMs = idleTimeoutMs;
+		this.memory = memory;
+
+		this.sessions = new LinkedHashMap<String, SessionHolder>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, SessionHolder> eldest) {
+				if (size() > DefaultSessionManager.this.maxSessions) {
+					evictLeastRecentlyUsed(this);
+				}
+
+				// the eviction already modified the map, if possible
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Evicts the least recently used session that isn't being used. The iteration doesn't change the access order.
+	 */
+	private void evictLeastRecentlyUsed(Map<String, SessionHolder> sessions) {
+		Iterator<SessionHolder> it = sessions.values().iterator();
+
+		while (it.hasNext()) {
+			SessionHolder holder = it.next();
+
+			if (holder.refCounter.get() == 0) {
+				it.remove();
+				discard(holder);
+				return;
+			}
+		}
+	}
+
+	private static SessionMemory memory(Config cfg) {
+		SessionMemory.Storage storage = cfg.entry("storage").to(SessionMemory.Storage.class).or(SessionMemory.Storage.HEAP);
+		int chunkSize = cfg.entry("chunkSizeKB").or(4096) * 1024;
+
+		String filename = cfg.entry("file").or("");
+		File file = null;
+
+		if (storage == SessionMemory.Storage.MAPPED) {
+			file = U.notEmpty(filename) ? new File(filename) : tempFile();
+		}
+
+		return new SessionMemory(storage, chunkSize, file);
+	}
+
+	private static File tempFile() {
+		try {
+			File file = File.createTempFile("rapidoid-sessions-", ".bin");
+			file.deleteOnExit();
+			return file;
+
+		} catch (IOException e) {
+			throw U.rte("Couldn't create a file for the sessions!", e);
+		}
+	}
 
 	@Override
 	public Map<String, Serializable> loadSession(Req req, String sessionId) throws Exception {
 		Fire.event(Events.SESSION_LOAD, "id", sessionId);
 
-		SessionHolder holder = sessions.get(sessionId);
+		SessionHolder holder;
+
+		synchronized (sessions) {
+			holder = sessions.get(sessionId);
+
+			if (holder != null) {
+				holder.refCounter.incrementAndGet();
+
+			} else {
+				holder = new SessionHolder(this, sessionId);
+				holder.refCounter.incrementAndGet(); // before it's added, so it won't be evicted
+				sessions.put(sessionId, holder);
+			}
+		}
+
+		touch(holder);
 
 		if (holder.session == null) {
 			synchronized (holder) {
@@ -60,7 +214,7 @@ public class DefaultSessionManager extends RapidoidThing implements SessionManag
 
 					if (holder.serialized != null) {
 						Fire.event(Events.SESSION_DESERIALIZE, "id", sessionId);
-						holder.session = U.cast(Msc.deserialize(holder.serialized));
+						holder.session = deserialize(SessionMemory.load(holder.serialized));
 					} else {
 						holder.session = Coll.concurrentMap();
 						Fire.event(Events.SESSION_CONCURRENT_ACCESS, "id", sessionId);
@@ -69,8 +223,6 @@ public class DefaultSessionManager extends RapidoidThing implements SessionManag
 			}
 		}
 
-		holder.refCounter.incrementAndGet();
-
 		return holder.session;
 	}
 
@@ -78,20 +230,165 @@ public class DefaultSessionManager extends RapidoidThing implements SessionManag
 	public void saveSession(Req req, String sessionId, Map<String, Serializable> session) throws Exception {
 		Fire.event(Events.SESSION_SAVE, "id", sessionId);
 
-		SessionHolder holder = sessions.get(sessionId);
+		SessionHolder holder;
+
+		synchronized (sessions) {
+			holder = sessions.get(sessionId);
+		}
+
+		U.must(holder != null, "The session wasn't loaded!");
+
 		long refN = holder.refCounter.decrementAndGet();
 
 		U.must(refN >= 0, "The session has negative reference counter!");
 
 		if (refN == 0) {
 			synchronized (holder) {
-				if (holder.refCounter.get() == 0) {
+				if (holder.refCounter.get() == 0 && !holder.removed) {
 					Fire.event(Events.SESSION_SERIALIZE, "id", sessionId);
-					holder.serialized = Msc.serialize(session);
+
+					byte[] data = serialize(session);
+					holder.serialized = memory.store(data, data.length, holder.serialized);
 					holder.session = null;
 				}
 			}
 		}
+
+		touch(holder);
+	}
+
+	private void touch(SessionHolder holder) {
+		if (idleTimeoutMs > 0) {
+			holder.expiresAt = U.time() + idleTimeoutMs;
+			expirations.schedule(holder.expirationTimer);
+
+			if (!expiring) startExpiring();
+		}
+	}
+
+	private synchronized void startExpiring() {
+		if (expiring) return;
+		expiring = true;
+
+		Jobs.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					expireIdleSessions();
+				} catch (Exception e) {
+					Log.error("Error occurred while expiring the sessions!", e);
+				}
+			}
+		}, EXPIRATION_TICK_MS, EXPIRATION_TICK_MS, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized void expireIdleSessions() {
+		expirations.advance(U.time());
+	}
+
+	private void expire(SessionHolder holder) {
+		synchronized (sessions) {
+			// the sessions that are being used will be touched again when saved
+			// the removed flag is checked instead of looking up the session, which would change the access order
+			if (holder.refCounter.get() == 0 && !holder.removed) {
+				sessions.remove(holder.id);
+				discard(holder);
+			}
+		}
+	}
+
+	private void discard(SessionHolder holder) {
+		synchronized (holder) {
+			holder.removed = true;
+			holder.session = null;
+
+			if (holder.serialized != null) {
+				memory.free(holder.serialized);
+				holder.serialized = null;
+			}
+		}
+	}
+
+	/**
+	 * Uses the compact serialization when all values can be restored as the same types, and the Java serialization for
+	 * the other (custom) types.
+	 */
+	static byte[] serialize(Map<String, Serializable> session) {
+		if (isCompact(session.values())) {
+			byte[] dest = new byte[1024];
+
+			while (true) {
+				try {
+					ByteBuffer buf = ByteBuffer.wrap(dest);
+					buf.put(COMPACT);
+					Serialize.serialize(buf, session);
+					return Arrays.copyOf(dest, buf.position());
+
+				} catch (BufferOverflowException e) {
+					dest = new byte[dest.length * 2];
+				}
+			}
+		}
+
+		byte[] serialized = Msc.serialize(session);
+		byte[] data = new byte[serialized.length + 1];
+
+		data[0] = JAVA;
+		System.arraycopy(serialized, 0, data, 1, serialized.length);
+
+		return data;
+	}
+
+	private static boolean isCompact(Object value) {
+		if (value == null) return true;
+
+		Class<?> type = value.getClass();
+
+		if (COMPACT_TYPES.contains(type)) {
+			return true;
+
+		} else if (type == Object[].class) {
+			return isCompact(Arrays.asList((Object[]) value));
+
+		} else if (type == ArrayList.class || type == LinkedHashSet.class) {
+			return isCompact((Collection<?>) value);
+
+		} else if (type == LinkedHashMap.class) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			return isCompact(map.keySet()) && isCompact(map.values());
+
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean isCompact(Collection<?> values) {
+		for (Object value : values) {
+			if (!isCompact(value)) return false;
+		}
+
+		return true;
+	}
+
+	static Map<String, Serializable> deserialize(byte[] data) {
+		if (data[0] == COMPACT) {
+			Map<String, Serializable> session = U.cast(Serialize.deserialize(ByteBuffer.wrap(data, 1, data.length - 1)));
+			return Coll.concurrentMap(session, false);
+
+		} else {
+			U.must(data[0] == JAVA, "Unknown session format!");
+			return U.cast(Msc.deserialize(Arrays.copyOfRange(data, 1, data.length)));
+		}
+	}
+
+	public int size() {
+		synchronized (sessions) {
+			return sessions.size();
+		}
+	}
+
+	public SessionMemory memory() {
+		return memory;
 	}
 
 }
@@ -23,9 +23,11 @@ package org.rapidoid.http.handler;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.ctx.With;
+import org.rapidoid.ctx.WithContext;
 import org.rapidoid.http.*;
 import org.rapidoid.http.impl.RouteOptions;
 import org.rapidoid.http.impl.lowlevel.HttpIO;
+import org.rapidoid.job.Jobs;
 import org.rapidoid.lambda.Mapper;
 import org.rapidoid.log.LogLevel;
 import org.rapidoid.net.abstracts.Channel;
@@ -33,6 +35,7 @@ import org.rapidoid.u.U;
 import org.rapidoid.util.LazyInit;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.5.1")
@@ -70,7 +73,7 @@ public class HttpManagedHandlerDecorator extends AbstractHttpHandlerDecorator {
 
 	private void execHandlerJob(final Channel channel, final boolean isKeepAlive, final MediaType contentType, final Req req) {
 
-		With.tag(CTX_TAG_HANDLER).exchange(req).run(new Runnable() {
+		Runnable job = new Runnable() {
 
 			@Override
 			public void run() {
@@ -87,7 +90,27 @@ public class HttpManagedHandlerDecorator extends AbstractHttpHandlerDecorator {
 				}
 			}
 
-		});
+		};
+
+		WithContext ctx = With.tag(CTX_TAG_HANDLER).exchange(req);
+		String executor = options.executor();
+
+		if (executor != null) {
+			try {
+				ctx.run(job, Jobs.bulkhead(executor));
+			} catch (final RejectedExecutionException e) {
+				// the bulkhead is full, so the request is rejected with 503 Service Unavailable
+				ctx.run(new Runnable() {
+					@Override
+					public void run() {
+						handleError(req, e);
+					}
+				});
+			}
+
+		} else {
+			ctx.run(job);
+		}
 	}
 
 	private void handleWithWrappers(Channel channel, boolean isKeepAlive, MediaType contentType,
@@ -23,12 +23,15 @@ package org.rapidoid.http.handler;
 
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
-import org.rapidoid.http.HttpStatus;
-import org.rapidoid.http.HttpUtils;
-import org.rapidoid.http.MediaType;
-import org.rapidoid.http.Req;
+import org.rapidoid.commons.Dates;
+import org.rapidoid.commons.Rnd;
+import org.rapidoid.config.Conf;
+import org.rapidoid.http.*;
 import org.rapidoid.http.customize.Customization;
 import org.rapidoid.http.customize.StaticFilesSecurity;
+import org.rapidoid.http.impl.ByteRange;
+import org.rapidoid.http.impl.HttpCompression;
+import org.rapidoid.http.impl.MaybeReq;
 import org.rapidoid.http.impl.RouteOptions;
 import org.rapidoid.http.impl.lowlevel.HttpIO;
 import org.rapidoid.io.Res;
@@ -36,10 +39,21 @@ import org.rapidoid.log.LogLevel;
 import org.rapidoid.net.abstracts.Channel;
 import org.rapidoid.u.U;
 
+import java.io.File;
+import java.util.List;
+
 @Authors("Nikolche Mihajlovski")
 @Since("5.0.0")
 public class StaticResourcesHandler extends AbstractHttpHandler {
 
+	private static final long ZERO_COPY_MIN_SIZE = Conf.HTTP.entry("zeroCopyMinSize").or(64 * 1024);
+
+	private static final byte[] BYTES = "bytes".getBytes();
+
+	private static final String BOUNDARY = "RAPIDOID_BYTERANGES_" + Long.toHexString(Rnd.rndL()).toUpperCase();
+
+	private static final MediaType MULTIPART_BYTERANGES = MediaType.of("multipart/byteranges; boundary=" + BOUNDARY);
+
 	private final Customization customization;
 
 	public StaticResourcesHandler(Customization customization) {
@@ -62,11 +76,12 @@ public class StaticResourcesHandler extends AbstractHttpHandler {
 					StaticFilesSecurity staticFilesSecurity = customization.staticFilesSecurity();
 
 					if (staticFilesSecurity.canServe(req, res)) {
-						byte[] bytes = res.getBytesOrNull();
+						// the content and its validators must come from the same version of the resource
+						Res.Snapshot snapshot = res.snapshot();
 
-						if (bytes != null) {
+						if (snapshot != null) {
 							MediaType contentType = U.or(MediaType.getByFileName(res.getName()), MediaType.BINARY);
-							HttpIO.INSTANCE.write200(HttpUtils.maybe(req), ctx, isKeepAlive, contentType, bytes);
+							serve(ctx, isKeepAlive, req, res, snapshot, contentType);
 							return HttpStatus.DONE;
 						}
 					}
@@ -80,6 +95,184 @@ public class StaticResourcesHandler extends AbstractHttpHandler {
 		}
 	}
 
+	private void serve(Channel ctx, boolean isKeepAlive, Req req, Res res, Res.Snapshot snapshot, MediaType contentType) {
+		MaybeReq maybeReq = HttpUtils.maybe(req);
+		byte[] bytes = snapshot.bytes();
+
+		boolean compressible = HttpCompression.isCompressible(contentType, bytes.length);
+
+		// the ranges are served from the original content
+		String encoding = compressible && req.header(HttpHeaders.RANGE.name(), null) == null
+			? HttpCompression.encodingFor(req, contentType, bytes.length) : null;
+
+		String etag = encoding == null ? snapshot.etag() : HttpCompression.etag(snapshot.etag(), encoding);
+		long lastModified = snapshot.lastModified();
+
+		if (isNotModified(req, etag, lastModified)) {
+			// a 304 response has no body, so it doesn't describe its content type
+			HttpIO.INSTANCE.startResponse(maybeReq, ctx, 304, isKeepAlive, null);
+			writeValidators(ctx, etag, lastModified, compressible);
+			HttpIO.INSTANCE.closeHeaders(maybeReq, ctx.output());
+			return;
+		}
+
+		if (encoding != null) {
+			// the compressed variant is cached, so the static resources are compressed only once
+			byte[] compressed = HttpCompression.precompressed(res, bytes, encoding);
+
+			HttpIO.INSTANCE.startResponse(maybeReq, ctx, 200, isKeepAlive, contentType);
+			writeValidators(ctx, etag, lastModified, true);
+			HttpIO.INSTANCE.addCustomHeader(ctx, HttpCompression.CONTENT_ENCODING, encoding.getBytes());
+			HttpIO.INSTANCE.writeContentLengthHeader(ctx, compressed.length);
+			HttpIO.INSTANCE.closeHeaders(maybeReq, ctx.output());
+			ctx.write(compressed);
+			return;
+		}
+
+		File file = bytes.length >= ZERO_COPY_MIN_SIZE ? fileOf(res, bytes) : null;
+		List<ByteRange> ranges = requestedRanges(req, etag, lastModified, bytes.length);
+
+		if (ranges == null) {
+			HttpIO.INSTANCE.startResponse(maybeReq, ctx, 200, isKeepAlive, contentType);
+			writeValidators(ctx, etag, lastModified, compressible);
+			HttpIO.INSTANCE.writeContentLengthHeader(ctx, bytes.length);
+			HttpIO.INSTANCE.closeHeaders(maybeReq, ctx.output());
+			writeContent(ctx, bytes, file, 0, bytes.length);
+
+		} else if (ranges.isEmpty()) {
+			HttpIO.INSTANCE.startResponse(maybeReq, ctx, 416, isKeepAlive, contentType);
+			HttpIO.INSTANCE.addCustomHeader(ctx, HttpHeaders.CONTENT_RANGE.getBytes(), ("bytes */" + bytes.length).getBytes());
+			HttpIO.INSTANCE.writeContentLengthHeader(ctx, 0);
+			HttpIO.INSTANCE.closeHeaders(maybeReq, ctx.output());
+
+		} else if (ranges.size() == 1) {
+			ByteRange range = ranges.get(0);
+
+			HttpIO.INSTANCE.startResponse(maybeReq, ctx, 206, isKeepAlive, contentType);
+			writeValidators(ctx, etag, lastModified, false);
+			HttpIO.INSTANCE.addCustomHeader(ctx, HttpHeaders.CONTENT_RANGE.getBytes(), contentRange(range, bytes.length));
+			HttpIO.INSTANCE.writeContentLengthHeader(ctx, range.length());
+			HttpIO.INSTANCE.closeHeaders(maybeReq, ctx.output());
+			writeContent(ctx, bytes, file, range.start, range.length());
+
+		} else {
+			byte[][] partHeaders = new byte[ranges.size()][];
+			long contentLength = 0;
+
+			for (int i = 0; i < partHeaders.length; i++) {
+				ByteRange range = ranges.get(i);
+
+				partHeaders[i] = ("\r\n--" + BOUNDARY + "\r\n" + new String(contentType.asHttpHeader())
+					+ "Content-Range: " + new String(contentRange(range, bytes.length)) + "\r\n\r\n").getBytes();
+
+				contentLength += partHeaders[i].length + range.length();
+			}
+
+			byte[] end = ("\r\n--" + BOUNDARY + "--\r\n").getBytes();
+			contentLength += end.length;
+
+			HttpIO.INSTANCE.startResponse(maybeReq, ctx, 206, isKeepAlive, MULTIPART_BYTERANGES);
+			writeValidators(ctx, etag, lastModified, false);
+			HttpIO.INSTANCE.writeContentLengthHeader(ctx, contentLength);
+			HttpIO.INSTANCE.closeHeaders(maybeReq, ctx.output());
+
+			for (int i = 0; i < partHeaders.length; i++) {
+				ByteRange range = ranges.get(i);
+				ctx.write(partHeaders[i]);
+				writeContent(ctx, bytes, file, range.start, range.length());
+			}
+
+			ctx.write(end);
+		}
+	}
+
+	private static boolean isNotModified(Req req, String etag, long lastModified) {
+		String ifNoneMatch = req.header(HttpHeaders.IF_NONE_MATCH.name(), null);
+
+		if (ifNoneMatch != null) {
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+
+				// weak comparison
+				if (tag.startsWith("W/")) tag = tag.substring(2);
+
+				if (tag.equals("*") || tag.equals(etag)) return true;
+			}
+
+			return false;
+		}
+
+		if (lastModified > 0) {
+			long since = Dates.parseRfc1123(req.header(HttpHeaders.IF_MODIFIED_SINCE.name(), null));
+
+			// the HTTP dates have a precision of one second
+			return since >= 0 && lastModified / 1000 <= since / 1000;
+		}
+
+		return false;
+	}
+
+	private static List<ByteRange> requestedRanges(Req req, String etag, long lastModified, long size) {
+		String range = req.header(HttpHeaders.RANGE.name(), null);
+		if (range == null) return null;
+
+		String ifRange = req.header(HttpHeaders.IF_RANGE.name(), null);
+
+		if (ifRange != null) {
+			boolean matches;
+
+			if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+				matches = ifRange.equals(etag); // strong comparison
+
+			} else {
+				long date = Dates.parseRfc1123(ifRange);
+				matches = lastModified > 0 && date >= 0 && lastModified / 1000 == date / 1000;
+			}
+
+			// the content has changed, so the full content must be sent
+			if (!matches) return null;
+		}
+
+		return ByteRange.parse(range, size);
+	}
+
+	private static void writeValidators(Channel ctx, String etag, long lastModified, boolean vary) {
+		HttpIO.INSTANCE.addCustomHeader(ctx, HttpHeaders.ETAG.getBytes(), etag.getBytes());
+
+		if (lastModified > 0) {
+			HttpIO.INSTANCE.addCustomHeader(ctx, HttpHeaders.LAST_MODIFIED.getBytes(), Dates.rfc1123(lastModified).getBytes());
+		}
+
+		HttpIO.INSTANCE.addCustomHeader(ctx, HttpHeaders.ACCEPT_RANGES.getBytes(), BYTES);
+
+		if (vary) {
+			HttpIO.INSTANCE.addCustomHeader(ctx, HttpCompression.VARY, HttpCompression.ACCEPT_ENCODING);
+		}
+	}
+
+	private static byte[] contentRange(ByteRange range, long size) {
+		return ("bytes " + range.start + "-" + range.end + "/" + size).getBytes();
+	}
+
+	private static void writeContent(Channel ctx, byte[] bytes, File file, long position, long length) {
+		if (file != null) {
+			// the file content is sent with zero-copy, straight from the file to the socket
+			ctx.write(file, position, length);
+		} else {
+			ctx.write(bytes, (int) position, (int) length);
+		}
+	}
+
+	private static File fileOf(Res res, byte[] bytes) {
+		String filename = res.getCachedFileName();
+		if (filename == null) return null;
+
+		File file = new File(filename);
+
+		// the resources from JARs can't be sent with zero-copy
+		return file.isFile() && file.length() == bytes.length ? file : null;
+	}
+
 	@Override
 	public boolean needsParams() {
 		return true;
@@ -0,0 +1,132 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.u.U;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A satisfiable byte range (from a "Range" request header), with inclusive start and end positions.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class ByteRange extends RapidoidThing {
+
+	private static final String BYTES_UNIT = "bytes=";
+
+	// more ranges than this are not worth the overhead, so the full content is sent instead
+	private static final int MAX_RANGES = 16;
+
+	public final long start;
+
+	public final long end;
+
+	public ByteRange(long start, long end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	public long length() {
+		return end - start + 1;
+	}
+
+	/**
+	 * Parses the value of the "Range" header, for content with the specified size.
+	 * Returns <code>null</code> if the header is invalid or should be ignored (the full content should be sent),
+	 * or an empty list if none of the ranges is satisfiable.
+	 */
+	public static List<ByteRange> parse(String header, long size) {
+		if (header == null || !header.startsWith(BYTES_UNIT)) return null;
+
+		String[] specs = header.substring(BYTES_UNIT.length()).split(",");
+		if (specs.length > MAX_RANGES) return null;
+
+		List<ByteRange> ranges = U.list();
+		long total = 0;
+
+		for (String spec : specs) {
+			spec = spec.trim();
+
+			int dash = spec.indexOf('-');
+			if (dash < 0) return null;
+
+			long first = num(spec.substring(0, dash).trim());
+			long last = num(spec.substring(dash + 1).trim());
+
+			if (first == -2 || last == -2) return null; // invalid number
+
+			ByteRange range;
+
+			if (first == -1) {
+				// suffix range, e.g. "-500"
+				if (last <= 0) {
+					if (last == -1) return null;
+					continue;
+				}
+
+				range = new ByteRange(Math.max(size - last, 0), size - 1);
+
+			} else {
+				if (last != -1 && last < first) return null;
+
+				if (first >= size) continue; // not satisfiable
+
+				range = new ByteRange(first, last == -1 ? size - 1 : Math.min(last, size - 1));
+			}
+
+			if (size > 0) {
+				ranges.add(range);
+				total += range.length();
+			}
+		}
+
+		// overlapping ranges bigger than the content are suspicious, so just send the content
+		if (total > size) return null;
+
+		return ranges.isEmpty() ? Collections.<ByteRange>emptyList() : ranges;
+	}
+
+	private static long num(String s) {
+		if (s.isEmpty()) return -1;
+
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9') return -2;
+		}
+
+		try {
+			return Long.parseLong(s);
+		} catch (NumberFormatException e) {
+			return -2;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return start + "-" + end;
+	}
+
+}
@@ -24,10 +24,13 @@ package org.rapidoid.http.impl;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.cache.Cache;
 import org.rapidoid.http.MediaType;
+import org.rapidoid.u.U;
 
 import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.3.0")
@@ -39,7 +42,17 @@ public class CachedResp extends RapidoidThing {
 
 	public final Map<String, String> headers;
 
-	public final ByteBuffer body;
+	public final long createdAt = U.time();
+
+	private volatile ByteBuffer body;
+
+	private final AtomicLong refreshingSince = new AtomicLong();
+
+	private volatile byte[] headerBytes;
+
+	private volatile Cache<HTTPCacheKey, CachedResp> cache;
+
+	private volatile HTTPCacheKey cacheKey;
 
 	public CachedResp(int statusCode, MediaType contentType, Map<String, String> headers, ByteBuffer body) {
 		this.statusCode = statusCode;
@@ -47,4 +60,69 @@ public class CachedResp extends RapidoidThing {
 		this.headers = headers;
 		this.body = body;
 	}
+
+	/**
+	 * @return the body, or <code>null</code> if the response was evicted from the cache memory
+	 */
+	public ByteBuffer body() {
+		return body;
+	}
+
+	void body(ByteBuffer body) {
+		this.body = body;
+	}
+
+	/**
+	 * Registers the cache entry of the response, so it is removed from the cache when the body is evicted.
+	 */
+	public void cachedAs(Cache<HTTPCacheKey, CachedResp> cache, HTTPCacheKey cacheKey) {
+		this.cacheKey = cacheKey;
+		this.cache = cache;
+	}
+
+	void evict() {
+		this.body = null;
+
+		Cache<HTTPCacheKey, CachedResp> cache = this.cache;
+
+		// the response might have been replaced with a newer one, which shouldn't be invalidated
+		if (cache != null) cache.invalidate(cacheKey, this);
+	}
+
+	public boolean isFresh(long ttl) {
+		return U.time() - createdAt <= ttl;
+	}
+
+	/**
+	 * Claims the refreshing of a stale response, so only one request will execute the handler, while the others are
+	 * served the stale response. The claim expires after the specified timeout, e.g. if the response wasn't cacheable.
+	 */
+	public boolean claimRefresh(long timeout) {
+		long now = U.time();
+		long since = refreshingSince.get();
+
+		return (since == 0 || now - since > timeout) && refreshingSince.compareAndSet(since, now);
+	}
+
+	/**
+	 * The custom headers, serialized once for all responses served from the cache.
+	 */
+	public byte[] headerBytes() {
+		byte[] bytes = headerBytes;
+
+		if (bytes == null) {
+			StringBuilder sb = new StringBuilder();
+
+			if (headers != null) {
+				for (Map.Entry<String, String> e : headers.entrySet()) {
+					sb.append(e.getKey()).append(": ").append(e.getValue()).append("\r\n");
+				}
+			}
+
+			bytes = sb.toString().getBytes();
+			headerBytes = bytes;
+		}
+
+		return bytes;
+	}
 }
@@ -22,11 +22,14 @@ package org.rapidoid.http.impl;
 
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.io.IO;
+import org.rapidoid.u.U;
 import org.rapidoid.util.Once;
 import org.rapidoid.writable.ReusableWritable;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
 
 
 @Authors("Nikolche Mihajlovski")
@@ -37,27 +40,40 @@ public class ChunkedResponse extends OutputStream {
 
 	private final ReusableWritable chunk = new ReusableWritable();
 
+	// compresses the data into the chunk buffer, if the response is compressed
+	private final DeflaterOutputStream compressor;
+
 	private volatile Once startChunkedResp = new Once();
 
 	private volatile boolean closed;
 
-	ChunkedResponse(RespImpl resp) {
+	ChunkedResponse(RespImpl resp, String encoding) {
 		this.resp = resp;
+
+		try {
+			this.compressor = encoding != null ? HttpCompression.compressor(chunk, encoding) : null;
+		} catch (IOException e) {
+			throw U.rte(e);
+		}
+	}
+
+	private OutputStream target() {
+		return compressor != null ? compressor : chunk;
 	}
 
 	@Override
 	public synchronized void write(int b) throws IOException {
-		chunk.write(b);
+		target().write(b);
 	}
 
 	@Override
 	public synchronized void write(byte[] b) throws IOException {
-		chunk.write(b);
+		target().write(b);
 	}
 
 	@Override
 	public synchronized void write(byte[] b, int off, int len) throws IOException {
-		chunk.write(b, off, len);
+		target().write(b, off, len);
 	}
 
 	@Override
@@ -65,6 +81,9 @@ public class ChunkedResponse extends OutputStream {
 		// lazy init
 		if (startChunkedResp.go()) resp.startChunkedOutputStream();
 
+		// the sync flush emits all the compressed data written so far
+		if (compressor != null) compressor.flush();
+
 		// the chunk must not be empty (empty chunk terminates the HTTP response)
 		if (chunk.size() > 0) {
 			resp.chunk(chunk.array(), 0, chunk.size());
@@ -74,11 +93,34 @@ public class ChunkedResponse extends OutputStream {
 
 	@Override
 	public synchronized void close() throws IOException {
+		// writes the remaining compressed data and releases the compressor
+		if (compressor != null) compressor.close();
+
 		flush();
 		resp.terminatingChunk();
 		closed = true;
 	}
 
+	/**
+	 * Aborts the response after an error. If some data was already sent, the connection is closed without the
+	 * terminating chunk, so the client can't take the partial response as complete.
+	 *
+	 * @return <code>false</code> if nothing was sent yet, so a different response (e.g. an error) can be rendered
+	 */
+	public synchronized boolean abort() {
+		if (closed) return true;
+		closed = true;
+
+		// releases the compressor, the remaining data is dropped
+		if (compressor != null) IO.close(compressor, true);
+		chunk.reset();
+
+		if (!startChunkedResp.isDone()) return false;
+
+		resp.closeAfterChunks();
+		return true;
+	}
+
 	public synchronized boolean isClosed() {
 		return closed;
 	}
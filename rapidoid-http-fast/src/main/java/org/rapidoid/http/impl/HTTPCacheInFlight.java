@@ -0,0 +1,111 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http.impl;
+
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.u.U;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps track of the cacheable requests that are being handled, so the concurrent cache misses for the same key can
+ * wait for the response of the first request, instead of executing the handler again.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class HTTPCacheInFlight extends RapidoidThing {
+
+	private final Map<HTTPCacheKey, Flight> flights = U.map();
+
+	/**
+	 * Joins the request to the flight for the key, or starts a new flight led by the request, if there are no other
+	 * requests in flight for the key (then the request should be handled).
+	 */
+	public synchronized Flight join(HTTPCacheKey key, ReqImpl req) {
+		Flight flight = flights.get(key);
+
+		if (flight == null) {
+			flight = new Flight(key, req);
+			flights.put(key, flight);
+		} else {
+			flight.waiters.add(req);
+		}
+
+		return flight;
+	}
+
+	/**
+	 * Finishes the flight, if it wasn't already finished (e.g. by the waiting timeout), so a newer flight for the same
+	 * key isn't affected.
+	 *
+	 * @return the requests that were waiting for the response
+	 */
+	public synchronized List<ReqImpl> complete(Flight flight) {
+		if (flights.get(flight.key) == flight) {
+			flights.remove(flight.key);
+			return flight.waiters;
+		}
+
+		return Collections.emptyList();
+	}
+
+	public synchronized int size() {
+		return flights.size();
+	}
+
+	public static class Flight extends RapidoidThing {
+
+		private final HTTPCacheKey key;
+
+		private final ReqImpl leader;
+
+		private final List<ReqImpl> waiters = U.list();
+
+		private final AtomicBoolean timerScheduled = new AtomicBoolean();
+
+		private Flight(HTTPCacheKey key, ReqImpl leader) {
+			this.key = key;
+			this.leader = leader;
+		}
+
+		public HTTPCacheKey key() {
+			return key;
+		}
+
+		public ReqImpl leader() {
+			return leader;
+		}
+
+		/**
+		 * @return <code>true</code> only for the first caller, which should schedule the waiting timeout
+		 */
+		public boolean claimTimer() {
+			return timerScheduled.compareAndSet(false, true);
+		}
+	}
+
+}
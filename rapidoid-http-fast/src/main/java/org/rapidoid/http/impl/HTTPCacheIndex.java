@@ -0,0 +1,198 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.http.impl;
+
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.bytes.Bytes;
+import org.rapidoid.data.BufRange;
+import org.rapidoid.data.KeyValueRanges;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Finds the cache key of a request directly from the raw bytes of its Host header, URI and the headers the response
+ * varies by, before the request is parsed. It's a direct-mapped table, so a new entry simply replaces the colliding one.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class HTTPCacheIndex extends RapidoidThing {
+
+	private static final int MAX_CAPACITY = 1 << 16;
+
+	private static final byte[] NONE = {};
+
+	private final AtomicReferenceArray<Entry> entries;
+
+	private final int mask;
+
+	private final byte[][] vary;
+
+	public HTTPCacheIndex(int capacity, String... vary) {
+		int size = Integer.highestOneBit(Math.min(Math.max(capacity, 16), MAX_CAPACITY) - 1) << 1;
+
+		this.entries = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+
+		this.vary = new byte[vary.length][];
+
+		for (int i = 0; i < vary.length; i++) {
+			this.vary[i] = vary[i].getBytes();
+		}
+	}
+
+	public HTTPCacheKey find(Buf buf, BufRange host, BufRange uri) {
+		return find(buf, host, uri, null);
+	}
+
+	public HTTPCacheKey find(Buf buf, BufRange host, BufRange uri, KeyValueRanges headers) {
+		Bytes bytes = buf.bytes();
+		int hash = hash(buf, host, uri, headers);
+		Entry entry = entries.get(hash & mask);
+
+		if (entry != null && entry.hash == hash && matches(bytes, host, entry.host) && matches(bytes, uri, entry.uri)
+			&& matchesVary(buf, headers, entry.vary)) {
+			return entry.key;
+		}
+
+		return null;
+	}
+
+	public void add(Buf buf, BufRange host, BufRange uri, HTTPCacheKey key) {
+		add(buf, host, uri, null, key);
+	}
+
+	public void add(Buf buf, BufRange host, BufRange uri, KeyValueRanges headers, HTTPCacheKey key) {
+		int hash = hash(buf, host, uri, headers);
+
+		byte[][] varyValues = new byte[vary.length][];
+
+		for (int i = 0; i < vary.length; i++) {
+			BufRange value = varyValue(buf, headers, i);
+			varyValues[i] = value != null ? value.bytes(buf) : NONE;
+		}
+
+		entries.set(hash & mask, new Entry(hash, host.bytes(buf), uri.bytes(buf), varyValues, key));
+	}
+
+	/**
+	 * The values of the headers the response varies by, in the same format as {@link HTTPCacheKey#vary()}.
+	 */
+	public String vary(Buf buf, KeyValueRanges headers) {
+		if (vary.length == 0) return null;
+
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < vary.length; i++) {
+			BufRange value = varyValue(buf, headers, i);
+			sb.append(value != null ? value.str(buf) : "").append('\n');
+		}
+
+		return sb.toString();
+	}
+
+	public int capacity() {
+		return entries.length();
+	}
+
+	private BufRange varyValue(Buf buf, KeyValueRanges headers, int index) {
+		return headers != null ? headers.get(buf, vary[index], false) : null;
+	}
+
+	private int hash(Buf buf, BufRange host, BufRange uri, KeyValueRanges headers) {
+		Bytes bytes = buf.bytes();
+		int hash = 1;
+
+		for (int i = host.start; i < host.limit(); i++) {
+			hash = 31 * hash + bytes.get(i);
+		}
+
+		hash = 31 * hash + ' ';
+
+		for (int i = uri.start; i < uri.limit(); i++) {
+			hash = 31 * hash + bytes.get(i);
+		}
+
+		if (headers != null) {
+			for (byte[] name : vary) {
+				BufRange value = headers.get(buf, name, false);
+				hash = 31 * hash + '\n';
+
+				if (value != null) {
+					for (int i = value.start; i < value.limit(); i++) {
+						hash = 31 * hash + bytes.get(i);
+					}
+				}
+			}
+		}
+
+		// spread the higher bits, as the table size is a power of 2
+		return hash ^ (hash >>> 16);
+	}
+
+	private boolean matchesVary(Buf buf, KeyValueRanges headers, byte[][] values) {
+		for (int i = 0; i < values.length; i++) {
+			BufRange value = varyValue(buf, headers, i);
+
+			if (value != null) {
+				if (!matches(buf.bytes(), value, values[i])) return false;
+			} else {
+				if (values[i].length > 0) return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean matches(Bytes bytes, BufRange range, byte[] expected) {
+		if (range.length != expected.length) return false;
+
+		for (int i = 0; i < expected.length; i++) {
+			if (bytes.get(range.start + i) != expected[i]) return false;
+		}
+
+		return true;
+	}
+
+	private static class Entry {
+
+		final int hash;
+
+		final byte[] host;
+
+		final byte[] uri;
+
+		final byte[][] vary;
+
+		final HTTPCacheKey key;
+
+		Entry(int hash, byte[] host, byte[] uri, byte[][] vary, HTTPCacheKey key) {
+			this.hash = hash;
+			this.host = host;
+			this.uri = uri;
+			this.vary = vary;
+			this.key = key;
+		}
+	}
+
+}
@@ -33,9 +33,28 @@ public class HTTPCacheKey extends RapidoidThing {
 
 	private final String uri;
 
+	private final String vary;
+
 	public HTTPCacheKey(String host, String uri) {
+		this(host, uri, null);
+	}
+
+	public HTTPCacheKey(String host, String uri, String vary) {
 		this.host = host;
 		this.uri = uri;
+		this.vary = vary;
+	}
+
+	public String host() {
+		return host;
+	}
+
+	public String uri() {
+		return uri;
+	}
+
+	public String vary() {
+		return vary;
 	}
 
 	@Override
@@ -43,6 +62,7 @@ public class HTTPCacheKey extends RapidoidThing {
 		return "HTTPCacheKey{" +
 			"host='" + host + '\'' +
 			", uri='" + uri + '\'' +
+			", vary='" + vary + '\'' +
 			'}';
 	}
 
@@ -54,13 +74,15 @@ public class HTTPCacheKey extends RapidoidThing {
 		HTTPCacheKey that = (HTTPCacheKey) o;
 
 		if (host != null ? !host.equals(that.host) : that.host != null) return false;
-		return uri != null ? uri.equals(that.uri) : that.uri == null;
+		if (uri != null ? !uri.equals(that.uri) : that.uri != null) return false;
+		return vary != null ? vary.equals(that.vary) : that.vary == null;
 	}
 
 	@Override
 	public int hashCode() {
 		int result = host != null ? host.hashCode() : 0;
 		result = 31 * result + (uri != null ? uri.hashCode() : 0);
+		result = 31 * result + (vary != null ? vary.hashCode() : 0);
 		return result;
 	}
 
@@ -0,0 +1,304 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http.impl;
+
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
+import org.rapidoid.group.AutoManageable;
+import org.rapidoid.group.ManageableBean;
+import org.rapidoid.u.U;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Off-heap memory for the bodies of the cached HTTP responses of all routes, with a global limit in bytes.
+ * <p>
+ * The bodies are appended to large direct buffers (slabs). When the limit is reached, the oldest slab is dropped,
+ * evicting all the responses that were stored in it, so the eviction is based on the size, not on the number of the
+ * cached responses. The memory of a dropped slab is reclaimed after the last response still being written from it.
+ * <p>
+ * The memory is split into stripes with separate locks, and each thread allocates from its own stripe, so the
+ * concurrent allocations don't contend on a single lock. The oldest slab is dropped per stripe.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+@ManageableBean(kind = "http-cache-memory")
+public class HTTPCacheSlabs extends AutoManageable<HTTPCacheSlabs> {
+
+	public static final HTTPCacheSlabs INSTANCE;
+
+	// each stripe should have room for a few slabs, so dropping one doesn't evict a big part of the stripe
+	private static final int MIN_SLABS_PER_STRIPE = 4;
+
+	static {
+		Config cfg = Conf.HTTP.sub("cache");
+
+		long maxMemory = cfg.entry("maxMemoryMB").or(256) * 1024L * 1024L;
+		int slabSize = cfg.entry("slabSizeKB").or(1024) * 1024;
+
+		INSTANCE = new HTTPCacheSlabs("http-cache", maxMemory, slabSize);
+	}
+
+	private final long maxBytes;
+
+	private final int slabSize;
+
+	private final Stripe[] stripes;
+
+	private final int stripeMask;
+
+	public HTTPCacheSlabs(String id, long maxBytes, int slabSize) {
+		this(id, maxBytes, slabSize, defaultStripes(maxBytes, slabSize));
+	}
+
+	/**
+	 * @param stripes the number of stripes, must be a power of 2
+	 */
+	public HTTPCacheSlabs(String id, long maxBytes, int slabSize, int stripes) {
+		super(id);
+
+		U.must(slabSize > 0, "The slab size must be positive!");
+		U.must(stripes > 0 && Integer.bitCount(stripes) == 1, "The number of stripes must be a power of 2!");
+
+		this.maxBytes = maxBytes;
+		this.slabSize = slabSize;
+		this.stripes = new Stripe[stripes];
+		this.stripeMask = stripes - 1;
+
+		for (int i = 0; i < stripes; i++) {
+			this.stripes[i] = new Stripe(maxBytes / stripes);
+		}
+	}
+
+	private static int defaultStripes(long maxBytes, int slabSize) {
+		long maxStripes = Math.min(Runtime.getRuntime().availableProcessors(), maxBytes / ((long) slabSize * MIN_SLABS_PER_STRIPE));
+		return maxStripes > 1 ? Integer.highestOneBit((int) maxStripes) : 1;
+	}
+
+	/**
+	 * Allocates memory for the body of the specified response, and assigns the allocated buffer to it.
+	 *
+	 * @return the buffer, or <code>null</code> if the body is too big to be cached
+	 */
+	public ByteBuffer allocate(CachedResp resp, int size) {
+		Stripe stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+		return stripe.allocate(resp, size);
+	}
+
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			stripe.clear();
+		}
+	}
+
+	@Override
+	public List<String> getManageableProperties() {
+		return U.list("maxBytes", "stripes", "allocatedBytes", "storedBytes", "slabs", "evictions", "evictedBytes", "rejections");
+	}
+
+	public long maxBytes() {
+		return maxBytes;
+	}
+
+	public int stripes() {
+		return stripes.length;
+	}
+
+	public long allocatedBytes() {
+		long total = 0;
+
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				total += stripe.allocatedBytes;
+			}
+		}
+
+		return total;
+	}
+
+	public long storedBytes() {
+		long total = 0;
+
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				total += stripe.storedBytes;
+			}
+		}
+
+		return total;
+	}
+
+	public int slabs() {
+		int total = 0;
+
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				total += stripe.slabs.size();
+			}
+		}
+
+		return total;
+	}
+
+	public long evictions() {
+		long total = 0;
+
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				total += stripe.evictions;
+			}
+		}
+
+		return total;
+	}
+
+	public long evictedBytes() {
+		long total = 0;
+
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				total += stripe.evictedBytes;
+			}
+		}
+
+		return total;
+	}
+
+	public long rejections() {
+		long total = 0;
+
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				total += stripe.rejections;
+			}
+		}
+
+		return total;
+	}
+
+	private class Stripe {
+
+		final long maxBytes;
+
+		final Deque<Slab> slabs = new ArrayDeque<>();
+
+		long allocatedBytes;
+
+		long storedBytes;
+
+		long evictions;
+
+		long evictedBytes;
+
+		long rejections;
+
+		Stripe(long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		synchronized ByteBuffer allocate(CachedResp resp, int size) {
+			Slab slab = slabs.peekLast();
+
+			if (slab == null || slab.remaining() < size) {
+				int capacity = Math.max(slabSize, size);
+
+				if (capacity > maxBytes) {
+					rejections++;
+					return null;
+				}
+
+				while (allocatedBytes + capacity > maxBytes) {
+					drop(slabs.pollFirst());
+				}
+
+				slab = new Slab(capacity);
+				slabs.addLast(slab);
+				allocatedBytes += capacity;
+			}
+
+			ByteBuffer buf = slab.allocate(resp, size);
+			storedBytes += size;
+
+			resp.body(buf);
+			return buf;
+		}
+
+		private void drop(Slab slab) {
+			allocatedBytes -= slab.capacity();
+
+			for (CachedResp resp : slab.responses) {
+				ByteBuffer body = resp.body();
+
+				if (body != null) {
+					storedBytes -= body.capacity();
+					evictedBytes += body.capacity();
+					evictions++;
+
+					resp.evict();
+				}
+			}
+		}
+
+		synchronized void clear() {
+			while (!slabs.isEmpty()) {
+				drop(slabs.pollFirst());
+			}
+		}
+	}
+
+	private static class Slab {
+
+		final ByteBuffer buffer;
+
+		final List<CachedResp> responses = U.list();
+
+		Slab(int capacity) {
+			this.buffer = ByteBuffer.allocateDirect(capacity);
+		}
+
+		int capacity() {
+			return buffer.capacity();
+		}
+
+		int remaining() {
+			return buffer.remaining();
+		}
+
+		ByteBuffer allocate(CachedResp resp, int size) {
+			int pos = buffer.position();
+
+			ByteBuffer dup = buffer.duplicate();
+			dup.limit(pos + size);
+
+			buffer.position(pos + size);
+			responses.add(resp);
+
+			return dup.slice();
+		}
+	}
+
+}
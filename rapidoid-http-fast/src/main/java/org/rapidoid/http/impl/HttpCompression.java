@@ -0,0 +1,291 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.cache.Cache;
+import org.rapidoid.cache.Caching;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
+import org.rapidoid.http.MediaType;
+import org.rapidoid.http.Req;
+import org.rapidoid.http.RespBody;
+import org.rapidoid.io.Res;
+import org.rapidoid.u.U;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Negotiates and applies the compression (gzip or deflate) of the HTTP responses.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class HttpCompression extends RapidoidThing {
+
+	public static final String GZIP = "gzip";
+
+	public static final String DEFLATE = "deflate";
+
+	public static final byte[] CONTENT_ENCODING = "Content-Encoding".getBytes();
+
+	public static final byte[] VARY = "Vary".getBytes();
+
+	public static final byte[] ACCEPT_ENCODING = "Accept-Encoding".getBytes();
+
+	private static final String LISTENER_NAME = "http-compression";
+
+	private static final int MAX_CACHED_RESOURCES = 1000;
+
+	private static final boolean ENABLED;
+
+	private static final int MIN_SIZE;
+
+	private static final int LEVEL;
+
+	private static final String[] TYPES;
+
+	// the precompressed variants of the static resources
+	private static final Cache<Res, CompressedRes> PRECOMPRESSED = Caching.of(Res.class, CompressedRes.class)
+		.capacity(MAX_CACHED_RESOURCES)
+		.build();
+
+	static {
+		Config cfg = Conf.HTTP.sub("compression");
+
+		ENABLED = cfg.entry("enabled").bool().or(false);
+		MIN_SIZE = cfg.entry("minSize").or(1024);
+		LEVEL = cfg.entry("level").or(Deflater.DEFAULT_COMPRESSION);
+
+		List<String> types = cfg.entry("types").list();
+		TYPES = new String[types.size()];
+
+		for (int i = 0; i < TYPES.length; i++) {
+			TYPES[i] = types.get(i).trim().toLowerCase();
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the responses of the specified media type and size are candidates for compression,
+	 * so the representation depends on the "Accept-Encoding" request header.
+	 */
+	public static boolean isCompressible(MediaType contentType, long length) {
+		return ENABLED && contentType != null && (length < 0 || length >= MIN_SIZE) && isWhitelisted(contentType);
+	}
+
+	/**
+	 * Returns the encoding that should be applied to the response, or <code>null</code> if it shouldn't be compressed.
+	 * The length can be -1 if it is unknown (e.g. for chunked responses).
+	 */
+	public static String encodingFor(Req req, MediaType contentType, long length) {
+		if (!isCompressible(contentType, length)) return null;
+
+		return negotiate(req.header("Accept-Encoding", null));
+	}
+
+	/**
+	 * The explicitly specified codings take precedence over the wildcard, e.g. "gzip;q=0, *" rejects gzip.
+	 */
+	public static String negotiate(String acceptEncoding) {
+		if (U.isEmpty(acceptEncoding)) return null;
+
+		Boolean gzip = null;
+		Boolean deflate = null;
+		Boolean any = null;
+
+		for (String part : acceptEncoding.split(",")) {
+			String[] params = part.split(";");
+			String coding = params[0].trim().toLowerCase();
+
+			boolean accepted = !isRejected(params);
+
+			if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+				gzip = accepted || Boolean.TRUE.equals(gzip);
+
+			} else if (coding.equals(DEFLATE)) {
+				deflate = accepted || Boolean.TRUE.equals(deflate);
+
+			} else if (coding.equals("*")) {
+				any = accepted || Boolean.TRUE.equals(any);
+			}
+		}
+
+		if (gzip != null ? gzip : Boolean.TRUE.equals(any)) return GZIP;
+		if (deflate != null ? deflate : Boolean.TRUE.equals(any)) return DEFLATE;
+
+		return null;
+	}
+
+	private static boolean isRejected(String[] params) {
+		for (int i = 1; i < params.length; i++) {
+			String param = params[i].trim();
+
+			if (param.startsWith("q=")) {
+				try {
+					return Double.parseDouble(param.substring(2)) <= 0;
+				} catch (NumberFormatException e) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean isWhitelisted(MediaType contentType) {
+		String type = new String(contentType.getBytes());
+
+		int semicolon = type.indexOf(';');
+		if (semicolon >= 0) type = type.substring(0, semicolon);
+
+		type = type.trim().toLowerCase();
+
+		for (String allowed : TYPES) {
+			if (allowed.endsWith("/*")) {
+				if (type.startsWith(allowed.substring(0, allowed.length() - 1))) return true;
+
+			} else if (allowed.equals(type)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	public static byte[] compress(byte[] data, int offset, int length, String encoding) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(length / 4, 64));
+
+		try (DeflaterOutputStream compressor = compressor(out, encoding)) {
+			compressor.write(data, offset, length);
+
+		} catch (IOException e) {
+			throw U.rte(e);
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Compresses the response body, if its content is accessible, otherwise returns <code>null</code>.
+	 */
+	public static RespBody compress(RespBody body, String encoding) {
+		if (body instanceof RespBodyBytes) {
+			byte[] bytes = ((RespBodyBytes) body).bytes;
+			return new RespBodyBytes(compress(bytes, 0, bytes.length, encoding));
+
+		} else if (body instanceof RespBodyBuffer) {
+			ByteBuffer buf = ((RespBodyBuffer) body).buffer.duplicate();
+			byte[] bytes = new byte[buf.remaining()];
+			buf.get(bytes);
+			return new RespBodyBytes(compress(bytes, 0, bytes.length, encoding));
+
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Creates a compressing stream which flushes all the compressed data on flush, so it can be used for streaming.
+	 */
+	public static DeflaterOutputStream compressor(OutputStream out, String encoding) throws IOException {
+		if (GZIP.equals(encoding)) {
+			return new GZIPOutputStream(out, 512, true) {{
+				def.setLevel(LEVEL);
+			}};
+
+		} else {
+			U.must(DEFLATE.equals(encoding), "Unsupported encoding: %s", encoding);
+			return new DeflaterOutputStream(out, new Deflater(LEVEL), 512, true) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						def.end(); // the custom deflater is not released by the stream
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Returns the compressed content of the static resource, compressing it only once per version of the content.
+	 */
+	public static byte[] precompressed(final Res res, byte[] content, String encoding) {
+		CompressedRes compressed = PRECOMPRESSED.getIfExists(res);
+
+		if (compressed == null || compressed.content != content) {
+			compressed = new CompressedRes(content);
+
+			// the least valuable entries are evicted one by one when the capacity is reached
+			PRECOMPRESSED.set(res, compressed);
+
+			res.onChange(LISTENER_NAME, new Runnable() {
+				@Override
+				public void run() {
+					PRECOMPRESSED.invalidate(res);
+				}
+			});
+		}
+
+		return compressed.variant(encoding);
+	}
+
+	/**
+	 * The entity tag of the compressed representation, derived from the entity tag of the original content.
+	 */
+	public static String etag(String etag, String encoding) {
+		return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+	}
+
+	private static class CompressedRes {
+
+		private final byte[] content;
+
+		private volatile byte[] gzip;
+
+		private volatile byte[] deflate;
+
+		CompressedRes(byte[] content) {
+			this.content = content;
+		}
+
+		byte[] variant(String encoding) {
+			if (GZIP.equals(encoding)) {
+				if (gzip == null) gzip = compress(content, 0, content.length, GZIP);
+				return gzip;
+
+			} else {
+				if (deflate == null) deflate = compress(content, 0, content.length, DEFLATE);
+				return deflate;
+			}
+		}
+	}
+
+}
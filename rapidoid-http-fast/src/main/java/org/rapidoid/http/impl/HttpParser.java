@@ -93,7 +93,17 @@ public class HttpParser extends RapidoidThing {
 	private static final byte[] GET = "GET".getBytes();
 
 	public void parse(Buf buf, RapidoidHelper helper) {
+		parse(buf, helper, Integer.MAX_VALUE);
+	}
 
+	/**
+	 * Parses the HTTP request, but doesn't wait for the bodies bigger than <code>maxBodySize</code> in the input buffer.
+	 *
+	 * @return the length of the body that should be received separately (e.g. spooled to a file), or 0
+	 */
+	public long parse(Buf buf, RapidoidHelper helper, long maxBodySize) {
+
+		int start = buf.position();
 		Bytes bytes = buf.bytes();
 
 		BufRange protocol = helper.protocol;
@@ -109,8 +119,10 @@ public class HttpParser extends RapidoidThing {
 
 		helper.isGet.value = BytesUtil.matches(bytes, helper.verb, GET, true);
 		if (!helper.isGet.value) {
-			parseBody(buf, helper);
+			return parseBody(buf, helper, buf.position() - start, maxBodySize);
 		}
+
+		return 0;
 	}
 
 	private boolean detectKeepAlive(Buf buf, RapidoidHelper helper, Bytes bytes, BufRange protocol, BufRanges headers) {
@@ -155,7 +167,7 @@ public class HttpParser extends RapidoidThing {
 		return BytesUtil.matches(bytes, connVal, KEEP_ALIVE, false);
 	}
 
-	private void parseBody(Buf buf, RapidoidHelper helper) {
+	private long parseBody(Buf buf, RapidoidHelper helper, int headLength, long maxBodySize) {
 		BufRanges headers = helper.headers;
 		BufRange body = helper.body;
 
@@ -167,11 +179,46 @@ public class HttpParser extends RapidoidThing {
 			BytesUtil.trim(buf.bytes(), clenValue);
 			long len = buf.getN(clenValue);
 			U.must(len >= 0 && len <= Integer.MAX_VALUE, "Invalid body size!");
+
+			// the body will make room for the head when received, so it can be parsed again
+			if (len > maxBodySize && len > headLength) {
+				body.reset();
+				return len;
+			}
+
 			buf.scanN((int) len, body);
 			Log.debug("Request body complete", "range", body);
 		} else {
 			body.reset();
 		}
+
+		return 0;
+	}
+
+	/**
+	 * @return the multipart boundary (with the "--" prefix) from the Content-Type header, an empty array if it should
+	 * be detected from the body, or <code>null</code> if the body isn't multipart
+	 */
+	public byte[] getMultipartBoundary(Buf buf, RapidoidHelper helper) {
+		KeyValueRanges headersKV = helper.headersKV.reset();
+		parseHeadersIntoKV(buf, helper.headers, headersKV, null, helper);
+
+		BufRange multipartBoundary = helper.ranges5.ranges[0];
+
+		if (getContentType(buf, headersKV, multipartBoundary) != HttpContentType.MULTIPART) {
+			return null;
+		}
+
+		if (multipartBoundary.isEmpty()) {
+			return new byte[0];
+		}
+
+		byte[] boundary = new byte[multipartBoundary.length + 2];
+		boundary[0] = '-';
+		boundary[1] = '-';
+		buf.get(multipartBoundary, boundary, 2);
+
+		return boundary;
 	}
 
 	public void parseParams(Buf buf, KeyValueRanges params, BufRange range) {
@@ -302,6 +349,28 @@ public class HttpParser extends RapidoidThing {
 		}
 	}
 
+	/**
+	 * @return <code>false</code> if the data wasn't parsed.
+	 */
+	public boolean parseSpooledBody(Buf src, KeyValueRanges headers, SpooledBody body, Map<String, Object> posted,
+	                                Map<String, List<Upload>> files, RapidoidHelper helper) {
+
+		BufRange multipartBoundary = helper.ranges5.ranges[0];
+
+		switch (getContentType(src, headers, multipartBoundary)) {
+
+			case MULTIPART:
+				body.parseMultiParts(posted, files);
+				return true;
+
+			case FORM_URLENCODED:
+				return body.parseURLEncoded(posted);
+
+			default:
+				return false;
+		}
+	}
+
 	private void detectMultipartBoundary(Buf src, BufRange body, BufRange multipartBoundary) {
 		BytesUtil.parseLine(src.bytes(), multipartBoundary, body.start, body.limit());
 		multipartBoundary.strip(2, 0);
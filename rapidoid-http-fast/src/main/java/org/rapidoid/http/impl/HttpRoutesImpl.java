@@ -77,15 +77,15 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 	final BufMap<HttpHandler> traceHandlers = new BufMapImpl<>();
 	final BufMap<HttpHandler> anyHandlers = new BufMapImpl<>();
 
-	final Map<PathPattern, HttpHandler> patternGetHandlers = new TreeMap<>();
-	final Map<PathPattern, HttpHandler> patternPostHandlers = new TreeMap<>();
-	final Map<PathPattern, HttpHandler> patternPutHandlers = new TreeMap<>();
-	final Map<PathPattern, HttpHandler> patternDeleteHandlers = new TreeMap<>();
-	final Map<PathPattern, HttpHandler> patternPatchHandlers = new TreeMap<>();
-	final Map<PathPattern, HttpHandler> patternOptionsHandlers = new TreeMap<>();
-	final Map<PathPattern, HttpHandler> patternHeadHandlers = new TreeMap<>();
-	final Map<PathPattern, HttpHandler> patternTraceHandlers = new TreeMap<>();
-	final Map<PathPattern, HttpHandler> patternAnyHandlers = new TreeMap<>();
+	final PathRouter patternGetHandlers = new PathRouter();
+	final PathRouter patternPostHandlers = new PathRouter();
+	final PathRouter patternPutHandlers = new PathRouter();
+	final PathRouter patternDeleteHandlers = new PathRouter();
+	final PathRouter patternPatchHandlers = new PathRouter();
+	final PathRouter patternOptionsHandlers = new PathRouter();
+	final PathRouter patternHeadHandlers = new PathRouter();
+	final PathRouter patternTraceHandlers = new PathRouter();
+	final PathRouter patternAnyHandlers = new PathRouter();
 
 	private final long id;
 	private final String setupName;
@@ -349,7 +349,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 				HandlerMatch handler = getHandlers.get(buf, path);
 
 				if (handler == null) handler = anyHandlers.get(buf, path);
-				if (handler == null) handler = matchByPattern(patternGetHandlers, buf.get(path));
+				if (handler == null) handler = matchByPattern(patternGetHandlers, buf, path);
 
 				return handler;
 			}
@@ -359,7 +359,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = postHandlers.get(buf, path);
 
 			if (handler == null) handler = anyHandlers.get(buf, path);
-			if (handler == null) handler = matchByPattern(patternPostHandlers, buf.get(path));
+			if (handler == null) handler = matchByPattern(patternPostHandlers, buf, path);
 
 			return handler;
 
@@ -368,7 +368,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = putHandlers.get(buf, path);
 
 			if (handler == null) handler = anyHandlers.get(buf, path);
-			if (handler == null) handler = matchByPattern(patternPutHandlers, buf.get(path));
+			if (handler == null) handler = matchByPattern(patternPutHandlers, buf, path);
 
 			return handler;
 
@@ -377,7 +377,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = deleteHandlers.get(buf, path);
 
 			if (handler == null) handler = anyHandlers.get(buf, path);
-			if (handler == null) handler = matchByPattern(patternDeleteHandlers, buf.get(path));
+			if (handler == null) handler = matchByPattern(patternDeleteHandlers, buf, path);
 
 			return handler;
 
@@ -386,7 +386,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = patchHandlers.get(buf, path);
 
 			if (handler == null) handler = anyHandlers.get(buf, path);
-			if (handler == null) handler = matchByPattern(patternPatchHandlers, buf.get(path));
+			if (handler == null) handler = matchByPattern(patternPatchHandlers, buf, path);
 
 			return handler;
 
@@ -395,7 +395,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = optionsHandlers.get(buf, path);
 
 			if (handler == null) handler = anyHandlers.get(buf, path);
-			if (handler == null) handler = matchByPattern(patternOptionsHandlers, buf.get(path));
+			if (handler == null) handler = matchByPattern(patternOptionsHandlers, buf, path);
 
 			return handler;
 
@@ -404,7 +404,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = headHandlers.get(buf, path);
 
 			if (handler == null) handler = anyHandlers.get(buf, path);
-			if (handler == null) handler = matchByPattern(patternHeadHandlers, buf.get(path));
+			if (handler == null) handler = matchByPattern(patternHeadHandlers, buf, path);
 
 			return handler;
 
@@ -413,7 +413,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = traceHandlers.get(buf, path);
 
 			if (handler == null) handler = anyHandlers.get(buf, path);
-			if (handler == null) handler = matchByPattern(patternTraceHandlers, buf.get(path));
+			if (handler == null) handler = matchByPattern(patternTraceHandlers, buf, path);
 
 			return handler;
 		}
@@ -421,23 +421,12 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 		return null; // no handler
 	}
 
-	private HandlerMatch matchByPattern(Map<PathPattern, HttpHandler> handlers, String path) {
-		for (Map.Entry<PathPattern, HttpHandler> e : handlers.entrySet()) {
+	private HandlerMatch matchByPattern(PathRouter router, Buf buf, BufRange path) {
+		HandlerMatch match = router.match(buf, path);
 
-			PathPattern pattern = e.getKey();
-			Map<String, String> params = pattern.match(path);
+		if (match == null && router != patternAnyHandlers) match = patternAnyHandlers.match(buf, path);
 
-			if (params != null) {
-				HttpHandler handler = e.getValue();
-				Route route = handler.getRoute();
-
-				return new HandlerMatchWithParams(handler, params, route);
-			}
-		}
-
-		if (handlers != patternAnyHandlers) return matchByPattern(patternAnyHandlers, path);
-
-		return null;
+		return match;
 	}
 
 	@Override
@@ -0,0 +1,351 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.bytes.Bytes;
+import org.rapidoid.bytes.BytesUtil;
+import org.rapidoid.data.BufRange;
+import org.rapidoid.http.handler.HttpHandler;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches the request path against the registered path patterns, using a segment-based tree compiled from the
+ * patterns that consist of literal segments, {var} segments and an optional /* suffix. The matching is done directly
+ * on the request bytes, without regex and without allocation (except for the extracted parameters).
+ * <p>
+ * The remaining patterns (e.g. {var:regex} segments) are matched with the regex of {@link PathPattern}, respecting
+ * the order of the patterns, so the result is the same as matching the patterns one by one.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class PathRouter extends RapidoidThing {
+
+	private static final byte SLASH = '/';
+
+	private static final Pattern SIMPLE_PARAM = Pattern.compile("\\{(\\w+)\\}");
+
+	private static final Pattern REGEX_CHARS = Pattern.compile("[\\\\.\\[\\]{}()*+?^$|]");
+
+	private static final Compiled EMPTY = new Compiled(null, new RegexRoute[0]);
+
+	private final Map<PathPattern, HttpHandler> patterns = new TreeMap<>();
+
+	private volatile Compiled compiled = EMPTY;
+
+	public synchronized void put(PathPattern pattern, HttpHandler handler) {
+		patterns.put(pattern, handler);
+		compile();
+	}
+
+	public synchronized void remove(PathPattern pattern) {
+		patterns.remove(pattern);
+		compile();
+	}
+
+	public synchronized void clear() {
+		patterns.clear();
+		compile();
+	}
+
+	public boolean isEmpty() {
+		return compiled == EMPTY;
+	}
+
+	public HandlerMatch match(Buf buf, BufRange path) {
+		Compiled c = compiled;
+
+		if (c == EMPTY) return null;
+
+		Bytes bytes = buf.bytes();
+		TreeRoute best = null;
+
+		if (c.root != null && path.length > 0 && bytes.get(path.start) == SLASH) {
+			best = find(c.root, bytes, path.start, path.limit(), null);
+		}
+
+		int bestRank = best != null ? best.rank : Integer.MAX_VALUE;
+		String pathStr = null;
+
+		for (RegexRoute route : c.regexRoutes) {
+			if (route.rank >= bestRank) break;
+
+			if (pathStr == null) pathStr = path.str(bytes);
+
+			Map<String, String> params = route.pattern.match(pathStr);
+
+			if (params != null) {
+				return new HandlerMatchWithParams(route.handler, params, route.handler.getRoute());
+			}
+		}
+
+		return best != null ? best.toMatch(bytes, path) : null;
+	}
+
+	private static TreeRoute find(Node node, Bytes bytes, int pos, int limit, TreeRoute best) {
+		if (best != null && node.minRank >= best.rank) return best;
+
+		if (pos == limit && node.endRoute != null && isBetter(node.endRoute, best)) {
+			best = node.endRoute;
+		}
+
+		if (node.catchAllRoute != null && isBetter(node.catchAllRoute, best)) {
+			best = node.catchAllRoute;
+		}
+
+		if (pos < limit) {
+			int segStart = pos + 1;
+			int segEnd = segmentEnd(bytes, segStart, limit);
+			int segLen = segEnd - segStart;
+
+			if (segLen > 0) {
+				for (int i = 0; i < node.literals.length; i++) {
+					byte[] literal = node.literals[i];
+
+					if (literal.length == segLen && BytesUtil.matchSensitive(bytes, segStart, literal, 0, segLen)) {
+						best = find(node.literalChildren[i], bytes, segEnd, limit, best);
+						break;
+					}
+				}
+
+				if (node.paramChild != null) {
+					best = find(node.paramChild, bytes, segEnd, limit, best);
+				}
+			}
+		}
+
+		return best;
+	}
+
+	private static boolean isBetter(TreeRoute route, TreeRoute best) {
+		return best == null || route.rank < best.rank;
+	}
+
+	private static int segmentEnd(Bytes bytes, int segStart, int limit) {
+		int pos = segStart < limit ? BytesUtil.scan(bytes, segStart, limit - 1, SLASH) : -1;
+		return pos >= 0 ? pos : limit;
+	}
+
+	private void compile() {
+		if (patterns.isEmpty()) {
+			compiled = EMPTY;
+			return;
+		}
+
+		Node root = null;
+		List<RegexRoute> regexRoutes = U.list();
+		int rank = 0;
+
+		for (Map.Entry<PathPattern, HttpHandler> e : patterns.entrySet()) {
+			PathPattern pattern = e.getKey();
+			HttpHandler handler = e.getValue();
+
+			String[] segments = treeSegments(pattern.getPath());
+
+			if (segments != null) {
+				if (root == null) root = new Node();
+				addToTree(root, segments, pattern.getPath().endsWith("/*"), rank, handler);
+
+			} else {
+				regexRoutes.add(new RegexRoute(rank, pattern, handler));
+			}
+
+			rank++;
+		}
+
+		compiled = new Compiled(root, regexRoutes.toArray(new RegexRoute[regexRoutes.size()]));
+	}
+
+	/**
+	 * Returns the segments of the path pattern (without the /* suffix), or null if the pattern requires regex.
+	 */
+	static String[] treeSegments(String path) {
+		String p = path.endsWith("/*") ? path.substring(0, path.length() - 2) : path;
+
+		if (p.isEmpty()) return new String[0];
+
+		if (!p.startsWith("/")) return null;
+
+		String[] segments = p.substring(1).split("/", -1);
+
+		for (String segment : segments) {
+			if (segment.isEmpty()) return null;
+
+			if (!SIMPLE_PARAM.matcher(segment).matches() && REGEX_CHARS.matcher(segment).find()) {
+				return null;
+			}
+		}
+
+		return segments;
+	}
+
+	private static void addToTree(Node root, String[] segments, boolean catchAll, int rank, HttpHandler handler) {
+		String[] paramNames = new String[segments.length];
+		Node node = root;
+		node.updateMinRank(rank);
+
+		for (int i = 0; i < segments.length; i++) {
+			Matcher m = SIMPLE_PARAM.matcher(segments[i]);
+
+			if (m.matches()) {
+				paramNames[i] = m.group(1);
+				node = node.paramChild();
+			} else {
+				node = node.literalChild(segments[i].getBytes());
+			}
+
+			node.updateMinRank(rank);
+		}
+
+		TreeRoute route = new TreeRoute(rank, handler, paramNames, catchAll);
+
+		// if multiple patterns have the same structure, the first one wins
+		if (catchAll) {
+			if (node.catchAllRoute == null) node.catchAllRoute = route;
+		} else {
+			if (node.endRoute == null) node.endRoute = route;
+		}
+	}
+
+	private static String decode(Bytes bytes, int start, int limit) {
+		return Msc.urlDecodeOrKeepOriginal(BytesUtil.get(bytes, new BufRange(start, limit - start)));
+	}
+
+	private static class Compiled {
+
+		final Node root;
+
+		final RegexRoute[] regexRoutes;
+
+		Compiled(Node root, RegexRoute[] regexRoutes) {
+			this.root = root;
+			this.regexRoutes = regexRoutes;
+		}
+	}
+
+	private static class Node {
+
+		byte[][] literals = new byte[0][];
+
+		Node[] literalChildren = new Node[0];
+
+		Node paramChild;
+
+		TreeRoute endRoute;
+
+		TreeRoute catchAllRoute;
+
+		int minRank = Integer.MAX_VALUE;
+
+		Node literalChild(byte[] literal) {
+			for (int i = 0; i < literals.length; i++) {
+				if (Arrays.equals(literals[i], literal)) {
+					return literalChildren[i];
+				}
+			}
+
+			Node child = new Node();
+
+			literals = Msc.expand(literals, literal);
+			literalChildren = Msc.expand(literalChildren, child);
+
+			return child;
+		}
+
+		Node paramChild() {
+			if (paramChild == null) paramChild = new Node();
+			return paramChild;
+		}
+
+		void updateMinRank(int rank) {
+			minRank = Math.min(minRank, rank);
+		}
+	}
+
+	private static class TreeRoute {
+
+		final int rank;
+
+		final HttpHandler handler;
+
+		final String[] paramNames;
+
+		final boolean catchAll;
+
+		TreeRoute(int rank, HttpHandler handler, String[] paramNames, boolean catchAll) {
+			this.rank = rank;
+			this.handler = handler;
+			this.paramNames = paramNames;
+			this.catchAll = catchAll;
+		}
+
+		HandlerMatch toMatch(Bytes bytes, BufRange path) {
+			Map<String, String> params = U.map();
+
+			int pos = path.start;
+			int limit = path.limit();
+
+			for (String name : paramNames) {
+				int segStart = pos + 1;
+				int segEnd = segmentEnd(bytes, segStart, limit);
+
+				if (name != null) {
+					params.put(name, decode(bytes, segStart, segEnd));
+				}
+
+				pos = segEnd;
+			}
+
+			if (catchAll && pos < limit) {
+				params.put(PathPattern.ANY, decode(bytes, pos + 1, limit));
+			}
+
+			return new HandlerMatchWithParams(handler, params, handler.getRoute());
+		}
+	}
+
+	private static class RegexRoute {
+
+		final int rank;
+
+		final PathPattern pattern;
+
+		final HttpHandler handler;
+
+		RegexRoute(int rank, PathPattern pattern, HttpHandler handler) {
+			this.rank = rank;
+			this.pattern = pattern;
+			this.handler = handler;
+		}
+	}
+
+}
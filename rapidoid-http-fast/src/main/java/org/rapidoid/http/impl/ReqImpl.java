@@ -43,6 +43,8 @@ import org.rapidoid.u.U;
 import org.rapidoid.util.Constants;
 import org.rapidoid.util.Msc;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
@@ -78,6 +80,8 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	private volatile byte[] body;
 
+	private volatile SpooledBody spooledBody;
+
 	private final Map<String, String> params;
 
 	private final Map<String, String> headers;
@@ -130,6 +134,10 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	private volatile boolean cached;
 
+	private volatile HTTPCacheInFlight.Flight cacheFlight;
+
+	private volatile String contentEncoding;
+
 	private final long connId;
 
 	private final long handle;
@@ -167,7 +175,23 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 	}
 
 	private HTTPCacheKey createCacheKey() {
-		return isCacheable() ? new HTTPCacheKey(host(), uri()) : null;
+		return isCacheable() ? new HTTPCacheKey(host(), uri(), cacheVary()) : null;
+	}
+
+	/**
+	 * The values of the request headers the cached response varies by, one per line.
+	 */
+	private String cacheVary() {
+		String[] vary = route.config().cacheVary();
+		if (U.isEmpty(vary)) return null;
+
+		StringBuilder sb = new StringBuilder();
+
+		for (String name : vary) {
+			sb.append(header(name, "")).append('\n');
+		}
+
+		return sb.toString();
 	}
 
 	@Override
@@ -212,6 +236,14 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public byte[] body() {
+		if (body == null && spooledBody != null) {
+			synchronized (this) {
+				if (body == null) {
+					body = spooledBody.bytes();
+				}
+			}
+		}
+
 		return body;
 	}
 
@@ -220,6 +252,23 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 		return this;
 	}
 
+	@Override
+	public InputStream bodyStream() {
+		if (body == null && spooledBody != null) {
+			return spooledBody.stream();
+		}
+
+		return new ByteArrayInputStream(body != null ? body : new byte[0]);
+	}
+
+	/**
+	 * The big request body, received into a temporary file, which is deleted when the request is done.
+	 */
+	public ReqImpl spooledBody(SpooledBody spooledBody) {
+		this.spooledBody = spooledBody;
+		return this;
+	}
+
 	@Override
 	public Map<String, String> params() {
 		return params;
@@ -468,6 +517,10 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 		if (response != null) {
 			contentType = U.or(response.contentType(), contentType);
+
+			if (cacheKey != null && cacheKey.vary() != null && !response.headers().containsKey("Vary")) {
+				response.headers().put("Vary", U.join(", ", route.config().cacheVary()));
+			}
 		}
 
 		renderResponse(code, contentType, body);
@@ -509,6 +562,10 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 		if (!done) {
 			onDone();
 			done = true;
+
+			if (spooledBody != null) {
+				spooledBody.close();
+			}
 		}
 
 		return this;
@@ -875,6 +932,11 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 		done = true;
 
 		if (willSaveToCache()) saveToCache();
+
+		// only the request that leads the flight completes it
+		if (cacheFlight != null) {
+			http.onCacheLoaded(route, cacheFlight);
+		}
 	}
 
 	private void saveToCache() {
@@ -904,17 +966,33 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 		// don't cache the response if it contains cookies or token data
 		if (U.notEmpty(proxyResp.cookies) || hasToken()) return;
 
-		ByteBuffer body = writeBodyToBuf(out, bodyLength);
-		CachedResp cached = new CachedResp(proxyResp.code, proxyResp.contentType, proxyResp.headers, body);
+		if (contentEncoding != null) {
+			if (proxyResp.headers == null) proxyResp.headers = U.map();
+			proxyResp.headers.put("Content-Encoding", contentEncoding);
+		}
+
+		CachedResp cached = new CachedResp(proxyResp.code, proxyResp.contentType, proxyResp.headers, null);
+		cached.cachedAs(cache, cacheKey);
+
+		// the body is stored in the shared cache memory, which might evict the older responses
+		ByteBuffer body = HTTPCacheSlabs.INSTANCE.allocate(cached, bodyLength);
+
+		if (body == null) {
+			cache.bypass(); // too big to be cached
+			return;
+		}
+
+		writeBodyToBuf(out, body, bodyLength);
 
 		cache.set(cacheKey, cached);
+
+		// the body might have been evicted before the response was cached
+		if (cached.body() == null) cache.invalidate(cacheKey, cached);
 	}
 
-	private ByteBuffer writeBodyToBuf(Buf out, int bodyLength) {
-		ByteBuffer body = ByteBuffer.allocateDirect(bodyLength);
+	private void writeBodyToBuf(Buf out, ByteBuffer body, int bodyLength) {
 		out.writeTo(body, (int) posBeforeBody, bodyLength);
 		body.flip();
-		return body;
 	}
 
 	@Override
@@ -934,11 +1012,20 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 		return cached;
 	}
 
+	public void contentEncoding(String contentEncoding) {
+		this.contentEncoding = contentEncoding;
+	}
+
 	public ReqImpl cached(boolean cached) {
 		this.cached = cached;
 		return this;
 	}
 
+	public ReqImpl cacheFlight(HTTPCacheInFlight.Flight cacheFlight) {
+		this.cacheFlight = cacheFlight;
+		return this;
+	}
+
 	private boolean isCacheable() {
 		return route != null
 			&& HttpUtils.isGetReq(this)
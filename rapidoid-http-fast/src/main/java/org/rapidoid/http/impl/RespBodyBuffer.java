@@ -33,7 +33,7 @@ import java.nio.ByteBuffer;
 @Since("5.5.1")
 public class RespBodyBuffer extends RapidoidThing implements RespBody {
 
-	private final ByteBuffer buffer;
+	final ByteBuffer buffer;
 
 	public RespBodyBuffer(ByteBuffer buffer) {
 		this.buffer = buffer;
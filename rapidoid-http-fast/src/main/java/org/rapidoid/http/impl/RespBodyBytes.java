@@ -31,7 +31,7 @@ import org.rapidoid.u.U;
 @Since("5.5.1")
 public class RespBodyBytes extends RapidoidThing implements RespBody {
 
-	private final byte[] bytes;
+	final byte[] bytes;
 
 	public RespBodyBytes(byte[] bytes) {
 		this.bytes = bytes;
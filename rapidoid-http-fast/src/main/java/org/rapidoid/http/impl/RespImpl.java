@@ -467,11 +467,21 @@ public class RespImpl extends RapidoidThing implements Resp {
 				if (chunked == null) {
 					checkStreamingPreconditions();
 
+					// the content type must be specified before streaming, to be considered for compression
+					String encoding = null;
+
+					if (req.cacheKey() == null && HttpCompression.isCompressible(contentType(), -1)) {
+						encoding = HttpCompression.encodingFor(req, contentType(), -1);
+						header("Vary", "Accept-Encoding");
+					}
+
 					// the chunked response object, which buffers the response data
-					chunked = new ChunkedResponse(this);
+					chunked = new ChunkedResponse(this, encoding);
 
 					// set the header early, so it can be overwritten by the app, if necessary
 					header("Transfer-Encoding", "chunked");
+
+					if (encoding != null) header("Content-Encoding", encoding);
 				}
 			}
 		}
@@ -556,6 +566,16 @@ public class RespImpl extends RapidoidThing implements Resp {
 		});
 	}
 
+	void closeAfterChunks() {
+		resume(new AsyncLogic() {
+			@Override
+			public boolean resumeAsync() {
+				req.channel().close();
+				return true;
+			}
+		});
+	}
+
 	void finish() {
 		if (chunked != null && !chunked.isClosed()) {
 			IO.close(chunked, false);
@@ -50,12 +50,18 @@ public class RouteImpl extends RapidoidThing implements Route {
 
 	private final Cache<HTTPCacheKey, CachedResp> cache;
 
+	private final HTTPCacheIndex cacheIndex;
+
+	private final HTTPCacheInFlight cacheInFlight;
+
 	public RouteImpl(HttpVerb verb, String path, HttpHandler handler, RouteOptions options) {
 		this.verb = verb;
 		this.path = path;
 		this.handler = handler;
 		this.options = options;
 		this.cache = createCache();
+		this.cacheIndex = cache != null ? new HTTPCacheIndex(options.cacheCapacity() * 2, options.cacheVary()) : null;
+		this.cacheInFlight = cache != null && options.cacheCoalescing() && options.managed() ? new HTTPCacheInFlight() : null;
 	}
 
 	public static RouteImpl matching(HttpVerb verb, String path) {
@@ -68,7 +74,7 @@ public class RouteImpl extends RapidoidThing implements Route {
 
 		return Caching.of(HTTPCacheKey.class, CachedResp.class)
 			.name(verb + " " + path)
-			.ttl(options.cacheTTL())
+			.ttl(options.cacheTTL() + Math.max(options.cacheStaleTTL(), 0)) // the stale responses are kept, too
 			.capacity(options.cacheCapacity())
 			.manageable(true)
 			.statistics(true)
@@ -130,6 +136,16 @@ public class RouteImpl extends RapidoidThing implements Route {
 		return cache;
 	}
 
+	@Override
+	public HTTPCacheIndex cacheIndex() {
+		return cacheIndex;
+	}
+
+	@Override
+	public HTTPCacheInFlight cacheInFlight() {
+		return cacheInFlight;
+	}
+
 	@Override
 	public Date lastChangedAt() {
 		return lastChangedAt;
@@ -61,6 +61,14 @@ public class RouteOptions extends RapidoidThing implements RouteConfig {
 
 	private volatile int cacheCapacity = 100;
 
+	private volatile long cacheStaleTTL;
+
+	private volatile boolean cacheCoalescing;
+
+	private volatile String[] cacheVary = {};
+
+	private volatile String executor;
+
 	@Override
 	public String toString() {
 		return "RouteOptions{" +
@@ -75,6 +83,10 @@ public class RouteOptions extends RapidoidThing implements RouteConfig {
 			", wrappers=" + Arrays.toString(wrappers) +
 			", cacheTTL=" + cacheTTL +
 			", cacheCapacity=" + cacheCapacity +
+			", cacheStaleTTL=" + cacheStaleTTL +
+			", cacheCoalescing=" + cacheCoalescing +
+			", cacheVary=" + Arrays.toString(cacheVary) +
+			", executor='" + executor + '\'' +
 			'}';
 	}
 
@@ -190,6 +202,50 @@ public class RouteOptions extends RapidoidThing implements RouteConfig {
 		return this;
 	}
 
+	@Override
+	public long cacheStaleTTL() {
+		return cacheStaleTTL;
+	}
+
+	@Override
+	public RouteOptions cacheStaleTTL(long cacheStaleTTL) {
+		this.cacheStaleTTL = cacheStaleTTL;
+		return this;
+	}
+
+	@Override
+	public boolean cacheCoalescing() {
+		return cacheCoalescing;
+	}
+
+	@Override
+	public RouteOptions cacheCoalescing(boolean cacheCoalescing) {
+		this.cacheCoalescing = cacheCoalescing;
+		return this;
+	}
+
+	@Override
+	public String[] cacheVary() {
+		return cacheVary;
+	}
+
+	@Override
+	public RouteOptions cacheVary(String... cacheVary) {
+		this.cacheVary = cacheVary;
+		return this;
+	}
+
+	@Override
+	public String executor() {
+		return executor;
+	}
+
+	@Override
+	public RouteOptions executor(String executor) {
+		this.executor = executor;
+		return this;
+	}
+
 	public RouteOptions copy() {
 		RouteOptions copy = new RouteOptions();
 
@@ -203,6 +259,10 @@ public class RouteOptions extends RapidoidThing implements RouteConfig {
 		copy.managed = this.managed;
 		copy.cacheTTL = this.cacheTTL;
 		copy.cacheCapacity = this.cacheCapacity;
+		copy.cacheStaleTTL = this.cacheStaleTTL;
+		copy.cacheCoalescing = this.cacheCoalescing;
+		copy.cacheVary = U.array(this.cacheVary);
+		copy.executor = this.executor;
 
 		return copy;
 	}
@@ -222,9 +282,13 @@ public class RouteOptions extends RapidoidThing implements RouteConfig {
 		if (managed != that.managed) return false;
 		if (cacheTTL != that.cacheTTL) return false;
 		if (cacheCapacity != that.cacheCapacity) return false;
+		if (cacheStaleTTL != that.cacheStaleTTL) return false;
+		if (cacheCoalescing != that.cacheCoalescing) return false;
+		if (!Arrays.equals(cacheVary, that.cacheVary)) return false;
 		if (contentType != null ? !contentType.equals(that.contentType) : that.contentType != null) return false;
 		if (view != null ? !view.equals(that.view) : that.view != null) return false;
 		if (zone != null ? !zone.equals(that.zone) : that.zone != null) return false;
+		if (executor != null ? !executor.equals(that.executor) : that.executor != null) return false;
 		if (transaction != that.transaction) return false;
 		if (roles != null ? !roles.equals(that.roles) : that.roles != null) return false;
 		return Arrays.equals(wrappers, that.wrappers);
@@ -242,6 +306,10 @@ public class RouteOptions extends RapidoidThing implements RouteConfig {
 		result = 31 * result + Arrays.hashCode(wrappers);
 		result = 31 * result + (int) (cacheTTL ^ (cacheTTL >>> 32));
 		result = 31 * result + (int) (cacheCapacity ^ (cacheCapacity >>> 32));
+		result = 31 * result + (int) (cacheStaleTTL ^ (cacheStaleTTL >>> 32));
+		result = 31 * result + (cacheCoalescing ? 1 : 0);
+		result = 31 * result + Arrays.hashCode(cacheVary);
+		result = 31 * result + (executor != null ? executor.hashCode() : 0);
 		return result;
 	}
 }
@@ -0,0 +1,210 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.u.U;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Stores the serialized sessions outside the JVM heap (in direct buffers or in a memory-mapped file), or on the heap.
+ * <p>
+ * The memory is allocated in slots of size classes (powers of 2), carved from big chunks. The freed slots are reused
+ * for the sessions of the same size class.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class SessionMemory extends RapidoidThing {
+
+	public enum Storage {
+		HEAP, OFF_HEAP, MAPPED
+	}
+
+	private static final int MIN_SLOT_BITS = 6; // 64 bytes
+
+	private static final int MAX_SLOT_BITS = 30;
+
+	private final Storage storage;
+
+	private final int chunkSize;
+
+	private final File file;
+
+	private final Deque<ByteBuffer>[] free;
+
+	private ByteBuffer chunk;
+
+	private FileChannel channel;
+
+	private long mappedBytes;
+
+	private long allocatedBytes;
+
+	private long usedBytes;
+
+	@SuppressWarnings("unchecked")
+	public SessionMemory(Storage storage, int chunkSize, File file) {
+		U.must(chunkSize >= (1 << MIN_SLOT_BITS), "The chunk size is too small!");
+		U.must(storage != Storage.MAPPED || file != null, "The file for the memory-mapped sessions must be specified!");
+
+		this.storage = storage;
+		this.chunkSize = chunkSize;
+		this.file = file;
+		this.free = new Deque[MAX_SLOT_BITS + 1];
+
+		for (int i = 0; i < free.length; i++) {
+			free[i] = new ArrayDeque<>();
+		}
+	}
+
+	public Storage storage() {
+		return storage;
+	}
+
+	/**
+	 * Stores the data, reusing the previous slot if it's big enough.
+	 *
+	 * @return the slot that contains the data (between its position and limit)
+	 */
+	public synchronized ByteBuffer store(byte[] data, int length, ByteBuffer previous) {
+		ByteBuffer slot;
+
+		if (previous != null && previous.capacity() >= length && slotBits(length) == slotBits(previous.capacity())) {
+			slot = previous;
+			usedBytes -= previous.limit();
+
+		} else {
+			if (previous != null) free(previous);
+			slot = allocate(length);
+		}
+
+		slot.clear();
+		slot.put(data, 0, length);
+		slot.flip();
+
+		usedBytes += length;
+
+		return slot;
+	}
+
+	public static byte[] load(ByteBuffer slot) {
+		ByteBuffer src = slot.duplicate();
+		byte[] data = new byte[src.remaining()];
+		src.get(data);
+		return data;
+	}
+
+	public synchronized void free(ByteBuffer slot) {
+		usedBytes -= slot.limit();
+
+		if (storage != Storage.HEAP) {
+			int bits = slotBits(slot.capacity());
+
+			if (bits <= MAX_SLOT_BITS && (1 << bits) <= chunkSize) {
+				free[bits].push(slot);
+			} else {
+				allocatedBytes -= slot.capacity(); // a dedicated buffer, will be garbage-collected
+			}
+
+		} else {
+			allocatedBytes -= slot.capacity();
+		}
+	}
+
+	private ByteBuffer allocate(int length) {
+		int bits = slotBits(length);
+		U.must(bits <= MAX_SLOT_BITS, "The session is too big!");
+
+		int size = 1 << bits;
+
+		if (storage == Storage.HEAP) {
+			allocatedBytes += size;
+			return ByteBuffer.allocate(size);
+		}
+
+		ByteBuffer slot = free[bits].poll();
+		if (slot != null) return slot;
+
+		allocatedBytes += size;
+
+		if (size > chunkSize) {
+			return ByteBuffer.allocateDirect(size);
+		}
+
+		if (chunk == null || chunk.remaining() < size) {
+			// the rest of the previous chunk is wasted, but it's less than the max slot size
+			chunk = newChunk();
+		}
+
+		ByteBuffer dup = chunk.duplicate();
+		dup.limit(dup.position() + size);
+		slot = dup.slice();
+
+		chunk.position(chunk.position() + size);
+
+		return slot;
+	}
+
+	private ByteBuffer newChunk() {
+		if (storage == Storage.OFF_HEAP) {
+			return ByteBuffer.allocateDirect(chunkSize);
+		}
+
+		try {
+			if (channel == null) {
+				RandomAccessFile raf = new RandomAccessFile(file, "rw");
+				raf.setLength(0);
+				channel = raf.getChannel();
+			}
+
+			ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, mappedBytes, chunkSize);
+			mappedBytes += chunkSize;
+
+			return mapped;
+
+		} catch (IOException e) {
+			throw U.rte("Couldn't map the sessions file: " + file, e);
+		}
+	}
+
+	private static int slotBits(int length) {
+		int bits = 32 - Integer.numberOfLeadingZeros(Math.max(length, 1) - 1);
+		return Math.max(bits, MIN_SLOT_BITS);
+	}
+
+	public synchronized long allocatedBytes() {
+		return allocatedBytes;
+	}
+
+	public synchronized long usedBytes() {
+		return usedBytes;
+	}
+
+}
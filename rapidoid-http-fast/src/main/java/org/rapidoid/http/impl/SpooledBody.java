@@ -0,0 +1,422 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.commons.Str;
+import org.rapidoid.io.FileSegmentInputStream;
+import org.rapidoid.io.IO;
+import org.rapidoid.io.Upload;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives a big request body into a temporary file, part by part as it arrives, so the input buffer of the connection
+ * stays small. The boundaries of the multipart body are detected while receiving, so the uploads are just segments of
+ * the same file.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class SpooledBody extends RapidoidThing implements Closeable {
+
+	private static final int MAX_PART_HEADERS_SIZE = 16 * 1024;
+
+	private static final int MAX_BOUNDARY_LINE_SIZE = 256;
+
+	private final byte[] head;
+
+	private final long length;
+
+	private final File dir;
+
+	private byte[] delimiter;
+
+	private int[] failure;
+
+	private ByteArrayOutputStream boundaryLine;
+
+	private byte prev;
+
+	private final List<Long> boundaries = U.list();
+
+	private int matched;
+
+	private long received;
+
+	private volatile File file;
+
+	private FileChannel channel;
+
+	/**
+	 * @param head      the request line and the headers
+	 * @param length    the length of the body
+	 * @param boundary  the multipart boundary (with the "--" prefix), empty if it should be detected from the body, or
+	 *                  <code>null</code> if the body isn't multipart
+	 * @param dir       the folder of the temporary file, or <code>null</code> for the default temporary folder
+	 */
+	public SpooledBody(byte[] head, long length, byte[] boundary, File dir) {
+		U.must(length > head.length, "The body is too small to be spooled!");
+
+		this.head = head;
+		this.length = length;
+		this.dir = dir;
+
+		if (boundary != null) {
+			if (boundary.length > 0) {
+				initDelimiter(boundary);
+
+				// the first boundary is at the start of the body
+				scan((byte) '\r', -2);
+				scan((byte) '\n', -1);
+
+			} else {
+				// the first line of the body is the boundary
+				boundaryLine = new ByteArrayOutputStream();
+			}
+		}
+	}
+
+	private void initDelimiter(byte[] boundary) {
+		delimiter = new byte[boundary.length + 2];
+		delimiter[0] = '\r';
+		delimiter[1] = '\n';
+		System.arraycopy(boundary, 0, delimiter, 2, boundary.length);
+
+		failure = failureTable(delimiter);
+	}
+
+	/**
+	 * Receives the next part of the body from the input buffer. When the whole body is received, the head of the
+	 * request is put back in the input buffer (in place of the last received bytes), so it can be parsed again.
+	 *
+	 * @return <code>true</code> if the whole body was received
+	 */
+	public boolean receive(Buf buf) {
+		int pos = buf.position();
+		long available = buf.limit() - pos;
+		long remaining = length - received;
+
+		if (available >= remaining) {
+			spool(buf, pos, (int) remaining);
+			closeChannel();
+
+			int headPos = pos + (int) remaining - head.length;
+			buf.put(headPos, head, 0, head.length);
+			buf.position(headPos);
+
+			return true;
+		}
+
+		// the last bytes of the body will make room for the head
+		int n = (int) Math.min(available, remaining - head.length);
+
+		if (n <= 0) {
+			if (available > 0) throw Buf.INCOMPLETE_READ;
+			return false;
+		}
+
+		spool(buf, pos, n);
+		buf.position(pos + n);
+
+		return false;
+	}
+
+	private void spool(Buf buf, int pos, int n) {
+		try {
+			if (channel == null) {
+				file = File.createTempFile("rapidoid-body-", ".tmp", dir);
+				channel = new FileOutputStream(file).getChannel();
+			}
+
+			int written = buf.writeTo(channel, pos, n);
+			U.must(written == n, "Couldn't write the whole request body part!");
+
+		} catch (IOException e) {
+			throw U.rte("Couldn't spool the request body!", e);
+		}
+
+		if (delimiter != null || boundaryLine != null) {
+			for (int i = 0; i < n; i++) {
+				byte b = buf.get(pos + i);
+
+				if (delimiter != null) {
+					scan(b, received + i);
+				} else if (boundaryLine != null) {
+					detectBoundary(b);
+				}
+			}
+		}
+
+		received += n;
+	}
+
+	private void detectBoundary(byte b) {
+		if (prev == '\r' && b == '\n') {
+			byte[] line = boundaryLine.toByteArray();
+			boundaryLine = null;
+
+			initDelimiter(Arrays.copyOf(line, line.length - 1));
+			boundaries.add(0L);
+
+		} else {
+			boundaryLine.write(b);
+			prev = b;
+
+			if (boundaryLine.size() > MAX_BOUNDARY_LINE_SIZE) {
+				boundaryLine = null; // not a multipart body
+			}
+		}
+	}
+
+	private void scan(byte b, long offset) {
+		while (matched > 0 && delimiter[matched] != b) {
+			matched = failure[matched - 1];
+		}
+
+		if (delimiter[matched] == b) {
+			matched++;
+		}
+
+		if (matched == delimiter.length) {
+			// the position of the boundary, after the CRLF
+			boundaries.add(offset - delimiter.length + 3);
+			matched = failure[matched - 1];
+		}
+	}
+
+	private static int[] failureTable(byte[] pattern) {
+		int[] failure = new int[pattern.length];
+
+		for (int i = 1, k = 0; i < pattern.length; i++) {
+			while (k > 0 && pattern[i] != pattern[k]) {
+				k = failure[k - 1];
+			}
+
+			if (pattern[i] == pattern[k]) {
+				k++;
+			}
+
+			failure[i] = k;
+		}
+
+		return failure;
+	}
+
+	/**
+	 * Parses the multipart body: the fields are loaded into memory, while the uploads are segments of the file.
+	 */
+	public void parseMultiParts(Map<String, Object> posted, Map<String, List<Upload>> files) {
+		if (delimiter == null) return;
+
+		int sepLen = delimiter.length - 2;
+
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+			try {
+				for (int i = 0; i < boundaries.size() - 1; i++) {
+					long from = boundaries.get(i) + sepLen + 2;
+					long to = boundaries.get(i + 1) - 2;
+
+					if (from <= to) {
+						parseMultiPart(raf, from, to, posted, files);
+					}
+				}
+
+			} finally {
+				raf.close();
+			}
+
+		} catch (IOException e) {
+			throw U.rte("Multipart data parse error!", e);
+		}
+	}
+
+	private void parseMultiPart(RandomAccessFile raf, long from, long to, Map<String, Object> posted,
+	                            Map<String, List<Upload>> files) throws IOException {
+
+		byte[] headers = new byte[(int) Math.min(to - from, MAX_PART_HEADERS_SIZE)];
+		raf.seek(from);
+		raf.readFully(headers);
+
+		int headersEnd = indexOfLnLn(headers);
+		U.must(headersEnd != -1, "Invalid multi-part HTTP request!");
+
+		if (headersEnd < 0) return; // no headers, so no Content-Disposition
+
+		String name = null;
+		String filename = null;
+
+		for (String header : new String(headers, 0, headersEnd, "UTF-8").split("\r\n")) {
+			String[] kv = header.split(":", 2);
+
+			if (kv.length == 2 && kv[0].trim().equalsIgnoreCase("Content-Disposition")) {
+				String disposition = kv[1].trim();
+
+				// form-data; name="a" | form-data; name="f2"; filename="test2.txt"
+				if (!disposition.toLowerCase().startsWith("form-data;")) return;
+
+				for (String attr : disposition.split(";")) {
+					attr = attr.trim();
+
+					if (attr.startsWith("name=")) {
+						name = unquote(Str.triml(attr, "name="));
+
+					} else if (attr.startsWith("filename=")) {
+						filename = unquote(Str.triml(attr, "filename="));
+					}
+				}
+			}
+		}
+
+		if (name == null) throw U.rte("Unrecognized Content-disposition header!");
+
+		long start = from + headersEnd + 4;
+
+		if (U.isEmpty(filename)) {
+			byte[] value = new byte[(int) (to - start)];
+			raf.seek(start);
+			raf.readFully(value);
+
+			addParam(posted, name, new String(value, "UTF-8"));
+
+		} else {
+			List<Upload> uploads = files.get(name);
+
+			if (uploads == null) {
+				uploads = U.list();
+				files.put(name, uploads);
+			}
+
+			uploads.add(new Upload(filename, file, start, to - start));
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the body doesn't look like URL-encoded data
+	 */
+	public boolean parseURLEncoded(Map<String, Object> posted) {
+		String data = new String(bytes());
+
+		if (data.startsWith("{") || data.startsWith("[") || data.startsWith("<")) return false; // json or xml
+
+		for (String pair : data.split("&")) {
+			if (!pair.isEmpty()) {
+				String[] kv = pair.split("=", 2);
+				addParam(posted, kv[0], kv.length == 2 ? kv[1] : "");
+			}
+		}
+
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addParam(Map<String, Object> params, String key, String val) {
+		key = Msc.urlDecodeOrKeepOriginal(key);
+		val = Msc.urlDecodeOrKeepOriginal(val);
+
+		if (key.endsWith("[]")) {
+			key = Str.sub(key, 0, -2);
+			List<String> list = (List<String>) params.get(key);
+
+			if (list == null) {
+				list = U.list();
+				params.put(key, list);
+			}
+
+			list.add(val);
+
+		} else {
+			params.put(key, val);
+		}
+	}
+
+	private static int indexOfLnLn(byte[] bytes) {
+		if (bytes.length >= 2 && bytes[0] == '\r' && bytes[1] == '\n') return -2; // no headers
+
+		for (int i = 0; i + 3 < bytes.length; i++) {
+			if (bytes[i] == '\r' && bytes[i + 1] == '\n' && bytes[i + 2] == '\r' && bytes[i + 3] == '\n') return i;
+		}
+
+		return -1;
+	}
+
+	private static String unquote(String s) {
+		return s.length() >= 2 && s.startsWith("\"") && s.endsWith("\"") ? s.substring(1, s.length() - 1) : s;
+	}
+
+	public long length() {
+		return length;
+	}
+
+	public InputStream stream() {
+		try {
+			return new FileSegmentInputStream(file, 0, length);
+		} catch (IOException e) {
+			throw U.rte("Couldn't read the request body!", e);
+		}
+	}
+
+	/**
+	 * Loads the whole body into memory.
+	 */
+	public byte[] bytes() {
+		U.must(length <= Integer.MAX_VALUE, "The request body is too big!");
+
+		InputStream in = stream();
+
+		try {
+			return IO.loadBytes(in);
+		} finally {
+			IO.close(in, true);
+		}
+	}
+
+	private void closeChannel() {
+		if (channel != null) {
+			IO.close(channel, true);
+			channel = null;
+		}
+	}
+
+	/**
+	 * Deletes the temporary file.
+	 */
+	@Override
+	public synchronized void close() {
+		closeChannel();
+
+		if (file != null) {
+			if (!file.delete()) file.deleteOnExit();
+			file = null;
+		}
+	}
+
+}
@@ -29,12 +29,14 @@ import org.rapidoid.http.HttpStatus;
 import org.rapidoid.http.MediaType;
 import org.rapidoid.http.Req;
 import org.rapidoid.http.RespBody;
+import org.rapidoid.http.impl.CachedResp;
 import org.rapidoid.http.impl.MaybeReq;
 import org.rapidoid.log.LogLevel;
 import org.rapidoid.net.AsyncLogic;
 import org.rapidoid.net.abstracts.Channel;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 
@@ -70,7 +72,15 @@ public class HttpIO extends RapidoidThing {
 		impl.writeContentLengthAndBody(req, ctx, body);
 	}
 
-	public void writeContentLengthHeader(Channel ctx, int len) {
+	public void startResponse(MaybeReq req, Channel ctx, int code, boolean isKeepAlive, MediaType contentType) {
+		impl.startResponse(impl.respOrNull(req), ctx, code, isKeepAlive, contentType);
+	}
+
+	public void addCustomHeader(Channel ctx, byte[] name, byte[] value) {
+		impl.addCustomHeader(ctx, name, value);
+	}
+
+	public void writeContentLengthHeader(Channel ctx, long len) {
 		impl.writeContentLengthHeader(ctx, len);
 	}
 
@@ -90,6 +100,14 @@ public class HttpIO extends RapidoidThing {
 		impl.writeBadRequest(channel);
 	}
 
+	public void writePayloadTooLarge(Channel channel) {
+		impl.writePayloadTooLarge(channel);
+	}
+
+	public void writeCachedResponse(Channel channel, boolean isKeepAlive, CachedResp resp, ByteBuffer body) {
+		impl.writeCachedResponse(channel, isKeepAlive, resp, body);
+	}
+
 	public void respond(MaybeReq maybeReq, Channel channel, long connId, long handle,
 	                    int code, boolean isKeepAlive, MediaType contentType,
 	                    RespBody body, Map<String, String> headers, Map<String, String> cookies) {
@@ -35,6 +35,8 @@ import org.rapidoid.data.BufRange;
 import org.rapidoid.data.JSON;
 import org.rapidoid.http.*;
 import org.rapidoid.http.customize.Customization;
+import org.rapidoid.http.impl.CachedResp;
+import org.rapidoid.http.impl.HttpCompression;
 import org.rapidoid.http.impl.MaybeReq;
 import org.rapidoid.http.impl.ReqImpl;
 import org.rapidoid.job.Jobs;
@@ -48,7 +50,9 @@ import org.rapidoid.util.Msc;
 import org.rapidoid.writable.ReusableWritable;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.rapidoid.util.Constants.CR_LF;
@@ -63,6 +67,9 @@ class LowLevelHttpIO extends RapidoidThing {
 	private static final byte[] HTTP_400_BAD_REQUEST = "HTTP/1.1 400 Bad Request\r\nContent-Length: 12\r\n\r\nBad Request!"
 		.getBytes();
 
+	private static final byte[] HTTP_413_PAYLOAD_TOO_LARGE = ("HTTP/1.1 413 Payload Too Large\r\nConnection: close\r\n" +
+		"Content-Length: 18\r\n\r\nPayload Too Large!").getBytes();
+
 	private static final byte[] HEADER_SEP = ": ".getBytes();
 
 	private static final byte[] CONN_KEEP_ALIVE = "Connection: keep-alive\r\n".getBytes();
@@ -160,7 +167,7 @@ class LowLevelHttpIO extends RapidoidThing {
 			ctx.write(CR_LF);
 		}
 
-		if (MANDATORY_HEADER_CONTENT_TYPE) {
+		if (MANDATORY_HEADER_CONTENT_TYPE && contentType != null) {
 			ctx.write(contentType.asHttpHeader());
 		}
 	}
@@ -183,6 +190,45 @@ class LowLevelHttpIO extends RapidoidThing {
 		writeResponse(req, ctx, isKeepAlive, 200, contentTypeHeader, content);
 	}
 
+	private RespBody maybeCompress(ReqImpl req, Channel channel, MediaType contentType, RespBody body,
+	                               Map<String, String> headers) {
+
+		if (req == null) return body;
+
+		// the cached responses are shared by all clients, unless they vary by the accepted encodings
+		if (req.cacheKey() != null && !variesByEncoding(req)) return body;
+
+		if (!HttpCompression.isCompressible(contentType, body.length())) return body;
+
+		// the application might have already encoded the content
+		if (headers != null && headers.containsKey("Content-Encoding")) return body;
+
+		if (headers == null || !headers.containsKey("Vary")) {
+			addCustomHeader(channel, HttpCompression.VARY, HttpCompression.ACCEPT_ENCODING);
+		}
+
+		String encoding = HttpCompression.encodingFor(req, contentType, body.length());
+		if (encoding == null) return body;
+
+		RespBody compressed = HttpCompression.compress(body, encoding);
+		if (compressed == null) return body;
+
+		addCustomHeader(channel, HttpCompression.CONTENT_ENCODING, encoding.getBytes());
+
+		// the encoding will be served together with the cached response
+		req.contentEncoding(encoding);
+
+		return compressed;
+	}
+
+	private static boolean variesByEncoding(ReqImpl req) {
+		for (String header : req.route().config().cacheVary()) {
+			if (header.equalsIgnoreCase("Accept-Encoding")) return true;
+		}
+
+		return false;
+	}
+
 	void error(final Req req, final Throwable error, LogLevel logLevel) {
 		try {
 			logError(req, error, logLevel);
@@ -215,6 +261,11 @@ class LowLevelHttpIO extends RapidoidThing {
 			return;
 		}
 
+		if (error instanceof RejectedExecutionException) {
+			Log.debug("Rejected request due to overload: " + req);
+			return;
+		}
+
 		Log.log(null, logLevel, "Error occurred when handling request!", "error", error);
 	}
 
@@ -267,7 +318,7 @@ class LowLevelHttpIO extends RapidoidThing {
 		}
 	}
 
-	private Resp respOrNull(MaybeReq maybeReq) {
+	Resp respOrNull(MaybeReq maybeReq) {
 		ReqImpl req = (ReqImpl) maybeReq.getReqOrNull();
 
 		if (req != null && req.hasResponseAttached()) {
@@ -389,6 +440,41 @@ class LowLevelHttpIO extends RapidoidThing {
 		channel.close();
 	}
 
+	void writePayloadTooLarge(Channel channel) {
+		channel.write(HTTP_413_PAYLOAD_TOO_LARGE);
+		channel.close();
+	}
+
+	void writeCachedResponse(final Channel channel, final boolean isKeepAlive, final CachedResp resp,
+	                         final ByteBuffer body) {
+		final long id = ASYNC_ID_GEN.incrementAndGet();
+
+		channel.resume(channel.connId(), channel.handle(), new AsyncLogic() {
+
+			@Override
+			public String toString() {
+				return U.str(U.join(":", "#" + id, channel, "cached", resp.statusCode, isKeepAlive, resp.contentType));
+			}
+
+			@Override
+			public boolean resumeAsync() {
+
+				synchronized (channel) {
+					startResponse(null, channel, resp.statusCode, isKeepAlive, resp.contentType);
+
+					// the custom headers were serialized when the response was cached
+					channel.write(resp.headerBytes());
+
+					writeContentLengthHeader(channel, body.remaining());
+					channel.write(CR_LF);
+					channel.write(body.duplicate());
+				}
+
+				return true;
+			}
+		});
+	}
+
 	void respond(final MaybeReq maybeReq, final Channel channel, long connId, long handle,
 	             final int code, final boolean isKeepAlive, final MediaType contentType, final RespBody body,
 	             final Map<String, String> headers, final Map<String, String> cookies) {
@@ -460,9 +546,11 @@ class LowLevelHttpIO extends RapidoidThing {
 
 					} else {
 
-						writeContentLengthHeader(channel, body.length());
+						RespBody content = maybeCompress(req, channel, contentType, body, headers);
+
+						writeContentLengthHeader(channel, content.length());
 						closeHeaders(maybeReq, output);
-						body.writeTo(channel);
+						content.writeTo(channel);
 
 						if (req != null) {
 							req.completed(true);
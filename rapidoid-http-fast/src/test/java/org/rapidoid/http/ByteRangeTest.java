@@ -0,0 +1,71 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.http.impl.ByteRange;
+import org.rapidoid.test.TestCommons;
+
+import java.util.List;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class ByteRangeTest extends TestCommons {
+
+	@Test
+	public void shouldParseRanges() {
+		eq(ranges("bytes=0-99", 1000), "[0-99]");
+		eq(ranges("bytes=500-", 1000), "[500-999]");
+		eq(ranges("bytes=-200", 1000), "[800-999]");
+		eq(ranges("bytes=-2000", 1000), "[0-999]");
+		eq(ranges("bytes=900-2000", 1000), "[900-999]");
+		eq(ranges("bytes=0-9, 20-29,-5", 1000), "[0-9, 20-29, 995-999]");
+	}
+
+	@Test
+	public void shouldSkipUnsatisfiableRanges() {
+		eq(ranges("bytes=1000-", 1000), "[]");
+		eq(ranges("bytes=1000-1100, 0-0", 1000), "[0-0]");
+		eq(ranges("bytes=-0", 1000), "[]");
+		eq(ranges("bytes=0-", 0), "[]");
+	}
+
+	@Test
+	public void shouldIgnoreInvalidRanges() {
+		isNull(ByteRange.parse("items=0-10", 1000));
+		isNull(ByteRange.parse("bytes=abc", 1000));
+		isNull(ByteRange.parse("bytes=5-1", 1000));
+		isNull(ByteRange.parse("bytes=-", 1000));
+		isNull(ByteRange.parse("bytes=1-x", 1000));
+
+		// overlapping ranges that are bigger than the content
+		isNull(ByteRange.parse("bytes=0-999,0-999", 1000));
+	}
+
+	private static String ranges(String header, long size) {
+		List<ByteRange> ranges = ByteRange.parse(header, size);
+		return String.valueOf(ranges);
+	}
+
+}
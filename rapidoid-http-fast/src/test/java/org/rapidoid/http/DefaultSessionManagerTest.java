@@ -0,0 +1,212 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.http.customize.defaults.DefaultSessionManager;
+import org.rapidoid.http.impl.SessionMemory;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+
+import java.io.File;
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.*;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class DefaultSessionManagerTest extends TestCommons {
+
+	@Test
+	public void shouldKeepTheSessionsBetweenRequests() throws Exception {
+		for (SessionMemory.Storage storage : SessionMemory.Storage.values()) {
+			File file = File.createTempFile("sessions", ".bin");
+			file.deleteOnExit();
+
+			DefaultSessionManager sessions = new DefaultSessionManager(100, 0, new SessionMemory(storage, 4096, file));
+
+			Map<String, Serializable> session = sessions.loadSession(null, "s1");
+			session.put("name", "abc");
+			session.put("n", 123);
+			session.put("list", (Serializable) U.list(1, 2, 3));
+			session.put("big", new String(new char[10000]).replace('\0', 'x')); // bigger than a chunk
+			sessions.saveSession(null, "s1", session);
+
+			Map<String, Serializable> loaded = sessions.loadSession(null, "s1");
+			eq(loaded.get("name"), "abc");
+			eq(loaded.get("n"), 123);
+			eq(loaded.get("list"), U.list(1, 2, 3));
+			eq(((String) loaded.get("big")).length(), 10000);
+
+			loaded.remove("big");
+			sessions.saveSession(null, "s1", loaded);
+
+			isTrue(sessions.memory().usedBytes() < 100);
+		}
+	}
+
+	@Test
+	public void shouldFallBackToJavaSerializationForCustomTypes() throws Exception {
+		DefaultSessionManager sessions = new DefaultSessionManager(100, 0, new SessionMemory(SessionMemory.Storage.OFF_HEAP, 4096, null));
+
+		Map<String, Serializable> session = sessions.loadSession(null, "s1");
+		session.put("user", new User("joe", new Date(1000)));
+		sessions.saveSession(null, "s1", session);
+
+		User user = (User) sessions.loadSession(null, "s1").get("user");
+		eq(user.name, "joe");
+		eq(user.since, new Date(1000));
+	}
+
+	@Test
+	public void shouldKeepTheTypesOfTheSessionValues() throws Exception {
+		DefaultSessionManager sessions = new DefaultSessionManager(100, 0, new SessionMemory(SessionMemory.Storage.OFF_HEAP, 4096, null));
+
+		TreeMap<String, Integer> sorted = new TreeMap<>();
+		sorted.put("b", 2);
+		sorted.put("a", 1);
+
+		Map<String, Serializable> session = sessions.loadSession(null, "s1");
+		session.put("sorted", sorted);
+		session.put("ordered", new LinkedHashSet<>(U.list("x", "y")));
+		session.put("linked", new LinkedList<>(U.list(1, 2)));
+		session.put("timestamp", new Timestamp(1000));
+		session.put("names", new String[]{"a", "b"});
+		session.put("nested", (Serializable) U.list(U.map("since", new Timestamp(2000))));
+		sessions.saveSession(null, "s1", session);
+
+		Map<String, Serializable> loaded = sessions.loadSession(null, "s1");
+
+		eq(loaded.get("sorted").getClass(), TreeMap.class);
+		eq(loaded.get("sorted"), sorted);
+
+		eq(loaded.get("ordered").getClass(), LinkedHashSet.class);
+		eq(loaded.get("ordered"), U.set("x", "y"));
+
+		eq(loaded.get("linked").getClass(), LinkedList.class);
+		eq(loaded.get("linked"), U.list(1, 2));
+
+		eq(loaded.get("timestamp").getClass(), Timestamp.class);
+		eq(loaded.get("timestamp"), new Timestamp(1000));
+
+		eq(loaded.get("names").getClass(), String[].class);
+		eq((String[]) loaded.get("names"), new String[]{"a", "b"});
+
+		List<?> nested = (List<?>) loaded.get("nested");
+		eq(((Map<?, ?>) nested.get(0)).get("since").getClass(), Timestamp.class);
+	}
+
+	@Test
+	public void shouldEvictTheLeastRecentlyUsedSessions() throws Exception {
+		DefaultSessionManager sessions = new DefaultSessionManager(3, 0, new SessionMemory(SessionMemory.Storage.OFF_HEAP, 4096, null));
+
+		for (int i = 1; i <= 3; i++) {
+			use(sessions, "s" + i, i);
+		}
+
+		// s1 is used again, so s2 is the least recently used
+		use(sessions, "s1", 10);
+		use(sessions, "s4", 4);
+
+		eq(sessions.size(), 3);
+
+		eq(value(sessions, "s1"), 10);
+		eq(value(sessions, "s3"), 3);
+		eq(value(sessions, "s4"), 4);
+
+		// the evicted session starts empty
+		eq(value(sessions, "s2"), null);
+	}
+
+	@Test
+	public void shouldEvictTheNextSessionIfTheEldestIsInUse() throws Exception {
+		DefaultSessionManager sessions = new DefaultSessionManager(3, 0, new SessionMemory(SessionMemory.Storage.OFF_HEAP, 4096, null));
+
+		Map<String, Serializable> s1 = sessions.loadSession(null, "s1");
+		s1.put("value", 1);
+
+		use(sessions, "s2", 2);
+		use(sessions, "s3", 3);
+
+		// s1 is still in use, so s2 is evicted instead
+		use(sessions, "s4", 4);
+
+		eq(sessions.size(), 3);
+
+		sessions.saveSession(null, "s1", s1);
+
+		eq(value(sessions, "s1"), 1);
+		eq(value(sessions, "s3"), 3);
+		eq(value(sessions, "s4"), 4);
+
+		eq(value(sessions, "s2"), null);
+	}
+
+	@Test
+	public void shouldExpireTheIdleSessions() throws Exception {
+		DefaultSessionManager sessions = new DefaultSessionManager(100, 500, new SessionMemory(SessionMemory.Storage.HEAP, 4096, null));
+
+		use(sessions, "s1", 1);
+		use(sessions, "s2", 2);
+
+		eq(sessions.size(), 2);
+
+		// s2 is kept alive
+		for (int i = 0; i < 6; i++) {
+			U.sleep(500);
+			eq(value(sessions, "s2"), 2);
+		}
+
+		eq(sessions.size(), 1);
+		eq(sessions.memory().allocatedBytes(), 64L);
+
+		eq(value(sessions, "s1"), null);
+	}
+
+	private static void use(DefaultSessionManager sessions, String id, int value) throws Exception {
+		Map<String, Serializable> session = sessions.loadSession(null, id);
+		session.put("value", value);
+		sessions.saveSession(null, id, session);
+	}
+
+	private static Object value(DefaultSessionManager sessions, String id) throws Exception {
+		Map<String, Serializable> session = sessions.loadSession(null, id);
+		Object value = session.get("value");
+		sessions.saveSession(null, id, session);
+		return value;
+	}
+
+	static class User implements Serializable {
+
+		final String name;
+
+		final Date since;
+
+		User(String name, Date since) {
+			this.name = name;
+			this.since = since;
+		}
+	}
+
+}
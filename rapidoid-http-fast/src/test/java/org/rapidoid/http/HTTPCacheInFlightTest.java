@@ -0,0 +1,78 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.http.impl.HTTPCacheInFlight;
+import org.rapidoid.http.impl.HTTPCacheKey;
+import org.rapidoid.http.impl.ReqImpl;
+import org.rapidoid.test.TestCommons;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class HTTPCacheInFlightTest extends TestCommons {
+
+	private static final ReqImpl NO_REQ = null;
+
+	@Test
+	public void testWaitingForTheFlight() {
+		HTTPCacheInFlight inFlight = new HTTPCacheInFlight();
+		HTTPCacheKey key = new HTTPCacheKey("localhost", "/abc");
+
+		HTTPCacheInFlight.Flight flight = inFlight.join(key, NO_REQ);
+		isTrue(inFlight.join(key, NO_REQ) == flight);
+		isTrue(inFlight.join(key, NO_REQ) == flight);
+
+		// only the first waiter schedules the timeout
+		isTrue(flight.claimTimer());
+		isFalse(flight.claimTimer());
+
+		eq(inFlight.complete(flight).size(), 2);
+		eq(inFlight.size(), 0);
+	}
+
+	@Test
+	public void testOldFlightDoesntCompleteNewFlight() {
+		HTTPCacheInFlight inFlight = new HTTPCacheInFlight();
+		HTTPCacheKey key = new HTTPCacheKey("localhost", "/abc");
+
+		HTTPCacheInFlight.Flight oldFlight = inFlight.join(key, NO_REQ);
+		inFlight.join(key, NO_REQ);
+
+		// e.g. the waiting timeout
+		eq(inFlight.complete(oldFlight).size(), 1);
+
+		HTTPCacheInFlight.Flight newFlight = inFlight.join(key, NO_REQ);
+		isTrue(newFlight != oldFlight);
+		inFlight.join(key, NO_REQ);
+
+		// e.g. the first request of the old flight completes late
+		eq(inFlight.complete(oldFlight).size(), 0);
+		eq(inFlight.size(), 1);
+
+		eq(inFlight.complete(newFlight).size(), 1);
+		eq(inFlight.size(), 0);
+	}
+
+}
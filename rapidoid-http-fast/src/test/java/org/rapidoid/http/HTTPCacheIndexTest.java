@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.buffer.BufGroup;
+import org.rapidoid.data.BufRange;
+import org.rapidoid.data.KeyValueRanges;
+import org.rapidoid.http.impl.HTTPCacheIndex;
+import org.rapidoid.http.impl.HTTPCacheKey;
+import org.rapidoid.test.TestCommons;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class HTTPCacheIndexTest extends TestCommons {
+
+	private static final String DATA = "localhost:8080 /abc?x=1 /abc?x=2 example.com /abc?x=1 Accept-Language en de";
+
+	private final Buf buf = new BufGroup(4).from(DATA, "cache-index");
+
+	@Test
+	public void shouldFindTheIndexedKeys() {
+		HTTPCacheIndex index = new HTTPCacheIndex(100);
+
+		HTTPCacheKey key1 = new HTTPCacheKey("localhost:8080", "/abc?x=1");
+		HTTPCacheKey key2 = new HTTPCacheKey("localhost:8080", "/abc?x=2");
+
+		isNull(index.find(buf, range("localhost:8080"), range("/abc?x=1")));
+
+		index.add(buf, range("localhost:8080"), range("/abc?x=1"), key1);
+		index.add(buf, range("localhost:8080"), range("/abc?x=2"), key2);
+
+		isTrue(index.find(buf, range("localhost:8080"), range("/abc?x=1")) == key1);
+		isTrue(index.find(buf, range("localhost:8080"), range("/abc?x=2")) == key2);
+
+		// the host is a part of the key
+		isNull(index.find(buf, range("example.com"), range("/abc?x=1")));
+	}
+
+	@Test
+	public void shouldDistinguishTheVaryingHeaders() {
+		HTTPCacheIndex index = new HTTPCacheIndex(100, "accept-language");
+
+		KeyValueRanges en = headers("Accept-Language", "en");
+		KeyValueRanges de = headers("Accept-Language", "de");
+		KeyValueRanges none = new KeyValueRanges(1);
+
+		HTTPCacheKey keyEn = new HTTPCacheKey("localhost:8080", "/abc?x=1", "en\n");
+		HTTPCacheKey keyNone = new HTTPCacheKey("localhost:8080", "/abc?x=1", "\n");
+
+		eq(index.vary(buf, en), keyEn.vary());
+		eq(index.vary(buf, none), keyNone.vary());
+
+		index.add(buf, range("localhost:8080"), range("/abc?x=1"), en, keyEn);
+
+		isTrue(index.find(buf, range("localhost:8080"), range("/abc?x=1"), en) == keyEn);
+		isNull(index.find(buf, range("localhost:8080"), range("/abc?x=1"), de));
+		isNull(index.find(buf, range("localhost:8080"), range("/abc?x=1"), none));
+
+		index.add(buf, range("localhost:8080"), range("/abc?x=1"), none, keyNone);
+
+		isTrue(index.find(buf, range("localhost:8080"), range("/abc?x=1"), none) == keyNone);
+	}
+
+	@Test
+	public void shouldReplaceTheCollidingEntries() {
+		HTTPCacheIndex index = new HTTPCacheIndex(1);
+		eq(index.capacity(), 16);
+
+		HTTPCacheKey key = new HTTPCacheKey("localhost:8080", "/abc?x=1");
+		index.add(buf, range("localhost:8080"), range("/abc?x=1"), key);
+
+		for (String host : new String[]{"localhost:8080", "example.com"}) {
+			for (String uri : new String[]{"/abc?x=1", "/abc?x=2"}) {
+				index.add(buf, range(host), range(uri), new HTTPCacheKey(host, uri));
+			}
+		}
+
+		HTTPCacheKey found = index.find(buf, range("localhost:8080"), range("/abc?x=1"));
+		isTrue(found == null || found.equals(key));
+	}
+
+	@Test
+	public void shouldLimitTheCapacity() {
+		eq(new HTTPCacheIndex(100).capacity(), 128);
+		eq(new HTTPCacheIndex(128).capacity(), 128);
+		eq(new HTTPCacheIndex(Integer.MAX_VALUE).capacity(), 1 << 16);
+	}
+
+	private KeyValueRanges headers(String name, String value) {
+		KeyValueRanges headers = new KeyValueRanges(1);
+
+		headers.keys[0].set(DATA.indexOf(name), name.length());
+		headers.values[0].set(DATA.lastIndexOf(value), value.length());
+		headers.count = 1;
+
+		return headers;
+	}
+
+	private BufRange range(String part) {
+		return BufRange.fromTo(DATA.indexOf(part), DATA.indexOf(part) + part.length());
+	}
+
+}
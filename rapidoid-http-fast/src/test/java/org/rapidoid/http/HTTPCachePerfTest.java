@@ -0,0 +1,120 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http;
+
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.buffer.BufGroup;
+import org.rapidoid.cache.Cache;
+import org.rapidoid.cache.Caching;
+import org.rapidoid.data.BufRange;
+import org.rapidoid.data.KeyValueRanges;
+import org.rapidoid.http.impl.CachedResp;
+import org.rapidoid.http.impl.HTTPCacheIndex;
+import org.rapidoid.http.impl.HTTPCacheKey;
+import org.rapidoid.http.impl.HttpParser;
+import org.rapidoid.net.impl.RapidoidHelper;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Compares the lookup of a cached response through the parsed request (the parameters and the headers are converted to
+ * maps, then a new cache key is created) with the lookup through the raw bytes of the Host header and the URI.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class HTTPCachePerfTest {
+
+	private static final BufGroup BUFS = new BufGroup(1024);
+
+	private static final byte[] HOST = "Host".getBytes();
+
+	static String REQ = "GET /products/list?page=3&sort=name HTTP/1.1|Host: www.test.com|Accept: text/html|Accept-Encoding: gzip, deflate|User-Agent: perf-test|Connection: keep-alive||";
+
+	@SuppressWarnings("unchecked")
+	public static void main(String[] args) {
+
+		final HttpParser parser = new HttpParser();
+		final Buf buf = BUFS.from(REQ.replaceAll("\\|", "\r\n"), "");
+		final RapidoidHelper helper = new RapidoidHelper(null);
+
+		parser.parse(buf, helper);
+
+		final Cache<HTTPCacheKey, CachedResp> cache = Caching.of(HTTPCacheKey.class, CachedResp.class)
+			.capacity(100)
+			.build();
+
+		HTTPCacheKey key = new HTTPCacheKey("www.test.com", helper.uri.str(buf));
+		cache.set(key, new CachedResp(200, MediaType.HTML_UTF_8, U.<String, String>map(), ByteBuffer.allocate(10)));
+
+		final HTTPCacheIndex index = new HTTPCacheIndex(200);
+
+		for (int i = 0; i < 10; i++) {
+
+			Msc.benchmark("parsed request", 3000000, new Runnable() {
+				@Override
+				public void run() {
+					KeyValueRanges paramsKV = helper.params.reset();
+					KeyValueRanges headersKV = helper.headersKV.reset();
+					KeyValueRanges cookiesKV = helper.cookies.reset();
+
+					parser.parseParams(buf, paramsKV, helper.query);
+					Map<String, String> params = U.cast(paramsKV.toMap(buf, true, true, false));
+
+					parser.parseHeadersIntoKV(buf, helper.headers, headersKV, cookiesKV, helper);
+					Map<String, String> headers = U.cast(headersKV.toMap(buf, false, false, true));
+					Map<String, String> cookies = U.cast(cookiesKV.toMap(buf, false, false, false));
+
+					U.must(params.size() == 2 && cookies.isEmpty());
+
+					HTTPCacheKey key = new HTTPCacheKey(headers.get("host"), helper.uri.str(buf));
+					U.notNull(cache.getIfExists(key), "cached");
+				}
+			});
+
+			Msc.benchmark("cache index", 3000000, new Runnable() {
+				@Override
+				public void run() {
+					KeyValueRanges headersKV = helper.headersKV.reset();
+					KeyValueRanges cookiesKV = helper.cookies.reset();
+
+					parser.parseHeadersIntoKV(buf, helper.headers, headersKV, cookiesKV, helper);
+
+					BufRange host = headersKV.get(buf, HOST, false);
+					HTTPCacheKey key = index.find(buf, host, helper.uri);
+
+					if (key == null) {
+						key = new HTTPCacheKey(host.str(buf), helper.uri.str(buf));
+						index.add(buf, host, helper.uri, key);
+					}
+
+					U.notNull(cache.getIfExists(key), "cached");
+				}
+			});
+		}
+	}
+
+}
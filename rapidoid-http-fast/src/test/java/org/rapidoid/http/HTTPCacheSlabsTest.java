@@ -0,0 +1,177 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.cache.Cache;
+import org.rapidoid.cache.Caching;
+import org.rapidoid.http.impl.CachedResp;
+import org.rapidoid.http.impl.HTTPCacheKey;
+import org.rapidoid.http.impl.HTTPCacheSlabs;
+import org.rapidoid.test.TestCommons;
+
+import java.nio.ByteBuffer;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class HTTPCacheSlabsTest extends TestCommons {
+
+	@Test
+	public void shouldEvictTheOldestResponsesByBytes() {
+		HTTPCacheSlabs slabs = new HTTPCacheSlabs("test-slabs", 3000, 1000);
+
+		CachedResp[] responses = new CachedResp[10];
+
+		for (int i = 0; i < responses.length; i++) {
+			responses[i] = resp();
+
+			ByteBuffer body = slabs.allocate(responses[i], 400);
+			notNull(body);
+			eq(body.capacity(), 400);
+		}
+
+		// 2 responses per slab, at most 3 slabs
+		eq(slabs.slabs(), 3);
+		eq(slabs.allocatedBytes(), 3000);
+		eq(slabs.storedBytes(), 6 * 400);
+		eq(slabs.evictions(), 4);
+		eq(slabs.evictedBytes(), 4 * 400);
+
+		for (int i = 0; i < responses.length; i++) {
+			eq(responses[i].body() != null, i >= 4);
+		}
+	}
+
+	@Test
+	public void shouldRejectTheTooBigResponses() {
+		HTTPCacheSlabs slabs = new HTTPCacheSlabs("test-slabs", 3000, 1000);
+
+		CachedResp small = resp();
+		notNull(slabs.allocate(small, 100));
+
+		// bigger than a slab, so it gets a dedicated one
+		CachedResp big = resp();
+		eq(slabs.allocate(big, 2500).capacity(), 2500);
+		isNull(small.body());
+
+		CachedResp tooBig = resp();
+		isNull(slabs.allocate(tooBig, 3001));
+		isNull(tooBig.body());
+		eq(slabs.rejections(), 1);
+
+		notNull(big.body());
+	}
+
+	@Test
+	public void shouldNotOverlapTheBodies() {
+		HTTPCacheSlabs slabs = new HTTPCacheSlabs("test-slabs", 3000, 1000);
+
+		ByteBuffer a = slabs.allocate(resp(), 3);
+		ByteBuffer b = slabs.allocate(resp(), 3);
+
+		a.put("abc".getBytes()).flip();
+		b.put("xyz".getBytes()).flip();
+
+		eq(a.get(0), (byte) 'a');
+		eq(b.get(0), (byte) 'x');
+	}
+
+	@Test
+	public void shouldRemoveTheEvictedResponsesFromTheCache() {
+		HTTPCacheSlabs slabs = new HTTPCacheSlabs("test-slabs", 3000, 1000);
+		Cache<HTTPCacheKey, CachedResp> cache = Caching.of(HTTPCacheKey.class, CachedResp.class).capacity(100).build();
+
+		HTTPCacheKey key1 = new HTTPCacheKey("localhost", "/a");
+		HTTPCacheKey key2 = new HTTPCacheKey("localhost", "/b");
+
+		CachedResp old1 = cached(cache, key1);
+		notNull(slabs.allocate(old1, 1000));
+
+		CachedResp resp2 = cached(cache, key2);
+		notNull(slabs.allocate(resp2, 1000));
+
+		// the response for key1 is replaced with a newer one
+		CachedResp new1 = cached(cache, key1);
+		notNull(slabs.allocate(new1, 1000));
+
+		// the oldest slab is dropped
+		notNull(slabs.allocate(resp(), 1000));
+
+		isNull(old1.body());
+		isTrue(cache.getIfExists(key1) == new1);
+		isTrue(cache.getIfExists(key2) == resp2);
+
+		// the next slab is dropped
+		notNull(slabs.allocate(resp(), 1000));
+
+		isNull(resp2.body());
+		isNull(cache.getIfExists(key2));
+		isTrue(cache.getIfExists(key1) == new1);
+	}
+
+	@Test
+	public void shouldSplitTheMemoryIntoStripes() throws Exception {
+		final HTTPCacheSlabs slabs = new HTTPCacheSlabs("test-slabs", 8000, 1000, 4);
+
+		eq(slabs.stripes(), 4);
+
+		// each stripe has a limit of 2000 bytes, so each thread keeps at most 2 slabs
+		Thread[] threads = new Thread[8];
+
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10; j++) {
+						notNull(slabs.allocate(resp(), 1000));
+					}
+				}
+			};
+
+			threads[i].start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		isTrue(slabs.allocatedBytes() <= 8000);
+		eq(slabs.allocatedBytes(), slabs.storedBytes());
+		eq(slabs.evictions() + slabs.slabs(), 80);
+	}
+
+	private static CachedResp cached(Cache<HTTPCacheKey, CachedResp> cache, HTTPCacheKey key) {
+		CachedResp resp = resp();
+
+		resp.cachedAs(cache, key);
+		cache.set(key, resp);
+
+		return resp;
+	}
+
+	private static CachedResp resp() {
+		return new CachedResp(200, MediaType.PLAIN_TEXT_UTF_8, null, null);
+	}
+
+}
@@ -0,0 +1,110 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.http.impl.HttpCompression;
+import org.rapidoid.io.IO;
+import org.rapidoid.test.TestCommons;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class HttpCompressionTest extends TestCommons {
+
+	@Test
+	public void shouldNegotiateEncoding() {
+		eq(HttpCompression.negotiate("gzip, deflate"), "gzip");
+		eq(HttpCompression.negotiate("deflate, gzip;q=0.5"), "gzip");
+		eq(HttpCompression.negotiate("deflate, gzip;q=0"), "deflate");
+		eq(HttpCompression.negotiate("*"), "gzip");
+		eq(HttpCompression.negotiate("gzip;q=0, *"), "deflate");
+		eq(HttpCompression.negotiate("*, gzip;q=0, deflate;q=0"), null);
+		eq(HttpCompression.negotiate("deflate, *;q=0"), "deflate");
+		eq(HttpCompression.negotiate("*;q=0"), null);
+		eq(HttpCompression.negotiate("br"), null);
+		eq(HttpCompression.negotiate("identity"), null);
+		eq(HttpCompression.negotiate(""), null);
+		eq(HttpCompression.negotiate(null), null);
+	}
+
+	@Test
+	public void shouldCompress() throws IOException {
+		byte[] data = sampleData();
+
+		byte[] gzipped = HttpCompression.compress(data, 0, data.length, "gzip");
+		isTrue(gzipped.length < data.length);
+		eq(IO.loadBytes(new GZIPInputStream(new ByteArrayInputStream(gzipped))), data);
+
+		byte[] deflated = HttpCompression.compress(data, 0, data.length, "deflate");
+		isTrue(deflated.length < data.length);
+		eq(IO.loadBytes(new InflaterInputStream(new ByteArrayInputStream(deflated))), data);
+	}
+
+	@Test
+	public void shouldFlushCompressedDataWhenStreaming() throws IOException {
+		byte[] data = sampleData();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DeflaterOutputStream compressor = HttpCompression.compressor(out, "gzip");
+
+		compressor.write(data);
+		compressor.flush();
+
+		// everything written so far can be decompressed, before the end of the stream
+		InputStream partial = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()));
+		byte[] decompressed = new byte[data.length];
+		int total = 0;
+
+		while (total < data.length) {
+			int n = partial.read(decompressed, total, data.length - total);
+			if (n < 0) break;
+			total += n;
+		}
+
+		eq(total, data.length);
+		eq(decompressed, data);
+
+		compressor.close();
+		eq(IO.loadBytes(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))), data);
+	}
+
+	private static byte[] sampleData() {
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < 1000; i++) {
+			sb.append("<p>Paragraph number ").append(i).append("</p>\n");
+		}
+
+		return sb.toString().getBytes();
+	}
+
+}
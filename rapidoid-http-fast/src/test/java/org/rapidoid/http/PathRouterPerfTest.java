@@ -0,0 +1,100 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http;
+
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.buffer.BufGroup;
+import org.rapidoid.data.BufRange;
+import org.rapidoid.http.handler.HttpHandler;
+import org.rapidoid.http.handler.StaticHttpHandler;
+import org.rapidoid.http.impl.PathPattern;
+import org.rapidoid.http.impl.PathRouter;
+import org.rapidoid.http.impl.RouteOptions;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares the compiled path router with the linear regex matching of the path patterns.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class PathRouterPerfTest {
+
+	private static final BufGroup BUFS = new BufGroup(1024);
+
+	private static final int ROUTES = 400;
+
+	public static void main(String[] args) {
+		final Map<PathPattern, HttpHandler> patterns = new TreeMap<>();
+		final PathRouter router = new PathRouter();
+
+		for (int i = 0; i < ROUTES; i++) {
+			String ptrn = U.frmt("/api/res%s/{id}", i);
+			HttpHandler handler = new StaticHttpHandler(new RouteOptions(), ptrn.getBytes());
+
+			patterns.put(PathPattern.from(ptrn), handler);
+			router.put(PathPattern.from(ptrn), handler);
+		}
+
+		final List<String> paths = U.list();
+		final List<Buf> bufs = U.list();
+
+		for (int i = 0; i < 100; i++) {
+			String path = U.frmt("/api/res%s/%s", i * 4 % ROUTES, i * 123);
+			paths.add(path);
+			bufs.add(BUFS.from(path, "path"));
+		}
+
+		for (int round = 0; round < 10; round++) {
+			Msc.benchmark("regex", 100000, new Runnable() {
+				int n;
+
+				@Override
+				public void run() {
+					Buf buf = bufs.get(n++ % bufs.size());
+					String path = buf.get(new BufRange(0, buf.size()));
+
+					for (Map.Entry<PathPattern, HttpHandler> e : patterns.entrySet()) {
+						if (e.getKey().match(path) != null) break;
+					}
+				}
+			});
+
+			Msc.benchmark("tree", 100000, new Runnable() {
+				int n;
+
+				@Override
+				public void run() {
+					Buf buf = bufs.get(n++ % bufs.size());
+					router.match(buf, new BufRange(0, buf.size()));
+				}
+			});
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.buffer.BufGroup;
+import org.rapidoid.data.BufRange;
+import org.rapidoid.http.handler.HttpHandler;
+import org.rapidoid.http.impl.HandlerMatch;
+import org.rapidoid.http.impl.PathPattern;
+import org.rapidoid.http.impl.PathRouter;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class PathRouterTest extends TestCommons {
+
+	private static final BufGroup BUFS = new BufGroup(1024);
+
+	private static final List<String> PATTERNS = U.list(
+		"/*",
+		"/msgs/*",
+		"/{cat}",
+		"/{cat}/*",
+		"/{_}/view",
+		"/abc/{id}",
+		"/abc/{_x}/edit",
+		"/x/{a}/{b}",
+		"/x/me/{b}",
+		"/users/{id}/posts/{post}",
+		"/users/me/posts/{post}",
+		"/files/{name:.+\\.txt}",
+		"/n/{num:\\d+}",
+		"/n/{name}",
+		"/a.b/{id}",
+		"/item-{id}"
+	);
+
+	private static final List<String> PATHS = U.list(
+		"/", "/abc", "/abc/", "/abc/123", "/abc/1-2/edit", "/abc/x%20y/edit", "/msgs", "/msgs/", "/msgs/foo/bar",
+		"/books", "/books/x", "/books/x/y", "/movies/view", "/x/ab/CDE", "/x/me/CDE", "/x/me", "/x//y",
+		"/users/1/posts/2", "/users/me/posts/2", "/users/me/posts/", "/files/a/b.txt", "/files/a.doc", "/n/123",
+		"/n/abc", "/a.b/1", "/axb/1", "/item-5", "/%D0%B0%D0%B1"
+	);
+
+	@Test
+	public void shouldMatchLikeThePathPatterns() {
+		Map<PathPattern, HttpHandler> patterns = new TreeMap<>();
+		PathRouter router = new PathRouter();
+		Map<HttpHandler, String> names = U.map();
+
+		for (String ptrn : PATTERNS) {
+			HttpHandler handler = mock(HttpHandler.class);
+			names.put(handler, ptrn);
+
+			patterns.put(PathPattern.from(ptrn), handler);
+			router.put(PathPattern.from(ptrn), handler);
+		}
+
+		for (int i = 0; i < PATTERNS.size(); i++) {
+			for (String path : PATHS) {
+				checkSameMatch(patterns, router, names, path);
+			}
+
+			// remove the patterns one by one, so all combinations of the remaining patterns are tested
+			PathPattern pattern = patterns.keySet().iterator().next();
+			patterns.remove(pattern);
+			router.remove(pattern);
+		}
+
+		isTrue(router.isEmpty());
+	}
+
+	@Test
+	public void shouldExtractParams() {
+		PathRouter router = new PathRouter();
+		router.put(PathPattern.from("/x/{a}/{b}"), mock(HttpHandler.class));
+		router.put(PathPattern.from("/y/*"), mock(HttpHandler.class));
+
+		eq(match(router, "/x/ab/C%20D").getParams(), U.map("a", "ab", "b", "C D"));
+		eq(match(router, "/y/foo/bar").getParams(), U.map(PathPattern.ANY, "foo/bar"));
+		eq(match(router, "/y").getParams(), U.map());
+
+		isNull(match(router, "/x/ab"));
+		isNull(match(router, "/z"));
+	}
+
+	private void checkSameMatch(Map<PathPattern, HttpHandler> patterns, PathRouter router,
+	                            Map<HttpHandler, String> names, String path) {
+
+		HttpHandler expectedHandler = null;
+		Map<String, String> expectedParams = null;
+
+		for (Map.Entry<PathPattern, HttpHandler> e : patterns.entrySet()) {
+			Map<String, String> params = e.getKey().match(path);
+
+			if (params != null) {
+				expectedHandler = e.getValue();
+				expectedParams = params;
+				break;
+			}
+		}
+
+		HandlerMatch match = match(router, path);
+
+		if (expectedHandler == null) {
+			isNull(match);
+
+		} else {
+			notNull(match);
+			eq(names.get(match.getHandler()), names.get(expectedHandler));
+			eq(match.getParams(), expectedParams);
+		}
+	}
+
+	static HandlerMatch match(PathRouter router, String path) {
+		Buf buf = BUFS.from("GET " + path + " HTTP/1.1", "path");
+		return router.match(buf, new BufRange(4, path.length()));
+	}
+
+}
@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.buffer.BufGroup;
+import org.rapidoid.data.BufRange;
+import org.rapidoid.http.impl.HttpParser;
+import org.rapidoid.http.impl.SpooledBody;
+import org.rapidoid.io.IO;
+import org.rapidoid.io.Upload;
+import org.rapidoid.net.impl.RapidoidHelper;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+
+import java.util.List;
+import java.util.Map;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class SpooledBodyTest extends TestCommons {
+
+	private static final String BOUNDARY = "----xyz123";
+
+	@Test
+	public void shouldSpoolTheMultipartBodyInParts() {
+		shouldSpoolTheMultipartBody("multipart/form-data; boundary=" + BOUNDARY);
+	}
+
+	@Test
+	public void shouldDetectTheMultipartBoundaryFromTheBody() {
+		shouldSpoolTheMultipartBody("multipart/form-data; charset=UTF-8");
+	}
+
+	private void shouldSpoolTheMultipartBody(String contentType) {
+		String content = new String(new char[3000]).replace('\0', 'x') + "\r\n--not-the-boundary";
+
+		String body = "--" + BOUNDARY + "\r\n"
+			+ "Content-Disposition: form-data; name=\"a\"\r\n\r\n"
+			+ "123\r\n"
+			+ "--" + BOUNDARY + "\r\n"
+			+ "Content-Disposition: form-data; name=\"f\"; filename=\"f.txt\"\r\n"
+			+ "Content-Type: text/plain\r\n\r\n"
+			+ content + "\r\n"
+			+ "--" + BOUNDARY + "--\r\n";
+
+		String head = "POST /upload HTTP/1.1\r\n"
+			+ "Content-Type: " + contentType + "\r\n"
+			+ "Content-Length: " + body.length() + "\r\n\r\n";
+
+		// with the next request in the same input
+		String next = "GET /next HTTP/1.1\r\n\r\n";
+		String req = head + body + next;
+
+		// receiving the request in parts of different sizes
+		for (int partSize : new int[]{1, 7, 100, 1000, req.length()}) {
+			HttpParser parser = new HttpParser();
+			RapidoidHelper helper = new RapidoidHelper();
+			Buf buf = new BufGroup(128).newBuf();
+
+			SpooledBody spooled = null;
+			int sent = 0;
+
+			while (true) {
+				int n = Math.min(partSize, req.length() - sent);
+				buf.append(req.substring(sent, sent + n));
+				sent += n;
+
+				// prepare for a rollback, like the I/O workers
+				int pos = buf.position();
+				SpooledBody prevSpooled = spooled;
+
+				try {
+					if (spooled == null) {
+						int start = buf.position();
+						long bodySize = parser.parse(buf, helper, 1000);
+						eq(bodySize, body.length());
+
+						byte[] headBytes = BufRange.fromTo(start, buf.position()).bytes(buf);
+						eq(new String(headBytes), head);
+
+						spooled = new SpooledBody(headBytes, bodySize, parser.getMultipartBoundary(buf, helper), null);
+					}
+
+					if (spooled.receive(buf)) break;
+
+					buf.deleteBefore(buf.position());
+
+				} catch (Exception e) {
+					eq(e, Buf.INCOMPLETE_READ);
+
+					buf.position(pos);
+					spooled = prevSpooled;
+				}
+			}
+
+			// the head was put back in the input buffer
+			eq(parser.parse(buf, helper, 0), body.length());
+			eq(helper.path.str(buf), "/upload");
+
+			Map<String, Object> posted = U.map();
+			Map<String, List<Upload>> files = U.map();
+			spooled.parseMultiParts(posted, files);
+
+			eq(posted, U.map("a", "123"));
+			eq(files.size(), 1);
+
+			Upload upload = files.get("f").get(0);
+			eq(upload.filename(), "f.txt");
+			isFalse(upload.isInMemory());
+			eq(new String(upload.content()), content);
+			eq(new String(IO.loadBytes(spooled.stream())), body);
+
+			// the next request follows
+			buf.append(req.substring(sent));
+			parser.parse(buf, helper);
+			eq(helper.path.str(buf), "/next");
+
+			spooled.close();
+		}
+	}
+
+}
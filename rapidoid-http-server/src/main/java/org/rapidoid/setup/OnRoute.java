@@ -492,6 +492,26 @@ public class OnRoute extends RapidoidThing {
 		return this;
 	}
 
+	public OnRoute cacheStaleTTL(long cacheStaleTTL) {
+		options.cacheStaleTTL(cacheStaleTTL);
+		return this;
+	}
+
+	public OnRoute cacheCoalescing(boolean cacheCoalescing) {
+		options.cacheCoalescing(cacheCoalescing);
+		return this;
+	}
+
+	public OnRoute cacheVary(String... cacheVary) {
+		options.cacheVary(cacheVary);
+		return this;
+	}
+
+	public OnRoute executor(String executor) {
+		options.executor(executor);
+		return this;
+	}
+
 	public RouteOptions options() {
 		return options;
 	}
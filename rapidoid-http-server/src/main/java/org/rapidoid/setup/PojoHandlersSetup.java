@@ -270,6 +270,9 @@ public class PojoHandlersSetup extends RapidoidThing {
 
 		if (cached != null) {
 			route.cacheTTL(cached.ttl());
+			route.cacheStaleTTL(cached.staleTtl());
+			route.cacheCoalescing(cached.coalescing());
+			route.cacheVary(cached.vary());
 		}
 
 		return route;
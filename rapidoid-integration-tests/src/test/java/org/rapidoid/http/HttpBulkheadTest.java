@@ -0,0 +1,96 @@
+/*-
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.http;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
+import org.rapidoid.job.Bulkhead;
+import org.rapidoid.job.Jobs;
+import org.rapidoid.setup.On;
+import org.rapidoid.u.U;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class HttpBulkheadTest extends IsolatedIntegrationTest {
+
+	@Test
+	public void shouldRejectTheRequestsWhenTheBulkheadIsFull() throws Exception {
+		Conf.JOBS.sub("bulkheads", "reports").set("threads", 1);
+		Conf.JOBS.sub("bulkheads", "reports").set("maxQueueSize", 1);
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		On.get("/report").executor("reports").plain(() -> {
+			started.countDown();
+			release.await();
+			return "report";
+		});
+
+		On.get("/fast").plain("fast");
+
+		Bulkhead bulkhead = Jobs.bulkhead("reports");
+		eq(bulkhead.threads(), 1);
+		eq(bulkhead.maxQueueSize(), 1);
+
+		// a client with enough connections, so the pending requests don't block the next ones
+		HttpClient client = HTTP.client().maxConnPerRoute(10).maxConnTotal(10);
+
+		// the first request occupies the only thread of the bulkhead
+		AtomicReference<String> first = new AtomicReference<>();
+		Thread t1 = new Thread(() -> first.set(client.get(localhost("/report")).fetch()));
+		t1.start();
+		started.await();
+
+		// the second request waits in the queue
+		AtomicReference<String> second = new AtomicReference<>();
+		Thread t2 = new Thread(() -> second.set(client.get(localhost("/report")).fetch()));
+		t2.start();
+
+		while (bulkhead.queueSize() < 1) {
+			U.sleep(10);
+		}
+
+		// the third request is rejected
+		HttpResp rejected = client.get(localhost("/report")).execute();
+		eq(rejected.code(), 503);
+		eq(bulkhead.rejections(), 1L);
+
+		// the other routes aren't affected
+		Self.get("/fast").expect("fast");
+
+		release.countDown();
+		t1.join();
+		t2.join();
+
+		eq(first.get(), "report");
+		eq(second.get(), "report");
+
+		client.close();
+	}
+
+}
@@ -30,7 +30,11 @@ import org.rapidoid.setup.App;
 import org.rapidoid.setup.On;
 import org.rapidoid.u.U;
 
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.3.0")
@@ -63,6 +67,121 @@ public class HttpCachingTest extends IsolatedIntegrationTest {
 		}
 	}
 
+	@Test
+	public void testHttpCachingPerUriAndHost() {
+
+		AtomicInteger z = new AtomicInteger();
+
+		On.get("/z").cacheTTL(10000).plain(req -> {
+			req.response().header("X-Cached-By", "z");
+			return req.param("v", "") + ":" + z.incrementAndGet();
+		});
+
+		for (int i = 0; i < 5; i++) {
+			Self.get("/z?v=a").expect("a:1");
+			Self.get("/z?v=b").expect("b:2");
+		}
+
+		// the cached responses keep the custom headers
+		HttpResp resp = Self.get("/z?v=a").execute();
+		eq(resp.body(), "a:1");
+		eq(resp.headers().get("X-Cached-By"), "z");
+
+		// the requests with cookies aren't cached
+		Self.get("/z?v=a").cookie("foo", "bar").expect("a:3");
+		Self.get("/z?v=a").cookie("foo", "bar").expect("a:4");
+
+		// the host is a part of the cache key
+		Self.get("/z?v=a").header("Host", "example.com").expect("a:5");
+		Self.get("/z?v=a").header("Host", "example.com").expect("a:5");
+
+		Self.get("/z?v=a").expect("a:1");
+	}
+
+	@Test
+	public void testHttpCachingVaryingByHeaders() {
+
+		AtomicInteger n = new AtomicInteger();
+
+		On.get("/lang").cacheTTL(10000).cacheVary("Accept-Language").plain(req -> {
+			return req.header("Accept-Language", "none") + ":" + n.incrementAndGet();
+		});
+
+		for (int i = 0; i < 5; i++) {
+			Self.get("/lang").header("Accept-Language", "en").expect("en:1");
+			Self.get("/lang").header("Accept-Language", "de").expect("de:2");
+			Self.get("/lang").expect("none:3");
+		}
+
+		// the clients are informed which headers affect the cached response
+		HttpResp resp = Self.get("/lang").header("Accept-Language", "en").execute();
+		eq(resp.body(), "en:1");
+		eq(resp.headers().get("Vary"), "Accept-Language");
+	}
+
+	@Test
+	public void testServingStaleWhileRevalidating() throws Exception {
+
+		AtomicInteger n = new AtomicInteger();
+
+		On.get("/stale").cacheTTL(500).cacheStaleTTL(10000).plain(() -> {
+			int value = n.incrementAndGet();
+			if (value > 1) U.sleep(1000); // slow refresh
+			return value;
+		});
+
+		Self.get("/stale").expect("1");
+
+		U.sleep(700); // the cached response becomes stale
+
+		// the first request after the expiration refreshes the response
+		AtomicReference<String> refreshed = new AtomicReference<>();
+		Thread refresh = new Thread(() -> refreshed.set(Self.get("/stale").fetch()));
+		refresh.start();
+
+		U.sleep(300);
+
+		// the other requests get the stale response while it's being refreshed
+		for (int i = 0; i < 5; i++) {
+			Self.get("/stale").expect("1");
+		}
+
+		refresh.join();
+		eq(refreshed.get(), "2");
+
+		Self.get("/stale").expect("2");
+		eq(n.get(), 2);
+	}
+
+	@Test
+	public void testCoalescingConcurrentCacheMisses() throws Exception {
+
+		AtomicInteger n = new AtomicInteger();
+
+		On.get("/coalesced").cacheTTL(10000).cacheCoalescing(true).plain(() -> {
+			U.sleep(1000);
+			return n.incrementAndGet();
+		});
+
+		List<Thread> threads = U.list();
+		Queue<String> results = new ConcurrentLinkedQueue<>();
+
+		for (int i = 0; i < 10; i++) {
+			Thread thread = new Thread(() -> results.add(Self.get("/coalesced").fetch()));
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		eq(U.list(results), U.list("1", "1", "1", "1", "1", "1", "1", "1", "1", "1"));
+
+		// the handler was executed only once
+		eq(n.get(), 1);
+	}
+
 	@Test
 	public void testHttpCachingWithAnnotations() {
 
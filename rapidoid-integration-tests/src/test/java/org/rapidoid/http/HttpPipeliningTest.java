@@ -27,6 +27,7 @@ import org.rapidoid.annotation.Since;
 import org.rapidoid.commons.Str;
 import org.rapidoid.io.IO;
 import org.rapidoid.log.Log;
+import org.rapidoid.net.impl.PipelinedResponses;
 import org.rapidoid.setup.On;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Msc;
@@ -55,6 +56,43 @@ public class HttpPipeliningTest extends IsolatedIntegrationTest {
 		testReqResp(req, REQ_COUNT);
 	}
 
+	@Test
+	public void testAsyncPipelineCompletingOutOfOrder() {
+		long parkedBefore = PipelinedResponses.INSTANCE.totalParked();
+
+		On.get("/").json((Req req, Integer n) -> {
+			U.sleep((REQ_COUNT - n) / 5); // the later requests complete first
+			COUNTER.incrementAndGet();
+			return U.frmt("n=%s, handle=%s", n, req.handle());
+		});
+
+		COUNTER.set(0);
+
+		connect((in, reader, out) -> {
+
+			for (int n = 1; n <= REQ_COUNT; n++) {
+				out.writeBytes(String.format("GET /?n=%s _\r\n\r\n", n));
+			}
+
+			String resp = new String(IO.readWithTimeoutUntil(in, this::isComplete));
+
+			eq(COUNTER.get(), REQ_COUNT);
+
+			// the responses are written in the order of the requests
+			int pos = 0;
+			for (int n = 1; n <= REQ_COUNT; n++) {
+				int next = resp.indexOf("n=" + n + ",", pos);
+				isTrue(next > pos);
+				pos = next;
+			}
+
+			return null;
+		});
+
+		isTrue(PipelinedResponses.INSTANCE.totalParked() > parkedBefore);
+		eq(PipelinedResponses.INSTANCE.parked(), 0L);
+	}
+
 	private void testReqResp(String req, int multiply) {
 		Msc.startMeasure();
 
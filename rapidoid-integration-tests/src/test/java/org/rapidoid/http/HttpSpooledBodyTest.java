@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.http;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.commons.Str;
+import org.rapidoid.config.Conf;
+import org.rapidoid.crypto.Crypto;
+import org.rapidoid.io.IO;
+import org.rapidoid.io.Upload;
+import org.rapidoid.setup.On;
+import org.rapidoid.setup.Setup;
+import org.rapidoid.u.U;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class HttpSpooledBodyTest extends IsolatedIntegrationTest {
+
+	@Test
+	public void shouldStreamBigRequestBodies() {
+		Conf.HTTP.sub("spooling").set("minSize", 1000);
+
+		On.post("/hash").plain((Req req) -> Crypto.md5(IO.loadBytes(req.bodyStream())) + ":" + req.body().length);
+
+		for (int size : new int[]{10, 999, 1000, 1001, 3 * 1024 * 1024}) {
+			byte[] data = new byte[size];
+			new Random(size).nextBytes(data);
+
+			String res = HTTP.post(localhost("/hash")).contentType("application/octet-stream").body(data).fetch();
+
+			eq(res, Crypto.md5(data) + ":" + size);
+		}
+	}
+
+	@Test
+	public void shouldRejectTooBigRequestBodies() {
+		Conf.HTTP.sub("spooling").set("minSize", 1000);
+		Conf.HTTP.sub("spooling").set("maxSize", 10000);
+
+		// the limits are applied when the server starts
+		Setup limited = Setup.create("limited").port(7070);
+
+		try {
+			limited.post("/size").plain((Req req) -> req.body().length);
+
+			eq(HTTP.post(localhost(7070, "/size")).body(new byte[10000]).fetch(), "10000");
+
+			HttpResp resp = HTTP.post(localhost(7070, "/size")).body(new byte[10001]).execute();
+			eq(resp.code(), 413);
+
+		} finally {
+			limited.shutdown();
+		}
+	}
+
+	@Test
+	public void shouldSpoolBigUploads() {
+		Conf.HTTP.sub("spooling").set("minSize", 1000);
+
+		On.post("/upload").json((Req req) -> {
+			Map<String, Object> info = U.map("a", req.posted("a"), "b", req.posted("b"));
+
+			for (Map.Entry<String, List<Upload>> e : req.files().entrySet()) {
+				Upload upload = e.getValue().get(0);
+				info.put(e.getKey(), U.join(":", upload.filename(), upload.size(), upload.isInMemory(), Crypto.md5(upload.content())));
+			}
+
+			return info;
+		});
+
+		Upload file1 = Upload.from("test1.txt");
+		Upload file2 = Upload.from("rabbit.jpg");
+
+		Map<String, List<Upload>> files = U.map("f1", U.list(file1), "f2", U.list(file2));
+
+		Map<String, Object> res = HTTP.post(localhost("/upload"))
+			.data("a", "x y")
+			.data("b", Str.mul("b", 5000))
+			.files(files)
+			.toMap();
+
+		eq(res.get("a"), "x y");
+		eq(res.get("b"), Str.mul("b", 5000));
+		eq(res.get("f1"), U.join(":", "test1.txt", 5, false, Crypto.md5(file1.content())));
+		eq(res.get("f2"), U.join(":", "rabbit.jpg", file2.size(), false, Crypto.md5(file2.content())));
+	}
+
+	@Test
+	public void shouldParseBigURLEncodedForms() {
+		Conf.HTTP.sub("spooling").set("minSize", 1000);
+
+		On.post("/form").plain((Req req) -> req.posted("a") + ":" + ((String) req.posted("b")).length());
+
+		String res = HTTP.post(localhost("/form"))
+			.data("a", "x&y")
+			.data("b", Str.mul("b", 100000))
+			.fetch();
+
+		eq(res, "x&y:100000");
+	}
+
+}
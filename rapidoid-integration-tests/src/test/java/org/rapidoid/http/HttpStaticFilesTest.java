@@ -26,6 +26,7 @@ import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.io.Res;
 import org.rapidoid.setup.On;
+import org.rapidoid.u.U;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.0.11")
@@ -63,6 +64,55 @@ public class HttpStaticFilesTest extends IsolatedIntegrationTest {
 		notFound("/page2");
 	}
 
+	@Test
+	public void serveConditionalAndPartialContent() {
+		On.custom().staticFilesPath("static2");
+
+		HttpResp full = HTTP.get(localhost("/index.html")).execute();
+		eq(full.code(), 200);
+		eq(full.body(), "<h1>Home page</h1>");
+		eq(full.headers().get("Accept-Ranges"), "bytes");
+
+		String etag = U.notNull(full.headers().get("ETag"), "ETag");
+		String lastModified = U.notNull(full.headers().get("Last-Modified"), "Last-Modified");
+
+		// revalidation
+		HttpResp notModified = HTTP.get(localhost("/index.html")).header("If-None-Match", etag).execute();
+		eq(notModified.code(), 304);
+		eq(notModified.headers().get("ETag"), etag);
+		isNull(notModified.headers().get("Content-Type"));
+
+		eq(HTTP.get(localhost("/index.html")).header("If-None-Match", "\"other\", W/" + etag).execute().code(), 304);
+		eq(HTTP.get(localhost("/index.html")).header("If-None-Match", "\"other\"").execute().code(), 200);
+		eq(HTTP.get(localhost("/index.html")).header("If-Modified-Since", lastModified).execute().code(), 304);
+
+		// single range
+		HttpResp part = HTTP.get(localhost("/index.html")).header("Range", "bytes=1-3").execute();
+		eq(part.code(), 206);
+		eq(part.body(), "h1>");
+		eq(part.headers().get("Content-Range"), "bytes 1-3/18");
+
+		part = HTTP.get(localhost("/index.html")).header("Range", "bytes=-4").execute();
+		eq(part.code(), 206);
+		eq(part.body(), "/h1>");
+
+		// multiple ranges
+		HttpResp parts = HTTP.get(localhost("/index.html")).header("Range", "bytes=0-0,4-").execute();
+		eq(parts.code(), 206);
+		isTrue(parts.headers().get("Content-Type").startsWith("multipart/byteranges; boundary="));
+		isTrue(parts.body().contains("Content-Range: bytes 0-0/18\r\n\r\n<\r\n"));
+		isTrue(parts.body().contains("Content-Range: bytes 4-17/18\r\n\r\nHome page</h1>\r\n"));
+
+		// the range is ignored if the content has changed
+		eq(HTTP.get(localhost("/index.html")).header("Range", "bytes=1-3").header("If-Range", "\"old\"").execute().code(), 200);
+		eq(HTTP.get(localhost("/index.html")).header("Range", "bytes=1-3").header("If-Range", etag).execute().code(), 206);
+
+		// not satisfiable
+		HttpResp none = HTTP.get(localhost("/index.html")).header("Range", "bytes=100-").execute();
+		eq(none.code(), 416);
+		eq(none.headers().get("Content-Range"), "bytes */18");
+	}
+
 	@Test
 	public void serveStaticFilesFromDefaultLocations() {
 		onlyGet("/page1");
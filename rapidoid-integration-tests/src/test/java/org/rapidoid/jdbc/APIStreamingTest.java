@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.jdbc;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.data.JSON;
+import org.rapidoid.http.HTTP;
+import org.rapidoid.http.IsolatedIntegrationTest;
+import org.rapidoid.http.Self;
+import org.rapidoid.setup.On;
+import org.rapidoid.u.U;
+import org.rapidoid.web.config.bean.APIConfig;
+import org.rapidoid.web.handler.APIHandler;
+
+import java.util.List;
+import java.util.Map;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class APIStreamingTest extends IsolatedIntegrationTest {
+
+	private static final int ROWS = 3000;
+
+	@Test
+	public void testStreamingAPI() {
+		JDBC.tryToExecute("drop table streamed_nums");
+		JDBC.execute("create table streamed_nums (id int, name varchar(10), odd boolean)");
+
+		for (int i = 1; i <= ROWS; i++) {
+			JDBC.execute("insert into streamed_nums values (?, ?, ?)", i, i % 10 == 0 ? null : "n" + i, i % 2 == 1);
+		}
+
+		On.get("/buffered").json(new APIHandler(api("SELECT * FROM streamed_nums ORDER BY id", false)));
+		On.get("/streamed").json(new APIHandler(api("SELECT * FROM streamed_nums ORDER BY id", true)));
+		On.get("/streamed-range").json(new APIHandler(api("SELECT id FROM streamed_nums WHERE id <= $max ORDER BY id", true)));
+
+		List<Map<String, Object>> buffered = JSON.parse(Self.get("/buffered").fetch());
+		List<Map<String, Object>> streamed = JSON.parse(Self.get("/streamed").fetch());
+
+		eq(streamed.size(), ROWS);
+		eq(streamed, buffered);
+
+		eq(streamed.get(0), U.map("ID", 1, "NAME", "n1", "ODD", true));
+		eq(streamed.get(9), U.map("ID", 10, "NAME", null, "ODD", false));
+
+		// the request parameters are bound as named SQL parameters
+		Self.get("/streamed-range?max=3").expect("[{\"ID\":1},{\"ID\":2},{\"ID\":3}]");
+		Self.get("/streamed-range?max=0").expect("[]");
+	}
+
+	@Test
+	public void testStreamingErrors() {
+		JDBC.tryToExecute("drop table streamed_ids");
+		JDBC.execute("create table streamed_ids (id int)");
+
+		for (int i = 1; i <= ROWS; i++) {
+			JDBC.execute("insert into streamed_ids values (?)", i);
+		}
+
+		On.get("/missing").json(new APIHandler(api("SELECT * FROM no_such_table", true)));
+
+		// the last rows can't be converted to UUID, after the first rows were sent
+		On.get("/broken").json(new APIHandler(api("SELECT id, CASE WHEN id <= 2500 " +
+			"THEN X'000102030405060708090A0B0C0D0E0F' ELSE X'00' END AS \"X__UUID\" FROM streamed_ids ORDER BY id", true)));
+
+		// nothing was sent yet, so the error is rendered instead
+		eq(HTTP.get(localhost("/missing")).execute().code(), 500);
+
+		// the partial response isn't completed, the connection is closed instead
+		try {
+			HTTP.get(localhost("/broken")).execute();
+			fail("Expected an incomplete response!");
+
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+
+	private static APIConfig api(String sql, boolean stream) {
+		APIConfig api = new APIConfig(sql);
+		api.stream = stream;
+		return api;
+	}
+
+}
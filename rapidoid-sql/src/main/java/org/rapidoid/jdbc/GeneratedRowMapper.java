@@ -0,0 +1,53 @@
+/*-
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.jdbc;
+
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.beany.Prop;
+import org.rapidoid.lambda.Mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The base class of the row mappers generated by {@link RowMapperCompiler}.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public abstract class GeneratedRowMapper extends RapidoidThing implements Mapper<ResultSet, Object> {
+
+	protected final Prop[] props;
+
+	protected GeneratedRowMapper(Prop[] props) {
+		this.props = props;
+	}
+
+	/**
+	 * Sets the value of the specified column (0-indexed) through the property, for the columns that can't be
+	 * mapped with typed getters.
+	 */
+	protected void setProp(int index, Object row, ResultSet rs) throws SQLException {
+		props[index].set(row, rs.getObject(index + 1));
+	}
+
+}
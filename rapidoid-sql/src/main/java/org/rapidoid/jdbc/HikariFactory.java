@@ -44,7 +44,20 @@ public class HikariFactory extends RapidoidThing {
 
 		Conf.HIKARI.applyTo(config);
 
+		if (jdbc.dialect() == SqlDialect.MYSQL) {
+			// Hikari doesn't cache prepared statements, it relies on the driver to do it
+			defaultDataSourceProperty(config, "cachePrepStmts", "true");
+			defaultDataSourceProperty(config, "prepStmtCacheSize", "250");
+			defaultDataSourceProperty(config, "prepStmtCacheSqlLimit", "2048");
+		}
+
 		return new HikariDataSource(config);
 	}
 
+	private static void defaultDataSourceProperty(HikariConfig config, String name, String value) {
+		if (!config.getDataSourceProperties().containsKey(name)) {
+			config.addDataSourceProperty(name, value);
+		}
+	}
+
 }
@@ -20,6 +20,7 @@
 
 package org.rapidoid.jdbc;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.collection.Coll;
@@ -27,6 +28,7 @@ import org.rapidoid.datamodel.Results;
 import org.rapidoid.lambda.Mapper;
 
 import javax.sql.DataSource;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.util.Collections;
@@ -141,6 +143,10 @@ public class JDBC extends JdbcUtil {
 		return api().query(sql, namedArgs);
 	}
 
+	public static long writeJSON(ObjectMapper mapper, OutputStream out, String sql, Map<String, ?> namedArgs) {
+		return api().writeJSON(mapper, out, sql, namedArgs);
+	}
+
 	public static Connection getConnection() {
 		return api().getConnection();
 	}
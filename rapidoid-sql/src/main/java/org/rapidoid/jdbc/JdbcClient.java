@@ -20,6 +20,7 @@
 
 package org.rapidoid.jdbc;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.cls.Cls;
@@ -42,10 +43,13 @@ import org.rapidoid.util.Msc;
 import org.rapidoid.util.MscOpts;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.*;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 
 
 @Authors("Nikolche Mihajlovski")
@@ -55,6 +59,10 @@ public class JdbcClient extends AutoManageable<JdbcClient> {
 
 	private static final String DEFAULT_POOL_PROVIDER = "hikari";
 
+	private static final int DEFAULT_FETCH_SIZE = 1000;
+
+	private static final ConcurrentMap<String, Res> SQL_FILES = Coll.concurrentMap();
+
 	private volatile boolean initialized;
 
 	private volatile String username;
@@ -68,6 +76,10 @@ public class JdbcClient extends AutoManageable<JdbcClient> {
 
 	private volatile ReadWriteMode mode = ReadWriteMode.READ_WRITE;
 
+	private volatile SqlDialect dialect = SqlDialect.GENERIC;
+
+	private volatile int fetchSize = DEFAULT_FETCH_SIZE;
+
 	private final Config config;
 
 	private final LazyInit<JdbcWorkers> workers = new LazyInit<>(new Callable<JdbcWorkers>() {
@@ -91,6 +103,7 @@ public class JdbcClient extends AutoManageable<JdbcClient> {
 		password(config.entry("password").str().getOrNull());
 		driver(config.entry("driver").str().getOrNull());
 		poolProvider(config.entry("poolProvider").or(DEFAULT_POOL_PROVIDER));
+		fetchSize(config.entry("fetchSize").or(DEFAULT_FETCH_SIZE));
 
 		if (U.isEmpty(driver) && U.notEmpty(url)) {
 			driver(inferDriverFromUrl(url));
@@ -155,6 +168,7 @@ public class JdbcClient extends AutoManageable<JdbcClient> {
 	public synchronized JdbcClient url(String url) {
 		if (U.neq(this.url, url)) {
 			this.url = url;
+			this.dialect = SqlDialect.fromUrl(url);
 			this.initialized = false;
 		}
 		return this;
@@ -184,6 +198,11 @@ public class JdbcClient extends AutoManageable<JdbcClient> {
 		return this;
 	}
 
+	public JdbcClient fetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+		return this;
+	}
+
 	/**
 	 * Use <code>usePool(true)</code> instead.
 	 */
@@ -401,14 +420,19 @@ public class JdbcClient extends AutoManageable<JdbcClient> {
 
 		boolean pagingInSql = sql.contains("$skip") || sql.contains("$limit");
 
+		List<T> results;
+
 		if (pagingInSql) {
 			sql = replacePagingParams(sql, skip, limit);
-		}
+			results = fetchData(resultType, resultMapper, sql, namedArgs, args, 0, Integer.MAX_VALUE);
 
-		List<T> results = fetchData(resultType, resultMapper, sql, namedArgs, args);
+		} else if (needsPaging && dialect.supportsLimit() && SqlPaging.canLimit(sql)) {
+			sql = SqlPaging.paged(dialect, sql, skip, limit < Integer.MAX_VALUE ? limit : -1);
+			results = fetchData(resultType, resultMapper, sql, namedArgs, args, 0, Integer.MAX_VALUE);
 
-		if (needsPaging && !pagingInSql) {
-			results = Coll.range(results, Msc.toInt(skip), Msc.toInt(skip + limit));
+		} else {
+			// the paging can't be pushed down to the database, so skip the rows without mapping them
+			results = fetchData(resultType, resultMapper, sql, namedArgs, args, skip, limit);
 		}
 
 		U.must(results.size() <= limit, "Paging error: too many results!");
@@ -423,21 +447,32 @@ public class JdbcClient extends AutoManageable<JdbcClient> {
 	}
 
 	private <T> List<T> fetchData(Class<T> resultType, Mapper<ResultSet, T> resultMapper,
-	                              String sql, Map<String, ?> namedArgs, Object[] args) {
+	                              String sql, Map<String, ?> namedArgs, Object[] args,
+	                              long skip, int limit) {
 
 		try (Connection conn = provideConnection();
-		     PreparedStatement stmt = JDBC.prepare(conn, sql, namedArgs, args);
-		     ResultSet rs = stmt.executeQuery()) {
+		     PreparedStatement stmt = JDBC.prepare(conn, sql, namedArgs, args)) {
 
-			if (resultMapper != null) {
-				return JDBC.rows(resultMapper, rs);
+			long maxRows = skip + limit;
 
-			} else {
-				if (resultType.equals(Map.class)) {
-					return U.cast(JDBC.rows(rs));
-				} else {
-					return JDBC.rows(resultType, rs);
+			if (maxRows < Integer.MAX_VALUE) {
+				stmt.setMaxRows((int) maxRows);
+			}
+
+			try (ResultSet rs = stmt.executeQuery()) {
+
+				for (long i = 0; i < skip; i++) {
+					if (!rs.next()) return U.list();
 				}
+
+				Mapper<ResultSet, T> mapper = JDBC.rowMapper(resultType, resultMapper, rs);
+				List<T> rows = U.list();
+
+				while (rows.size() < limit && rs.next()) {
+					rows.add(mapper.map(rs));
+				}
+
+				return rows;
 			}
 
 		} catch (Exception e) {
@@ -445,14 +480,80 @@ public class JdbcClient extends AutoManageable<JdbcClient> {
 		}
 	}
 
+	<T> JdbcIterator<T> iterate(Class<T> resultType, Mapper<ResultSet, T> resultMapper,
+	                            String sql, Map<String, ?> namedArgs, Object[] args) {
+
+		ensureIsInitialized();
+
+		if (sql.contains("$skip") || sql.contains("$limit")) {
+			sql = replacePagingParams(sql, 0, Integer.MAX_VALUE);
+		}
+
+		return new JdbcIterator<>(this, resultType, resultMapper, sql, namedArgs, args);
+	}
+
+	/**
+	 * Streams the query results as a JSON array to the output, fetching the rows from the database in batches of
+	 * the configured fetch size, without keeping them in memory.
+	 *
+	 * @return the number of written rows
+	 */
+	public long writeJSON(ObjectMapper mapper, OutputStream out, String sql, Map<String, ?> namedArgs) {
+		try {
+			JsonRowWriter writer = new JsonRowWriter(mapper, out);
+
+			try (JdbcIterator<Void> it = iterate(null, writer, toSql(sql), namedArgs, null)) {
+				writer.start();
+
+				while (it.hasNext()) {
+					it.next();
+				}
+
+				writer.end();
+			}
+
+			return writer.count();
+
+		} catch (IOException e) {
+			throw U.rte(e);
+		}
+	}
+
 	long getQueryCount(String sql, Map<String, ?> namedArgs, Object[] args) {
-		// FIXME find a better way
-		return -1; // unknown
+		ensureIsInitialized();
+
+		if (sql.contains("$skip") || sql.contains("$limit") || !SqlPaging.canCount(sql)) {
+			return -1; // unknown
+		}
+
+		String countSql = SqlPaging.count(sql);
+
+		try (Connection conn = provideConnection();
+		     PreparedStatement stmt = JDBC.prepare(conn, countSql, namedArgs, args);
+		     ResultSet rs = stmt.executeQuery()) {
+
+			U.must(rs.next(), "The COUNT query returned no results!");
+			return rs.getLong(1);
+
+		} catch (Exception e) {
+			throw U.rte("Couldn't count the query results!", e);
+		}
 	}
 
 	private static String toSql(String sql) {
 		if (sql.endsWith(".sql")) {
-			sql = Res.from(sql).mustExist().getContent();
+			Res res = SQL_FILES.get(sql);
+
+			if (res == null) {
+				res = Res.from(sql);
+
+				if (SQL_FILES.size() < 1000) {
+					SQL_FILES.putIfAbsent(sql, res);
+				}
+			}
+
+			// the resource content is reloaded when the file changes
+			sql = res.mustExist().getContent();
 		}
 
 		return sql;
@@ -542,6 +643,14 @@ public class JdbcClient extends AutoManageable<JdbcClient> {
 		return mode;
 	}
 
+	public SqlDialect dialect() {
+		return dialect;
+	}
+
+	public int fetchSize() {
+		return fetchSize;
+	}
+
 	public JdbcClient init() {
 		ensureIsInitialized();
 		return this;
@@ -559,6 +668,8 @@ public class JdbcClient extends AutoManageable<JdbcClient> {
 			", pool=" + dataSource +
 			", poolProvider=" + poolProvider +
 			", mode=" + mode +
+			", dialect=" + dialect +
+			", fetchSize=" + fetchSize +
 			'}';
 	}
 
@@ -585,6 +696,14 @@ public class JdbcClient extends AutoManageable<JdbcClient> {
 		});
 	}
 
+	/**
+	 * Asynchronously executes the INSERT/UPDATE/DELETE statement, and passes the update count to the callback.
+	 * The queued statements with the same SQL are executed together in JDBC batches.
+	 */
+	public void execute(Callback<Integer> callback, String sql, Object... args) {
+		workers.get().execute(new JdbcUpdate(toSql(sql), args, callback));
+	}
+
 	public <T> void execute(final Mapper<ResultSet, T> resultMapper, final Callback<List<T>> callback, final String sql, final Object... args) {
 		execute(new Operation<Connection>() {
 
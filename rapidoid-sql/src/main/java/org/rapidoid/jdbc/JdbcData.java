@@ -24,7 +24,8 @@ package org.rapidoid.jdbc;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
-import org.rapidoid.datamodel.PageableData;
+import org.rapidoid.datamodel.CloseableIterator;
+import org.rapidoid.datamodel.StreamableData;
 import org.rapidoid.lambda.Mapper;
 import org.rapidoid.util.Msc;
 
@@ -34,7 +35,7 @@ import java.util.Map;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.3.0")
-public class JdbcData<T> extends RapidoidThing implements PageableData<T> {
+public class JdbcData<T> extends RapidoidThing implements StreamableData<T> {
 
 	private final JdbcClient jdbc;
 	private final Class<T> resultType;
@@ -61,4 +62,9 @@ public class JdbcData<T> extends RapidoidThing implements PageableData<T> {
 	public long getCount() {
 		return jdbc.getQueryCount(sql, namedArgs, args);
 	}
+
+	@Override
+	public CloseableIterator<T> iterate() {
+		return jdbc.iterate(resultType, resultMapper, sql, namedArgs, args);
+	}
 }
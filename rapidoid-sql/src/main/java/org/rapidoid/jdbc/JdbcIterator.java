@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.jdbc;
+
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.datamodel.CloseableIterator;
+import org.rapidoid.lambda.Mapper;
+import org.rapidoid.log.Log;
+import org.rapidoid.u.U;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the query results in a single pass, fetching the rows from the database in batches of the
+ * configured fetch size. The resources are released when the iteration ends, or when the iterator is closed.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class JdbcIterator<T> extends RapidoidThing implements CloseableIterator<T> {
+
+	private final JdbcClient jdbc;
+	private final Class<T> resultType;
+	private final Mapper<ResultSet, T> resultMapper;
+	private final String sql;
+	private final Map<String, ?> namedArgs;
+	private final Object[] args;
+
+	private Connection conn;
+	private PreparedStatement stmt;
+	private ResultSet rs;
+	private Mapper<ResultSet, T> mapper;
+
+	private boolean restoreAutoCommit;
+	private boolean hasNext;
+	private boolean advanced;
+	private boolean closed;
+
+	JdbcIterator(JdbcClient jdbc, Class<T> resultType, Mapper<ResultSet, T> resultMapper,
+	             String sql, Map<String, ?> namedArgs, Object[] args) {
+		this.jdbc = jdbc;
+		this.resultType = resultType;
+		this.resultMapper = resultMapper;
+		this.sql = sql;
+		this.namedArgs = namedArgs;
+		this.args = args;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (closed) return false;
+
+		if (!advanced) {
+			try {
+				if (rs == null) open();
+
+				hasNext = rs.next();
+				advanced = true;
+
+			} catch (Exception e) {
+				close();
+				throw U.rte("Error occurred while fetching the query results!", e);
+			}
+
+			if (!hasNext) close();
+		}
+
+		return hasNext;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) throw new NoSuchElementException();
+
+		advanced = false;
+
+		try {
+			return mapper.map(rs);
+
+		} catch (Exception e) {
+			close();
+			throw U.rte("Error occurred while mapping the query results!", e);
+		}
+	}
+
+	private void open() throws Exception {
+		SqlDialect dialect = jdbc.dialect();
+
+		conn = jdbc.getConnection();
+
+		if (dialect.cursorNeedsTx() && conn.getAutoCommit()) {
+			conn.setAutoCommit(false);
+			restoreAutoCommit = true;
+		}
+
+		stmt = JDBC.prepare(conn, sql, namedArgs, args);
+		stmt.setFetchSize(dialect.streamingFetchSize(jdbc.fetchSize()));
+
+		rs = stmt.executeQuery();
+		mapper = JDBC.rowMapper(resultType, resultMapper, rs);
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove");
+	}
+
+	@Override
+	public void close() {
+		if (closed) return;
+		closed = true;
+
+		try {
+			if (rs != null) rs.close();
+			if (stmt != null) stmt.close();
+
+			if (restoreAutoCommit) {
+				conn.commit();
+				conn.setAutoCommit(true);
+			}
+
+		} catch (Exception e) {
+			Log.error("Error occurred while closing the query results!", e);
+
+		} finally {
+			if (conn != null) jdbc.release(conn);
+		}
+	}
+
+}
@@ -0,0 +1,76 @@
+/*-
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.jdbc;
+
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.concurrent.Callback;
+import org.rapidoid.concurrent.Callbacks;
+import org.rapidoid.lambda.Operation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+/**
+ * An asynchronous INSERT/UPDATE/DELETE operation, which can be executed in a JDBC batch together with the other
+ * queued operations with the same SQL.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+class JdbcUpdate extends RapidoidThing implements Operation<Connection> {
+
+	final String sql;
+
+	final Object[] args;
+
+	private final Callback<Integer> callback;
+
+	JdbcUpdate(String sql, Object[] args, Callback<Integer> callback) {
+		this.sql = sql;
+		this.args = args;
+		this.callback = callback;
+	}
+
+	@Override
+	public void execute(Connection conn) {
+		int count;
+
+		try (PreparedStatement stmt = JDBC.prepare(conn, sql, null, args)) {
+			count = stmt.executeUpdate();
+
+		} catch (Throwable e) {
+			done(null, e);
+			return;
+		}
+
+		done(count, null);
+	}
+
+	boolean canBatchWith(JdbcUpdate other) {
+		return sql.equals(other.sql);
+	}
+
+	void done(Integer count, Throwable error) {
+		Callbacks.done(callback, count, error);
+	}
+
+}
@@ -23,9 +23,8 @@ package org.rapidoid.jdbc;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
-import org.rapidoid.beany.Beany;
-import org.rapidoid.beany.Prop;
-import org.rapidoid.commons.StringRewriter;
+import org.rapidoid.cache.Cache;
+import org.rapidoid.cache.Caching;
 import org.rapidoid.lambda.Mapper;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Msc;
@@ -42,7 +41,28 @@ import java.util.UUID;
 @Since("5.3.0")
 public class JdbcUtil extends RapidoidThing {
 
-	private static final StringRewriter NAMED_PARAMS_REWRITER = new StringRewriter(StringRewriter.ALL_QUOTES, "\\$(\\w+)\\b");
+	@SuppressWarnings("unchecked")
+	private static final Cache<String, NamedSql> NAMED_SQL = Caching.of(new Mapper<String, NamedSql>() {
+		@Override
+		public NamedSql map(String sql) throws Exception {
+			return NamedSql.parse(sql);
+		}
+	}).name("jdbc-named-sql").capacity(10000).manageable(true).statistics(true).build();
+
+	@SuppressWarnings("unchecked")
+	private static final Cache<RowLayout, Mapper<ResultSet, ?>> ROW_MAPPERS = Caching.of(new Mapper<RowLayout, Mapper<ResultSet, ?>>() {
+		@Override
+		public Mapper<ResultSet, ?> map(RowLayout layout) throws Exception {
+			return RowMapperCompiler.compile(layout);
+		}
+	}).name("jdbc-row-mappers").capacity(1000).manageable(true).statistics(true).build();
+
+	private static final Mapper<ResultSet, Map<String, Object>> MAP_MAPPER = new Mapper<ResultSet, Map<String, Object>>() {
+		@Override
+		public Map<String, Object> map(ResultSet rs) throws Exception {
+			return row(rs);
+		}
+	};
 
 	public static PreparedStatement prepare(Connection conn, String sql, final Map<String, ?> namedArgs, Object[] args) {
 		try {
@@ -50,9 +70,19 @@ public class JdbcUtil extends RapidoidThing {
 			if (namedArgs != null) {
 				U.must(args == null);
 
-				List<Object> arguments = U.list();
-				sql = substituteNamedParams(sql, namedArgs, arguments);
-				args = arguments.toArray();
+				NamedSql named = NAMED_SQL.get(sql);
+
+				if (named.isBoundBy(namedArgs)) {
+					sql = named.sql();
+					args = named.args(namedArgs);
+
+				} else {
+					NAMED_SQL.bypass();
+
+					List<Object> arguments = U.list();
+					sql = NamedSql.substitute(sql, namedArgs, arguments);
+					args = arguments.toArray();
+				}
 			}
 
 			PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
@@ -65,24 +95,6 @@ public class JdbcUtil extends RapidoidThing {
 		}
 	}
 
-	private static String substituteNamedParams(String sql, final Map<String, ?> namedArgs, final List<Object> arguments) {
-		return NAMED_PARAMS_REWRITER.rewrite(sql, new Mapper<String[], String>() {
-			@Override
-			public String map(String[] groups) throws Exception {
-				String name = groups[1];
-
-				if (namedArgs.containsKey(name)) {
-					Object value = namedArgs.get(name);
-					arguments.add(value);
-					return "?";
-
-				} else {
-					return groups[0]; // not in the args -> leave it untouched
-				}
-			}
-		});
-	}
-
 	public static void bind(PreparedStatement stmt, Object[] args) throws SQLException {
 		for (int i = 0; i < args.length; i++) {
 			Object arg = args[i];
@@ -122,34 +134,28 @@ public class JdbcUtil extends RapidoidThing {
 	}
 
 	public static <T> List<T> rows(Class<T> resultType, ResultSet rs) throws Exception {
-		List<T> rows = U.list();
+		return rows(beanMapper(resultType, rs.getMetaData()), rs);
+	}
 
-		ResultSetMetaData meta = rs.getMetaData();
-		int columnsN = meta.getColumnCount();
-		Prop[] props = new Prop[columnsN];
+	public static <T> Mapper<ResultSet, T> rowMapper(Class<T> resultType, Mapper<ResultSet, T> resultMapper,
+	                                                 ResultSet rs) throws SQLException {
 
-		for (int i = 0; i < props.length; i++) {
-			String name = meta.getColumnLabel(i + 1);
-			props[i] = Beany.property(resultType, name, false);
-		}
+		if (resultMapper != null) {
+			return resultMapper;
 
-		while (rs.next()) {
-			T row = resultType.newInstance();
-
-			for (int i = 0; i < columnsN; i++) {
-				if (props[i] != null) {
-					Object value = rs.getObject(i + 1); // 1-indexed
-					props[i].set(row, value);
-				}
-			}
+		} else if (resultType.equals(Map.class)) {
+			return U.cast(MAP_MAPPER);
 
-			rows.add(row);
+		} else {
+			return beanMapper(resultType, rs.getMetaData());
 		}
+	}
 
-		return rows;
+	public static <T> Mapper<ResultSet, T> beanMapper(Class<T> resultType, ResultSetMetaData meta) throws SQLException {
+		return U.cast(ROW_MAPPERS.get(RowLayout.of(resultType, meta)));
 	}
 
-	private static Object convertResultValue(String type, Object value) {
+	static Object convertResultValue(String type, Object value) {
 		byte[] bytes;
 
 		switch (type) {
@@ -17,7 +17,6 @@
  * limitations under the License.
  * #L%
  */
-
 package org.rapidoid.jdbc;
 
 
@@ -29,61 +28,229 @@ import org.rapidoid.log.Log;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Msc;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
-import java.util.Queue;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.3.4")
 public class JdbcWorker extends AbstractLoopThread {
 
 	private final JdbcClient jdbc;
-	private final Queue<Operation<Connection>> queue;
+	private final BlockingQueue<Operation<Connection>> queue;
 	private final long batchTimeMs;
+	private final int batchSize;
+	private final long batchWindowMs;
+
+	private final List<Operation<Connection>> ops = U.list();
+
+	private volatile long executed;
+	private volatile long batches;
+	private volatile long batchedOps;
+	private volatile int maxBatchSize;
+	private volatile long errors;
 
-	public JdbcWorker(JdbcClient jdbc, Queue<Operation<Connection>> queue, long batchTimeMs) {
+	public JdbcWorker(JdbcClient jdbc, BlockingQueue<Operation<Connection>> queue, long batchTimeMs,
+	                  int batchSize, long batchWindowMs) {
 		super(0); // no pause
 
 		this.jdbc = jdbc;
 		this.queue = queue;
 		this.batchTimeMs = batchTimeMs;
+		this.batchSize = batchSize;
+		this.batchWindowMs = batchWindowMs;
 	}
 
 	@Override
 	protected void loop() throws Exception {
+		Operation<Connection> first;
+
+		try {
+			// block until there is work to do
+			first = queue.take();
+		} catch (InterruptedException e) {
+			throw new CancellationException();
+		}
+
+		ops.add(first);
+		collect();
 
 		Connection conn = null;
 
 		try {
+			conn = jdbc.getConnection();
+			long since = U.time();
 
-			long since = 0;
-
+			// keep using the connection while there are queued operations, but not longer than the batch time
 			do {
+				executeAll(conn);
+				ops.clear();
+
 				Operation<Connection> op = queue.poll();
+				if (op == null) break;
 
-				if (op != null) {
+				ops.add(op);
+				collect();
 
-					if (conn == null) {
-						// first op
-						conn = jdbc.getConnection();
-						since = U.time();
-					}
+			} while (!Msc.timedOut(since, batchTimeMs));
 
-					op.execute(conn);
+			if (!ops.isEmpty()) {
+				executeAll(conn);
+			}
+
+		} catch (Exception e) {
+			Log.error("JDBC worker error!", e);
+			failAll(e);
+
+		} finally {
+			ops.clear();
 
+			if (conn != null) {
+				jdbc.release(conn);
+			}
+		}
+	}
+
+	/**
+	 * Collects more queued operations, up to the batch size, waiting for them no longer than the batch window.
+	 */
+	private void collect() {
+		queue.drainTo(ops, batchSize - ops.size());
+
+		if (batchWindowMs > 0) {
+			long deadline = U.time() + batchWindowMs;
+
+			try {
+				while (ops.size() < batchSize) {
+					long remaining = deadline - U.time();
+					if (remaining <= 0) break;
+
+					Operation<Connection> op = queue.poll(remaining, TimeUnit.MILLISECONDS);
+					if (op == null) break;
+
+					ops.add(op);
+					queue.drainTo(ops, batchSize - ops.size());
+				}
+
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void executeAll(Connection conn) {
+		int i = 0;
+
+		while (i < ops.size()) {
+			Operation<Connection> op = ops.get(i);
+
+			if (op instanceof JdbcUpdate) {
+				JdbcUpdate update = (JdbcUpdate) op;
+
+				// the consecutive updates with the same SQL can be executed in one JDBC batch
+				int end = i + 1;
+				while (end < ops.size() && ops.get(end) instanceof JdbcUpdate && update.canBatchWith((JdbcUpdate) ops.get(end))) {
+					end++;
+				}
+
+				if (end - i > 1) {
+					executeBatch(conn, i, end);
 				} else {
-					U.sleep(1);
-					break;
+					update.execute(conn);
 				}
 
-			} while (Msc.timedOut(since, batchTimeMs));
+				executed += end - i;
+				i = end;
 
-		} catch (Exception e) {
-			Log.error("JDBC worker operation error!", e);
+			} else {
+				try {
+					op.execute(conn);
+				} catch (Throwable e) {
+					errors++;
+					Log.error("JDBC worker operation error!", e);
+				}
 
-		} finally {
-			if (conn != null) {
-				conn.close();
+				executed++;
+				i++;
+			}
+		}
+	}
+
+	private void executeBatch(Connection conn, int from, int to) {
+		JdbcUpdate first = (JdbcUpdate) ops.get(from);
+		int size = to - from;
+
+		batches++;
+		batchedOps += size;
+		if (size > maxBatchSize) maxBatchSize = size;
+
+		try (PreparedStatement stmt = conn.prepareStatement(first.sql)) {
+
+			for (int i = from; i < to; i++) {
+				JDBC.bind(stmt, ((JdbcUpdate) ops.get(i)).args);
+				stmt.addBatch();
+			}
+
+			int[] counts = stmt.executeBatch();
+
+			for (int i = from; i < to; i++) {
+				((JdbcUpdate) ops.get(i)).done(counts[i - from], null);
+			}
+
+		} catch (BatchUpdateException e) {
+			// the driver may have executed some of the statements before the failure
+			int[] counts = U.or(e.getUpdateCounts(), new int[0]);
+
+			for (int i = from; i < to; i++) {
+				int n = i - from;
+				boolean ok = n < counts.length && counts[n] != Statement.EXECUTE_FAILED;
+
+				if (!ok) errors++;
+				((JdbcUpdate) ops.get(i)).done(ok ? counts[n] : null, ok ? null : e);
+			}
+
+		} catch (Throwable e) {
+			errors += size;
+
+			for (int i = from; i < to; i++) {
+				((JdbcUpdate) ops.get(i)).done(null, e);
 			}
 		}
 	}
+
+	private void failAll(Exception e) {
+		for (Operation<Connection> op : ops) {
+			errors++;
+
+			if (op instanceof JdbcUpdate) {
+				((JdbcUpdate) op).done(null, e);
+			}
+		}
+	}
+
+	public long executed() {
+		return executed;
+	}
+
+	public long batches() {
+		return batches;
+	}
+
+	public long batchedOps() {
+		return batchedOps;
+	}
+
+	public int maxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public long errors() {
+		return errors;
+	}
+
 }
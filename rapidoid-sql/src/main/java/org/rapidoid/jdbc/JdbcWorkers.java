@@ -21,22 +21,26 @@
 package org.rapidoid.jdbc;
 
 
-import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.config.Conf;
 import org.rapidoid.config.ConfigUtil;
+import org.rapidoid.group.AutoManageable;
+import org.rapidoid.group.ManageableBean;
 import org.rapidoid.lambda.Operation;
 import org.rapidoid.log.Log;
+import org.rapidoid.u.U;
 
 import java.sql.Connection;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.3.4")
-public class JdbcWorkers extends RapidoidThing {
+@ManageableBean(kind = "jdbc-workers")
+public class JdbcWorkers extends AutoManageable<JdbcWorkers> {
 
 	private static final int DEFAULT_CAPACITY = 1_000_000;
 
@@ -48,19 +52,26 @@ public class JdbcWorkers extends RapidoidThing {
 	}
 
 	public JdbcWorkers(JdbcClient jdbc, BlockingQueue<Operation<Connection>> queue) {
+		super(jdbc.id());
+
 		this.queue = queue;
 
 		int workersN = Conf.JDBC.entry("workers").or(ConfigUtil.cpus());
 		long batchTimeMs = Conf.JDBC.entry("batchTimeMs").or(5000);
+		int batchSize = Conf.JDBC.entry("batchSize").or(100);
+		long batchWindowMs = Conf.JDBC.entry("batchWindowMs").or(0);
+
+		U.must(batchSize > 0, "The JDBC batch size must be positive!");
 
 		this.workers = new JdbcWorker[workersN];
 
 		for (int i = 0; i < workers.length; i++) {
-			workers[i] = new JdbcWorker(jdbc, queue, batchTimeMs);
+			workers[i] = new JdbcWorker(jdbc, queue, batchTimeMs, batchSize, batchWindowMs);
 			workers[i].start();
 		}
 
-		Log.info("Started JDBC workers", "workers", workersN, "batchTimeMs", batchTimeMs);
+		Log.info("Started JDBC workers", "workers", workersN, "batchTimeMs", batchTimeMs,
+			"batchSize", batchSize, "batchWindowMs", batchWindowMs);
 	}
 
 	public void execute(Operation<Connection> operation) {
@@ -71,4 +82,55 @@ public class JdbcWorkers extends RapidoidThing {
 		}
 	}
 
+	@Override
+	public List<String> getManageableProperties() {
+		return U.list("id", "workers", "queueSize", "executed", "batches", "avgBatchSize", "maxBatchSize", "errors");
+	}
+
+	public int workers() {
+		return workers.length;
+	}
+
+	/**
+	 * The workers share the queue, so the queue depth is the same for all of them.
+	 */
+	public int queueSize() {
+		return queue.size();
+	}
+
+	public long executed() {
+		long total = 0;
+		for (JdbcWorker worker : workers) total += worker.executed();
+		return total;
+	}
+
+	public long batches() {
+		long total = 0;
+		for (JdbcWorker worker : workers) total += worker.batches();
+		return total;
+	}
+
+	public String avgBatchSize() {
+		long batches = 0, batchedOps = 0;
+
+		for (JdbcWorker worker : workers) {
+			batches += worker.batches();
+			batchedOps += worker.batchedOps();
+		}
+
+		return batches != 0 ? Math.round(batchedOps * 100.0 / batches) / 100.0 + "" : "";
+	}
+
+	public int maxBatchSize() {
+		int max = 0;
+		for (JdbcWorker worker : workers) max = Math.max(max, worker.maxBatchSize());
+		return max;
+	}
+
+	public long errors() {
+		long total = 0;
+		for (JdbcWorker worker : workers) total += worker.errors();
+		return total;
+	}
+
 }
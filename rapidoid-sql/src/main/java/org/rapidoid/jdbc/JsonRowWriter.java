@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.rapidoid.jdbc;
+
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.lambda.Mapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+
+/**
+ * Writes the query results as a JSON array of objects straight from the result set, without mapping the rows to
+ * intermediate maps. The column names are encoded only once per query.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class JsonRowWriter extends RapidoidThing implements Mapper<ResultSet, Void> {
+
+	// the rows are flushed in batches, so they are sent while the next rows are still being read
+	private static final int FLUSH_EVERY_ROWS = 1000;
+
+	private final JsonGenerator gen;
+
+	private SerializedString[] names;
+
+	private String[] types;
+
+	private long count;
+
+	public JsonRowWriter(ObjectMapper mapper, OutputStream out) throws IOException {
+		this.gen = mapper.getFactory().createGenerator(out);
+	}
+
+	public void start() throws IOException {
+		gen.writeStartArray();
+	}
+
+	@Override
+	public Void map(ResultSet rs) throws Exception {
+		if (names == null) {
+			initColumns(rs.getMetaData());
+		}
+
+		gen.writeStartObject();
+
+		for (int i = 0; i < names.length; i++) {
+			gen.writeFieldName(names[i]);
+
+			Object value = rs.getObject(i + 1);
+
+			if (types[i] != null) {
+				value = JdbcUtil.convertResultValue(types[i], value);
+			}
+
+			writeValue(value);
+		}
+
+		gen.writeEndObject();
+		count++;
+
+		if (count % FLUSH_EVERY_ROWS == 0) {
+			gen.flush();
+		}
+
+		return null;
+	}
+
+	private void initColumns(ResultSetMetaData meta) throws Exception {
+		int columnsNumber = meta.getColumnCount();
+
+		names = new SerializedString[columnsNumber];
+		types = new String[columnsNumber];
+
+		for (int i = 0; i < columnsNumber; i++) {
+			String name = meta.getColumnLabel(i + 1);
+
+			// the same naming convention as in JdbcUtil#row
+			String[] nameParts = name.split("__");
+
+			if (nameParts.length == 2) {
+				name = nameParts[0];
+				types[i] = nameParts[1];
+			}
+
+			names[i] = new SerializedString(name);
+		}
+	}
+
+	private void writeValue(Object value) throws IOException {
+		if (value == null) {
+			gen.writeNull();
+
+		} else if (value instanceof String) {
+			gen.writeString((String) value);
+
+		} else if (value instanceof Integer) {
+			gen.writeNumber((Integer) value);
+
+		} else if (value instanceof Long) {
+			gen.writeNumber((Long) value);
+
+		} else if (value instanceof Boolean) {
+			gen.writeBoolean((Boolean) value);
+
+		} else {
+			gen.writeObject(value);
+		}
+	}
+
+	public void end() throws IOException {
+		gen.writeEndArray();
+		gen.flush();
+	}
+
+	public long count() {
+		return count;
+	}
+
+}
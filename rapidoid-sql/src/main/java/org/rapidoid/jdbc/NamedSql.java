@@ -0,0 +1,109 @@
+/*-
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.jdbc;
+
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.commons.StringRewriter;
+import org.rapidoid.lambda.Mapper;
+import org.rapidoid.u.U;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQL with named parameters, parsed into SQL with positional parameters and the order of the parameter names.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+class NamedSql extends RapidoidThing {
+
+	private static final StringRewriter NAMED_PARAMS_REWRITER = new StringRewriter(StringRewriter.ALL_QUOTES, "\\$(\\w+)\\b");
+
+	private final String sql;
+
+	private final String[] names;
+
+	private NamedSql(String sql, String[] names) {
+		this.sql = sql;
+		this.names = names;
+	}
+
+	static NamedSql parse(String sql) {
+		final List<String> names = U.list();
+
+		String positional = NAMED_PARAMS_REWRITER.rewrite(sql, new Mapper<String[], String>() {
+			@Override
+			public String map(String[] groups) throws Exception {
+				names.add(groups[1]);
+				return "?";
+			}
+		});
+
+		return new NamedSql(positional, names.toArray(new String[names.size()]));
+	}
+
+	/**
+	 * The named parameters that are missing in the arguments are left untouched, so the parsed SQL can be used only
+	 * if all of them are specified.
+	 */
+	boolean isBoundBy(Map<String, ?> namedArgs) {
+		for (String name : names) {
+			if (!namedArgs.containsKey(name)) return false;
+		}
+
+		return true;
+	}
+
+	Object[] args(Map<String, ?> namedArgs) {
+		Object[] args = new Object[names.length];
+
+		for (int i = 0; i < args.length; i++) {
+			args[i] = namedArgs.get(names[i]);
+		}
+
+		return args;
+	}
+
+	String sql() {
+		return sql;
+	}
+
+	static String substitute(String sql, final Map<String, ?> namedArgs, final List<Object> arguments) {
+		return NAMED_PARAMS_REWRITER.rewrite(sql, new Mapper<String[], String>() {
+			@Override
+			public String map(String[] groups) throws Exception {
+				String name = groups[1];
+
+				if (namedArgs.containsKey(name)) {
+					Object value = namedArgs.get(name);
+					arguments.add(value);
+					return "?";
+
+				} else {
+					return groups[0]; // not in the args -> leave it untouched
+				}
+			}
+		});
+	}
+
+}
@@ -0,0 +1,82 @@
+/*-
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.jdbc;
+
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * The result type and the column layout (labels and SQL types) of a query result.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+class RowLayout extends RapidoidThing {
+
+	final Class<?> type;
+
+	final String[] labels;
+
+	final int[] sqlTypes;
+
+	private final int hash;
+
+	RowLayout(Class<?> type, String[] labels, int[] sqlTypes) {
+		this.type = type;
+		this.labels = labels;
+		this.sqlTypes = sqlTypes;
+		this.hash = 31 * (31 * type.hashCode() + Arrays.hashCode(labels)) + Arrays.hashCode(sqlTypes);
+	}
+
+	static RowLayout of(Class<?> type, ResultSetMetaData meta) throws SQLException {
+		int columnsN = meta.getColumnCount();
+
+		String[] labels = new String[columnsN];
+		int[] sqlTypes = new int[columnsN];
+
+		for (int i = 0; i < columnsN; i++) {
+			labels[i] = meta.getColumnLabel(i + 1);
+			sqlTypes[i] = meta.getColumnType(i + 1);
+		}
+
+		return new RowLayout(type, labels, sqlTypes);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		RowLayout that = (RowLayout) o;
+
+		return type.equals(that.type) && Arrays.equals(labels, that.labels) && Arrays.equals(sqlTypes, that.sqlTypes);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+}
@@ -0,0 +1,324 @@
+/*-
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.jdbc;
+
+
+import javassist.*;
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.beany.BeanProp;
+import org.rapidoid.beany.Beany;
+import org.rapidoid.beany.Prop;
+import org.rapidoid.lambda.Mapper;
+import org.rapidoid.log.Log;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates row mappers that read the columns with typed getters (e.g. <code>ResultSet.getLong</code>) and assign
+ * them directly to the public fields or setters of the result type, avoiding the reflection and boxing.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class RowMapperCompiler extends RapidoidThing {
+
+	private static final AtomicInteger ID_GEN = new AtomicInteger();
+
+	/**
+	 * The generated mapper classes, per result type and column layout. They are never evicted, as each generated class
+	 * stays in the Metaspace until its class loader is unloaded. The classes are attached to the result type (through
+	 * ClassValue), so they don't hold the class loaders of the result types.
+	 */
+	private static final ClassValue<ConcurrentMap<RowLayout, Constructor<?>>> MAPPER_CLASSES = new ClassValue<ConcurrentMap<RowLayout, Constructor<?>>>() {
+		@Override
+		protected ConcurrentMap<RowLayout, Constructor<?>> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	// the primitive/boxed types, mapped to the suffixes of their typed getters (e.g. "Int" for ResultSet.getInt)
+	private static final Map<Class<?>, String> NUMERIC_GETTERS = U.map();
+
+	static {
+		NUMERIC_GETTERS.put(byte.class, "Byte");
+		NUMERIC_GETTERS.put(short.class, "Short");
+		NUMERIC_GETTERS.put(int.class, "Int");
+		NUMERIC_GETTERS.put(long.class, "Long");
+		NUMERIC_GETTERS.put(float.class, "Float");
+		NUMERIC_GETTERS.put(double.class, "Double");
+		NUMERIC_GETTERS.put(Byte.class, "Byte");
+		NUMERIC_GETTERS.put(Short.class, "Short");
+		NUMERIC_GETTERS.put(Integer.class, "Int");
+		NUMERIC_GETTERS.put(Long.class, "Long");
+		NUMERIC_GETTERS.put(Float.class, "Float");
+		NUMERIC_GETTERS.put(Double.class, "Double");
+	}
+
+	/**
+	 * Generates a row mapper for the result type and column layout, or falls back to the reflection-based mapper if
+	 * the result type isn't accessible to the generated code.
+	 */
+	static Mapper<ResultSet, ?> compile(RowLayout layout) {
+		Prop[] props = new Prop[layout.labels.length];
+
+		for (int i = 0; i < props.length; i++) {
+			props[i] = Beany.property(layout.type, layout.labels[i], false);
+		}
+
+		if (isAccessible(layout.type)) {
+			try {
+				return generate(layout, props);
+
+			} catch (Throwable e) {
+				Log.warn("Couldn't generate row mapper, falling back to reflection", "type", layout.type, "error", Msc.errorMsg(e));
+			}
+		}
+
+		return reflectiveMapper(layout.type, props);
+	}
+
+	private static boolean isAccessible(Class<?> type) {
+		if (!isPublic(type.getModifiers())) return false;
+		if (type.getEnclosingClass() != null && !Modifier.isStatic(type.getModifiers())) return false;
+
+		try {
+			return isPublic(type.getConstructor().getModifiers());
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static Mapper<ResultSet, ?> generate(RowLayout layout, Prop[] props) throws Exception {
+		ConcurrentMap<RowLayout, Constructor<?>> classes = MAPPER_CLASSES.get(layout.type);
+		Constructor<?> constructor = classes.get(layout);
+
+		if (constructor == null) {
+			synchronized (classes) {
+				constructor = classes.get(layout);
+
+				if (constructor == null) {
+					constructor = generateClass(layout, props).getConstructor(Prop[].class);
+					classes.put(layout, constructor);
+				}
+			}
+		}
+
+		return (Mapper<ResultSet, ?>) constructor.newInstance(new Object[]{props});
+	}
+
+	private static Class<?> generateClass(RowLayout layout, Prop[] props) throws Exception {
+		Class<?> type = layout.type;
+		ClassLoader loader = type.getClassLoader();
+
+		ClassPool cp = new ClassPool(true);
+		cp.appendClassPath(new LoaderClassPath(loader));
+		cp.appendClassPath(new ClassClassPath(RowMapperCompiler.class));
+
+		CtClass cls = cp.makeClass(GeneratedRowMapper.class.getName() + ID_GEN.incrementAndGet(), cp.get(GeneratedRowMapper.class.getName()));
+
+		String constructor = U.frmt("public %s(org.rapidoid.beany.Prop[] props) { super($1); }", cls.getSimpleName());
+		cls.addConstructor(CtNewConstructor.make(constructor, cls));
+
+		cls.addMethod(CtNewMethod.make(mapperSource(layout, props), cls));
+
+		Class<?> mapperCls = cls.toClass(loader, type.getProtectionDomain());
+		cls.detach();
+
+		return mapperCls;
+	}
+
+	static String mapperSource(RowLayout layout, Prop[] props) {
+		String typeName = layout.type.getName();
+
+		StringBuilder code = new StringBuilder();
+
+		code.append("public Object map(Object src) throws Exception {\n");
+		code.append("  java.sql.ResultSet rs = (java.sql.ResultSet) $1;\n");
+		code.append(U.frmt("  %s row = new %s();\n", typeName, typeName));
+
+		for (int i = 0; i < props.length; i++) {
+			if (props[i] != null) {
+				code.append("  ").append(columnSource(i, layout.sqlTypes[i], props[i])).append("\n");
+			}
+		}
+
+		code.append("  return row;\n");
+		code.append("}\n");
+
+		return code.toString();
+	}
+
+	private static String columnSource(int index, int sqlType, Prop prop) {
+		String assign = assignment(prop);
+
+		if (assign != null) {
+			Class<?> type = prop.getType();
+			int col = index + 1;
+			String getter = NUMERIC_GETTERS.get(type);
+
+			if (getter != null && isNumericCompatible(sqlType, type)) {
+				return typedRead(index, type, getter, assign);
+
+			} else if ((type == boolean.class || type == Boolean.class) && isBoolean(sqlType)) {
+				return typedRead(index, type, "Boolean", assign);
+
+			} else if (type == String.class && isText(sqlType)) {
+				return U.frmt(assign, "rs.getString(" + col + ")") + ";";
+
+			} else if (type == BigDecimal.class && isNumeric(sqlType)) {
+				return U.frmt(assign, "rs.getBigDecimal(" + col + ")") + ";";
+
+			} else if (type == byte[].class && isBinary(sqlType)) {
+				return U.frmt(assign, "rs.getBytes(" + col + ")") + ";";
+			}
+		}
+
+		return "setProp(" + index + ", row, rs);";
+	}
+
+	private static String typedRead(int index, Class<?> type, String getter, String assign) {
+		int col = index + 1;
+		String primitive = getter.equals("Int") ? "int" : getter.toLowerCase();
+		String read = U.frmt("%s v%s = rs.get%s(%s);", primitive, col, getter, col);
+
+		if (type.isPrimitive()) {
+			// SQL NULL can't be assigned to a primitive property, so it is handled like in the reflection-based mapper
+			return U.frmt("{ %s if (rs.wasNull()) setProp(%s, row, rs); else %s; }", read, index, U.frmt(assign, "v" + col));
+
+		} else {
+			String boxed = U.frmt("%s.valueOf(v%s)", type.getName(), col);
+			String nil = U.frmt("(%s) null", type.getName());
+			return U.frmt("{ %s if (rs.wasNull()) %s; else %s; }", read, U.frmt(assign, nil), U.frmt(assign, boxed));
+		}
+	}
+
+	/**
+	 * The format of the assignment of a value to the property, through a public field or setter.
+	 */
+	private static String assignment(Prop prop) {
+		if (!(prop instanceof BeanProp) || prop.getType() != prop.getRawType()) return null;
+
+		BeanProp beanProp = (BeanProp) prop;
+		Field field = beanProp.getField();
+		Method setter = beanProp.getSetter();
+
+		if (field != null && isPublic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers())
+			&& isPublic(field.getDeclaringClass().getModifiers())) {
+			return "row." + field.getName() + " = %s";
+		}
+
+		if (setter != null && isPublic(setter.getModifiers()) && isPublic(setter.getDeclaringClass().getModifiers())) {
+			return "row." + setter.getName() + "(%s)";
+		}
+
+		return null;
+	}
+
+	private static boolean isPublic(int modifiers) {
+		return Modifier.isPublic(modifiers);
+	}
+
+	private static boolean isNumericCompatible(int sqlType, Class<?> type) {
+		boolean integral = type != float.class && type != double.class && type != Float.class && type != Double.class;
+		return integral ? isIntegral(sqlType) : isNumeric(sqlType);
+	}
+
+	private static boolean isIntegral(int sqlType) {
+		switch (sqlType) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+				return true;
+
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isNumeric(int sqlType) {
+		switch (sqlType) {
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return true;
+
+			default:
+				return isIntegral(sqlType);
+		}
+	}
+
+	private static boolean isBoolean(int sqlType) {
+		return sqlType == Types.BOOLEAN || sqlType == Types.BIT;
+	}
+
+	private static boolean isText(int sqlType) {
+		switch (sqlType) {
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+			case Types.LONGNVARCHAR:
+				return true;
+
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isBinary(int sqlType) {
+		return sqlType == Types.BINARY || sqlType == Types.VARBINARY || sqlType == Types.LONGVARBINARY;
+	}
+
+	static <T> Mapper<ResultSet, T> reflectiveMapper(final Class<T> resultType, final Prop[] props) {
+		return new Mapper<ResultSet, T>() {
+			@Override
+			public T map(ResultSet rs) throws Exception {
+				T row = resultType.newInstance();
+
+				for (int i = 0; i < props.length; i++) {
+					if (props[i] != null) {
+						Object value = rs.getObject(i + 1); // 1-indexed
+						props[i].set(row, value);
+					}
+				}
+
+				return row;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,105 @@
+/*-
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.jdbc;
+
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.u.U;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public enum SqlDialect {
+
+	MYSQL(true, false),
+	POSTGRES(true, true),
+	H2(true, false),
+	HSQLDB(true, false),
+	GENERIC(false, false);
+
+	private final boolean supportsLimit;
+	private final boolean cursorNeedsTx;
+
+	SqlDialect(boolean supportsLimit, boolean cursorNeedsTx) {
+		this.supportsLimit = supportsLimit;
+		this.cursorNeedsTx = cursorNeedsTx;
+	}
+
+	public static SqlDialect fromUrl(String url) {
+		if (url == null) {
+			return GENERIC;
+
+		} else if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+			return MYSQL;
+
+		} else if (url.startsWith("jdbc:postgresql:")) {
+			return POSTGRES;
+
+		} else if (url.startsWith("jdbc:h2:")) {
+			return H2;
+
+		} else if (url.startsWith("jdbc:hsqldb:")) {
+			return HSQLDB;
+		}
+
+		return GENERIC;
+	}
+
+	/**
+	 * Whether paging can be pushed down to the database by appending a LIMIT/OFFSET clause.
+	 */
+	public boolean supportsLimit() {
+		return supportsLimit;
+	}
+
+	/**
+	 * Whether the driver fetches the results lazily (honoring the fetch size) only inside a transaction.
+	 */
+	public boolean cursorNeedsTx() {
+		return cursorNeedsTx;
+	}
+
+	/**
+	 * Constructs the paging clause, where negative limit means unlimited.
+	 */
+	public String limitClause(long skip, long limit) {
+		U.must(supportsLimit, "The SQL dialect %s doesn't support LIMIT!", this);
+
+		if (this == MYSQL) {
+			// MySQL can't skip rows without a limit, so the max possible value is used instead
+			return "LIMIT " + skip + ", " + (limit >= 0 ? limit + "" : "18446744073709551615");
+		}
+
+		if (limit < 0) {
+			return "OFFSET " + skip + " ROWS";
+		}
+
+		return skip > 0 ? "LIMIT " + limit + " OFFSET " + skip : "LIMIT " + limit;
+	}
+
+	/**
+	 * The fetch size that enables row-by-row streaming of the results, for the given configured fetch size.
+	 */
+	public int streamingFetchSize(int fetchSize) {
+		// MySQL Connector/J streams the results only with this special value
+		return this == MYSQL ? Integer.MIN_VALUE : fetchSize;
+	}
+
+}
@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.jdbc;
+
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.commons.Str;
+
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites plain SELECT queries to push the paging and counting down to the database.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+class SqlPaging extends RapidoidThing {
+
+	private static final Pattern LITERALS_AND_COMMENTS = Pattern.compile(
+		"(?s)(?:'[^']*'|\"[^\"]*\"|`[^`]*`|--[^\\n]*|/\\*.*?\\*/)");
+
+	private static final Pattern SELECT = Pattern.compile("(?i)^\\s*(?:SELECT|WITH)\\b");
+
+	// top-level clauses that can't be combined with an appended LIMIT
+	private static final Pattern PAGING_OR_LOCKING = Pattern.compile("(?i)\\b(?:LIMIT|OFFSET|FETCH|TOP|FOR|INTO|LOCK)\\b");
+
+	// top-level clauses that can't be wrapped in a sub-query
+	private static final Pattern LOCKING = Pattern.compile("(?i)\\b(?:FOR|INTO|LOCK)\\b");
+
+	static String trim(String sql) {
+		sql = sql.trim();
+
+		while (sql.endsWith(";")) {
+			sql = sql.substring(0, sql.length() - 1).trim();
+		}
+
+		return sql;
+	}
+
+	static boolean canLimit(String sql) {
+		String top = topLevel(sql);
+		return top != null && !PAGING_OR_LOCKING.matcher(top).find();
+	}
+
+	static boolean canCount(String sql) {
+		String top = topLevel(sql);
+		return top != null && !LOCKING.matcher(top).find();
+	}
+
+	static String paged(SqlDialect dialect, String sql, long skip, long limit) {
+		// a new line ends the trailing line comment, if any
+		return trim(sql) + "\n" + dialect.limitClause(skip, limit);
+	}
+
+	static String count(String sql) {
+		return "SELECT COUNT(*) FROM (\n" + trim(sql) + "\n) rapidoid_count";
+	}
+
+	/**
+	 * Masks the literals, comments and nested expressions of a plain SELECT query, leaving only its top-level clauses.
+	 * Returns <code>null</code> if the SQL is not a single plain SELECT query.
+	 */
+	private static String topLevel(String sql) {
+		String masked = Str.mask(trim(sql), LITERALS_AND_COMMENTS);
+
+		if (!SELECT.matcher(masked).find() || masked.indexOf(';') >= 0) {
+			return null;
+		}
+
+		StringBuilder top = new StringBuilder(masked.length());
+		int depth = 0;
+
+		for (int i = 0; i < masked.length(); i++) {
+			char ch = masked.charAt(i);
+
+			if (ch == '(') {
+				depth++;
+			} else if (ch == ')') {
+				depth--;
+			}
+
+			top.append(depth == 0 && ch != ')' ? ch : ' ');
+		}
+
+		return depth == 0 ? top.toString() : null;
+	}
+
+}
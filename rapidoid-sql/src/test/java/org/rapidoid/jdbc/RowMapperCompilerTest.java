@@ -0,0 +1,55 @@
+/*-
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.jdbc;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.lambda.Mapper;
+import org.rapidoid.sql.test.Report;
+import org.rapidoid.test.TestCommons;
+
+import java.sql.ResultSet;
+import java.sql.Types;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class RowMapperCompilerTest extends TestCommons {
+
+	@Test
+	public void testGeneratedClassIsReused() {
+		RowLayout layout = new RowLayout(Report.class, new String[]{"id", "ratio"}, new int[]{Types.INTEGER, Types.DOUBLE});
+
+		Mapper<ResultSet, ?> mapper1 = RowMapperCompiler.compile(layout);
+		Mapper<ResultSet, ?> mapper2 = RowMapperCompiler.compile(new RowLayout(Report.class, new String[]{"id", "ratio"}, new int[]{Types.INTEGER, Types.DOUBLE}));
+
+		isTrue(((Object) mapper1) instanceof GeneratedRowMapper);
+		isTrue(mapper1 != mapper2);
+
+		// a new mapper instance (e.g. after eviction from the mapper cache) doesn't define a new class
+		isTrue(mapper1.getClass() == mapper2.getClass());
+
+		// a different column layout requires a different class
+		Mapper<ResultSet, ?> mapper3 = RowMapperCompiler.compile(new RowLayout(Report.class, new String[]{"ratio", "id"}, new int[]{Types.DOUBLE, Types.INTEGER}));
+		isTrue(mapper1.getClass() != mapper3.getClass());
+	}
+
+}
@@ -0,0 +1,103 @@
+/*-
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.sql.test;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.concurrent.Callback;
+import org.rapidoid.config.Conf;
+import org.rapidoid.group.Groups;
+import org.rapidoid.jdbc.JDBC;
+import org.rapidoid.jdbc.JdbcClient;
+import org.rapidoid.jdbc.JdbcWorkers;
+import org.rapidoid.lambda.Operation;
+
+import java.sql.Connection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class JDBCAsyncTest extends SQLTestCommons {
+
+	private static final int COUNT = 1000;
+
+	@Test
+	public void testBatchedAsyncUpdates() throws Exception {
+		Conf.JDBC.set("workers", 1);
+		Conf.JDBC.set("batchWindowMs", 50);
+
+		JdbcClient client = JDBC.api("a").hsql("test");
+
+		client.tryToExecute("DROP TABLE movie");
+		client.execute("CREATE TABLE movie (id int PRIMARY KEY, title varchar(99))");
+
+		final CountDownLatch latch = new CountDownLatch(COUNT + 2);
+		final AtomicInteger updated = new AtomicInteger();
+		final AtomicInteger failed = new AtomicInteger();
+
+		Callback<Integer> callback = new Callback<Integer>() {
+			@Override
+			public void onDone(Integer count, Throwable error) {
+				if (error == null) {
+					updated.addAndGet(count);
+				} else {
+					failed.incrementAndGet();
+				}
+
+				latch.countDown();
+			}
+		};
+
+		for (int id = 1; id <= COUNT; id++) {
+			client.execute(callback, "INSERT INTO movie VALUES (?, ?)", id, "movie" + id);
+
+			if (id == COUNT / 2) {
+				// the other operations are executed in between the batches
+				client.execute(new Operation<Connection>() {
+					@Override
+					public void execute(Connection conn) throws Exception {
+						latch.countDown();
+					}
+				});
+			}
+		}
+
+		// a duplicate key fails, without failing the other operations
+		client.execute(callback, "INSERT INTO movie VALUES (?, ?)", 1, "duplicate");
+
+		isTrue(latch.await(30, TimeUnit.SECONDS));
+
+		eq(updated.get(), COUNT);
+		eq(failed.get(), 1);
+		eq(client.query("SELECT * FROM movie").count(), COUNT);
+
+		JdbcWorkers workers = Groups.find(JdbcWorkers.class).get(0).find("a");
+
+		eq(workers.workers(), 1);
+		eq(workers.executed(), COUNT + 2);
+		isTrue(workers.batches() > 0);
+		isTrue(workers.maxBatchSize() > 1);
+	}
+
+}
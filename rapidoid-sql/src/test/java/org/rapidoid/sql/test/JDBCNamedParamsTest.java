@@ -51,4 +51,20 @@ public class JDBCNamedParamsTest extends SQLTestCommons {
 		eq(movies2, U.list(U.map("N", 1L)));
 	}
 
+	@Test
+	public void testReusedSQLWithNamedParams() {
+		JDBC.execute("CREATE TABLE movie (id int, title varchar(99))");
+
+		for (int id = 1; id <= 10; id++) {
+			eq(JDBC.execute("INSERT INTO movie VALUES ($id, $name)", U.map("name", "movie" + id, "id", id)), 1);
+		}
+
+		for (int id = 1; id <= 10; id++) {
+			String sql = "SELECT title FROM movie WHERE id = $id OR (id = $id + 1 AND title <> '$id')";
+			List<Map<String, Object>> movies = JDBC.query(sql, U.map("id", id)).all();
+
+			eq(movies.size(), id < 10 ? 2 : 1);
+		}
+	}
+
 }
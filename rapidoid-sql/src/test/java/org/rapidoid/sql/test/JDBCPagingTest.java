@@ -24,11 +24,13 @@ package org.rapidoid.sql.test;
 import org.junit.Test;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.datamodel.CloseableIterator;
 import org.rapidoid.jdbc.JDBC;
 import org.rapidoid.jdbc.JdbcClient;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Msc;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -46,7 +48,84 @@ public class JDBCPagingTest extends SQLTestCommons {
 		testPagingWithSql("SELECT * FROM movie WHERE id < ?");
 	}
 
-	private void testPagingWithSql(String sql) {
+	@Test
+	public void testPagingWithNestedClauses() {
+		testPagingWithSql("SELECT * FROM movie WHERE id < ? AND title <> 'x LIMIT 1' AND id IN (SELECT id FROM movie LIMIT 1000) -- LIMIT 1;");
+	}
+
+	@Test
+	public void testCount() {
+		JdbcClient client = initMovies();
+
+		eq(client.query("SELECT * FROM movie WHERE id < ?", 11).count(), 10);
+		eq(client.query("SELECT * FROM movie WHERE id > ? ORDER BY id DESC;", 90).count(), 10);
+		eq(client.query("SELECT * FROM movie WHERE id < ? LIMIT 3", 11).count(), 3);
+
+		// the count is unknown, so the results are counted manually
+		eq(client.query("SELECT * FROM movie WHERE id < ? OFFSET $skip LIMIT $limit", 11).count(), 10);
+	}
+
+	@Test
+	public void testIteration() {
+		JdbcClient client = initMovies();
+		client.fetchSize(7);
+
+		int n = 0;
+		for (Movie movie : client.query(Movie.class, "SELECT * FROM movie ORDER BY id")) {
+			n++;
+			eq(movie.getTitle(), "movie" + n);
+		}
+
+		eq(n, 100);
+
+		Iterator<Map<String, Object>> it = client.query("SELECT * FROM movie WHERE id > ?", 98).iterator();
+
+		isTrue(it.hasNext());
+		isTrue(it.hasNext());
+		notNull(it.next());
+		notNull(it.next());
+		isFalse(it.hasNext());
+
+		// abandoning the (buffered) iteration doesn't hold any connections
+		for (int i = 0; i < 100; i++) {
+			for (Movie movie : client.query(Movie.class, "SELECT * FROM movie ORDER BY id")) {
+				break;
+			}
+		}
+	}
+
+	@Test
+	public void testStreaming() {
+		JdbcClient client = initMovies();
+		client.fetchSize(7);
+
+		int n = 0;
+		try (CloseableIterator<Movie> it = client.query(Movie.class, "SELECT * FROM movie ORDER BY id").stream()) {
+			while (it.hasNext()) {
+				n++;
+				eq(it.next().getTitle(), "movie" + n);
+			}
+		}
+
+		eq(n, 100);
+
+		// the abandoned streams release their connections when closed
+		for (int i = 0; i < 100; i++) {
+			try (CloseableIterator<Movie> it = client.query(Movie.class, "SELECT * FROM movie ORDER BY id").stream()) {
+				eq(it.next().getTitle(), "movie1");
+			}
+		}
+	}
+
+	@Test
+	public void testLastRecord() {
+		JdbcClient client = initMovies();
+
+		eq(client.query(Movie.class, "SELECT * FROM movie ORDER BY id").last().getTitle(), "movie100");
+		eq(client.query(Movie.class, "SELECT * FROM movie ORDER BY id").page(95, -1).size(), 5);
+	}
+
+	private JdbcClient initMovies() {
 		JdbcClient client = JDBC.api("a").hsql("test");
 
 		client.tryToExecute("DROP TABLE movie");
@@ -56,6 +135,12 @@ public class JDBCPagingTest extends SQLTestCommons {
 			client.execute("INSERT INTO movie VALUES (?, ?)", id, "movie" + id);
 		}
 
+		return client;
+	}
+
+	private void testPagingWithSql(String sql) {
+		JdbcClient client = initMovies();
+
 		List<Movie> movies = client.query(Movie.class, sql, 1000).all();
 
 		eq(movies.size(), 100);
@@ -0,0 +1,131 @@
+/*-
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2018 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.rapidoid.sql.test;
+
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.jdbc.GeneratedRowMapper;
+import org.rapidoid.jdbc.JDBC;
+import org.rapidoid.jdbc.JdbcClient;
+import org.rapidoid.lambda.Mapper;
+import org.rapidoid.util.Msc;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.5.4")
+public class JDBCRowMapperTest extends SQLTestCommons {
+
+	@Test
+	public void testGeneratedRowMapper() throws Exception {
+		JdbcClient client = initReports();
+
+		try (Connection conn = client.getConnection();
+		     PreparedStatement stmt = JDBC.prepare(conn, "SELECT * FROM report", null, new Object[0]);
+		     ResultSet rs = stmt.executeQuery()) {
+
+			Mapper<ResultSet, Report> mapper = JDBC.beanMapper(Report.class, rs.getMetaData());
+			isTrue(((Object) mapper) instanceof GeneratedRowMapper);
+
+			// the mappers are cached by result type and column layout
+			isTrue(mapper == JDBC.beanMapper(Report.class, rs.getMetaData()));
+		}
+	}
+
+	@Test
+	public void testMappingTypedColumns() {
+		JdbcClient client = initReports();
+
+		List<Report> reports = client.query(Report.class, "SELECT * FROM report ORDER BY id").all();
+		eq(reports.size(), 2);
+
+		Report r1 = reports.get(0);
+		eq(r1.id, 1);
+		eq(r1.total.longValue(), 1234567890123L);
+		isTrue(r1.ratio == 0.5);
+		eq(r1.active, true);
+		eq(r1.amount, new BigDecimal("12.34"));
+		notNull(r1.created);
+		eq(r1.getName(), "first");
+		eq(r1.getRank().intValue(), 10);
+
+		Report r2 = reports.get(1);
+		eq(r2.id, 2);
+		isNull(r2.total);
+		isTrue(r2.ratio == 0.0);
+		eq(r2.active, false);
+		isNull(r2.amount);
+		isNull(r2.created);
+		isNull(r2.getName());
+		isNull(r2.getRank());
+	}
+
+	@Test
+	public void testMappingWithColumnConversion() {
+		JdbcClient client = initReports();
+
+		// the integer column is mapped to a double property, and the numeric column to a String property
+		List<Report> reports = client.query(Report.class, "SELECT id AS ratio, amount AS name FROM report ORDER BY id").all();
+
+		isTrue(reports.get(0).ratio == 1.0);
+		eq(reports.get(0).getName(), "12.34");
+		isNull(reports.get(1).getName());
+	}
+
+	@Test
+	public void testMappingNullToPrimitive() {
+		JdbcClient client = initReports();
+		client.execute("INSERT INTO report VALUES (3, NULL, NULL, NULL, NULL, NULL, NULL, NULL)");
+
+		// the generated mapper rejects SQL NULL for a primitive property, like the reflection-based mapper
+		eq(mappingError(client), "Invalid value for 'ratio'!");
+	}
+
+	private String mappingError(JdbcClient client) {
+		try {
+			client.query(Report.class, "SELECT id, ratio FROM report WHERE id = 3").all();
+		} catch (RuntimeException e) {
+			return Msc.rootCause(e).getMessage();
+		}
+
+		fail("Expected mapping error!");
+		return null;
+	}
+
+	private JdbcClient initReports() {
+		JdbcClient client = JDBC.api("a").hsql("test");
+
+		client.tryToExecute("DROP TABLE report");
+		client.execute("CREATE TABLE report (id int, total bigint, ratio double, active boolean, amount decimal(10,2), " +
+			"created timestamp, name varchar(99), rank int)");
+
+		client.execute("INSERT INTO report VALUES (1, 1234567890123, 0.5, true, 12.34, CURRENT_TIMESTAMP, 'first', 10)");
+		client.execute("INSERT INTO report VALUES (2, NULL, 0, false, NULL, NULL, NULL, NULL)");
+
+		return client;
+	}
+
+}
@@ -28,6 +28,9 @@ import org.rapidoid.annotation.Since;
 @Since("5.3.0")
 public class APIConfig extends AbstractRouteConfig {
 
+	// streams the rows of the GET results as JSON straight from the database
+	public volatile boolean stream;
+
 	public APIConfig() {
 	}
 
@@ -42,6 +42,14 @@ public abstract class AbstractRouteConfig extends RapidoidThing {
 
 	public volatile Integer cacheCapacity;
 
+	public volatile Long cacheStaleTTL;
+
+	public volatile Boolean cacheCoalescing;
+
+	public volatile String[] cacheVary;
+
+	public volatile String executor;
+
 	public volatile String sql;
 
 	public volatile boolean single;
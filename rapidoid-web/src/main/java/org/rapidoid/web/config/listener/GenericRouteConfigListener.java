@@ -70,6 +70,11 @@ public abstract class GenericRouteConfigListener<T extends AbstractRouteConfig>
 
 		if (config.cacheTTL != null) route.cacheTTL(config.cacheTTL);
 		if (config.cacheCapacity != null) route.cacheCapacity(config.cacheCapacity);
+		if (config.cacheStaleTTL != null) route.cacheStaleTTL(config.cacheStaleTTL);
+		if (config.cacheCoalescing != null) route.cacheCoalescing(config.cacheCoalescing);
+		if (config.cacheVary != null) route.cacheVary(config.cacheVary);
+
+		if (config.executor != null) route.executor(config.executor);
 
 		if (config.roles != null) {
 			route.roles(config.roles);
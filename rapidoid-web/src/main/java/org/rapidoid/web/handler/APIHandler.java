@@ -44,6 +44,11 @@ public class APIHandler extends GenericHandler {
 	public Object execute(Req req, Resp resp) {
 
 		if (HttpUtils.isGetReq(req)) {
+
+			if (api.stream && !api.single) {
+				return streamItems(resp, api.sql);
+			}
+
 			Results items = sqlItems(api.sql);
 			return api.single ? U.single(items) : items;
 
@@ -25,11 +25,14 @@ import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.datamodel.Results;
-import org.rapidoid.http.Current;
-import org.rapidoid.http.HttpUtils;
-import org.rapidoid.http.Req;
-import org.rapidoid.http.ReqRespHandler;
+import org.rapidoid.http.*;
+import org.rapidoid.http.customize.Customization;
+import org.rapidoid.http.impl.ChunkedResponse;
+import org.rapidoid.io.IO;
 import org.rapidoid.jdbc.JDBC;
+import org.rapidoid.log.Log;
+
+import java.io.OutputStream;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.3.3")
@@ -39,6 +42,34 @@ public abstract class GenericHandler extends RapidoidThing implements ReqRespHan
 		return JDBC.query(sql, HttpUtils.webParams(req()));
 	}
 
+	protected Resp streamItems(Resp resp, String sql) {
+		Req req = req();
+
+		resp.contentType(MediaType.JSON);
+		OutputStream out = resp.out();
+		boolean written = false;
+
+		try {
+			JDBC.writeJSON(Customization.of(req).objectMapper(), out, sql, HttpUtils.webParams(req));
+			written = true;
+
+		} catch (RuntimeException e) {
+			// if nothing was sent yet, the error is rendered instead
+			if (!abort(out)) throw e;
+
+			Log.error("Error occurred while streaming the items, closing the connection!", e);
+
+		} finally {
+			if (written) IO.close(out, false);
+		}
+
+		return resp;
+	}
+
+	private static boolean abort(OutputStream out) {
+		return out instanceof ChunkedResponse && ((ChunkedResponse) out).abort();
+	}
+
 	protected int executeSql(String sql) {
 		return JDBC.execute(sql, HttpUtils.webParams(req()));
 	}